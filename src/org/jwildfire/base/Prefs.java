@@ -136,12 +136,19 @@ public class Prefs extends ManagedObject {
   public static final String KEY_TINA_DEFAULT_FPS = "tina.default.fps";
 
   static final String KEY_TINA_SAVING_STORE_HDR_IN_IR = "tina.saving.store_hdr_in_ir";
+  static final String KEY_TINA_SAVING_STORE_LINEAR_EXR = "tina.saving.store_linear_exr";
   static final String KEY_TINA_SAVING_STORE_FLAMES_WHEN_SAVING_IMAGE = "tina.saving.store_flames_when_saving_image";
   static final String KEY_TINA_OPTIMIZED_RENDERING_IR = "tina.optimized_rendering_ir.5";
 
   static final String KEY_TINA_DISABLE_WIKIMEDIA_COMMONS_WARNING = "tina.random_batch.disable_wikimedia_commons_warning";
   static final String KEY_TINA_COLORMAP_RANDGEN_IMAGE_PATH = "tina.random_batch.random_gen.colormap.image_path";
   public static final String KEY_TINA_FREE_CACHE_IN_BATCH_RENDERER = "tina.free_cache_in_batch_renderer";
+  static final String KEY_TINA_RASTER_SCRATCH_PATH = "tina.raster.scratch_path";
+  static final String KEY_TINA_EXACT_XFORM_SELECTION = "tina.render.exact_xform_selection";
+  static final String KEY_TINA_COMPILED_XFORMS = "tina.render.compiled_xforms";
+  static final String KEY_TINA_BATCH_WALKERS = "tina.render.batch_walkers";
+  static final String KEY_TINA_COMPRESS_RENDER_CHECKPOINTS = "tina.render.compress_checkpoints";
+  static final String KEY_TINA_RENDER_CHECKPOINT_INTERVAL = "tina.render.checkpoint_interval";
 
   public static final String KEY_TINA_CREATE_DEFAULT_MACRO_BUTTONS = "tina.create_default_macrobuttons.6";
   public static final String KEY_TINA_VERTICAL_MACRO_BUTTONS = "tina.macro_buttons.vertical";
@@ -247,9 +254,30 @@ public class Prefs extends ManagedObject {
   @Property(description = "Free the cacher after each rendered image in the batch-renderer", category = PropertyCategory.TINA)
   private boolean tinaFreeCacheInBatchRenderer = false;
 
+  @Property(description = "Drawer for the scratch files of the memory-mapped raster (system temp drawer if empty)", category = PropertyCategory.TINA)
+  private String tinaRasterScratchPath = null;
+
+  @Property(description = "Choose the next xform with exact probabilities (alias method) instead of the 1024-entry lookup table, so very small weights are not rounded away", category = PropertyCategory.TINA)
+  private boolean tinaExactXFormSelection = false;
+
+  @Property(description = "Compile every xform into a specialized class at render start, so the JIT can inline the variations (experimental)", category = PropertyCategory.TINA)
+  private boolean tinaCompiledXForms = false;
+
+  @Property(description = "Number of independent walkers every render thread advances in lockstep, grouped by xform (0 or 1 for the classic single walker)", category = PropertyCategory.TINA)
+  private int tinaBatchWalkers = 0;
+
+  @Property(description = "Deflate the raster of saved render states (smaller files, slower to write)", category = PropertyCategory.TINA)
+  private boolean tinaCompressRenderCheckpoints = false;
+
+  @Property(description = "Save the state of the interactive renderer automatically every n minutes (0 = disabled)", category = PropertyCategory.TINA)
+  private int tinaRenderCheckpointInterval = 0;
+
   @Property(description = "Generate and save HDR images in the interactive renderer", category = PropertyCategory.TINA)
   private boolean tinaSaveHDRInIR = false;
 
+  @Property(description = "Additionally save a linear half-float OpenEXR image (*.exr, without gamma and background) when rendering an image or a batch", category = PropertyCategory.TINA)
+  private boolean tinaSaveLinearEXR = false;
+
   @Property(description = "Disable the warning about the usage of Wikimedia Commons random-flame-generator", category = PropertyCategory.TINA)
   private boolean tinaDisableWikimediaCommonsWarning = false;
 
@@ -418,7 +446,7 @@ public class Prefs extends ManagedObject {
   public static class RasterCreatorEditor extends ComboBoxPropertyEditor {
     public RasterCreatorEditor() {
       super();
-      setAvailableValues(new RasterCreator[] { RasterCreator.FLOAT_INT_RASTER });
+      setAvailableValues(new RasterCreator[] { RasterCreator.FLOAT_INT_RASTER, RasterCreator.FLOAT_INT_RASTER_STRIPED, RasterCreator.FLOAT_INT_RASTER_FLAT, RasterCreator.FLOAT_INT_RASTER_MAPPED });
     }
   }
 
@@ -731,6 +759,7 @@ public class Prefs extends ManagedObject {
     tinaAssociateProfilesWithFlames = pSrc.tinaAssociateProfilesWithFlames;
     tinaSaveFlamesWhenImageIsSaved = pSrc.tinaSaveFlamesWhenImageIsSaved;
     tinaSaveHDRInIR = pSrc.tinaSaveHDRInIR;
+    tinaSaveLinearEXR = pSrc.tinaSaveLinearEXR;
     tinaDefaultBGTransparency = pSrc.tinaDefaultBGTransparency;
     tinaRasterType = pSrc.tinaRasterType;
     tinaJWFScriptPath = pSrc.tinaJWFScriptPath;
@@ -742,6 +771,12 @@ public class Prefs extends ManagedObject {
     tinaMacroButtonsVertical = pSrc.tinaMacroButtonsVertical;
     tinaMacroToolbarHeight = pSrc.tinaMacroToolbarHeight;
     tinaFreeCacheInBatchRenderer = pSrc.tinaFreeCacheInBatchRenderer;
+    tinaRasterScratchPath = pSrc.tinaRasterScratchPath;
+    tinaExactXFormSelection = pSrc.tinaExactXFormSelection;
+    tinaCompiledXForms = pSrc.tinaCompiledXForms;
+    tinaBatchWalkers = pSrc.tinaBatchWalkers;
+    tinaCompressRenderCheckpoints = pSrc.tinaCompressRenderCheckpoints;
+    tinaRenderCheckpointInterval = pSrc.tinaRenderCheckpointInterval;
 
     tinaRandGenDualityPreferedVariation = pSrc.tinaRandGenDualityPreferedVariation;
     tinaRandGenDualityPreferedVariationProbability1 = pSrc.tinaRandGenDualityPreferedVariationProbability1;
@@ -1006,6 +1041,14 @@ public class Prefs extends ManagedObject {
     this.tinaSaveHDRInIR = tinaSaveHDRInIR;
   }
 
+  public boolean isTinaSaveLinearEXR() {
+    return tinaSaveLinearEXR;
+  }
+
+  public void setTinaSaveLinearEXR(boolean pTinaSaveLinearEXR) {
+    tinaSaveLinearEXR = pTinaSaveLinearEXR;
+  }
+
   public boolean isTinaSaveFlamesWhenImageIsSaved() {
     return tinaSaveFlamesWhenImageIsSaved;
   }
@@ -1353,6 +1396,54 @@ public class Prefs extends ManagedObject {
     tinaFreeCacheInBatchRenderer = pTinaFreeCacheInBatchRenderer;
   }
 
+  public String getTinaRasterScratchPath() {
+    return tinaRasterScratchPath;
+  }
+
+  public void setTinaRasterScratchPath(String pTinaRasterScratchPath) {
+    tinaRasterScratchPath = pTinaRasterScratchPath;
+  }
+
+  public boolean isTinaExactXFormSelection() {
+    return tinaExactXFormSelection;
+  }
+
+  public void setTinaExactXFormSelection(boolean pTinaExactXFormSelection) {
+    tinaExactXFormSelection = pTinaExactXFormSelection;
+  }
+
+  public boolean isTinaCompiledXForms() {
+    return tinaCompiledXForms;
+  }
+
+  public void setTinaCompiledXForms(boolean pTinaCompiledXForms) {
+    tinaCompiledXForms = pTinaCompiledXForms;
+  }
+
+  public int getTinaBatchWalkers() {
+    return tinaBatchWalkers;
+  }
+
+  public void setTinaBatchWalkers(int pTinaBatchWalkers) {
+    tinaBatchWalkers = pTinaBatchWalkers;
+  }
+
+  public boolean isTinaCompressRenderCheckpoints() {
+    return tinaCompressRenderCheckpoints;
+  }
+
+  public void setTinaCompressRenderCheckpoints(boolean pTinaCompressRenderCheckpoints) {
+    tinaCompressRenderCheckpoints = pTinaCompressRenderCheckpoints;
+  }
+
+  public int getTinaRenderCheckpointInterval() {
+    return tinaRenderCheckpointInterval;
+  }
+
+  public void setTinaRenderCheckpointInterval(int pTinaRenderCheckpointInterval) {
+    tinaRenderCheckpointInterval = pTinaRenderCheckpointInterval;
+  }
+
   public EditorDoubleClickActionType getTinaEditorDoubleClickAction() {
     return tinaEditorDoubleClickAction;
   }
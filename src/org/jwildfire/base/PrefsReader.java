@@ -112,6 +112,7 @@ public class PrefsReader {
         pPrefs.setTinaAssociateProfilesWithFlames(getBooleanProperty(props, Prefs.KEY_TINA_PROFILE_ASSOCIATE_WITH_FLAMES, pPrefs.isTinaAssociateProfilesWithFlames()));
         pPrefs.setTinaSaveFlamesWhenImageIsSaved(getBooleanProperty(props, Prefs.KEY_TINA_SAVING_STORE_FLAMES_WHEN_SAVING_IMAGE, pPrefs.isTinaSaveFlamesWhenImageIsSaved()));
         pPrefs.setTinaSaveHDRInIR(getBooleanProperty(props, Prefs.KEY_TINA_SAVING_STORE_HDR_IN_IR, pPrefs.isTinaSaveHDRInIR()));
+        pPrefs.setTinaSaveLinearEXR(getBooleanProperty(props, Prefs.KEY_TINA_SAVING_STORE_LINEAR_EXR, pPrefs.isTinaSaveLinearEXR()));
         pPrefs.setTinaOptimizedRenderingIR(getBooleanProperty(props, Prefs.KEY_TINA_OPTIMIZED_RENDERING_IR, pPrefs.isTinaOptimizedRenderingIR()));
         //        pPrefs.setTinaUseExperimentalOpenClCode(getBooleanProperty(props, Prefs.KEY_TINA_USE_EXPERIMENTAL_OPENCL_CODE, pPrefs.isTinaUseExperimentalOpenClCode()));
         pPrefs.setTinaDefaultBGTransparency(getBooleanProperty(props, Prefs.KEY_TINA_RENDER_DEFAULT_BG_TRANSPARENCY, pPrefs.isTinaDefaultBGTransparency()));
@@ -172,6 +173,12 @@ public class PrefsReader {
         pPrefs.setTinaMutaGenMutationTypeVert1(getProperty(props, Prefs.KEY_TINA_MUTAGEN_MUTATIONTYPE_VERT1, pPrefs.getTinaMutaGenMutationTypeVert1()));
         pPrefs.setTinaMutaGenMutationTypeVert2(getProperty(props, Prefs.KEY_TINA_MUTAGEN_MUTATIONTYPE_VERT2, pPrefs.getTinaMutaGenMutationTypeVert2()));
         pPrefs.setTinaFreeCacheInBatchRenderer(getBooleanProperty(props, Prefs.KEY_TINA_FREE_CACHE_IN_BATCH_RENDERER, pPrefs.isTinaFreeCacheInBatchRenderer()));
+        pPrefs.setTinaRasterScratchPath(getProperty(props, Prefs.KEY_TINA_RASTER_SCRATCH_PATH, pPrefs.getTinaRasterScratchPath()));
+        pPrefs.setTinaExactXFormSelection(getBooleanProperty(props, Prefs.KEY_TINA_EXACT_XFORM_SELECTION, pPrefs.isTinaExactXFormSelection()));
+        pPrefs.setTinaCompiledXForms(getBooleanProperty(props, Prefs.KEY_TINA_COMPILED_XFORMS, pPrefs.isTinaCompiledXForms()));
+        pPrefs.setTinaBatchWalkers(getIntProperty(props, Prefs.KEY_TINA_BATCH_WALKERS, pPrefs.getTinaBatchWalkers()));
+        pPrefs.setTinaCompressRenderCheckpoints(getBooleanProperty(props, Prefs.KEY_TINA_COMPRESS_RENDER_CHECKPOINTS, pPrefs.isTinaCompressRenderCheckpoints()));
+        pPrefs.setTinaRenderCheckpointInterval(getIntProperty(props, Prefs.KEY_TINA_RENDER_CHECKPOINT_INTERVAL, pPrefs.getTinaRenderCheckpointInterval()));
 
         pPrefs.setIflamesFlameLibraryPath(getProperty(props, Prefs.KEY_IFLAMES_LIBRARY_PATH_FLAMES, pPrefs.getIflamesFlameLibraryPath()));
         pPrefs.setIflamesImageLibraryPath(getProperty(props, Prefs.KEY_IFLAMES_LIBRARY_PATH_IMAGES, pPrefs.getIflamesImageLibraryPath()));
@@ -48,6 +48,7 @@ public class PrefsWriter {
     addValue(sb, Prefs.KEY_TINA_PROFILE_ASSOCIATE_WITH_FLAMES, pPrefs.isTinaAssociateProfilesWithFlames());
     addValue(sb, Prefs.KEY_TINA_SAVING_STORE_FLAMES_WHEN_SAVING_IMAGE, pPrefs.isTinaSaveFlamesWhenImageIsSaved());
     addValue(sb, Prefs.KEY_TINA_SAVING_STORE_HDR_IN_IR, pPrefs.isTinaSaveHDRInIR());
+    addValue(sb, Prefs.KEY_TINA_SAVING_STORE_LINEAR_EXR, pPrefs.isTinaSaveLinearEXR());
     addValue(sb, Prefs.KEY_TINA_OPTIMIZED_RENDERING_IR, pPrefs.isTinaOptimizedRenderingIR());
     //    addValue(sb, Prefs.KEY_TINA_USE_EXPERIMENTAL_OPENCL_CODE, pPrefs.isTinaUseExperimentalOpenClCode());
     addValue(sb, Prefs.KEY_TINA_PATH_MESHES, pPrefs.getTinaMeshPath());
@@ -89,6 +90,12 @@ public class PrefsWriter {
     addValue(sb, Prefs.KEY_TINA_EDITOR_GUIDES_LINE_WIDTH, pPrefs.getTinaEditorGuidesLineWidth());
     addValue(sb, Prefs.KEY_TINA_VERTICAL_MACRO_BUTTONS, pPrefs.isTinaMacroButtonsVertical());
     addValue(sb, Prefs.KEY_TINA_FREE_CACHE_IN_BATCH_RENDERER, pPrefs.isTinaFreeCacheInBatchRenderer());
+    addValue(sb, Prefs.KEY_TINA_RASTER_SCRATCH_PATH, pPrefs.getTinaRasterScratchPath());
+    addValue(sb, Prefs.KEY_TINA_EXACT_XFORM_SELECTION, pPrefs.isTinaExactXFormSelection());
+    addValue(sb, Prefs.KEY_TINA_COMPILED_XFORMS, pPrefs.isTinaCompiledXForms());
+    addValue(sb, Prefs.KEY_TINA_BATCH_WALKERS, pPrefs.getTinaBatchWalkers());
+    addValue(sb, Prefs.KEY_TINA_COMPRESS_RENDER_CHECKPOINTS, pPrefs.isTinaCompressRenderCheckpoints());
+    addValue(sb, Prefs.KEY_TINA_RENDER_CHECKPOINT_INTERVAL, pPrefs.getTinaRenderCheckpointInterval());
 
     addValue(sb, Prefs.KEY_TINA_FONTSCALE, pPrefs.getTinaFontScale());
 
@@ -146,60 +146,9 @@ public class AnimationService {
     }
   }
 
+  // evaluating several frames of the same flame (or copies of it) is cheaper with a MotionCurveEvaluator
   public static Flame evalMotionCurves(Flame pFlame, double pFrame) {
-    try {
-      _evalMotionCurves(pFlame, pFrame);
-      return pFlame;
-    }
-    catch (Throwable ex) {
-      throw new RuntimeException(ex);
-    }
-  }
-
-  private static void _evalMotionCurves(Object pObject, double pFrame) throws IllegalAccessException {
-    Class<?> cls = pObject.getClass();
-    for (Field field : cls.getDeclaredFields()) {
-      field.setAccessible(true);
-      if (field.getType() == MotionCurve.class && field.getName().endsWith(Tools.CURVE_POSTFIX)) {
-        MotionCurve curve = (MotionCurve) field.get(pObject);
-        if (curve.isEnabled()) {
-          double value = evalCurve(pFrame, curve);
-          String propName = field.getName().substring(0, field.getName().length() - Tools.CURVE_POSTFIX.length());
-          curve.getChangeHandler().processValueChange(pObject, propName, value);
-          if (pObject instanceof RGBPalette) {
-            curve.getChangeHandler().processValueChange(pObject, "modified", 1.0);
-          }
-          //setPropertyValue(pObject, propName, value);
-          //          System.out.println(propName + " " + value);
-        }
-      }
-      else if (field.getType().isAssignableFrom(ArrayList.class)) {
-        List<?> childs = (List<?>) field.get(pObject);
-        for (Object child : childs) {
-          _evalMotionCurves(child, pFrame);
-        }
-      }
-      else if (field.getType().isAssignableFrom(RGBPalette.class)) {
-        RGBPalette gradient = (RGBPalette) field.get(pObject);
-        _evalMotionCurves(gradient, pFrame);
-      }
-    }
-    if (pObject instanceof Variation) {
-      Variation var = (Variation) pObject;
-      VariationFunc func = var.getFunc();
-      for (String name : func.getParameterNames()) {
-        MotionCurve curve = var.getMotionCurve(name);
-        if (curve != null && curve.isEnabled()) {
-          double value = evalCurve(pFrame, curve);
-          try {
-            func.setParameter(name, value);
-          }
-          catch (Exception ex) {
-            ex.printStackTrace();
-          }
-        }
-      }
-    }
+    return new MotionCurveEvaluator(pFlame).apply(pFlame, pFrame);
   }
 
   public static Flame disableMotionCurves(Flame pFlame) {
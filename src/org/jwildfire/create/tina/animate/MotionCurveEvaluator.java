@@ -0,0 +1,251 @@
+/*
+  JWildfire - an image and animation processor written in Java 
+  Copyright (C) 1995-2016 Andreas Maschke
+
+  This is free software; you can redistribute it and/or modify it under the terms of the GNU Lesser 
+  General Public License as published by the Free Software Foundation; either version 2.1 of the 
+  License, or (at your option) any later version.
+ 
+  This software is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without 
+  even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU 
+  Lesser General Public License for more details.
+
+  You should have received a copy of the GNU Lesser General Public License along with this software; 
+  if not, write to the Free Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+  02110-1301 USA, or see the FSF site: http://www.fsf.org.
+*/
+package org.jwildfire.create.tina.animate;
+
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.jwildfire.base.Tools;
+import org.jwildfire.base.mathlib.MathLib;
+import org.jwildfire.create.tina.base.Flame;
+import org.jwildfire.create.tina.base.motion.DefaultMotionValueChangeHandler;
+import org.jwildfire.create.tina.base.motion.MotionCurve;
+import org.jwildfire.create.tina.base.motion.MotionValueChangeHandler;
+import org.jwildfire.create.tina.palette.RGBPalette;
+import org.jwildfire.create.tina.variation.Variation;
+import org.jwildfire.create.tina.variation.VariationFunc;
+import org.jwildfire.envelope.CompiledEnvelope;
+
+// Motion curves of a flame, compiled for repeated evaluation: the object graph is scanned once, every enabled
+// curve is pre-interpolated and bound to the field it drives. apply() then sets the values of a frame without
+// any lookups or allocations. The evaluator is immutable and may be used by several threads at once, as long as
+// each one applies it to its own flame.
+public class MotionCurveEvaluator {
+  private final Node root;
+
+  public MotionCurveEvaluator(Flame pFlame) {
+    try {
+      root = compileNode(pFlame);
+    }
+    catch (IllegalAccessException ex) {
+      throw new RuntimeException(ex);
+    }
+  }
+
+  public boolean isEmpty() {
+    return root.actions.length == 0;
+  }
+
+  // pFlame must be the compiled flame or a copy of it
+  public Flame apply(Flame pFlame, double pFrame) {
+    try {
+      root.apply(pFlame, pFrame);
+      return pFlame;
+    }
+    catch (IllegalAccessException ex) {
+      throw new RuntimeException(ex);
+    }
+  }
+
+  // sum of the curve and its parents, as AnimationService.evalCurve()
+  public static final class Curve {
+    private final CompiledEnvelope envelopes[];
+
+    public Curve(MotionCurve pCurve) {
+      List<CompiledEnvelope> envelopes = new ArrayList<CompiledEnvelope>();
+      MotionCurve currCurve = pCurve;
+      while (currCurve != null) {
+        envelopes.add(currCurve.toEnvelope().compile());
+        currCurve = currCurve.getParent();
+      }
+      this.envelopes = envelopes.toArray(new CompiledEnvelope[envelopes.size()]);
+    }
+
+    public double evaluate(double pFrame) {
+      double value = 0.0;
+      for (CompiledEnvelope envelope : envelopes) {
+        value += envelope.evaluate(pFrame);
+      }
+      return value;
+    }
+  }
+
+  // same traversal as AnimationService used to do by reflection for every evaluation
+  private static Node compileNode(Object pObject) throws IllegalAccessException {
+    List<Action> actions = new ArrayList<Action>();
+    Class<?> cls = pObject.getClass();
+    for (Field field : cls.getDeclaredFields()) {
+      field.setAccessible(true);
+      if (field.getType() == MotionCurve.class && field.getName().endsWith(Tools.CURVE_POSTFIX)) {
+        MotionCurve curve = (MotionCurve) field.get(pObject);
+        if (curve.isEnabled()) {
+          String propName = field.getName().substring(0, field.getName().length() - Tools.CURVE_POSTFIX.length());
+          actions.add(new PropertyAction(cls, propName, new Curve(curve), curve.getChangeHandler(), pObject instanceof RGBPalette));
+        }
+      }
+      else if (field.getType().isAssignableFrom(ArrayList.class)) {
+        List<?> childs = (List<?>) field.get(pObject);
+        for (int i = 0; i < childs.size(); i++) {
+          Node child = compileNode(childs.get(i));
+          if (child.actions.length > 0) {
+            actions.add(new ChildAction(field, i, child));
+          }
+        }
+      }
+      else if (field.getType().isAssignableFrom(RGBPalette.class)) {
+        Node child = compileNode(field.get(pObject));
+        if (child.actions.length > 0) {
+          actions.add(new ChildAction(field, -1, child));
+        }
+      }
+    }
+    if (pObject instanceof Variation) {
+      Variation var = (Variation) pObject;
+      for (String name : var.getFunc().getParameterNames()) {
+        MotionCurve curve = var.getMotionCurve(name);
+        if (curve != null && curve.isEnabled()) {
+          actions.add(new ParameterAction(name, new Curve(curve)));
+        }
+      }
+    }
+    return new Node(actions.toArray(new Action[actions.size()]));
+  }
+
+  private static final class Node {
+    private final Action actions[];
+
+    Node(Action[] pActions) {
+      actions = pActions;
+    }
+
+    void apply(Object pObject, double pFrame) throws IllegalAccessException {
+      for (Action action : actions) {
+        action.apply(pObject, pFrame);
+      }
+    }
+  }
+
+  private static interface Action {
+    void apply(Object pObject, double pFrame) throws IllegalAccessException;
+  }
+
+  private static final class ChildAction implements Action {
+    private final Field field;
+    private final int index;
+    private final Node node;
+
+    ChildAction(Field pField, int pIndex, Node pNode) {
+      field = pField;
+      index = pIndex;
+      node = pNode;
+    }
+
+    @Override
+    public void apply(Object pObject, double pFrame) throws IllegalAccessException {
+      Object child = field.get(pObject);
+      node.apply(index >= 0 ? ((List<?>) child).get(index) : child, pFrame);
+    }
+  }
+
+  private static final class PropertyAction implements Action {
+    private final String propName;
+    private final Curve curve;
+    private final MotionValueChangeHandler changeHandler;
+    // set directly if the default handler would just set the field
+    private final Field field;
+    private final boolean palette;
+    private final Field modifiedField;
+
+    PropertyAction(Class<?> pCls, String pPropName, Curve pCurve, MotionValueChangeHandler pChangeHandler, boolean pPalette) {
+      propName = pPropName;
+      curve = pCurve;
+      changeHandler = pChangeHandler;
+      field = changeHandler == DefaultMotionValueChangeHandler.INSTANCE ? getPrimitiveField(pCls, pPropName) : null;
+      palette = pPalette;
+      modifiedField = palette && field != null ? getPrimitiveField(pCls, "modified") : null;
+    }
+
+    private static Field getPrimitiveField(Class<?> pCls, String pName) {
+      try {
+        Field res = pCls.getDeclaredField(pName);
+        Class<?> type = res.getType();
+        if (type == double.class || type == int.class || type == boolean.class) {
+          res.setAccessible(true);
+          return res;
+        }
+      }
+      catch (NoSuchFieldException ex) {
+        // handled by the change handler
+      }
+      return null;
+    }
+
+    @Override
+    public void apply(Object pObject, double pFrame) throws IllegalAccessException {
+      double value = curve.evaluate(pFrame);
+      if (field != null) {
+        setPrimitive(field, pObject, value);
+      }
+      else {
+        changeHandler.processValueChange(pObject, propName, value);
+      }
+      if (modifiedField != null) {
+        setPrimitive(modifiedField, pObject, 1.0);
+      }
+      else if (palette) {
+        changeHandler.processValueChange(pObject, "modified", 1.0);
+      }
+    }
+
+    // same conversion as AnimationService.setPropertyValue()
+    private static void setPrimitive(Field pField, Object pObject, double pValue) throws IllegalAccessException {
+      Class<?> type = pField.getType();
+      if (type == double.class) {
+        pField.setDouble(pObject, pValue);
+      }
+      else if (type == int.class) {
+        pField.setInt(pObject, (int) MathLib.round(pValue));
+      }
+      else {
+        pField.setBoolean(pObject, (int) MathLib.round(pValue) != 0);
+      }
+    }
+  }
+
+  private static final class ParameterAction implements Action {
+    private final String name;
+    private final Curve curve;
+
+    ParameterAction(String pName, Curve pCurve) {
+      name = pName;
+      curve = pCurve;
+    }
+
+    @Override
+    public void apply(Object pObject, double pFrame) throws IllegalAccessException {
+      VariationFunc func = ((Variation) pObject).getFunc();
+      try {
+        func.setParameter(name, curve.evaluate(pFrame));
+      }
+      catch (Exception ex) {
+        ex.printStackTrace();
+      }
+    }
+  }
+
+}
@@ -16,9 +16,6 @@
 */
 package org.jwildfire.create.tina.animate;
 
-import java.util.ArrayList;
-import java.util.List;
-
 import org.jwildfire.base.Prefs;
 import org.jwildfire.base.Tools;
 import org.jwildfire.create.tina.base.Flame;
@@ -27,8 +24,8 @@ import org.jwildfire.create.tina.render.FlameRenderer;
 import org.jwildfire.create.tina.render.RenderInfo;
 import org.jwildfire.create.tina.render.RenderMode;
 import org.jwildfire.create.tina.render.RenderedFlame;
-import org.jwildfire.image.Pixel;
 import org.jwildfire.image.SimpleImage;
+import org.jwildfire.io.ANBWriter;
 import org.jwildfire.io.ImageWriter;
 
 public class SWFAnimationRenderThread implements Runnable {
@@ -37,7 +34,7 @@ public class SWFAnimationRenderThread implements Runnable {
   private boolean cancelSignalled;
   private FlameMovie flameMovie;
   private Throwable lastError;
-  private final List<SimpleImage> renderedImages = new ArrayList<SimpleImage>();
+  private ANBWriter anbWriter;
 
   public SWFAnimationRenderThread(SWFAnimationRenderThreadController pController, FlameMovie pAnimation, String pOutputFilename) {
     controller = pController;
@@ -51,7 +48,6 @@ public class SWFAnimationRenderThread implements Runnable {
       try {
         cancelSignalled = false;
         lastError = null;
-        renderedImages.clear();
         controller.getProgressUpdater().initProgress(flameMovie.getFrameCount());
         int startFrame = 1;
         int endFrame = flameMovie.getFrameCount();
@@ -69,6 +65,16 @@ public class SWFAnimationRenderThread implements Runnable {
         lastError = ex;
         throw new RuntimeException(ex);
       }
+      finally {
+        if (anbWriter != null) {
+          try {
+            closeANB();
+          }
+          catch (Exception ex) {
+            ex.printStackTrace();
+          }
+        }
+      }
     }
     finally {
       controller.onRenderFinished();
@@ -78,98 +84,30 @@ public class SWFAnimationRenderThread implements Runnable {
   private void finishSequence() throws Exception {
     switch (flameMovie.getSequenceOutputType()) {
       case ANB:
-        createANB();
+        closeANB();
         break;
     }
   }
 
-  private void createANB() throws Exception {
-    int width = renderedImages.get(0).getImageWidth();
-    int height = renderedImages.get(0).getImageHeight();
-
-    int frameCount = renderedImages.size();
-    int size = (width + 1) * (height + 1);
-    int totalSize = 16 + 20 + 4 * frameCount * size; // header + (r + g + b + alpha) * frameCount 
-    int direction = 1;
-    int endBehaviour = 0;
-    int step = 16;
-    int reserved1 = 0;
-    int reserved2 = 0;
-
-    byte buffer[] = new byte[totalSize];
-    int offset = 0;
-    buffer[offset++] = 'A';
-    buffer[offset++] = 'N';
-    buffer[offset++] = 'B';
-    buffer[offset++] = 'R';
-    buffer[offset++] = (byte) (width );
-    buffer[offset++] = (byte) (width >> 8);
-    buffer[offset++] = (byte) (width >> 16);
-    buffer[offset++] = (byte) (width >> 24);
-    buffer[offset++] = (byte) (height);
-    buffer[offset++] = (byte) (height >> 8);
-    buffer[offset++] = (byte) (height >> 16);
-    buffer[offset++] = (byte) (height >> 24);
-    buffer[offset++] = (byte) ((frameCount - 1));
-    buffer[offset++] = (byte) ((frameCount - 1) >> 8);
-    buffer[offset++] = (byte) ((frameCount - 1) >> 16);
-    buffer[offset++] = (byte) ((frameCount - 1) >> 24);
-    buffer[offset++] = (byte) (direction);
-    buffer[offset++] = (byte) (direction >> 8);
-    buffer[offset++] = (byte) (direction >> 16);
-    buffer[offset++] = (byte) (direction >> 24);
-    buffer[offset++] = (byte) (endBehaviour);
-    buffer[offset++] = (byte) (endBehaviour >> 8);
-    buffer[offset++] = (byte) (endBehaviour >> 16);
-    buffer[offset++] = (byte) (endBehaviour >> 24);
-    buffer[offset++] = (byte) (step);
-    buffer[offset++] = (byte) (step >> 8);
-    buffer[offset++] = (byte) (step >> 16);
-    buffer[offset++] = (byte) (step >> 24);
-    buffer[offset++] = (byte) (reserved1);
-    buffer[offset++] = (byte) (reserved1 >> 8);
-    buffer[offset++] = (byte) (reserved1 >> 16);
-    buffer[offset++] = (byte) (reserved1 >> 24);
-    buffer[offset++] = (byte) (reserved2);
-    buffer[offset++] = (byte) (reserved2 >> 8);
-    buffer[offset++] = (byte) (reserved2 >> 16);
-    buffer[offset++] = (byte) (reserved2 >> 24);
-    for (int channel = 0; channel < 4; channel++) {
-      for (int i = 0; i < frameCount; i++) {
-        fillBuffer(buffer, offset, renderedImages.get(i), channel);
-        offset += size;
+  private void addANBFrame(SimpleImage pImage) throws Exception {
+    if (anbWriter == null) {
+      String filename = outputFilename;
+      if (!filename.endsWith(Tools.FILEEXT_ANB)) {
+        filename = filename + "." + Tools.FILEEXT_ANB;
       }
+      anbWriter = new ANBWriter(filename, pImage.getImageWidth(), pImage.getImageHeight(), flameMovie.getFrameCount());
     }
-    String filename = outputFilename;
-    if (!filename.endsWith(Tools.FILEEXT_ANB)) {
-      filename = filename + "." + Tools.FILEEXT_ANB;
-    }
-    Tools.writeFile(filename, buffer);
+    anbWriter.addFrame(pImage);
   }
 
-  private void fillBuffer(byte[] pBuffer, int pOffset, SimpleImage pImage, int pChannel) {
-    Pixel p = new Pixel();
-    int offset = pOffset;
-    int lineWidth = pImage.getImageWidth() + 1;
-    for (int i = 0; i < pImage.getImageHeight(); i++) {
-      for (int j = 0; j < pImage.getImageWidth(); j++) {
-        p.setARGBValue(pImage.getARGBValue(j, i));
-        switch (pChannel) {
-          case 0:
-            pBuffer[offset + j] = (byte) p.r;
-            break;
-          case 1:
-            pBuffer[offset + j] = (byte) p.g;
-            break;
-          case 2:
-            pBuffer[offset + j] = (byte) p.b;
-            break;
-          default:
-            pBuffer[offset + j] = (byte) p.a;
-            break;
-        }
+  private void closeANB() throws Exception {
+    if (anbWriter != null) {
+      try {
+        anbWriter.close();
+      }
+      finally {
+        anbWriter = null;
       }
-      offset += lineWidth;
     }
   }
 
@@ -183,7 +121,7 @@ public class SWFAnimationRenderThread implements Runnable {
         break;
       case ANB:
         pCurrFlame.setBGTransparency(true);
-        renderedImages.add(renderFlame(pCurrFlame));
+        addANBFrame(renderFlame(pCurrFlame));
         break;
     }
   }
@@ -19,7 +19,7 @@ package org.jwildfire.create.tina.base;
 import org.jwildfire.create.tina.variation.FlameTransformationContext;
 import org.jwildfire.create.tina.variation.Variation;
 
-public final class EnforcedPostVariationTransformationStep extends AbstractTransformationStep {
+public final class EnforcedPostVariationTransformationStep extends AbstractTransformationStep implements VariationStep {
   private static final long serialVersionUID = 1L;
 
   private final Variation variation;
@@ -34,4 +34,9 @@ public final class EnforcedPostVariationTransformationStep extends AbstractTrans
     variation.transform(pContext, xform, pVarT, pVarT);
   }
 
+  @Override
+  public Variation getVariation() {
+    return variation;
+  }
+
 }
@@ -136,8 +136,10 @@ public class Layer implements Assignable<Layer>, Serializable {
           xform.getNextAppliedXFormTable()[i] = getXForms().get(j);
           loopValue = loopValue + totValue / (double) xform.getNextAppliedXFormTable().length;
         }
+        xform.setNextAppliedXFormAliasTable(new XFormAliasTable(getXForms(), tp, n));
       }
       else {
+        xform.setNextAppliedXFormAliasTable(null);
         for (int i = 0; i < xform.getNextAppliedXFormTable().length; i++) {
           xform.getNextAppliedXFormTable()[i] = null;
         }
@@ -19,7 +19,7 @@ package org.jwildfire.create.tina.base;
 import org.jwildfire.create.tina.variation.FlameTransformationContext;
 import org.jwildfire.create.tina.variation.Variation;
 
-public final class PostVariationTransformationStep extends AbstractTransformationStep {
+public final class PostVariationTransformationStep extends AbstractTransformationStep implements VariationStep {
   private static final long serialVersionUID = 1L;
 
   private final Variation variation;
@@ -34,4 +34,9 @@ public final class PostVariationTransformationStep extends AbstractTransformatio
     variation.transform(pContext, xform, pAffineT, pVarT);
   }
 
+  @Override
+  public Variation getVariation() {
+    return variation;
+  }
+
 }
@@ -19,7 +19,7 @@ package org.jwildfire.create.tina.base;
 import org.jwildfire.create.tina.variation.FlameTransformationContext;
 import org.jwildfire.create.tina.variation.Variation;
 
-public class PreVariationTransformationStep extends AbstractTransformationStep {
+public class PreVariationTransformationStep extends AbstractTransformationStep implements VariationStep {
   private static final long serialVersionUID = 1L;
 
   private final Variation variation;
@@ -35,4 +35,9 @@ public class PreVariationTransformationStep extends AbstractTransformationStep {
     pAffineT.invalidate();
   }
 
+  @Override
+  public Variation getVariation() {
+    return variation;
+  }
+
 }
@@ -23,6 +23,7 @@ import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.List;
 
+import org.jwildfire.base.Prefs;
 import org.jwildfire.base.mathlib.MathLib;
 import org.jwildfire.create.tina.animate.AnimAware;
 import org.jwildfire.create.tina.base.motion.MotionCurve;
@@ -196,6 +197,7 @@ public final class XForm implements Assignable<XForm>, Serializable {
   private double opacity = 0.0;
   private final MotionCurve opacityCurve = new MotionCurve();
   private final XForm[] nextAppliedXFormTable = new XForm[Constants.NEXT_APPLIED_XFORM_TABLE_SIZE];
+  private XFormAliasTable nextAppliedXFormAliasTable;
   private DrawMode drawMode = DrawMode.NORMAL;
   private String name = "";
 
@@ -406,8 +408,14 @@ public final class XForm implements Assignable<XForm>, Serializable {
   }
 
   private List<TransformationStep> t = new ArrayList<>();
+  private transient CompiledTransformation compiledTransformation;
+
+  CompiledTransformation getCompiledTransformation() {
+    return compiledTransformation;
+  }
 
   private void createTransformations() {
+    compiledTransformation = null;
     t = new ArrayList<TransformationStep>();
     t.add(new TransformationInitStep(this));
     if (!isHasXYCoeffs() && !isHasYZCoeffs() && !isHasZXCoeffs()) {
@@ -466,9 +474,17 @@ public final class XForm implements Assignable<XForm>, Serializable {
     else {
       t.add(new TransformationPostAffineStep(this));
     }
+
+    if (Prefs.getPrefs().isTinaCompiledXForms()) {
+      compiledTransformation = XFormCompiler.compile(this, t);
+    }
   }
 
   public void transformPoint(FlameTransformationContext pContext, XYZPoint pAffineT, XYZPoint pVarT, XYZPoint pSrcPoint, XYZPoint pDstPoint) {
+    if (compiledTransformation != null) {
+      compiledTransformation.transform(pContext, pAffineT, pVarT, pSrcPoint, pDstPoint);
+      return;
+    }
     for (TransformationStep transformation : t) {
       transformation.transform(pContext, pAffineT, pVarT, pSrcPoint, pDstPoint);
     }
@@ -490,6 +506,14 @@ public final class XForm implements Assignable<XForm>, Serializable {
     return nextAppliedXFormTable;
   }
 
+  public XFormAliasTable getNextAppliedXFormAliasTable() {
+    return nextAppliedXFormAliasTable;
+  }
+
+  public void setNextAppliedXFormAliasTable(XFormAliasTable pNextAppliedXFormAliasTable) {
+    nextAppliedXFormAliasTable = pNextAppliedXFormAliasTable;
+  }
+
   public DrawMode getDrawMode() {
     return drawMode;
   }
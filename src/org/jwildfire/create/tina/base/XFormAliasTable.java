@@ -0,0 +1,113 @@
+/*
+  JWildfire - an image and animation processor written in Java 
+  Copyright (C) 1995-2016 Andreas Maschke
+
+  This is free software; you can redistribute it and/or modify it under the terms of the GNU Lesser 
+  General Public License as published by the Free Software Foundation; either version 2.1 of the 
+  License, or (at your option) any later version.
+ 
+  This software is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without 
+  even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU 
+  Lesser General Public License for more details.
+
+  You should have received a copy of the GNU Lesser General Public License along with this software; 
+  if not, write to the Free Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+  02110-1301 USA, or see the FSF site: http://www.fsf.org.
+*/
+package org.jwildfire.create.tina.base;
+
+import java.io.Serializable;
+import java.util.List;
+
+import org.jwildfire.create.tina.random.AbstractRandomGenerator;
+
+// Walker/Vose alias table for choosing the next xform: O(1) per selection with one random number and
+// exact probabilities (the nextAppliedXFormTable quantizes the weights to 1/NEXT_APPLIED_XFORM_TABLE_SIZE)
+public class XFormAliasTable implements Serializable {
+  private static final long serialVersionUID = 1L;
+  private final XForm targets[];
+  private final double probability[];
+  private final int alias[];
+  private final int size;
+
+  public XFormAliasTable(List<XForm> pXForms, double pWeights[], int pCount) {
+    size = pCount;
+    targets = new XForm[size];
+    probability = new double[size];
+    alias = new int[size];
+
+    double total = 0.0;
+    for (int i = 0; i < size; i++) {
+      targets[i] = pXForms.get(i);
+      total += pWeights[i] > 0.0 ? pWeights[i] : 0.0;
+    }
+    if (total <= 0.0) {
+      throw new IllegalArgumentException("Sum of weights must be positive");
+    }
+
+    double scaled[] = new double[size];
+    int small[] = new int[size];
+    int large[] = new int[size];
+    int smallCount = 0, largeCount = 0;
+    for (int i = 0; i < size; i++) {
+      scaled[i] = (pWeights[i] > 0.0 ? pWeights[i] : 0.0) * size / total;
+      if (scaled[i] < 1.0) {
+        small[smallCount++] = i;
+      }
+      else {
+        large[largeCount++] = i;
+      }
+    }
+    while (smallCount > 0 && largeCount > 0) {
+      int s = small[--smallCount];
+      int l = large[--largeCount];
+      probability[s] = scaled[s];
+      alias[s] = l;
+      scaled[l] = (scaled[l] + scaled[s]) - 1.0;
+      if (scaled[l] < 1.0) {
+        small[smallCount++] = l;
+      }
+      else {
+        large[largeCount++] = l;
+      }
+    }
+    // remaining entries are 1.0 up to rounding errors
+    while (largeCount > 0) {
+      int l = large[--largeCount];
+      probability[l] = 1.0;
+      alias[l] = l;
+    }
+    while (smallCount > 0) {
+      int s = small[--smallCount];
+      probability[s] = 1.0;
+      alias[s] = s;
+    }
+  }
+
+  public XForm select(AbstractRandomGenerator pRandGen) {
+    double r = pRandGen.random() * size;
+    int idx = (int) r;
+    if (idx >= size) {
+      idx = size - 1;
+    }
+    return (r - idx) < probability[idx] ? targets[idx] : targets[alias[idx]];
+  }
+
+  public double getProbability(int pIdx) {
+    double res = 0.0;
+    for (int i = 0; i < size; i++) {
+      if (i == pIdx) {
+        res += probability[i];
+      }
+      if (alias[i] == pIdx) {
+        res += 1.0 - probability[i];
+      }
+    }
+    return res / size;
+  }
+
+  public int getSize() {
+    return size;
+  }
+
+}
@@ -0,0 +1,152 @@
+/*
+  JWildfire - an image and animation processor written in Java 
+  Copyright (C) 1995-2014 Andreas Maschke
+
+  This is free software; you can redistribute it and/or modify it under the terms of the GNU Lesser 
+  General Public License as published by the Free Software Foundation; either version 2.1 of the 
+  License, or (at your option) any later version.
+ 
+  This software is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without 
+  even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU 
+  Lesser General Public License for more details.
+
+  You should have received a copy of the GNU Lesser General Public License along with this software; 
+  if not, write to the Free Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+  02110-1301 USA, or see the FSF site: http://www.fsf.org.
+*/
+package org.jwildfire.create.tina.base;
+
+import java.io.StringReader;
+import java.lang.reflect.Modifier;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.codehaus.janino.ClassBodyEvaluator;
+import org.codehaus.janino.Scanner;
+import org.jwildfire.create.tina.variation.FlameTransformationContext;
+import org.jwildfire.create.tina.variation.Variation;
+import org.jwildfire.create.tina.variation.VariationFunc;
+
+// Turns the step list of an xform into one generated class where every step and variation function is
+// referenced by its concrete type, so the JIT can inline the whole affine -> variations -> post-affine chain.
+// The generated code performs exactly the same calls in the same order as XForm.transformPoint, so the
+// result is bit-identical. Classes are cached by the "shape" of the xform (the step and function classes),
+// so xforms only differing in their parameters share one compiled class.
+public class XFormCompiler {
+  private static final Class<?> UNSUPPORTED = XFormCompiler.class;
+  private static final String CONTEXT_TYPE = FlameTransformationContext.class.getName();
+  private static final String POINT_TYPE = XYZPoint.class.getName();
+  private static final String VARIATION_TYPE = Variation.class.getName();
+  private static final Map<String, Class<?>> classCache = new ConcurrentHashMap<>();
+
+  public static CompiledTransformation compile(XForm pXForm, List<TransformationStep> pSteps) {
+    String key = createKey(pSteps);
+    Class<?> cls = classCache.get(key);
+    if (cls == null) {
+      try {
+        cls = createClass(pSteps);
+      }
+      catch (Throwable ex) {
+        ex.printStackTrace();
+        cls = UNSUPPORTED;
+      }
+      classCache.put(key, cls);
+    }
+    if (cls == UNSUPPORTED) {
+      return null;
+    }
+    try {
+      CompiledTransformation res = (CompiledTransformation) cls.newInstance();
+      res.setup(pXForm, pSteps);
+      return res;
+    }
+    catch (Exception ex) {
+      throw new RuntimeException(ex);
+    }
+  }
+
+  private static String createKey(List<TransformationStep> pSteps) {
+    StringBuilder sb = new StringBuilder();
+    for (TransformationStep step : pSteps) {
+      sb.append(step.getClass().getName());
+      if (step instanceof VariationStep) {
+        sb.append(':').append(((VariationStep) step).getVariation().getFunc().getClass().getName());
+      }
+      sb.append(';');
+    }
+    return sb.toString();
+  }
+
+  private static Class<?> createClass(List<TransformationStep> pSteps) throws Exception {
+    String xformType = XForm.class.getName();
+    StringBuilder fields = new StringBuilder();
+    StringBuilder setup = new StringBuilder();
+    StringBuilder transform = new StringBuilder();
+    fields.append("private " + xformType + " xform;\n");
+    setup.append("public void setup(" + xformType + " pXForm, java.util.List pSteps) {\n");
+    setup.append("  xform = pXForm;\n");
+    transform.append("public void transform(" + CONTEXT_TYPE + " pContext, " + POINT_TYPE + " pAffineT, " + POINT_TYPE + " pVarT, " + POINT_TYPE + " pSrcPoint, " + POINT_TYPE + " pDstPoint) {\n");
+    for (int i = 0; i < pSteps.size(); i++) {
+      TransformationStep step = pSteps.get(i);
+      if (step instanceof VariationStep) {
+        String funcType = getFuncType(((VariationStep) step).getVariation().getFunc().getClass());
+        fields.append("private " + VARIATION_TYPE + " v" + i + ";\n");
+        fields.append("private " + funcType + " f" + i + ";\n");
+        setup.append("  v" + i + " = ((" + VariationStep.class.getName() + ") pSteps.get(" + i + ")).getVariation();\n");
+        setup.append("  f" + i + " = (" + funcType + ") v" + i + ".getFunc();\n");
+        transform.append("  f" + i + ".transform(pContext, xform, " + getVariationArgs(step) + ", v" + i + ".getAmount());\n");
+        if (step instanceof PreVariationTransformationStep || step instanceof EnforcedPreVariationTransformationStep) {
+          transform.append("  pAffineT.invalidate();\n");
+        }
+      }
+      else {
+        String stepType = step.getClass().getName();
+        if (!isAccessible(step.getClass())) {
+          stepType = TransformationStep.class.getName();
+        }
+        fields.append("private " + stepType + " s" + i + ";\n");
+        setup.append("  s" + i + " = (" + stepType + ") pSteps.get(" + i + ");\n");
+        transform.append("  s" + i + ".transform(pContext, pAffineT, pVarT, pSrcPoint, pDstPoint);\n");
+      }
+    }
+    setup.append("}\n");
+    transform.append("}\n");
+    String code = fields.toString() + setup.toString() + transform.toString();
+
+    ClassBodyEvaluator evaluator = new ClassBodyEvaluator(new Scanner(null, new StringReader(code)), CompiledTransformation.class, new Class<?>[0], XFormCompiler.class.getClassLoader());
+    return evaluator.getClazz();
+  }
+
+  private static String getVariationArgs(TransformationStep pStep) {
+    if (pStep instanceof PreVariationTransformationStep || pStep instanceof VariationTransformationStep || pStep instanceof PostVariationTransformationStep) {
+      return "pAffineT, pVarT";
+    }
+    else if (pStep instanceof EnforcedPreVariationTransformationStep) {
+      return "pAffineT, pAffineT";
+    }
+    else if (pStep instanceof EnforcedVariationTransformationStep || pStep instanceof EnforcedPostVariationTransformationStep) {
+      return "pVarT, pVarT";
+    }
+    throw new IllegalArgumentException(pStep.getClass().getName());
+  }
+
+  // functions loaded by other class loaders (e.g. compiled custom variations) or hidden inside other classes
+  // are called through the abstract base type
+  private static String getFuncType(Class<?> pCls) {
+    return isAccessible(pCls) ? pCls.getName() : VariationFunc.class.getName();
+  }
+
+  private static boolean isAccessible(Class<?> pCls) {
+    if (!Modifier.isPublic(pCls.getModifiers()) || pCls.getEnclosingClass() != null) {
+      return false;
+    }
+    try {
+      return Class.forName(pCls.getName(), false, XFormCompiler.class.getClassLoader()) == pCls;
+    }
+    catch (ClassNotFoundException ex) {
+      return false;
+    }
+  }
+
+}
@@ -25,6 +25,27 @@ public enum RasterCreator {
     public Class<? extends AbstractRaster> getRasterClass(Flame pFlame) {
       return pFlame.getSolidRenderSettings().isSolidRenderingEnabled() ? RasterFloatIntWithPreciseZBuffer.class : RasterFloatInt.class;
     }
+  },
+  FLOAT_INT_RASTER_STRIPED
+  {
+    @Override
+    public Class<? extends AbstractRaster> getRasterClass(Flame pFlame) {
+      return pFlame.getSolidRenderSettings().isSolidRenderingEnabled() ? RasterFloatIntWithPreciseZBuffer.class : RasterFloatIntStriped.class;
+    }
+  },
+  FLOAT_INT_RASTER_FLAT
+  {
+    @Override
+    public Class<? extends AbstractRaster> getRasterClass(Flame pFlame) {
+      return pFlame.getSolidRenderSettings().isSolidRenderingEnabled() ? RasterFloatIntWithPreciseZBuffer.class : RasterFloatIntFlat.class;
+    }
+  },
+  FLOAT_INT_RASTER_MAPPED
+  {
+    @Override
+    public Class<? extends AbstractRaster> getRasterClass(Flame pFlame) {
+      return pFlame.getSolidRenderSettings().isSolidRenderingEnabled() ? RasterFloatIntWithPreciseZBuffer.class : RasterFloatIntMapped.class;
+    }
   };
 
   public abstract Class<? extends AbstractRaster> getRasterClass(Flame pFlame);
@@ -16,23 +16,27 @@
 */
 package org.jwildfire.create.tina.base.raster;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
 import java.io.Serializable;
 
 import org.jwildfire.create.tina.base.Flame;
 import org.jwildfire.create.tina.render.FlameRendererView;
 import org.jwildfire.create.tina.render.PlotSample;
 
-public class RasterFloatInt implements AbstractRaster, Serializable {
+public class RasterFloatInt implements AbstractRaster, RasterWithOccupancy, RasterWithRawAccess, Serializable {
   private static final long serialVersionUID = 1L;
   protected float red[][];
   protected float green[][];
   protected float blue[][];
   protected int count[][];
   protected int rasterWidth, rasterHeight;
+  protected RasterOccupancy occupancy;
 
   @Override
   public void incCount(int pX, int pY) {
     count[pX][pY]++;
+    occupancy.mark(pX, pY);
   }
 
   @Override
@@ -43,6 +47,22 @@ public class RasterFloatInt implements AbstractRaster, Serializable {
     green = new float[pWidth][pHeight];
     blue = new float[pWidth][pHeight];
     count = new int[pWidth][pHeight];
+    occupancy = new RasterOccupancy(pWidth, pHeight);
+  }
+
+  private void readObject(ObjectInputStream pIn) throws IOException, ClassNotFoundException {
+    pIn.defaultReadObject();
+    if (occupancy == null && count != null) {
+      // render state written before the occupancy was tracked
+      occupancy = new RasterOccupancy(rasterWidth, rasterHeight);
+      for (int x = 0; x < rasterWidth; x++) {
+        for (int y = 0; y < rasterHeight; y++) {
+          if (count[x][y] > 0) {
+            occupancy.mark(x, y);
+          }
+        }
+      }
+    }
   }
 
   @Override
@@ -72,9 +92,26 @@ public class RasterFloatInt implements AbstractRaster, Serializable {
       green[x][y] += (float) sample.g;
       blue[x][y] += (float) sample.b;
       count[x][y]++;
+      occupancy.mark(x, y);
+    }
+  }
+
+  @Override
+  public void writeRawPoint(int pX, int pY, float pRed, float pGreen, float pBlue, int pCount) {
+    red[pX][pY] = pRed;
+    green[pX][pY] = pGreen;
+    blue[pX][pY] = pBlue;
+    count[pX][pY] = pCount;
+    if (pCount > 0) {
+      occupancy.mark(pX, pY);
     }
   }
 
+  @Override
+  public RasterOccupancy getOccupancy() {
+    return occupancy;
+  }
+
   @Override
   public void finalizeRaster() {
     // EMPTY    
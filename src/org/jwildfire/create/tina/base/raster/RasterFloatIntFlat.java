@@ -0,0 +1,155 @@
+/*
+  JWildfire - an image and animation processor written in Java 
+  Copyright (C) 1995-2016 Andreas Maschke
+
+  This is free software; you can redistribute it and/or modify it under the terms of the GNU Lesser 
+  General Public License as published by the Free Software Foundation; either version 2.1 of the 
+  License, or (at your option) any later version.
+ 
+  This software is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without 
+  even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU 
+  Lesser General Public License for more details.
+
+  You should have received a copy of the GNU Lesser General Public License along with this software; 
+  if not, write to the Free Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+  02110-1301 USA, or see the FSF site: http://www.fsf.org.
+*/
+package org.jwildfire.create.tina.base.raster;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.Serializable;
+
+import org.jwildfire.create.tina.base.Flame;
+import org.jwildfire.create.tina.render.FlameRendererView;
+import org.jwildfire.create.tina.render.PlotSample;
+
+// Keeps the whole accumulation buffer in one interleaved array, indexed row by row as (y * width + x) * 4:
+// red, green, blue and the raw int bits of the hit count
+public class RasterFloatIntFlat implements AbstractRaster, RasterWithOccupancy, RasterWithRawAccess, Serializable {
+  private static final long serialVersionUID = 1L;
+  public static final int CHANNELS = 4;
+  public static final int RED = 0;
+  public static final int GREEN = 1;
+  public static final int BLUE = 2;
+  public static final int COUNT = 3;
+
+  protected float data[];
+  protected int rasterWidth, rasterHeight;
+  protected RasterOccupancy occupancy;
+
+  @Override
+  public void allocRaster(Flame flame, int pWidth, int pHeight) {
+    long size = (long) pWidth * (long) pHeight * CHANNELS;
+    if (size > Integer.MAX_VALUE - 8) {
+      throw new IllegalArgumentException("Raster of size " + pWidth + "x" + pHeight + " is too large for the flat layout");
+    }
+    rasterWidth = pWidth;
+    rasterHeight = pHeight;
+    data = new float[(int) size];
+    occupancy = new RasterOccupancy(pWidth, pHeight);
+  }
+
+  private void readObject(ObjectInputStream pIn) throws IOException, ClassNotFoundException {
+    pIn.defaultReadObject();
+    if (occupancy == null && data != null) {
+      // render state written before the occupancy was tracked
+      occupancy = new RasterOccupancy(rasterWidth, rasterHeight);
+      for (int y = 0; y < rasterHeight; y++) {
+        for (int x = 0; x < rasterWidth; x++) {
+          if (Float.floatToRawIntBits(data[(y * rasterWidth + x) * CHANNELS + COUNT]) > 0) {
+            occupancy.mark(x, y);
+          }
+        }
+      }
+    }
+  }
+
+  @Override
+  public void incCount(int pX, int pY) {
+    int idx = (pY * rasterWidth + pX) * CHANNELS + COUNT;
+    data[idx] = Float.intBitsToFloat(Float.floatToRawIntBits(data[idx]) + 1);
+    occupancy.mark(pX, pY);
+  }
+
+  @Override
+  public void readRasterPoint(int pX, int pY, RasterPoint pDestRasterPoint) {
+    pDestRasterPoint.clear();
+    int idx = (pY * rasterWidth + pX) * CHANNELS;
+    pDestRasterPoint.red = data[idx + RED];
+    pDestRasterPoint.green = data[idx + GREEN];
+    pDestRasterPoint.blue = data[idx + BLUE];
+    pDestRasterPoint.count = Float.floatToRawIntBits(data[idx + COUNT]);
+  }
+
+  @Override
+  public void readRasterPointSafe(int pX, int pY, RasterPoint pDestRasterPoint) {
+    if (pX >= 0 && pX < rasterWidth && pY >= 0 && pY < rasterHeight)
+      readRasterPoint(pX, pY, pDestRasterPoint);
+    else
+      pDestRasterPoint.clear();
+  }
+
+  @Override
+  public synchronized void addSamples(PlotSample[] pPlotBuffer, int pCount) {
+    final float[] data = this.data;
+    for (int i = 0; i < pCount; i++) {
+      PlotSample sample = pPlotBuffer[i];
+      int idx = (sample.screenY * rasterWidth + sample.screenX) * CHANNELS;
+      data[idx + RED] += (float) sample.r;
+      data[idx + GREEN] += (float) sample.g;
+      data[idx + BLUE] += (float) sample.b;
+      data[idx + COUNT] = Float.intBitsToFloat(Float.floatToRawIntBits(data[idx + COUNT]) + 1);
+      occupancy.mark(sample.screenX, sample.screenY);
+    }
+  }
+
+  @Override
+  public void writeRawPoint(int pX, int pY, float pRed, float pGreen, float pBlue, int pCount) {
+    int idx = (pY * rasterWidth + pX) * CHANNELS;
+    data[idx + RED] = pRed;
+    data[idx + GREEN] = pGreen;
+    data[idx + BLUE] = pBlue;
+    data[idx + COUNT] = Float.intBitsToFloat(pCount);
+    if (pCount > 0) {
+      occupancy.mark(pX, pY);
+    }
+  }
+
+  @Override
+  public RasterOccupancy getOccupancy() {
+    return occupancy;
+  }
+
+  public float[] getData() {
+    return data;
+  }
+
+  public int getRasterWidth() {
+    return rasterWidth;
+  }
+
+  public int getRasterHeight() {
+    return rasterHeight;
+  }
+
+  @Override
+  public void finalizeRaster() {
+    // EMPTY
+  }
+
+  @Override
+  public void addShadowMapSamples(int pShadowMapIdx, PlotSample[] pPlotBuffer, int pCount) {
+    // EMPTY
+  }
+
+  @Override
+  public void notifyInit(FlameRendererView view) {
+    // EMPTY
+  }
+
+  @Override
+  public void cleanupRaster() {
+    // EMPTY
+  }
+}
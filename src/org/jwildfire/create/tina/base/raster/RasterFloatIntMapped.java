@@ -0,0 +1,228 @@
+/*
+  JWildfire - an image and animation processor written in Java 
+  Copyright (C) 1995-2016 Andreas Maschke
+
+  This is free software; you can redistribute it and/or modify it under the terms of the GNU Lesser 
+  General Public License as published by the Free Software Foundation; either version 2.1 of the 
+  License, or (at your option) any later version.
+ 
+  This software is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without 
+  even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU 
+  Lesser General Public License for more details.
+
+  You should have received a copy of the GNU Lesser General Public License along with this software; 
+  if not, write to the Free Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+  02110-1301 USA, or see the FSF site: http://www.fsf.org.
+*/
+package org.jwildfire.create.tina.base.raster;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.RandomAccessFile;
+import java.io.Serializable;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+import org.jwildfire.base.Prefs;
+import org.jwildfire.create.tina.base.Flame;
+import org.jwildfire.create.tina.render.FlameRendererView;
+import org.jwildfire.create.tina.render.PlotSample;
+
+// Keeps the accumulation buffer outside of the Java heap in a memory-mapped scratch file, so the size of the
+// raster is only limited by disk space and address space. The file is split into page-aligned bands of rows,
+// each mapped separately (a single mapping is limited to 2 GB). Cells are laid out like in RasterFloatIntFlat.
+public class RasterFloatIntMapped implements AbstractRaster, RasterWithOccupancy, RasterWithRawAccess, Serializable {
+  private static final long serialVersionUID = 1L;
+  private static final int CELL_SIZE = 16;
+  private static final long PAGE_SIZE = 4096;
+  private static final long MAX_BAND_SIZE = 1L << 30;
+
+  private int rasterWidth, rasterHeight;
+  private int rowsPerBand;
+  private transient MappedByteBuffer bands[];
+  private transient File scratchFile;
+  private transient RasterOccupancy occupancy;
+
+  @Override
+  public void allocRaster(Flame flame, int pWidth, int pHeight) {
+    rasterWidth = pWidth;
+    rasterHeight = pHeight;
+    long rowSize = (long) pWidth * CELL_SIZE;
+    if (rowSize > MAX_BAND_SIZE) {
+      throw new IllegalArgumentException("Raster width " + pWidth + " is too large");
+    }
+    rowsPerBand = (int) Math.min(pHeight, MAX_BAND_SIZE / rowSize);
+    occupancy = new RasterOccupancy(pWidth, pHeight);
+    try {
+      mapBands();
+    }
+    catch (IOException ex) {
+      throw new RuntimeException(ex);
+    }
+  }
+
+  private void mapBands() throws IOException {
+    long bandSize = (long) rowsPerBand * rasterWidth * CELL_SIZE;
+    long alignedBandSize = (bandSize + PAGE_SIZE - 1) / PAGE_SIZE * PAGE_SIZE;
+    int bandCount = (rasterHeight + rowsPerBand - 1) / rowsPerBand;
+    bands = new MappedByteBuffer[bandCount];
+    scratchFile = createScratchFile();
+    try {
+      RandomAccessFile file = new RandomAccessFile(scratchFile, "rw");
+      try {
+        file.setLength(alignedBandSize * bandCount);
+        FileChannel channel = file.getChannel();
+        for (int i = 0; i < bandCount; i++) {
+          bands[i] = channel.map(FileChannel.MapMode.READ_WRITE, i * alignedBandSize, bandSize);
+          bands[i].order(ByteOrder.nativeOrder());
+        }
+      }
+      finally {
+        file.close();
+      }
+    }
+    finally {
+      // the mappings stay valid after the file is removed (at least on unix-like systems)
+      if (!scratchFile.delete()) {
+        scratchFile.deleteOnExit();
+      }
+    }
+  }
+
+  private File createScratchFile() throws IOException {
+    String path = Prefs.getPrefs().getTinaRasterScratchPath();
+    File drawer = path != null && path.length() > 0 ? new File(path) : null;
+    return File.createTempFile("jwf_raster_", ".tmp", drawer);
+  }
+
+  private MappedByteBuffer getBand(int pY) {
+    return bands[pY / rowsPerBand];
+  }
+
+  private int getOffset(int pX, int pY) {
+    return ((pY % rowsPerBand) * rasterWidth + pX) * CELL_SIZE;
+  }
+
+  @Override
+  public void incCount(int pX, int pY) {
+    MappedByteBuffer band = getBand(pY);
+    int offset = getOffset(pX, pY) + 12;
+    band.putInt(offset, band.getInt(offset) + 1);
+    occupancy.mark(pX, pY);
+  }
+
+  @Override
+  public void readRasterPoint(int pX, int pY, RasterPoint pDestRasterPoint) {
+    pDestRasterPoint.clear();
+    MappedByteBuffer band = getBand(pY);
+    int offset = getOffset(pX, pY);
+    pDestRasterPoint.red = band.getFloat(offset);
+    pDestRasterPoint.green = band.getFloat(offset + 4);
+    pDestRasterPoint.blue = band.getFloat(offset + 8);
+    pDestRasterPoint.count = band.getInt(offset + 12);
+  }
+
+  @Override
+  public void readRasterPointSafe(int pX, int pY, RasterPoint pDestRasterPoint) {
+    if (pX >= 0 && pX < rasterWidth && pY >= 0 && pY < rasterHeight)
+      readRasterPoint(pX, pY, pDestRasterPoint);
+    else
+      pDestRasterPoint.clear();
+  }
+
+  @Override
+  public synchronized void addSamples(PlotSample[] pPlotBuffer, int pCount) {
+    for (int i = 0; i < pCount; i++) {
+      PlotSample sample = pPlotBuffer[i];
+      MappedByteBuffer band = getBand(sample.screenY);
+      int offset = getOffset(sample.screenX, sample.screenY);
+      band.putFloat(offset, band.getFloat(offset) + (float) sample.r);
+      band.putFloat(offset + 4, band.getFloat(offset + 4) + (float) sample.g);
+      band.putFloat(offset + 8, band.getFloat(offset + 8) + (float) sample.b);
+      band.putInt(offset + 12, band.getInt(offset + 12) + 1);
+      occupancy.mark(sample.screenX, sample.screenY);
+    }
+  }
+
+  @Override
+  public void writeRawPoint(int pX, int pY, float pRed, float pGreen, float pBlue, int pCount) {
+    MappedByteBuffer band = getBand(pY);
+    int offset = getOffset(pX, pY);
+    band.putFloat(offset, pRed);
+    band.putFloat(offset + 4, pGreen);
+    band.putFloat(offset + 8, pBlue);
+    band.putInt(offset + 12, pCount);
+    if (pCount > 0) {
+      occupancy.mark(pX, pY);
+    }
+  }
+
+  @Override
+  public RasterOccupancy getOccupancy() {
+    return occupancy;
+  }
+
+  private void writeObject(ObjectOutputStream pOut) throws IOException {
+    pOut.defaultWriteObject();
+    for (int y = 0; y < rasterHeight; y++) {
+      MappedByteBuffer band = getBand(y);
+      int offset = getOffset(0, y);
+      for (int x = 0; x < rasterWidth; x++, offset += CELL_SIZE) {
+        pOut.writeFloat(band.getFloat(offset));
+        pOut.writeFloat(band.getFloat(offset + 4));
+        pOut.writeFloat(band.getFloat(offset + 8));
+        pOut.writeInt(band.getInt(offset + 12));
+      }
+    }
+  }
+
+  private void readObject(ObjectInputStream pIn) throws IOException, ClassNotFoundException {
+    pIn.defaultReadObject();
+    mapBands();
+    occupancy = new RasterOccupancy(rasterWidth, rasterHeight);
+    for (int y = 0; y < rasterHeight; y++) {
+      MappedByteBuffer band = getBand(y);
+      int offset = getOffset(0, y);
+      for (int x = 0; x < rasterWidth; x++, offset += CELL_SIZE) {
+        band.putFloat(offset, pIn.readFloat());
+        band.putFloat(offset + 4, pIn.readFloat());
+        band.putFloat(offset + 8, pIn.readFloat());
+        int count = pIn.readInt();
+        band.putInt(offset + 12, count);
+        if (count > 0) {
+          occupancy.mark(x, y);
+        }
+      }
+    }
+  }
+
+  @Override
+  public void finalizeRaster() {
+    // EMPTY
+  }
+
+  @Override
+  public void addShadowMapSamples(int pShadowMapIdx, PlotSample[] pPlotBuffer, int pCount) {
+    // EMPTY
+  }
+
+  @Override
+  public void notifyInit(FlameRendererView view) {
+    // EMPTY
+  }
+
+  // the raster can not be used afterwards
+  @Override
+  public void cleanupRaster() {
+    bands = null;
+    occupancy = null;
+    if (scratchFile != null) {
+      // fails on Windows while the mappings are not yet collected, the file is then removed on exit
+      scratchFile.delete();
+      scratchFile = null;
+    }
+  }
+}
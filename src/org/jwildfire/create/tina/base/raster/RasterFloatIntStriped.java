@@ -0,0 +1,142 @@
+/*
+  JWildfire - an image and animation processor written in Java 
+  Copyright (C) 1995-2016 Andreas Maschke
+
+  This is free software; you can redistribute it and/or modify it under the terms of the GNU Lesser 
+  General Public License as published by the Free Software Foundation; either version 2.1 of the 
+  License, or (at your option) any later version.
+ 
+  This software is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without 
+  even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU 
+  Lesser General Public License for more details.
+
+  You should have received a copy of the GNU Lesser General Public License along with this software; 
+  if not, write to the Free Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+  02110-1301 USA, or see the FSF site: http://www.fsf.org.
+*/
+package org.jwildfire.create.tina.base.raster;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+
+import org.jwildfire.base.Prefs;
+import org.jwildfire.create.tina.base.Flame;
+import org.jwildfire.create.tina.render.PlotSample;
+
+// Same layout as RasterFloatInt, but instead of one monitor for the whole raster every stripe of columns
+// has its own lock. Each sample buffer is bucketed by stripe, so each stripe is locked at most once per buffer.
+public class RasterFloatIntStriped extends RasterFloatInt {
+  private static final long serialVersionUID = 1L;
+  private static final int STRIPES_PER_THREAD = 8;
+  private static final int MIN_STRIPE_WIDTH = 4;
+
+  private int stripeWidth;
+  private int stripeCount;
+  private transient Object[] stripeLocks;
+  private transient ThreadLocal<StripeBuffer> stripeBuffer;
+
+  private static class StripeBuffer {
+    int[] sampleStripe = new int[0];
+    int[] sortedSamples = new int[0];
+    final int[] stripeStart;
+    final int[] stripeFill;
+
+    StripeBuffer(int pStripeCount) {
+      stripeStart = new int[pStripeCount + 1];
+      stripeFill = new int[pStripeCount];
+    }
+
+    void ensureCapacity(int pCount) {
+      if (sampleStripe.length < pCount) {
+        sampleStripe = new int[pCount];
+        sortedSamples = new int[pCount];
+      }
+    }
+  }
+
+  @Override
+  public void allocRaster(Flame flame, int pWidth, int pHeight) {
+    super.allocRaster(flame, pWidth, pHeight);
+    int threads = Prefs.getPrefs().getTinaRenderThreads();
+    int stripes = threads * STRIPES_PER_THREAD;
+    stripeWidth = Math.max(MIN_STRIPE_WIDTH, (pWidth + stripes - 1) / stripes);
+    stripeCount = (pWidth + stripeWidth - 1) / stripeWidth;
+    initStripes();
+  }
+
+  private void initStripes() {
+    stripeLocks = new Object[stripeCount];
+    for (int i = 0; i < stripeCount; i++) {
+      stripeLocks[i] = new Object();
+    }
+    stripeBuffer = new ThreadLocal<StripeBuffer>() {
+      @Override
+      protected StripeBuffer initialValue() {
+        return new StripeBuffer(stripeCount);
+      }
+    };
+  }
+
+  private void readObject(ObjectInputStream pIn) throws IOException, ClassNotFoundException {
+    pIn.defaultReadObject();
+    initStripes();
+  }
+
+  @Override
+  public void addSamples(PlotSample[] pPlotBuffer, int pCount) {
+    StripeBuffer buffer = stripeBuffer.get();
+    buffer.ensureCapacity(pCount);
+    int[] sampleStripe = buffer.sampleStripe;
+    int[] sortedSamples = buffer.sortedSamples;
+    int[] stripeStart = buffer.stripeStart;
+    int[] stripeFill = buffer.stripeFill;
+
+    // counting sort of the sample indices by stripe
+    for (int s = 0; s <= stripeCount; s++) {
+      stripeStart[s] = 0;
+    }
+    for (int i = 0; i < pCount; i++) {
+      int stripe = pPlotBuffer[i].screenX / stripeWidth;
+      sampleStripe[i] = stripe;
+      stripeStart[stripe + 1]++;
+    }
+    for (int s = 0; s < stripeCount; s++) {
+      stripeStart[s + 1] += stripeStart[s];
+      stripeFill[s] = stripeStart[s];
+    }
+    for (int i = 0; i < pCount; i++) {
+      sortedSamples[stripeFill[sampleStripe[i]]++] = i;
+    }
+
+    for (int s = 0; s < stripeCount; s++) {
+      int start = stripeStart[s];
+      int end = stripeStart[s + 1];
+      if (start < end) {
+        synchronized (stripeLocks[s]) {
+          for (int i = start; i < end; i++) {
+            PlotSample sample = pPlotBuffer[sortedSamples[i]];
+            int x = sample.screenX, y = sample.screenY;
+            red[x][y] += (float) sample.r;
+            green[x][y] += (float) sample.g;
+            blue[x][y] += (float) sample.b;
+            count[x][y]++;
+            occupancy.mark(x, y);
+          }
+        }
+      }
+    }
+  }
+
+  @Override
+  public void incCount(int pX, int pY) {
+    synchronized (stripeLocks[pX / stripeWidth]) {
+      count[pX][pY]++;
+    }
+    occupancy.mark(pX, pY);
+  }
+
+  public int getStripeCount() {
+    return stripeCount;
+  }
+
+}
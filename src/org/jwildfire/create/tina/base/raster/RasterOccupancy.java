@@ -0,0 +1,123 @@
+/*
+  JWildfire - an image and animation processor written in Java 
+  Copyright (C) 1995-2016 Andreas Maschke
+
+  This is free software; you can redistribute it and/or modify it under the terms of the GNU Lesser 
+  General Public License as published by the Free Software Foundation; either version 2.1 of the 
+  License, or (at your option) any later version.
+ 
+  This software is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without 
+  even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU 
+  Lesser General Public License for more details.
+
+  You should have received a copy of the GNU Lesser General Public License along with this software; 
+  if not, write to the Free Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+  02110-1301 USA, or see the FSF site: http://www.fsf.org.
+*/
+package org.jwildfire.create.tina.base.raster;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.Serializable;
+
+// Coarse bitmap of the raster cells which received at least one sample, so the filters can skip empty regions.
+// Additionally tracks the cells which received samples since they were last cleared, for progressive displays.
+public class RasterOccupancy implements Serializable {
+  private static final long serialVersionUID = 1L;
+  public static final int CELL_SHIFT = 3;
+
+  private final int rasterWidth, rasterHeight;
+  private final int cols, rows;
+  private final byte cells[];
+  private transient byte dirty[];
+
+  public RasterOccupancy(int pRasterWidth, int pRasterHeight) {
+    rasterWidth = pRasterWidth;
+    rasterHeight = pRasterHeight;
+    cols = ((pRasterWidth - 1) >> CELL_SHIFT) + 1;
+    rows = ((pRasterHeight - 1) >> CELL_SHIFT) + 1;
+    cells = new byte[cols * rows];
+    dirty = new byte[cols * rows];
+  }
+
+  private void readObject(ObjectInputStream pIn) throws IOException, ClassNotFoundException {
+    pIn.defaultReadObject();
+    dirty = cells.clone();
+  }
+
+  // may be called concurrently, all writers store the same value
+  public void mark(int pX, int pY) {
+    int idx = (pY >> CELL_SHIFT) * cols + (pX >> CELL_SHIFT);
+    cells[idx] = 1;
+    dirty[idx] = 1;
+  }
+
+  // Clears the dirty flag of the cell and returns if it was set. A sample arriving concurrently sets it again,
+  // so it is picked up by the next call.
+  public boolean clearDirty(int pCol, int pRow) {
+    int idx = pRow * cols + pCol;
+    if (dirty[idx] == 0) {
+      return false;
+    }
+    dirty[idx] = 0;
+    return true;
+  }
+
+  public int getColCount() {
+    return cols;
+  }
+
+  public int getRowCount() {
+    return rows;
+  }
+
+  public boolean isOccupied(int pX, int pY) {
+    return cells[(pY >> CELL_SHIFT) * cols + (pX >> CELL_SHIFT)] != 0;
+  }
+
+  public int getOccupiedCellCount() {
+    int res = 0;
+    for (byte cell : cells) {
+      res += cell;
+    }
+    return res;
+  }
+
+  public int getCellCount() {
+    return cells.length;
+  }
+
+  public SummedAreaTable createSummedAreaTable() {
+    return new SummedAreaTable();
+  }
+
+  // Snapshot of the occupancy which answers "is this rectangle empty" in constant time
+  public class SummedAreaTable {
+    private final int sums[];
+
+    private SummedAreaTable() {
+      sums = new int[(cols + 1) * (rows + 1)];
+      for (int r = 0; r < rows; r++) {
+        int rowSum = 0;
+        for (int c = 0; c < cols; c++) {
+          rowSum += cells[r * cols + c];
+          sums[(r + 1) * (cols + 1) + c + 1] = sums[r * (cols + 1) + c + 1] + rowSum;
+        }
+      }
+    }
+
+    // raster coordinates, both corners inclusive, clipped to the raster
+    public boolean isEmpty(int pX0, int pY0, int pX1, int pY1) {
+      int c0 = Math.max(pX0, 0) >> CELL_SHIFT;
+      int r0 = Math.max(pY0, 0) >> CELL_SHIFT;
+      int c1 = (Math.min(pX1, rasterWidth - 1) >> CELL_SHIFT) + 1;
+      int r1 = (Math.min(pY1, rasterHeight - 1) >> CELL_SHIFT) + 1;
+      if (c0 >= c1 || r0 >= r1) {
+        return true;
+      }
+      int w = cols + 1;
+      return sums[r1 * w + c1] - sums[r0 * w + c1] - sums[r1 * w + c0] + sums[r0 * w + c0] == 0;
+    }
+  }
+
+}
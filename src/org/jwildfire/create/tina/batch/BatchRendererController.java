@@ -38,6 +38,7 @@ import org.jwildfire.create.tina.base.Flame;
 import org.jwildfire.create.tina.io.FlameReader;
 import org.jwildfire.create.tina.render.FlameRenderer;
 import org.jwildfire.create.tina.render.ProgressUpdater;
+import org.jwildfire.create.tina.render.RenderExecutor;
 import org.jwildfire.create.tina.render.RenderInfo;
 import org.jwildfire.create.tina.render.RenderMode;
 import org.jwildfire.create.tina.render.RenderedFlame;
@@ -89,7 +90,7 @@ public class BatchRendererController implements JobRenderThreadController {
     }
     if (activeJobList.size() > 0) {
       jobRenderThread = new JobRenderThread(this, activeJobList, (ResolutionProfile) data.batchResolutionProfileCmb.getSelectedItem(), (QualityProfile) data.batchQualityProfileCmb.getSelectedItem(), batchRenderOverrideCBx.isSelected());
-      new Thread(jobRenderThread).start();
+      RenderExecutor.getInstance().execute(jobRenderThread);
     }
     enableJobRenderControls();
   }
@@ -0,0 +1,192 @@
+/*
+  JWildfire - an image and animation processor written in Java 
+  Copyright (C) 1995-2015 Andreas Maschke
+
+  This is free software; you can redistribute it and/or modify it under the terms of the GNU Lesser 
+  General Public License as published by the Free Software Foundation; either version 2.1 of the 
+  License, or (at your option) any later version.
+ 
+  This software is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without 
+  even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU 
+  Lesser General Public License for more details.
+
+  You should have received a copy of the GNU Lesser General Public License along with this software; 
+  if not, write to the Free Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+  02110-1301 USA, or see the FSF site: http://www.fsf.org.
+*/
+package org.jwildfire.create.tina.batch;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.Random;
+
+import org.jwildfire.base.Prefs;
+import org.jwildfire.create.tina.base.Flame;
+import org.jwildfire.create.tina.io.FlameWriter;
+import org.jwildfire.create.tina.render.FlameRenderer;
+import org.jwildfire.create.tina.render.RenderInfo;
+import org.jwildfire.create.tina.render.RenderedFlame;
+
+/**
+ * Renders one flame with several worker processes. The job is written into a shared drawer, every worker
+ * (DistributedRenderWorker, either started by launchLocalWorkers() or by hand on other machines which see the same drawer)
+ * iterates its part of the samples and saves its raster there. The rasters only contain sums, so the coordinator just
+ * adds them up and creates the image once.
+ */
+public class DistributedRenderCoordinator {
+  static final String JOB_FLAME = "job.flame";
+  static final String JOB_PROPERTIES = "job.properties";
+  static final String KEY_WIDTH = "width";
+  static final String KEY_HEIGHT = "height";
+  static final String KEY_SAMPLE_DENSITY = "sampleDensity";
+  static final String KEY_WORKER_COUNT = "workerCount";
+  static final String KEY_WORKER_SHARE = "worker.share.";
+  static final String KEY_SEED = "seed";
+  private static final long POLL_INTERVAL = 500;
+
+  private final Flame flame;
+  private final Prefs prefs;
+  private final RenderInfo renderInfo;
+  private final File jobDrawer;
+  private final double workerShares[];
+
+  public DistributedRenderCoordinator(Flame pFlame, Prefs pPrefs, RenderInfo pRenderInfo, File pJobDrawer, int pWorkerCount) {
+    this(pFlame, pPrefs, pRenderInfo, pJobDrawer, equalWeights(pWorkerCount));
+  }
+
+  // the weights define the part of the samples each worker renders, e.g. to give faster machines more work
+  public DistributedRenderCoordinator(Flame pFlame, Prefs pPrefs, RenderInfo pRenderInfo, File pJobDrawer, double pWorkerWeights[]) {
+    if (pWorkerWeights.length < 1) {
+      throw new IllegalArgumentException("No workers");
+    }
+    double totalWeight = 0.0;
+    for (double weight : pWorkerWeights) {
+      if (weight <= 0.0) {
+        throw new IllegalArgumentException("Worker weight " + weight);
+      }
+      totalWeight += weight;
+    }
+    flame = pFlame;
+    prefs = pPrefs;
+    renderInfo = pRenderInfo;
+    jobDrawer = pJobDrawer;
+    workerShares = new double[pWorkerWeights.length];
+    for (int i = 0; i < workerShares.length; i++) {
+      workerShares[i] = pWorkerWeights[i] / totalWeight;
+    }
+  }
+
+  private static double[] equalWeights(int pWorkerCount) {
+    double res[] = new double[pWorkerCount];
+    for (int i = 0; i < pWorkerCount; i++) {
+      res[i] = 1.0;
+    }
+    return res;
+  }
+
+  public void prepareJob() throws Exception {
+    if (!jobDrawer.exists() && !jobDrawer.mkdirs()) {
+      throw new IOException("Could not create <" + jobDrawer.getAbsolutePath() + ">");
+    }
+    for (int i = 0; i < workerShares.length; i++) {
+      File result = getWorkerResultFile(jobDrawer, i);
+      if (result.exists() && !result.delete()) {
+        throw new IOException("Could not remove <" + result.getAbsolutePath() + ">");
+      }
+    }
+    new FlameWriter().writeFlame(flame, new File(jobDrawer, JOB_FLAME).getAbsolutePath());
+    Properties props = new Properties();
+    props.setProperty(KEY_WIDTH, String.valueOf(renderInfo.getImageWidth()));
+    props.setProperty(KEY_HEIGHT, String.valueOf(renderInfo.getImageHeight()));
+    props.setProperty(KEY_SAMPLE_DENSITY, String.valueOf(flame.getSampleDensity()));
+    props.setProperty(KEY_WORKER_COUNT, String.valueOf(workerShares.length));
+    // the workers derive their random streams from this, so they never render the same samples
+    long seed = renderInfo.isSeeded() ? renderInfo.getMasterSeed() : new Random().nextLong();
+    props.setProperty(KEY_SEED, String.valueOf(seed));
+    for (int i = 0; i < workerShares.length; i++) {
+      props.setProperty(KEY_WORKER_SHARE + i, String.valueOf(workerShares[i]));
+    }
+    OutputStream out = new FileOutputStream(new File(jobDrawer, JOB_PROPERTIES));
+    try {
+      props.store(out, "JWildfire distributed render job");
+    }
+    finally {
+      out.close();
+    }
+  }
+
+  // starts all workers as processes on this machine, mainly for testing
+  public List<Process> launchLocalWorkers() throws IOException {
+    String java = new File(new File(System.getProperty("java.home"), "bin"), "java").getAbsolutePath();
+    List<Process> res = new ArrayList<Process>();
+    for (int i = 0; i < workerShares.length; i++) {
+      ProcessBuilder builder = new ProcessBuilder(java, "-Djava.awt.headless=true", "-cp", System.getProperty("java.class.path"),
+          DistributedRenderWorker.class.getName(), jobDrawer.getAbsolutePath(), String.valueOf(i));
+      builder.redirectErrorStream(true);
+      builder.redirectOutput(new File(jobDrawer, "worker-" + i + ".log"));
+      res.add(builder.start());
+    }
+    return res;
+  }
+
+  // waits until all workers delivered their rasters (the result files are moved into place when complete) and creates the image
+  public RenderedFlame awaitResult(long pTimeoutMillis) throws Exception {
+    long deadline = System.currentTimeMillis() + pTimeoutMillis;
+    List<String> results = new ArrayList<String>();
+    for (int i = 0; i < workerShares.length; i++) {
+      File result = getWorkerResultFile(jobDrawer, i);
+      while (!result.exists()) {
+        if (System.currentTimeMillis() > deadline) {
+          throw new IOException("Worker " + i + " did not deliver <" + result.getAbsolutePath() + "> in time");
+        }
+        Thread.sleep(POLL_INTERVAL);
+      }
+      results.add(result.getAbsolutePath());
+    }
+    FlameRenderer renderer = new FlameRenderer(flame, prefs, flame.isBGTransparency(), false);
+    return renderer.renderFlameFromRasters(renderInfo, results);
+  }
+
+  public RenderedFlame renderLocal(long pTimeoutMillis) throws Exception {
+    prepareJob();
+    List<Process> workers = launchLocalWorkers();
+    try {
+      for (int i = 0; i < workers.size(); i++) {
+        int exitCode = workers.get(i).waitFor();
+        if (exitCode != 0) {
+          throw new IOException("Worker " + i + " failed with exit code " + exitCode + ", see <" + new File(jobDrawer, "worker-" + i + ".log").getAbsolutePath() + ">");
+        }
+      }
+      return awaitResult(pTimeoutMillis);
+    }
+    finally {
+      for (Process worker : workers) {
+        worker.destroy();
+      }
+    }
+  }
+
+  static File getWorkerResultFile(File pJobDrawer, int pWorkerIdx) {
+    return new File(pJobDrawer, "worker-" + pWorkerIdx + ".jwfrender");
+  }
+
+  static Properties loadJobProperties(File pJobDrawer) throws IOException {
+    Properties props = new Properties();
+    InputStream in = new FileInputStream(new File(pJobDrawer, JOB_PROPERTIES));
+    try {
+      props.load(in);
+    }
+    finally {
+      in.close();
+    }
+    return props;
+  }
+
+}
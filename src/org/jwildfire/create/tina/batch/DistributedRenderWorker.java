@@ -0,0 +1,85 @@
+/*
+  JWildfire - an image and animation processor written in Java 
+  Copyright (C) 1995-2015 Andreas Maschke
+
+  This is free software; you can redistribute it and/or modify it under the terms of the GNU Lesser 
+  General Public License as published by the Free Software Foundation; either version 2.1 of the 
+  License, or (at your option) any later version.
+ 
+  This software is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without 
+  even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU 
+  Lesser General Public License for more details.
+
+  You should have received a copy of the GNU Lesser General Public License along with this software; 
+  if not, write to the Free Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+  02110-1301 USA, or see the FSF site: http://www.fsf.org.
+*/
+package org.jwildfire.create.tina.batch;
+
+import java.io.File;
+import java.util.Properties;
+
+import org.jwildfire.base.Prefs;
+import org.jwildfire.create.tina.base.Flame;
+import org.jwildfire.create.tina.io.FlameReader;
+import org.jwildfire.create.tina.random.XoshiroRandomGenerator;
+import org.jwildfire.create.tina.render.FlameRenderer;
+import org.jwildfire.create.tina.render.RenderInfo;
+import org.jwildfire.create.tina.render.RenderMode;
+
+/**
+ * Renders the share of one worker of a job prepared by DistributedRenderCoordinator and saves the raster into the job drawer.
+ * Usage: DistributedRenderWorker &lt;job drawer&gt; &lt;worker index&gt;
+ */
+public class DistributedRenderWorker {
+  private final File jobDrawer;
+  private final int workerIdx;
+  private final Prefs prefs;
+
+  public DistributedRenderWorker(File pJobDrawer, int pWorkerIdx, Prefs pPrefs) {
+    jobDrawer = pJobDrawer;
+    workerIdx = pWorkerIdx;
+    prefs = pPrefs;
+  }
+
+  public void render() throws Exception {
+    Properties props = DistributedRenderCoordinator.loadJobProperties(jobDrawer);
+    int workerCount = Integer.parseInt(props.getProperty(DistributedRenderCoordinator.KEY_WORKER_COUNT));
+    if (workerIdx < 0 || workerIdx >= workerCount) {
+      throw new IllegalArgumentException("Worker index " + workerIdx + " out of range 0.." + (workerCount - 1));
+    }
+    int width = Integer.parseInt(props.getProperty(DistributedRenderCoordinator.KEY_WIDTH));
+    int height = Integer.parseInt(props.getProperty(DistributedRenderCoordinator.KEY_HEIGHT));
+    double sampleDensity = Double.parseDouble(props.getProperty(DistributedRenderCoordinator.KEY_SAMPLE_DENSITY));
+    double share = Double.parseDouble(props.getProperty(DistributedRenderCoordinator.KEY_WORKER_SHARE + workerIdx));
+    long seed = Long.parseLong(props.getProperty(DistributedRenderCoordinator.KEY_SEED));
+
+    Flame flame = new FlameReader(prefs).readFlames(new File(jobDrawer, DistributedRenderCoordinator.JOB_FLAME).getAbsolutePath()).get(0);
+    flame.setSampleDensity(sampleDensity * share);
+    FlameRenderer renderer = new FlameRenderer(flame, prefs, flame.isBGTransparency(), false);
+    long t0 = System.currentTimeMillis();
+    // each worker renders a seeded render of its own, the generators of the factory would start with the same state on every machine
+    RenderInfo renderInfo = new RenderInfo(width, height, RenderMode.PRODUCTION);
+    renderInfo.setMasterSeed(XoshiroRandomGenerator.mix(seed, workerIdx));
+    long sampleCount = renderer.renderRaster(renderInfo);
+    long elapsed = System.currentTimeMillis() - t0;
+    renderer.saveRaster(DistributedRenderCoordinator.getWorkerResultFile(jobDrawer, workerIdx).getAbsolutePath(), sampleCount, elapsed);
+    System.out.println("Worker " + workerIdx + ": " + sampleCount + " samples in " + elapsed + " ms");
+  }
+
+  public static void main(String args[]) {
+    if (args.length != 2) {
+      System.err.println("Usage: " + DistributedRenderWorker.class.getName() + " <job drawer> <worker index>");
+      System.exit(2);
+    }
+    try {
+      new DistributedRenderWorker(new File(args[0]), Integer.parseInt(args[1]), Prefs.getPrefs()).render();
+      System.exit(0);
+    }
+    catch (Throwable ex) {
+      ex.printStackTrace();
+      System.exit(1);
+    }
+  }
+
+}
@@ -30,6 +30,7 @@ import org.jwildfire.base.QualityProfile;
 import org.jwildfire.base.ResolutionProfile;
 import org.jwildfire.create.tina.random.RandomGeneratorType;
 import org.jwildfire.create.tina.render.ProgressUpdater;
+import org.jwildfire.create.tina.render.RenderExecutor;
 
 /**
  * This is a headless controller used for commandline or web server based rendering (Swing components not needed)
@@ -146,6 +147,7 @@ public class HeadlessBatchRendererController implements JobRenderThreadControlle
     JobRenderThread job = new JobRenderThread(controller, joblist, respro, qualpro, true);
     job.run();
     System.out.println((System.nanoTime() - start) / 1000 / 1000 + " ms");
+    System.out.println("Render pool: " + RenderExecutor.getInstance());
   }
 
   private static void usage(String args[]) {
@@ -25,12 +25,14 @@ import org.jwildfire.base.Prefs;
 import org.jwildfire.base.QualityProfile;
 import org.jwildfire.base.ResolutionProfile;
 import org.jwildfire.create.tina.base.Flame;
+import org.jwildfire.create.tina.base.Stereo3dMode;
 import org.jwildfire.create.tina.io.FlameReader;
 import org.jwildfire.create.tina.render.FlameRenderer;
 import org.jwildfire.create.tina.render.RenderInfo;
 import org.jwildfire.create.tina.render.RenderMode;
 import org.jwildfire.create.tina.render.RenderedFlame;
 import org.jwildfire.create.tina.variation.RessourceManager;
+import org.jwildfire.io.EXRWriter;
 import org.jwildfire.io.ImageWriter;
 
 public class JobRenderThread implements Runnable {
@@ -95,8 +97,18 @@ public class JobRenderThread implements Runnable {
                 flame.setSampleDensity(job.getCustomQuality() > 0 ? job.getCustomQuality() : qualityProfile.getQuality());
                 renderer = new FlameRenderer(flame, Prefs.getPrefs(), flame.isBGTransparency(), false);
                 renderer.setProgressUpdater(controller.getJobProgressUpdater());
+                EXRWriter exrWriter = Prefs.getPrefs().isTinaSaveLinearEXR() && Stereo3dMode.NONE.equals(flame.getStereo3dMode()) ? new EXRWriter(primaryFilename + ".exr", info.getImageWidth(), info.getImageHeight(), true) : null;
+                renderer.setLinearImageOutput(exrWriter);
                 long t0 = Calendar.getInstance().getTimeInMillis();
-                RenderedFlame res = renderer.renderFlame(info);
+                RenderedFlame res;
+                try {
+                  res = renderer.renderFlame(info);
+                }
+                finally {
+                  if (exrWriter != null) {
+                    exrWriter.close();
+                  }
+                }
                 if (!cancelSignalled) {
                   long t1 = Calendar.getInstance().getTimeInMillis();
                   job.setElapsedSeconds(((double) (t1 - t0) / 1000.0));
@@ -17,8 +17,8 @@ public class CacheRendererThread implements Runnable {
   private final Prefs prefs;
   private final RenderCache renderCache;
   private final List<RenderJobInfo> jobs;
-  private boolean done;
-  private boolean cancelSignalled;
+  private volatile boolean done;
+  private volatile boolean cancelSignalled;
 
   public CacheRendererThread(Prefs pPrefs, RenderCache pRenderCache, List<RenderJobInfo> pJobs) {
     prefs = pPrefs;
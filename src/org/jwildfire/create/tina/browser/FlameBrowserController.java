@@ -31,6 +31,7 @@ import org.jwildfire.base.Prefs;
 import org.jwildfire.base.Tools;
 import org.jwildfire.create.tina.base.Flame;
 import org.jwildfire.create.tina.io.FlameReader;
+import org.jwildfire.create.tina.render.RenderExecutor;
 import org.jwildfire.create.tina.swing.MeshGenInternalFrame;
 import org.jwildfire.create.tina.swing.StandardDialogs;
 import org.jwildfire.create.tina.swing.TinaController;
@@ -335,7 +336,7 @@ public class FlameBrowserController {
 
   private void startRenderThread(List<RenderJobInfo> jobInfoLst) {
     CacheRendererThread renderThread = new CacheRendererThread(prefs, renderCache, jobInfoLst);
-    new Thread(renderThread).start();
+    RenderExecutor.getInstance().execute(renderThread);
     renderThreads.add(renderThread);
   }
 
@@ -21,10 +21,20 @@ import java.io.ObjectInputStream;
 
 import org.jwildfire.create.tina.base.Flame;
 import org.jwildfire.create.tina.render.JWFRenderFileHeader;
+import org.jwildfire.create.tina.render.RenderCheckpoint;
 
 public class JWFRenderHeaderReader {
   public JWFRenderHeader readRenderHeader(String pAbsolutePath) {
     try {
+      if (RenderCheckpoint.isCheckpointFile(pAbsolutePath)) {
+        RenderCheckpoint.Reader in = new RenderCheckpoint.Reader(pAbsolutePath);
+        try {
+          return new JWFRenderHeader(in.getHeader(), in.getFlame());
+        }
+        finally {
+          in.close();
+        }
+      }
       ObjectInputStream in = new ObjectInputStream(new FileInputStream(pAbsolutePath));
       try {
         JWFRenderFileHeader header = (JWFRenderFileHeader) in.readObject();
@@ -32,6 +32,10 @@ import java.io.InputStreamReader;
 import java.io.Reader;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 import javax.swing.AbstractAction;
 import javax.swing.JButton;
@@ -54,6 +58,7 @@ import org.jwildfire.create.tina.io.FlameReader;
 import org.jwildfire.create.tina.io.FlameWriter;
 import org.jwildfire.create.tina.randomflame.RandomFlameGeneratorSampler;
 import org.jwildfire.create.tina.render.FlameRenderer;
+import org.jwildfire.create.tina.render.RenderExecutor;
 import org.jwildfire.create.tina.render.RenderInfo;
 import org.jwildfire.create.tina.render.RenderMode;
 import org.jwildfire.create.tina.render.RenderedFlame;
@@ -289,21 +294,25 @@ public class MutaGenController {
 
     RenderThread thread = new RenderThread(flame, pImageWidth, pImageHeight);
     long tMax = 600;
-    long t0 = System.currentTimeMillis();
-    new Thread(thread).start();
-    while (!thread.isDone()) {
-      try {
-        Thread.sleep(1);
-      }
-      catch (InterruptedException ex) {
-        throw new RuntimeException(ex);
+    Future<?> task = RenderExecutor.getInstance().submit(thread);
+    try {
+      if (pWithTimeout) {
+        task.get(tMax, TimeUnit.MILLISECONDS);
       }
-      long t1 = System.currentTimeMillis();
-      if (pWithTimeout && (t1 - t0 > tMax)) {
-        thread.forceAbort();
-        return null;
+      else {
+        task.get();
       }
     }
+    catch (TimeoutException ex) {
+      thread.forceAbort();
+      return null;
+    }
+    catch (InterruptedException ex) {
+      throw new RuntimeException(ex);
+    }
+    catch (ExecutionException ex) {
+      throw new RuntimeException(ex.getCause());
+    }
     return thread.getRenderResult();
   }
 
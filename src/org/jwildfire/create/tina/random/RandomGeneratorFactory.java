@@ -16,13 +16,20 @@
 */
 package org.jwildfire.create.tina.random;
 
-import java.util.HashMap;
-import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import org.jwildfire.base.Prefs;
 
 public class RandomGeneratorFactory {
-  private static Map<String, AbstractRandomGenerator> generatorMap = new HashMap<String, AbstractRandomGenerator>();
+  // purposes of the seeded streams, see createStream()
+  public static final int STREAM_RENDERER = 0;
+  public static final int STREAM_RENDER_THREAD = 1;
+  public static final int STREAM_VIEW = 2;
+  public static final int STREAM_LOG_DENSITY_FILTER = 3;
+  public static final int STREAM_POST_DOF = 4;
+
+  private static ConcurrentMap<String, AbstractRandomGenerator> generatorMap = new ConcurrentHashMap<String, AbstractRandomGenerator>();
 
   public static AbstractRandomGenerator getInstance(Prefs pPrefs, RandomGeneratorType pType, int pThreadId) {
     String key = pType.toString() + "#" + pThreadId;
@@ -30,7 +37,10 @@ public class RandomGeneratorFactory {
     if (res == null) {
       res = pType.createInstance(pPrefs);
       if (!pType.equals(RandomGeneratorType.MERSENNE_TWISTER)) {
-        generatorMap.put(key, res);
+        AbstractRandomGenerator existing = generatorMap.putIfAbsent(key, res);
+        if (existing != null) {
+          res = existing;
+        }
       }
     }
     return res;
@@ -40,6 +50,11 @@ public class RandomGeneratorFactory {
     return getInstance(pPrefs, pType, 0);
   }
 
+  // Independent generator for reproducible renders, always the same sequence for the same seed, purpose and index
+  public static AbstractRandomGenerator createStream(long pSeed, int pPurpose, int pIndex) {
+    return XoshiroRandomGenerator.createStream(pSeed, pPurpose, pIndex);
+  }
+
   public static void cleanup() {
     for (AbstractRandomGenerator gen : generatorMap.values()) {
       try {
@@ -0,0 +1,105 @@
+/*
+  JWildfire - an image and animation processor written in Java 
+  Copyright (C) 1995-2013 Andreas Maschke
+
+  This is free software; you can redistribute it and/or modify it under the terms of the GNU Lesser 
+  General Public License as published by the Free Software Foundation; either version 2.1 of the 
+  License, or (at your option) any later version.
+ 
+  This software is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without 
+  even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU 
+  Lesser General Public License for more details.
+
+  You should have received a copy of the GNU Lesser General Public License along with this software; 
+  if not, write to the Free Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+  02110-1301 USA, or see the FSF site: http://www.fsf.org.
+*/
+package org.jwildfire.create.tina.random;
+
+// xoshiro256** by David Blackman and Sebastiano Vigna, http://xoshiro.di.unimi.it/
+// Seeded by splitmix64. jump() advances the generator by 2^128 steps, so the streams of a seed which are
+// derived by jumping do not overlap, which is used for reproducible multi-threaded renders.
+public class XoshiroRandomGenerator extends AbstractRandomGenerator {
+  private static final long[] JUMP = { 0x180ec6d33cfd0abaL, 0xd5a61266f0c9392cL, 0xa9582618e03fc9aaL, 0x39abdc4529b1661cL };
+  private static final double DOUBLE_UNIT = 1.0 / (double) (1L << 53);
+
+  private long s0, s1, s2, s3;
+
+  public XoshiroRandomGenerator() {
+    randomize(0x5DEECE66DL);
+  }
+
+  public XoshiroRandomGenerator(long pSeed) {
+    randomize(pSeed);
+  }
+
+  // generator number pIndex of the streams of the given seed, pPurpose separates the streams of different parts of the renderer
+  public static XoshiroRandomGenerator createStream(long pSeed, int pPurpose, int pIndex) {
+    XoshiroRandomGenerator res = new XoshiroRandomGenerator(mix(pSeed, pPurpose));
+    for (int i = 0; i < pIndex; i++) {
+      res.jump();
+    }
+    return res;
+  }
+
+  public static long mix(long pSeed, long pValue) {
+    return splitMix(pSeed ^ splitMix(pValue + 0x9E3779B97F4A7C15L));
+  }
+
+  private static long splitMix(long pValue) {
+    long z = pValue;
+    z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+    z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+    return z ^ (z >>> 31);
+  }
+
+  @Override
+  public void randomize(long pSeed) {
+    long x = pSeed;
+    s0 = splitMix(x += 0x9E3779B97F4A7C15L);
+    s1 = splitMix(x += 0x9E3779B97F4A7C15L);
+    s2 = splitMix(x += 0x9E3779B97F4A7C15L);
+    s3 = splitMix(x += 0x9E3779B97F4A7C15L);
+  }
+
+  public long nextLong() {
+    long res = Long.rotateLeft(s1 * 5, 7) * 9;
+    long t = s1 << 17;
+    s2 ^= s0;
+    s3 ^= s1;
+    s1 ^= s2;
+    s0 ^= s3;
+    s2 ^= t;
+    s3 = Long.rotateLeft(s3, 45);
+    return res;
+  }
+
+  @Override
+  public double random() {
+    return (nextLong() >>> 11) * DOUBLE_UNIT;
+  }
+
+  public void jump() {
+    long j0 = 0, j1 = 0, j2 = 0, j3 = 0;
+    for (long jump : JUMP) {
+      for (int b = 0; b < 64; b++) {
+        if ((jump & (1L << b)) != 0) {
+          j0 ^= s0;
+          j1 ^= s1;
+          j2 ^= s2;
+          j3 ^= s3;
+        }
+        nextLong();
+      }
+    }
+    s0 = j0;
+    s1 = j1;
+    s2 = j2;
+    s3 = j3;
+  }
+
+  @Override
+  public void cleanup() {
+    // empty
+  }
+}
@@ -20,8 +20,6 @@ import java.io.File;
 import java.util.ArrayList;
 import java.util.List;
 
-import javax.swing.JLabel;
-
 import org.jwildfire.base.Prefs;
 import org.jwildfire.base.Tools;
 import org.jwildfire.create.tina.palette.MedianCutQuantizer;
@@ -87,7 +85,7 @@ public class ColorMapRandomFlameGenerator extends WikimediaCommonsRandomFlameGen
       File file = getRandomFile();
       if (file != null) {
         byte[] imgData = Tools.readFile(file.getAbsolutePath());
-        WFImage img = new ImageReader(new JLabel()).loadImage(file.getAbsolutePath());
+        WFImage img = new ImageReader().loadImage(file.getAbsolutePath());
         if (img.getImageWidth() >= minSize && img.getImageWidth() <= maxSize && img.getImageHeight() >= minSize && img.getImageHeight() <= maxSize) {
           int hashcode = RessourceManager.calcHashCode(imgData);
           SimpleImage wfImg = (SimpleImage) RessourceManager.getImage(hashcode, imgData);
@@ -76,10 +76,13 @@ public class RandomFlameGeneratorSampler {
     long maxCoverage = img.getImageWidth() * img.getImageHeight();
     long coverage = 0;
     Pixel pixel = new Pixel();
+    int width = img.getImageWidth();
+    int[] line = new int[width];
     if (bgRed == 0 && bgGreen == 0 && bgBlue == 0) {
       for (int k = 0; k < img.getImageHeight(); k++) {
-        for (int l = 0; l < img.getImageWidth(); l++) {
-          pixel.setARGBValue(img.getARGBValue(l, k));
+        img.getARGBRow(k, 0, width, line);
+        for (int l = 0; l < width; l++) {
+          pixel.setARGBValue(line[l]);
           if (pixel.r > 29 || pixel.g > 15 || pixel.b > 78) {
             coverage++;
           }
@@ -88,8 +91,9 @@ public class RandomFlameGeneratorSampler {
     }
     else {
       for (int k = 0; k < img.getImageHeight(); k++) {
-        for (int l = 0; l < img.getImageWidth(); l++) {
-          pixel.setARGBValue(img.getARGBValue(l, k));
+        img.getARGBRow(k, 0, width, line);
+        for (int l = 0; l < width; l++) {
+          pixel.setARGBValue(line[l]);
           if (Math.abs(pixel.r - bgRed) > 29.0 && Math.abs(pixel.g - bgGreen) > 15.0 && Math.abs(pixel.b - bgBlue) > 78.0) {
             coverage++;
           }
@@ -23,8 +23,6 @@ import java.net.URL;
 import java.util.ArrayList;
 import java.util.List;
 
-import javax.swing.JLabel;
-
 import org.jwildfire.base.Prefs;
 import org.jwildfire.base.Tools;
 import org.jwildfire.create.tina.base.Flame;
@@ -142,7 +140,7 @@ public class WikimediaCommonsRandomFlameGenerator extends RandomFlameGenerator {
         File f = File.createTempFile("tmp", "." + fileExt);
         f.deleteOnExit();
         Tools.writeFile(f.getAbsolutePath(), imgData);
-        WFImage img = new ImageReader(new JLabel()).loadImage(f.getAbsolutePath());
+        WFImage img = new ImageReader().loadImage(f.getAbsolutePath());
         if (img.getImageWidth() >= minSize && img.getImageWidth() <= maxSize && img.getImageHeight() >= minSize && img.getImageHeight() <= maxSize) {
           int hashcode = RessourceManager.calcHashCode(imgData);
           SimpleImage wfImg = (SimpleImage) RessourceManager.getImage(hashcode, imgData);
@@ -23,7 +23,6 @@ import org.jwildfire.base.Prefs;
 import org.jwildfire.create.tina.base.Flame;
 import org.jwildfire.create.tina.base.Layer;
 import org.jwildfire.create.tina.random.AbstractRandomGenerator;
-import org.jwildfire.create.tina.random.RandomGeneratorFactory;
 import org.jwildfire.create.tina.variation.FlameTransformationContext;
 
 public abstract class AbstractRenderThread implements Runnable {
@@ -38,8 +37,8 @@ public abstract class AbstractRenderThread implements Runnable {
   protected final int threadGroupSize;
   protected volatile long currSample;
   protected SampleTonemapper tonemapper;
-  protected boolean forceAbort;
-  protected boolean finished;
+  protected volatile boolean forceAbort;
+  protected volatile boolean finished;
   protected final Prefs prefs;
   protected RenderThreadPersistentState resumeState;
   protected FlameTransformationContext ctx;
@@ -53,7 +52,7 @@ public abstract class AbstractRenderThread implements Runnable {
     renderer = pRenderer;
     renderPackets = pRenderPackets;
     samples = pSamples;
-    randGen = RandomGeneratorFactory.getInstance(pPrefs, pPrefs.getTinaRandomNumberGenerator(), pThreadId);
+    randGen = pRenderer.createRenderThreadRandGen(pThreadId);
     slices = pSlices;
     sliceThicknessMod = pSliceThicknessMod;
     sliceThicknessSamples = pSliceThicknessSamples;
@@ -97,20 +96,22 @@ public abstract class AbstractRenderThread implements Runnable {
 
   @Override
   public void run() {
-    finished = forceAbort = false;
     try {
       try {
-        if (resumeState == null) {
-          initState();
-        }
-        else {
-          restoreState(resumeState);
-        }
-        if (slices == null) {
-          iterate();
-        }
-        else {
-          iterateSlices(slices, sliceThicknessMod, sliceThicknessSamples);
+        // a thread which was cancelled while it waited for its start is finished without any work
+        if (!forceAbort) {
+          if (resumeState == null) {
+            initState();
+          }
+          else {
+            restoreState(resumeState);
+          }
+          if (slices == null) {
+            iterate();
+          }
+          else {
+            iterateSlices(slices, sliceThicknessMod, sliceThicknessSamples);
+          }
         }
       }
       catch (Throwable ex) {
@@ -119,8 +120,39 @@ public abstract class AbstractRenderThread implements Runnable {
       }
     }
     finally {
-      finished = true;
+      SampleSequencer sequencer = renderer.getSampleSequencer();
+      if (sequencer != null) {
+        sequencer.leave(threadId);
+      }
+      synchronized (this) {
+        finished = true;
+        notifyAll();
+      }
+    }
+  }
+
+  // the flags are reset when the thread is handed over to run again and never by run() itself, so a cancel() which
+  // comes before the start is not lost
+  void prepareRestart() {
+    finished = forceAbort = false;
+  }
+
+  public synchronized void awaitFinished() throws InterruptedException {
+    while (!finished) {
+      wait();
+    }
+  }
+
+  public synchronized boolean awaitFinished(long pTimeoutMillis) throws InterruptedException {
+    long deadline = System.currentTimeMillis() + pTimeoutMillis;
+    while (!finished) {
+      long remaining = deadline - System.currentTimeMillis();
+      if (remaining <= 0) {
+        return false;
+      }
+      wait(remaining);
     }
+    return true;
   }
 
   public long getCurrSample() {
@@ -0,0 +1,134 @@
+/*
+  JWildfire - an image and animation processor written in Java 
+  Copyright (C) 1995-2014 Andreas Maschke
+
+  This is free software; you can redistribute it and/or modify it under the terms of the GNU Lesser 
+  General Public License as published by the Free Software Foundation; either version 2.1 of the 
+  License, or (at your option) any later version.
+ 
+  This software is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without 
+  even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU 
+  Lesser General Public License for more details.
+
+  You should have received a copy of the GNU Lesser General Public License along with this software; 
+  if not, write to the Free Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+  02110-1301 USA, or see the FSF site: http://www.fsf.org.
+*/
+package org.jwildfire.create.tina.render;
+
+import org.jwildfire.create.tina.base.Constants;
+import org.jwildfire.create.tina.base.Layer;
+import org.jwildfire.create.tina.base.XForm;
+import org.jwildfire.create.tina.base.XYZPoint;
+import org.jwildfire.create.tina.random.AbstractRandomGenerator;
+import org.jwildfire.create.tina.variation.FlameTransformationContext;
+
+// Advances a block of independent walkers in lockstep: all walkers choose their next xform first, then every
+// xform is applied to all of its walkers in one go, so the code and data of one xform stay hot while it runs.
+// The following calls of iterateNext() plot the walkers one by one, so one call still accounts for one sample.
+public class BatchRenderIterationState extends DefaultRenderIterationState {
+  private static final long serialVersionUID = 1L;
+
+  private final int walkerCount;
+  private final XForm xForms[];
+  private final XYZPoint walkerPoints[];
+  private final XForm walkerXForms[];
+  private int nextWalker;
+  private boolean walkersInitialized;
+
+  public BatchRenderIterationState(AbstractRenderThread pRenderThread, FlameRenderer pRenderer, RenderPacket pPacket, Layer pLayer, FlameTransformationContext pCtx, AbstractRandomGenerator pRandGen, int pWalkerCount) {
+    super(pRenderThread, pRenderer, pPacket, pLayer, pCtx, pRandGen);
+    walkerCount = pWalkerCount;
+    xForms = pLayer.getXForms().toArray(new XForm[pLayer.getXForms().size()]);
+    walkerPoints = new XYZPoint[walkerCount];
+    walkerXForms = new XForm[walkerCount];
+    nextWalker = walkerCount;
+  }
+
+  @Override
+  public void preFuseIter() {
+    for (int w = 0; w < walkerCount; w++) {
+      initWalker(w);
+    }
+    walkersInitialized = true;
+    nextWalker = walkerCount;
+  }
+
+  private void initWalker(int pWalker) {
+    super.preFuseIter();
+    walkerPoints[pWalker] = p;
+    walkerXForms[pWalker] = xf;
+  }
+
+  @Override
+  public void validateState() {
+    if (!walkersInitialized) {
+      // restored from a saved state with one walker
+      XYZPoint restoredP = p;
+      XForm restoredXf = xf;
+      preFuseIter();
+      if (restoredP != null) {
+        walkerPoints[0] = restoredP;
+        walkerXForms[0] = restoredXf;
+      }
+      return;
+    }
+    for (int w = 0; w < walkerCount; w++) {
+      XYZPoint wp = walkerPoints[w];
+      if (Double.isInfinite(wp.x) || Double.isInfinite(wp.y) || Double.isInfinite(wp.z) || Double.isNaN(wp.x) || Double.isNaN(wp.y) || Double.isNaN(wp.z) || walkerXForms[w] == null) {
+        initWalker(w);
+      }
+    }
+  }
+
+  @Override
+  public void iterateNext() {
+    if (nextWalker >= walkerCount) {
+      if (!walkersInitialized) {
+        validateState();
+      }
+      // one batch plots one sample of every walker. All walkers share the xforms of the layer, and so the time,
+      // which therefore changes after TIME_SAMPLE_ITERATIONS samples of the whole batch, as with a single walker
+      if (nextMotionBlurTime(walkerCount)) {
+        for (int i = 0; i <= Constants.INITIAL_ITERATIONS; i++) {
+          advanceWalkers();
+        }
+      }
+      advanceWalkers();
+      nextWalker = 0;
+    }
+    int w = nextWalker++;
+    p = walkerPoints[w];
+    xf = walkerXForms[w];
+    if (xf == null) {
+      initWalker(w);
+      return;
+    }
+    plotTransformedPoint();
+  }
+
+  private void advanceWalkers() {
+    for (int w = 0; w < walkerCount; w++) {
+      XForm from = walkerXForms[w];
+      walkerXForms[w] = from != null ? selectNextXForm(from) : null;
+    }
+    for (XForm xForm : xForms) {
+      for (int w = 0; w < walkerCount; w++) {
+        if (walkerXForms[w] == xForm) {
+          XYZPoint wp = walkerPoints[w];
+          try {
+            xForm.transformPoint(ctx, affineT, varT, wp, wp);
+          }
+          catch (Exception ex) {
+            walkerXForms[w] = null;
+          }
+        }
+      }
+    }
+  }
+
+  public int getWalkerCount() {
+    return walkerCount;
+  }
+
+}
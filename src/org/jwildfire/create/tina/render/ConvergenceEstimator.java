@@ -0,0 +1,106 @@
+/*
+  JWildfire - an image and animation processor written in Java 
+  Copyright (C) 1995-2014 Andreas Maschke
+
+  This is free software; you can redistribute it and/or modify it under the terms of the GNU Lesser 
+  General Public License as published by the Free Software Foundation; either version 2.1 of the 
+  License, or (at your option) any later version.
+ 
+  This software is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without 
+  even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU 
+  Lesser General Public License for more details.
+
+  You should have received a copy of the GNU Lesser General Public License along with this software; 
+  if not, write to the Free Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+  02110-1301 USA, or see the FSF site: http://www.fsf.org.
+*/
+package org.jwildfire.create.tina.render;
+
+import org.jwildfire.base.mathlib.MathLib;
+import org.jwildfire.create.tina.base.Flame;
+import org.jwildfire.create.tina.base.raster.AbstractRaster;
+import org.jwildfire.create.tina.base.raster.RasterOccupancy;
+import org.jwildfire.create.tina.base.raster.RasterPoint;
+import org.jwildfire.create.tina.base.raster.RasterWithOccupancy;
+import org.jwildfire.create.tina.render.image.ImageTiles;
+
+// Estimates the remaining noise of a render from the hit counts of the (still growing) raster.
+// The counts of a pixel are Poisson distributed, so a pixel with c hits has a standard deviation of sqrt(c).
+// The log density filter maps c to log(1 + c * k2), so the visible error of a pixel is about
+// k2 * sqrt(c) / (1 + c * k2). The noise of a tile is the sum of these errors relative to the sum of the
+// mapped values, averaging over the oversampled pixels of an image pixel reduces it by the oversampling.
+// Tiles which are much darker than the average tile (sparse outliers of the flame) are ignored, the noise
+// of the image is the noise of the worst remaining tile.
+public class ConvergenceEstimator {
+  private static final double MIN_TILE_WEIGHT = 0.25;
+
+  private final AbstractRaster raster;
+  private final ImageTiles tiles;
+  private final int oversample;
+  private final double area;
+  private final double contrast;
+  private final RasterPoint rp = new RasterPoint(0);
+  private final double[] tileNoise;
+  private final double[] tileWeight;
+
+  public ConvergenceEstimator(Flame pFlame, AbstractRaster pRaster, int pRasterWidth, int pRasterHeight, int pImageWidth, int pImageHeight) {
+    raster = pRaster;
+    oversample = pFlame.getSpatialOversampling();
+    tiles = new ImageTiles(pRasterWidth, pRasterHeight, ImageTiles.DEFAULT_TILE_SIZE * oversample, ImageTiles.DEFAULT_TILE_SIZE * oversample);
+    double pixelsPerUnit = pFlame.getPixelsPerUnit() * pFlame.getCamZoom();
+    area = ((double) pImageWidth * (double) pImageHeight) / (pixelsPerUnit * pixelsPerUnit);
+    contrast = pFlame.getContrast();
+    tileNoise = new double[tiles.getTileCount()];
+    tileWeight = new double[tiles.getTileCount()];
+  }
+
+  // pSampleDensity is the density of the samples in the raster so far
+  public double estimateNoise(double pSampleDensity) {
+    if (pSampleDensity <= 0.0) {
+      return Double.MAX_VALUE;
+    }
+    double k2 = 1.0 / (contrast * area * pSampleDensity);
+    RasterOccupancy occupancy = raster instanceof RasterWithOccupancy ? ((RasterWithOccupancy) raster).getOccupancy() : null;
+    double weightSum = 0.0;
+    for (int tile = 0; tile < tileNoise.length; tile++) {
+      double errorSum = 0.0, valueSum = 0.0;
+      for (int y = tiles.getStartY(tile); y < tiles.getEndY(tile); y++) {
+        for (int x = tiles.getStartX(tile); x < tiles.getEndX(tile); x++) {
+          if (occupancy != null && !occupancy.isOccupied(x, y)) {
+            continue;
+          }
+          raster.readRasterPoint(x, y, rp);
+          if (rp.count > 0) {
+            double c = rp.count * k2;
+            errorSum += k2 * MathLib.sqrt(rp.count) / (1.0 + c);
+            valueSum += MathLib.log(1.0 + c);
+          }
+        }
+      }
+      tileWeight[tile] = valueSum;
+      tileNoise[tile] = valueSum > 0.0 ? errorSum / valueSum / oversample : 0.0;
+      weightSum += valueSum;
+    }
+    if (weightSum <= 0.0) {
+      return Double.MAX_VALUE;
+    }
+    double minWeight = MIN_TILE_WEIGHT * weightSum / tileNoise.length;
+    double res = 0.0;
+    for (int tile = 0; tile < tileNoise.length; tile++) {
+      if (tileWeight[tile] >= minWeight && tileNoise[tile] > res) {
+        res = tileNoise[tile];
+      }
+    }
+    return res;
+  }
+
+  public int getTileCount() {
+    return tileNoise.length;
+  }
+
+  // results of the last estimate
+  public double getTileNoise(int pTile) {
+    return tileNoise[pTile];
+  }
+
+}
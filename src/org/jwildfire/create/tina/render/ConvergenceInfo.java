@@ -0,0 +1,65 @@
+/*
+  JWildfire - an image and animation processor written in Java 
+  Copyright (C) 1995-2014 Andreas Maschke
+
+  This is free software; you can redistribute it and/or modify it under the terms of the GNU Lesser 
+  General Public License as published by the Free Software Foundation; either version 2.1 of the 
+  License, or (at your option) any later version.
+ 
+  This software is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without 
+  even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU 
+  Lesser General Public License for more details.
+
+  You should have received a copy of the GNU Lesser General Public License along with this software; 
+  if not, write to the Free Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+  02110-1301 USA, or see the FSF site: http://www.fsf.org.
+*/
+package org.jwildfire.create.tina.render;
+
+// Quality achieved by an adaptive render, see RenderInfo.setAdaptive()
+public class ConvergenceInfo {
+  public enum StopReason {
+    CONVERGED, TIME_BUDGET, MAX_SAMPLE_DENSITY, CANCELLED
+  }
+
+  private final StopReason stopReason;
+  private final double noise;
+  private final double sampleDensity;
+  private final long sampleCount;
+  private final long elapsedMillis;
+
+  public ConvergenceInfo(StopReason pStopReason, double pNoise, double pSampleDensity, long pSampleCount, long pElapsedMillis) {
+    stopReason = pStopReason;
+    noise = pNoise;
+    sampleDensity = pSampleDensity;
+    sampleCount = pSampleCount;
+    elapsedMillis = pElapsedMillis;
+  }
+
+  public StopReason getStopReason() {
+    return stopReason;
+  }
+
+  // estimated noise of the worst tile, see ConvergenceEstimator
+  public double getNoise() {
+    return noise;
+  }
+
+  public double getSampleDensity() {
+    return sampleDensity;
+  }
+
+  public long getSampleCount() {
+    return sampleCount;
+  }
+
+  public long getElapsedMillis() {
+    return elapsedMillis;
+  }
+
+  @Override
+  public String toString() {
+    return stopReason + ": noise " + Math.round(noise * 10000.0) / 10000.0 + ", density " + Math.round(sampleDensity * 10.0) / 10.0 + ", " + sampleCount + " samples in " + elapsedMillis + " ms";
+  }
+
+}
@@ -30,6 +30,7 @@ import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.List;
 
+import org.jwildfire.base.Prefs;
 import org.jwildfire.base.Tools;
 import org.jwildfire.base.mathlib.GfxMathLib;
 import org.jwildfire.base.mathlib.MathLib;
@@ -39,6 +40,7 @@ import org.jwildfire.create.tina.base.DrawMode;
 import org.jwildfire.create.tina.base.Flame;
 import org.jwildfire.create.tina.base.Layer;
 import org.jwildfire.create.tina.base.XForm;
+import org.jwildfire.create.tina.base.XFormAliasTable;
 import org.jwildfire.create.tina.base.XYZPoint;
 import org.jwildfire.create.tina.base.XYZProjectedPoint;
 import org.jwildfire.create.tina.base.raster.AbstractRaster;
@@ -64,10 +66,18 @@ public class DefaultRenderIterationState extends RenderIterationState {
   protected PointProjector projector;
   protected final ColorProvider colorProvider;
   protected final boolean solidRendering;
+  protected final boolean exactXFormSelection;
+  protected transient MotionBlurTrack.Binding motionBlur;
+  protected double motionBlurWeight = 1.0;
+  protected int motionBlurIterations;
+  protected boolean motionBlurTimeSelected;
 
   public DefaultRenderIterationState(AbstractRenderThread pRenderThread, FlameRenderer pRenderer, RenderPacket pPacket, Layer pLayer, FlameTransformationContext pCtx, AbstractRandomGenerator pRandGen) {
     super(pRenderThread, pRenderer, pPacket, pLayer, pCtx, pRandGen);
     solidRendering = flame.getSolidRenderSettings().isSolidRenderingEnabled();
+    exactXFormSelection = Prefs.getPrefs().isTinaExactXFormSelection();
+    MotionBlurTrack motionBlurTrack = pRenderer.getMotionBlurTrack();
+    motionBlur = motionBlurTrack != null ? motionBlurTrack.bind(flame, pLayer) : null;
     projector = new DefaultPointProjector();
     if (pLayer.getGradientMapFilename() != null && pLayer.getGradientMapFilename().length() > 0) {
       colorProvider = new GradientMapColorProvider(pLayer.getGradientMapFilename());
@@ -103,6 +113,9 @@ public class DefaultRenderIterationState extends RenderIterationState {
   }
 
   public void preFuseIter() {
+    if (motionBlur != null && !motionBlurTimeSelected) {
+      selectMotionBlurTime();
+    }
     affineT = new XYZPoint(); // affine part of the transformation
     varT = new XYZPoint(); // complete transformation
     p = new XYZPoint();
@@ -130,6 +143,10 @@ public class DefaultRenderIterationState extends RenderIterationState {
   }
 
   protected XForm selectNextXForm(XForm pFrom) {
+    if (exactXFormSelection) {
+      XFormAliasTable aliasTable = pFrom.getNextAppliedXFormAliasTable();
+      return aliasTable != null ? aliasTable.select(randGen) : null;
+    }
     return pFrom.getNextAppliedXFormTable()[randGen.random(Constants.NEXT_APPLIED_XFORM_TABLE_SIZE)];
   }
 
@@ -140,8 +157,49 @@ public class DefaultRenderIterationState extends RenderIterationState {
   }
 
   public void iterateNext() {
+    if (nextMotionBlurTime()) {
+      fuseMotionBlurTime();
+    }
     xf = selectNextXForm(xf);
     transformPoint();
+    plotTransformedPoint();
+  }
+
+  private void selectMotionBlurTime() {
+    double blurTime = randGen.random() * motionBlur.getBlurLength();
+    motionBlur.apply(blurTime);
+    motionBlurWeight = motionBlur.getWeight(blurTime);
+    motionBlurIterations = MotionBlurTrack.TIME_SAMPLE_ITERATIONS;
+    motionBlurTimeSelected = true;
+  }
+
+  // continuous motion blur: moves the walker to a new time from time to time, returns true if the xforms
+  // have changed, so that the walker must approach the attractor of the new time before plotting again
+  protected boolean nextMotionBlurTime() {
+    return nextMotionBlurTime(1);
+  }
+
+  // same for pSamples samples at once
+  protected boolean nextMotionBlurTime(int pSamples) {
+    if (motionBlur != null && (motionBlurIterations -= pSamples) < 0) {
+      selectMotionBlurTime();
+      return motionBlur.isAnimated();
+    }
+    return false;
+  }
+
+  private void fuseMotionBlurTime() {
+    for (int i = 0; i <= Constants.INITIAL_ITERATIONS; i++) {
+      xf = selectNextXForm(xf);
+      if (xf == null) {
+        xf = layer.getXForms().get(0);
+        return;
+      }
+      transformPoint();
+    }
+  }
+
+  protected void plotTransformedPoint() {
     if (xf.getDrawMode() == DrawMode.HIDDEN)
       return;
     else if ((xf.getDrawMode() == DrawMode.OPAQUE) && (randGen.random() > xf.getOpacity()))
@@ -157,8 +215,10 @@ public class DefaultRenderIterationState extends RenderIterationState {
   }
 
   public void iterateNext(List<RenderSlice> pSlices, double pThicknessMod, int pTicknessSamples) {
-    int nextXForm = randGen.random(Constants.NEXT_APPLIED_XFORM_TABLE_SIZE);
-    xf = xf.getNextAppliedXFormTable()[nextXForm];
+    if (nextMotionBlurTime()) {
+      fuseMotionBlurTime();
+    }
+    xf = selectNextXForm(xf);
     if (xf == null) {
       return;
     }
@@ -468,7 +528,19 @@ public class DefaultRenderIterationState extends RenderIterationState {
   long t0 = System.currentTimeMillis();
 
   protected void applySamplesToRaster() {
-    raster.addSamples(plotBuffer, plotBufferIdx);
+    SampleSequencer sequencer = renderer.getSampleSequencer();
+    if (sequencer != null) {
+      sequencer.acquire(renderThread.threadId);
+      try {
+        raster.addSamples(plotBuffer, plotBufferIdx);
+      }
+      finally {
+        sequencer.release(renderThread.threadId);
+      }
+    }
+    else {
+      raster.addSamples(plotBuffer, plotBufferIdx);
+    }
     plotBufferIdx = 0;
     long t1 = System.currentTimeMillis();
     if (t1 - t0 > 100) {
@@ -709,7 +781,7 @@ public class DefaultRenderIterationState extends RenderIterationState {
         if (screenY < 0 || screenY >= renderer.rasterHeight)
           return;
       }
-      double intensity = prj.intensity * layer.getWeight();
+      double intensity = prj.intensity * layer.getWeight() * motionBlurWeight;
       plotPoint(screenX, screenY, rawX, rawY, intensity, untransformed);
     }
 
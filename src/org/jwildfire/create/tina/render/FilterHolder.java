@@ -27,6 +27,9 @@ public class FilterHolder {
   protected int noiseFilterSize;
   protected final FilterKernel filterKernel;
   protected final int oversample;
+  // filter[i][j] == filterY[i] * filterX[j], only set if the filter is separable
+  protected double filterX[], filterY[];
+  private static final double SEPARABLE_TOLERANCE = 1.0e-9;
 
   public FilterHolder(Flame pFlame) {
     flame = pFlame;
@@ -35,6 +38,7 @@ public class FilterHolder {
     noiseFilterSize = filterKernel.getFilterSize(pFlame.getSpatialFilterRadius(), oversample);
     filter = new double[noiseFilterSize][noiseFilterSize];
     initFilter(pFlame.getSpatialFilterRadius(), noiseFilterSize, filter);
+    initSeparableFilter();
   }
 
   public FilterHolder(Flame pFlame, FilterKernelType pSpatialFilterKernel, int pSpatialOversampling, double pSpatialFilterRadius) {
@@ -44,6 +48,7 @@ public class FilterHolder {
     noiseFilterSize = filterKernel.getFilterSize(pSpatialFilterRadius, oversample);
     filter = new double[noiseFilterSize][noiseFilterSize];
     initFilter(pSpatialFilterRadius, noiseFilterSize, filter);
+    initSeparableFilter();
   }
 
   private void initFilter(double pFilterRadius, int pFilterSize, double[][] pFilter) {
@@ -72,6 +77,39 @@ public class FilterHolder {
     }
   }
 
+  // The kernels are radial, so only a few of them (e.g. the gaussian) are the product of a horizontal and
+  // a vertical filter. Instead of relying on the kernel type, the computed filter is checked.
+  private void initSeparableFilter() {
+    filterX = filterY = null;
+    int c = noiseFilterSize / 2;
+    if (noiseFilterSize <= 1 || filter[c][c] <= 0.0) {
+      return;
+    }
+    double x[] = new double[noiseFilterSize];
+    double y[] = new double[noiseFilterSize];
+    double max = 0.0;
+    for (int i = 0; i < noiseFilterSize; i++) {
+      y[i] = filter[i][c];
+      x[i] = filter[c][i] / filter[c][c];
+      for (int j = 0; j < noiseFilterSize; j++) {
+        max = Math.max(max, Math.abs(filter[i][j]));
+      }
+    }
+    for (int i = 0; i < noiseFilterSize; i++) {
+      for (int j = 0; j < noiseFilterSize; j++) {
+        if (Math.abs(filter[i][j] - y[i] * x[j]) > SEPARABLE_TOLERANCE * max) {
+          return;
+        }
+      }
+    }
+    filterX = x;
+    filterY = y;
+  }
+
+  public boolean isSeparableFilter() {
+    return filterX != null;
+  }
+
   public int getNoiseFilterSize() {
     return noiseFilterSize;
   }
@@ -21,24 +21,34 @@ import java.io.BufferedOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
+import java.io.IOException;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 
 import org.jwildfire.base.Prefs;
 import org.jwildfire.base.QualityProfile;
 import org.jwildfire.base.mathlib.MathLib;
 import org.jwildfire.create.tina.animate.AnimationService;
+import org.jwildfire.create.tina.animate.MotionCurveEvaluator;
 import org.jwildfire.create.tina.base.Flame;
 import org.jwildfire.create.tina.base.Layer;
 import org.jwildfire.create.tina.base.Stereo3dColor;
 import org.jwildfire.create.tina.base.Stereo3dEye;
 import org.jwildfire.create.tina.base.Stereo3dMode;
+import org.jwildfire.create.tina.base.XForm;
 import org.jwildfire.create.tina.base.raster.AbstractRaster;
+import org.jwildfire.create.tina.base.raster.RasterFloatIntMapped;
+import org.jwildfire.create.tina.base.raster.RasterWithRawAccess;
 import org.jwildfire.create.tina.random.AbstractRandomGenerator;
 import org.jwildfire.create.tina.random.RandomGeneratorFactory;
-import org.jwildfire.create.tina.render.image.AbstractImageRenderThread;
+import org.jwildfire.create.tina.random.XoshiroRandomGenerator;
+import org.jwildfire.create.tina.render.image.ImageTiles;
+import org.jwildfire.create.tina.render.image.LinearImageRows;
+import org.jwildfire.create.tina.render.image.PostDOFFilterThread;
 import org.jwildfire.create.tina.render.image.PostFilterImageThread;
 import org.jwildfire.create.tina.render.image.RenderHDRImageThread;
 import org.jwildfire.create.tina.render.image.RenderHDRIntensityMapThread;
@@ -49,9 +59,11 @@ import org.jwildfire.create.tina.render.postdof.PostDOFBuffer;
 import org.jwildfire.create.tina.render.postdof.PostDOFCalculator;
 import org.jwildfire.create.tina.variation.FlameTransformationContext;
 import org.jwildfire.create.tina.variation.RessourceManager;
+import org.jwildfire.create.tina.variation.Variation;
 import org.jwildfire.image.Pixel;
 import org.jwildfire.image.SimpleHDRImage;
 import org.jwildfire.image.SimpleImage;
+import org.jwildfire.io.FloatScanlineWriter;
 import org.jwildfire.io.ImageWriter;
 import org.jwildfire.transform.ComposeTransformer;
 import org.jwildfire.transform.ComposeTransformer.HAlignment;
@@ -62,6 +74,9 @@ import org.jwildfire.transform.ScaleTransformer;
 public class FlameRenderer {
   // constants
   private final static int MAX_FILTER_WIDTH = 25;
+  private final static long PROGRESS_UPDATE_INTERVAL = 10;
+  private final static long CONVERGENCE_CHECK_INTERVAL = 500;
+  private final static double MAX_ADAPTIVE_DENSITY_FACTOR = 4.0;
   // init in initRaster
   protected int imageWidth;
   protected int imageHeight;
@@ -80,20 +95,26 @@ public class FlameRenderer {
   protected AbstractRandomGenerator randGen;
   //
   private ProgressUpdater progressUpdater;
+  private FloatScanlineWriter linearImageOutput;
   private int progressDisplayPhaseCount = 1;
   private int progressChangePerPhase = 0;
   private int progressDisplayPhase = 0;
   // 
-  protected final FlameTransformationContext flameTransformationContext;
+  protected FlameTransformationContext flameTransformationContext;
+  // per-thread view generator of seeded renders
+  private AbstractRandomGenerator viewRandGen;
+  private volatile SampleSequencer sampleSequencer;
+  private ConvergenceInfo convergenceInfo;
   private RenderInfo renderInfo;
+  private MotionBlurTrack motionBlurTrack;
 
   protected final Flame flame;
   private final Prefs prefs;
   private boolean preview;
 
   private List<IterationObserver> iterationObservers;
-  private List<AbstractRenderThread> runningThreads;
-  private boolean forceAbort;
+  private volatile List<AbstractRenderThread> runningThreads;
+  private volatile boolean forceAbort;
   private Stereo3dEye eye = Stereo3dEye.UNSPECIFIED;
 
   public void deregisterIterationObserver(IterationObserver pObserver) {
@@ -121,9 +142,52 @@ public class FlameRenderer {
     withAlpha = pWithAlpha;
     preview = pPreview;
     randGen = RandomGeneratorFactory.getInstance(prefs, prefs.getTinaRandomNumberGenerator());
+    initFlameTransformationContext();
+  }
+
+  private void initFlameTransformationContext() {
     flameTransformationContext = new FlameTransformationContext(this, randGen, flame.getFrame());
-    flameTransformationContext.setPreserveZCoordinate(pFlame.isPreserveZ());
-    flameTransformationContext.setPreview(pPreview);
+    flameTransformationContext.setPreserveZCoordinate(flame.isPreserveZ());
+    flameTransformationContext.setPreview(preview);
+  }
+
+  // seeded renders use independent streams of the seed instead of the shared generators of the factory
+  private void initRandomGenerators(RenderInfo pRenderInfo) {
+    if (pRenderInfo.isSeeded()) {
+      randGen = RandomGeneratorFactory.createStream(pRenderInfo.getMasterSeed(), RandomGeneratorFactory.STREAM_RENDERER, 0);
+      initFlameTransformationContext();
+    }
+  }
+
+  MotionBlurTrack getMotionBlurTrack() {
+    return motionBlurTrack;
+  }
+
+  private boolean isSeeded() {
+    return renderInfo != null && renderInfo.isSeeded();
+  }
+
+  AbstractRandomGenerator createRenderThreadRandGen(int pThreadId) {
+    if (isSeeded()) {
+      return RandomGeneratorFactory.createStream(renderInfo.getMasterSeed(), RandomGeneratorFactory.STREAM_RENDER_THREAD, pThreadId);
+    }
+    return RandomGeneratorFactory.getInstance(prefs, prefs.getTinaRandomNumberGenerator(), pThreadId);
+  }
+
+  SampleSequencer getSampleSequencer() {
+    return sampleSequencer;
+  }
+
+  protected AbstractRandomGenerator getViewRandGen() {
+    return viewRandGen != null ? viewRandGen : randGen;
+  }
+
+  private PostDOFCalculator createPostDOFCalculator(PostDOFBuffer pDOFBuffer) {
+    PostDOFCalculator res = new PostDOFCalculator(pDOFBuffer);
+    if (isSeeded()) {
+      res.setSeed(XoshiroRandomGenerator.mix(renderInfo.getMasterSeed(), RandomGeneratorFactory.STREAM_POST_DOF));
+    }
+    return res;
   }
 
   public void initRasterSizes(int pImageWidth, int pImageHeight) {
@@ -140,6 +204,9 @@ public class FlameRenderer {
     imageHeight = pImageHeight;
     oversample = flame.getSpatialOversampling();
     logDensityFilter = new LogDensityFilter(flameForInit, randGen);
+    if (isSeeded()) {
+      logDensityFilter.setJitterSeed(XoshiroRandomGenerator.mix(renderInfo.getMasterSeed(), RandomGeneratorFactory.STREAM_LOG_DENSITY_FILTER));
+    }
     maxBorderWidth = (MAX_FILTER_WIDTH - oversample) / 2;
     borderWidth = (logDensityFilter.getNoiseFilterSize() - oversample) / 2;
     rasterWidth = oversample * imageWidth + 2 * maxBorderWidth;
@@ -149,6 +216,7 @@ public class FlameRenderer {
   }
 
   private void initRaster(int pImageWidth, int pImageHeight) {
+    releaseMappedRaster();
     initRasterSizes(pImageWidth, pImageHeight);
     raster = allocRaster();
   }
@@ -189,6 +257,9 @@ public class FlameRenderer {
   }
 
   public RenderedFlame rerenderFlame(RenderInfo pRenderInfo) {
+    if (raster == null) {
+      return renderFlame(pRenderInfo);
+    }
     renderInfo = pRenderInfo;
     if (!Stereo3dMode.NONE.equals(flame.getStereo3dMode())) {
       return renderImageStereo3d(pRenderInfo);
@@ -208,6 +279,7 @@ public class FlameRenderer {
 
   public RenderedFlame renderFlame(RenderInfo pRenderInfo) {
     renderInfo = pRenderInfo;
+    initRandomGenerators(pRenderInfo);
     if (!Stereo3dMode.NONE.equals(flame.getStereo3dMode())) {
       return renderImageStereo3d(pRenderInfo);
     }
@@ -347,6 +419,7 @@ public class FlameRenderer {
     localRenderInfo.setImageWidth(2 * leftRender.getImage().getImageWidth());
     localRenderInfo.setImageHeight(leftRender.getImage().getImageHeight());
     mergedRender.init(localRenderInfo);
+    mergedRender.setIterationStats(leftRender.getSampleCount() + rightRender.getSampleCount(), leftRender.getIterationTime() + rightRender.getIterationTime());
     SimpleImage mergedImg = mergedRender.getImage();
 
     ComposeTransformer composeTransformer = new ComposeTransformer();
@@ -388,6 +461,7 @@ public class FlameRenderer {
     localRenderInfo.setImageWidth(leftRender.getImage().getImageWidth());
     localRenderInfo.setImageHeight(leftRender.getImage().getImageHeight());
     mergedRender.init(localRenderInfo);
+    mergedRender.setIterationStats(leftRender.getSampleCount() + rightRender.getSampleCount(), leftRender.getIterationTime() + rightRender.getIterationTime());
     SimpleImage mergedImg = mergedRender.getImage();
 
     for (int i = 0; i < mergedImg.getImageHeight(); i++) {
@@ -454,6 +528,7 @@ public class FlameRenderer {
     }
 
     double origZoom = flame.getCamZoom();
+    double origDensity = flame.getSampleDensity();
     try {
       SimpleImage img = renderNormal ? res.getImage() : null;
       SimpleHDRImage hdrImg = renderHDR ? res.getHDRImage() : null;
@@ -470,14 +545,18 @@ public class FlameRenderer {
       else {
         throw new IllegalStateException();
       }
-      List<List<RenderPacket>> renderFlames = new ArrayList<List<RenderPacket>>();
-      for (int t = 0; t < prefs.getTinaRenderThreads(); t++) {
-        renderFlames.add(createRenderPackets(flame, flame.getFrame()));
-      }
+      List<List<RenderPacket>> renderFlames = createThreadRenderPackets(prefs.getTinaRenderThreads());
       forceAbort = false;
+      long t0 = System.currentTimeMillis();
       iterate(0, 1, renderFlames, null, 1.0, 1);
+      res.setIterationStats(getIteratedSampleCount(), System.currentTimeMillis() - t0);
+      if (convergenceInfo != null) {
+        // the image must be filtered with the density which was actually rendered
+        res.setConvergenceInfo(convergenceInfo);
+        flame.setSampleDensity(convergenceInfo.getSampleDensity());
+      }
       if (!forceAbort) {
-        if ((flame.getSampleDensity() <= 10.0 && flame.getSpatialFilterRadius() <= MathLib.EPSILON) || renderScale > 1) {
+        if ((flame.getSampleDensity() <= 10.0 && flame.getSpatialFilterRadius() <= MathLib.EPSILON && linearImageOutput == null) || renderScale > 1) {
           renderImageSimple(img);
         }
         else {
@@ -486,7 +565,9 @@ public class FlameRenderer {
       }
     }
     finally {
+      releaseMappedRaster();
       flame.setCamZoom(origZoom);
+      flame.setSampleDensity(origDensity);
     }
     return res;
   }
@@ -516,80 +597,47 @@ public class FlameRenderer {
     }
     renderHDRImage(pHDRImage);
     renderHDRIntensityMap(pHDRIntensityMap);
-    raster.cleanupRaster();
+  }
+
+  // a memory-mapped raster holds a scratch file, so it is released as soon as its image is rendered instead of being kept
+  // for rerenderFlame(), which then has to render the flame again
+  private void releaseMappedRaster() {
+    if (raster instanceof RasterFloatIntMapped) {
+      raster.cleanupRaster();
+      raster = null;
+    }
+  }
+
+  private int getImageThreadCount(ImageTiles pTiles) {
+    return Math.max(1, Math.min(prefs.getTinaRenderThreads(), pTiles.getTileCount()));
   }
 
   private void renderHDRIntensityMap(SimpleHDRImage pHDRIntensityMap) {
     if (pHDRIntensityMap != null) {
-      int threadCount = prefs.getTinaRenderThreads();
-      if (threadCount < 1 || pHDRIntensityMap.getImageHeight() < 8 * threadCount) {
-        threadCount = 1;
-      }
-      int rowsPerThread = pHDRIntensityMap.getImageHeight() / threadCount;
+      ImageTiles tiles = new ImageTiles(pHDRIntensityMap.getImageWidth(), pHDRIntensityMap.getImageHeight());
+      int threadCount = getImageThreadCount(tiles);
       List<RenderHDRIntensityMapThread> threads = new ArrayList<>();
       for (int i = 0; i < threadCount; i++) {
-        int startRow = i * rowsPerThread;
-        int endRow = i < threadCount - 1 ? startRow + rowsPerThread : pHDRIntensityMap.getImageHeight();
-        RenderHDRIntensityMapThread thread = new RenderHDRIntensityMapThread(flame, logDensityFilter, startRow, endRow, pHDRIntensityMap);
+        RenderHDRIntensityMapThread thread = new RenderHDRIntensityMapThread(flame, logDensityFilter, tiles, pHDRIntensityMap);
         threads.add(thread);
-        if (threadCount > 1) {
-          new Thread(thread).start();
-        }
-        else {
-          thread.run();
-        }
-      }
-      waitForThreads(threadCount, threads);
-    }
-  }
-
-  private void waitForThreads(int threadCount, List<? extends AbstractImageRenderThread> threads) {
-    if (threadCount > 1) {
-      while (true) {
-        boolean ready = true;
-        for (AbstractImageRenderThread t : threads) {
-          if (!t.isDone()) {
-            ready = false;
-            break;
-          }
-        }
-        if (!ready) {
-          try {
-            Thread.sleep(1);
-          }
-          catch (InterruptedException e) {
-            e.printStackTrace();
-          }
-        }
-        else
-          break;
       }
+      RenderExecutor.getInstance().runAll(threads);
     }
   }
 
   private void renderHDRImage(SimpleHDRImage pHDRImage) {
     if (pHDRImage != null) {
-      int threadCount = prefs.getTinaRenderThreads();
-      if (threadCount < 1 || pHDRImage.getImageHeight() < 8 * threadCount) {
-        threadCount = 1;
-      }
-      int rowsPerThread = pHDRImage.getImageHeight() / threadCount;
+      ImageTiles tiles = new ImageTiles(pHDRImage.getImageWidth(), pHDRImage.getImageHeight());
+      int threadCount = getImageThreadCount(tiles);
       PostDOFBuffer dofBuffer = flame.getCamDOF() > MathLib.EPSILON && flame.getSolidRenderSettings().isSolidRenderingEnabled() ? new PostDOFBuffer(pHDRImage) : null;
       List<RenderHDRImageThread> threads = new ArrayList<>();
       for (int i = 0; i < threadCount; i++) {
-        int startRow = i * rowsPerThread;
-        int endRow = i < threadCount - 1 ? startRow + rowsPerThread : pHDRImage.getImageHeight();
-        RenderHDRImageThread thread = new RenderHDRImageThread(flame, logDensityFilter, gammaCorrectionFilter, startRow, endRow, pHDRImage, dofBuffer != null ? new PostDOFCalculator(dofBuffer) : null);
+        RenderHDRImageThread thread = new RenderHDRImageThread(flame, logDensityFilter, gammaCorrectionFilter, tiles, pHDRImage, dofBuffer != null ? createPostDOFCalculator(dofBuffer) : null);
         threads.add(thread);
-        if (threadCount > 1) {
-          new Thread(thread).start();
-        }
-        else {
-          thread.run();
-        }
       }
-      waitForThreads(threadCount, threads);
+      RenderExecutor.getInstance().runAll(threads);
       if (dofBuffer != null) {
+        applyPostDOF(dofBuffer);
         dofBuffer.renderToImage(pHDRImage);
       }
     }
@@ -597,55 +645,54 @@ public class FlameRenderer {
 
   private void renderImage(SimpleImage pImage) {
     if (pImage != null) {
-      int threadCount = prefs.getTinaRenderThreads();
-      if (threadCount < 1 || pImage.getImageHeight() < 8 * threadCount) {
-        threadCount = 1;
-      }
-
+      ImageTiles tiles = new ImageTiles(pImage.getImageWidth(), pImage.getImageHeight());
+      int threadCount = getImageThreadCount(tiles);
       PostDOFBuffer dofBuffer = flame.getCamDOF() > MathLib.EPSILON && flame.getSolidRenderSettings().isSolidRenderingEnabled() ? new PostDOFBuffer(pImage) : null;
-      int rowsPerThread = pImage.getImageHeight() / threadCount;
+      // the linear output is taken from the same pass, before post DOF and the post noise filter
+      LinearImageRows linearRows = linearImageOutput != null && Stereo3dMode.NONE.equals(flame.getStereo3dMode()) ? new LinearImageRows(tiles, linearImageOutput) : null;
       List<RenderImageThread> threads = new ArrayList<RenderImageThread>();
       for (int i = 0; i < threadCount; i++) {
-        int startRow = i * rowsPerThread;
-        int endRow = i < threadCount - 1 ? startRow + rowsPerThread : pImage.getImageHeight();
-        RenderImageThread thread = new RenderImageThread(flame, logDensityFilter, gammaCorrectionFilter, startRow, endRow, pImage, dofBuffer != null ? new PostDOFCalculator(dofBuffer) : null);
+        RenderImageThread thread = new RenderImageThread(flame, logDensityFilter, gammaCorrectionFilter, tiles, pImage, dofBuffer != null ? createPostDOFCalculator(dofBuffer) : null, linearRows);
         threads.add(thread);
-        if (threadCount > 1) {
-          new Thread(thread).start();
+      }
+      RenderExecutor.getInstance().runAll(threads);
+      if (linearRows != null) {
+        try {
+          linearRows.finish();
         }
-        else {
-          thread.run();
+        catch (IOException ex) {
+          throw new RuntimeException(ex);
         }
       }
-      waitForThreads(threadCount, threads);
       if (dofBuffer != null) {
+        applyPostDOF(dofBuffer);
         dofBuffer.renderToImage(pImage);
       }
     }
   }
 
+  private void applyPostDOF(PostDOFBuffer pDOFBuffer) {
+    pDOFBuffer.prepareKernels();
+    ImageTiles tiles = new ImageTiles(pDOFBuffer.getWidth(), pDOFBuffer.getHeight());
+    int threadCount = getImageThreadCount(tiles);
+    List<PostDOFFilterThread> threads = new ArrayList<PostDOFFilterThread>();
+    for (int i = 0; i < threadCount; i++) {
+      threads.add(new PostDOFFilterThread(tiles, pDOFBuffer));
+    }
+    RenderExecutor.getInstance().runAll(threads);
+  }
+
   private void postFilterImage(SimpleImage pImage) {
     if (pImage != null) {
-      int threadCount = prefs.getTinaRenderThreads();
-      if (threadCount < 1 || pImage.getImageHeight() < 8 * threadCount) {
-        threadCount = 1;
-      }
-      int rowsPerThread = pImage.getImageHeight() / threadCount;
+      ImageTiles tiles = new ImageTiles(pImage.getImageWidth(), pImage.getImageHeight());
+      int threadCount = getImageThreadCount(tiles);
       SimpleImage input = pImage.clone();
       List<PostFilterImageThread> threads = new ArrayList<PostFilterImageThread>();
       for (int i = 0; i < threadCount; i++) {
-        int startRow = i * rowsPerThread;
-        int endRow = i < threadCount - 1 ? startRow + rowsPerThread : pImage.getImageHeight();
-        PostFilterImageThread thread = new PostFilterImageThread(startRow, endRow, input, pImage, flame.getPostNoiseFilterThreshold());
+        PostFilterImageThread thread = new PostFilterImageThread(tiles, input, pImage, flame.getPostNoiseFilterThreshold());
         threads.add(thread);
-        if (threadCount > 1) {
-          new Thread(thread).start();
-        }
-        else {
-          thread.run();
-        }
       }
-      waitForThreads(threadCount, threads);
+      RenderExecutor.getInstance().runAll(threads);
     }
   }
 
@@ -663,14 +710,8 @@ public class FlameRenderer {
         int endRow = i < threadCount - 1 ? startRow + rowsPerThread : pImage.getImageHeight();
         RenderImageSimpleScaledThread thread = new RenderImageSimpleScaledThread(flame, logDensityFilter, gammaCorrectionFilter, renderScale, startRow, endRow, pImage, newImg);
         threads.add(thread);
-        if (threadCount > 1) {
-          new Thread(thread).start();
-        }
-        else {
-          thread.run();
-        }
       }
-      waitForThreads(threadCount, threads);
+      RenderExecutor.getInstance().runAll(threads);
       pImage.setBufferedImage(newImg.getBufferedImg(), newImg.getImageWidth(), newImg.getImageHeight());
     }
     else if (renderScale == 1) {
@@ -681,14 +722,8 @@ public class FlameRenderer {
         int endRow = i < rowsPerThread - 1 ? startRow + rowsPerThread : pImage.getImageHeight();
         RenderImageSimpleThread thread = new RenderImageSimpleThread(flame, logDensityFilter, gammaCorrectionFilter, startRow, endRow, pImage);
         threads.add(thread);
-        if (threadCount > 1) {
-          new Thread(thread).start();
-        }
-        else {
-          thread.run();
-        }
       }
-      waitForThreads(threadCount, threads);
+      RenderExecutor.getInstance().runAll(threads);
     }
     else {
       throw new IllegalArgumentException("renderScale " + renderScale);
@@ -707,29 +742,46 @@ public class FlameRenderer {
       progressChangePerPhase = (PROGRESS_STEPS - 1) * pParts;
       progressUpdater.initProgress(progressChangePerPhase * progressDisplayPhaseCount);
     }
+    // an adaptive render iterates up to the max. density, but usually stops earlier, see checkConvergence()
+    boolean adaptive = renderInfo != null && renderInfo.isAdaptive() && pSlices == null && pParts == 1;
+    double densityPerSample = (double) flame.calcPostSymmetrySampleMultiplier() * (double) flame.calcStereo3dSampleMultiplier() * (double) oversample / (double) rasterSize;
+    if (adaptive) {
+      double maxDensity = renderInfo.getMaxSampleDensity() > 0.0 ? renderInfo.getMaxSampleDensity() : MAX_ADAPTIVE_DENSITY_FACTOR * flame.getSampleDensity();
+      nSamples = (long) (maxDensity / densityPerSample + 0.5);
+    }
+    ConvergenceEstimator estimator = adaptive ? new ConvergenceEstimator(flame, raster, rasterWidth, rasterHeight, imageWidth, imageHeight) : null;
+    ConvergenceInfo.StopReason stopReason = null;
+    double noise = Double.MAX_VALUE;
+    long startTime = System.currentTimeMillis();
+    long nextConvergenceCheck = startTime + CONVERGENCE_CHECK_INTERVAL;
+    convergenceInfo = null;
     long sampleProgressUpdateStep = nSamples / PROGRESS_STEPS;
     long nextProgressUpdate = sampleProgressUpdateStep;
     runningThreads = new ArrayList<AbstractRenderThread>();
     int nThreads = pPackets.size();
+    sampleSequencer = isSeeded() ? new SampleSequencer(nThreads) : null;
+    RenderExecutor executor = RenderExecutor.getInstance();
+    CountDownLatch done = new CountDownLatch(nThreads);
     for (int i = 0; i < nThreads; i++) {
       AbstractRenderThread t = createFlameRenderThread(i, nThreads, pPackets.get(i), nSamples / (long) nThreads, pSlices, pSliceThicknessMod, pSliceThicknessSamples);
       runningThreads.add(t);
-      new Thread(t).start();
+      executor.execute(new RenderExecutor.CountDownRunnable(t, done));
     }
-    boolean done = false;
-    while (!done) {
+    boolean finished = false;
+    boolean interrupted = false;
+    while (!finished) {
       try {
-        Thread.sleep(10);
+        finished = executor.await(done, PROGRESS_UPDATE_INTERVAL, TimeUnit.MILLISECONDS);
       }
-      catch (InterruptedException e) {
-        e.printStackTrace();
+      catch (InterruptedException ex) {
+        // interrupting the rendering thread cancels the render threads, which then finish quickly
+        interrupted = true;
+        for (AbstractRenderThread t : runningThreads) {
+          t.cancel();
+        }
       }
-      done = true;
       long currSamples = 0;
       for (AbstractRenderThread t : runningThreads) {
-        if (!t.isFinished()) {
-          done = false;
-        }
         currSamples += t.getCurrSample();
       }
       if (currSamples >= nextProgressUpdate) {
@@ -739,6 +791,40 @@ public class FlameRenderer {
           nextProgressUpdate = (currProgress + 1) * sampleProgressUpdateStep;
         }
       }
+      long now = System.currentTimeMillis();
+      if (adaptive && !finished && stopReason == null && now >= nextConvergenceCheck) {
+        noise = estimator.estimateNoise(currSamples * densityPerSample);
+        long t1 = System.currentTimeMillis();
+        if (noise <= renderInfo.getConvergenceThreshold()) {
+          stopReason = ConvergenceInfo.StopReason.CONVERGED;
+        }
+        else if (renderInfo.getRenderTimeBudget() > 0 && t1 - startTime >= renderInfo.getRenderTimeBudget()) {
+          stopReason = ConvergenceInfo.StopReason.TIME_BUDGET;
+        }
+        if (stopReason != null) {
+          for (AbstractRenderThread t : runningThreads) {
+            t.cancel();
+          }
+        }
+        // the estimate reads the whole raster, so it must not take a noticeable part of the render time
+        nextConvergenceCheck = t1 + Math.max(CONVERGENCE_CHECK_INTERVAL, 10 * (t1 - now));
+      }
+    }
+    if (adaptive) {
+      long sampleCount = 0;
+      for (AbstractRenderThread t : runningThreads) {
+        sampleCount += t.getCurrSample();
+      }
+      double density = sampleCount * densityPerSample;
+      if (stopReason == null) {
+        stopReason = forceAbort || interrupted ? ConvergenceInfo.StopReason.CANCELLED : ConvergenceInfo.StopReason.MAX_SAMPLE_DENSITY;
+        noise = estimator.estimateNoise(density);
+      }
+      convergenceInfo = new ConvergenceInfo(stopReason, noise, density, sampleCount, System.currentTimeMillis() - startTime);
+    }
+    sampleSequencer = null;
+    if (interrupted) {
+      Thread.currentThread().interrupt();
     }
   }
 
@@ -770,6 +856,12 @@ public class FlameRenderer {
     progressUpdater = pProgressUpdater;
   }
 
+  // receives the linear float RGBA values of the image row by row while it is tonemapped, before the gamma curve, vibrancy and
+  // the background are applied; ignored for stereo3d renders
+  public void setLinearImageOutput(FloatScanlineWriter pLinearImageOutput) {
+    linearImageOutput = pLinearImageOutput;
+  }
+
   public void setRenderScale(int pRenderScale) {
     renderScale = pRenderScale;
   }
@@ -779,42 +871,70 @@ public class FlameRenderer {
   }
 
   private void pauseThreads(List<AbstractRenderThread> pThreads) {
+    for (AbstractRenderThread thread : pThreads) {
+      stopThread(thread);
+    }
+  }
+
+  private void stopThread(AbstractRenderThread pThread) {
+    pThread.cancel();
+    boolean interrupted = false;
     while (true) {
-      boolean done = true;
-      for (AbstractRenderThread thread : pThreads) {
-        if (!thread.isFinished()) {
-          done = false;
-          thread.cancel();
-          try {
-            Thread.sleep(1);
-          }
-          catch (InterruptedException e) {
-            e.printStackTrace();
-          }
-          break;
-        }
-      }
-      if (done) {
+      try {
+        pThread.awaitFinished();
         break;
       }
+      catch (InterruptedException ex) {
+        interrupted = true;
+      }
+    }
+    if (interrupted) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  // the render threads are restarted in new executing threads, which are returned in the order of pThreads
+  public synchronized List<Thread> saveState(String pAbsolutePath, List<AbstractRenderThread> pThreads, long pSampleCount, long pElapsedMilliseconds, QualityProfile pQualityProfile) {
+    if (!(raster instanceof RasterWithRawAccess)) {
+      return saveSerializedState(pAbsolutePath, pThreads, pSampleCount, pElapsedMilliseconds);
+    }
+    // the threads are only stopped to take their state, the raster is written while they continue
+    pauseThreads(pThreads);
+    RenderThreadPersistentState state[] = new RenderThreadPersistentState[pThreads.size()];
+    for (int i = 0; i < pThreads.size(); i++) {
+      state[i] = pThreads.get(i).saveState();
+    }
+    List<Thread> executingThreads = resumeThreads(pThreads, state);
+    try {
+      RenderCheckpoint.write(pAbsolutePath, createRenderFileHeader(pThreads.size(), pSampleCount, pElapsedMilliseconds), flame, renderInfo, state,
+          raster, rasterWidth, rasterHeight, prefs.isTinaCompressRenderCheckpoints());
+    }
+    catch (IOException ex) {
+      throw new RuntimeException(ex);
     }
+    return executingThreads;
   }
 
-  public void saveState(String pAbsolutePath, List<AbstractRenderThread> pThreads, long pSampleCount, long pElapsedMilliseconds, QualityProfile pQualityProfile) {
+  private JWFRenderFileHeader createRenderFileHeader(int pNumThreads, long pSampleCount, long pElapsedMilliseconds) {
+    return new JWFRenderFileHeader(pNumThreads, flame.getWidth(), flame.getHeight(),
+        pSampleCount, pElapsedMilliseconds, 1, 1, (int) (flame.getSampleDensity() + 0.5),
+        true, false, withAlpha);
+  }
+
+  private List<Thread> saveSerializedState(String pAbsolutePath, List<AbstractRenderThread> pThreads, long pSampleCount, long pElapsedMilliseconds) {
     pauseThreads(pThreads);
     // store thread state
     RenderThreadPersistentState state[] = new RenderThreadPersistentState[pThreads.size()];
     for (int i = 0; i < pThreads.size(); i++) {
       state[i] = pThreads.get(i).saveState();
     }
+    List<Thread> executingThreads;
     try {
       try {
         ObjectOutputStream outputStream = new ObjectOutputStream(new BufferedOutputStream(new FileOutputStream(pAbsolutePath)));
         try {
           // save header
-          JWFRenderFileHeader header = new JWFRenderFileHeader(pThreads.size(), flame.getWidth(), flame.getHeight(),
-              pSampleCount, pElapsedMilliseconds, 1, 1, (int) (flame.getSampleDensity() + 0.5),
-              true, false, withAlpha);
+          JWFRenderFileHeader header = createRenderFileHeader(pThreads.size(), pSampleCount, pElapsedMilliseconds);
           outputStream.writeObject(header);
           // save flame
           outputStream.writeObject(flame);
@@ -845,75 +965,140 @@ public class FlameRenderer {
       }
     }
     finally {
-      resumeThreads(pThreads, state);
+      executingThreads = resumeThreads(pThreads, state);
     }
+    return executingThreads;
   }
 
-  private void resumeThreads(List<AbstractRenderThread> pThreads, RenderThreadPersistentState pState[]) {
+  private List<Thread> resumeThreads(List<AbstractRenderThread> pThreads, RenderThreadPersistentState pState[]) {
+    List<Thread> res = new ArrayList<Thread>();
     for (int i = 0; i < pThreads.size(); i++) {
       AbstractRenderThread t = pThreads.get(i);
       t.setResumeState(pState[i]);
-      new Thread(t).start();
+      t.prepareRestart();
+      // runs until the next pause, so it does not belong into the render pool
+      Thread thread = new Thread(t);
+      thread.start();
+      res.add(thread);
     }
+    return res;
   }
 
-  private List<RenderPacket> createRenderPackets(Flame pFlame, int pFrame) {
-    List<RenderPacket> res = new ArrayList<RenderPacket>();
-    {
-      double time = pFrame >= 0 ? pFrame : 0;
-      Flame newFlame = AnimationService.evalMotionCurves(pFlame.makeCopy(), time);
-
-      for (Layer layer : newFlame.getLayers()) {
-        layer.refreshModWeightTables(flameTransformationContext);
+  private List<List<RenderPacket>> createThreadRenderPackets(int pThreadCount) {
+    motionBlurTrack = renderInfo != null && renderInfo.isContinuousMotionBlur() ? MotionBlurTrack.create(flame, flame.getFrame()) : null;
+    // motion curves are evaluated only once per time step, the render threads get copies of the results
+    List<Flame> timeStepFlames = createTimeStepFlames(flame, flame.getFrame(), motionBlurTrack == null);
+    // with continuous motion blur the walkers change the coefficients of their xforms
+    boolean shared = isThreadSafe(timeStepFlames) && (motionBlurTrack == null || !motionBlurTrack.isAnimated());
+    List<List<Flame>> threadFlames = new ArrayList<List<Flame>>();
+    for (int t = 0; t < pThreadCount; t++) {
+      if (t == 0 || shared) {
+        threadFlames.add(timeStepFlames);
       }
-      FlameRendererView view = createView(newFlame);
-      res.add(new RenderPacket(newFlame, view));
+      else {
+        List<Flame> copies = new ArrayList<Flame>();
+        for (Flame timeStepFlame : timeStepFlames) {
+          copies.add(timeStepFlame.makeCopy());
+        }
+        threadFlames.add(copies);
+      }
+    }
+    List<List<RenderPacket>> res = new ArrayList<List<RenderPacket>>();
+    try {
+      for (int t = 0; t < pThreadCount; t++) {
+        List<Flame> flames = threadFlames.get(t);
+        if (t == 0 || !shared) {
+          for (Flame threadFlame : flames) {
+            for (Layer layer : threadFlame.getLayers()) {
+              layer.refreshModWeightTables(flameTransformationContext);
+            }
+          }
+        }
+        viewRandGen = isSeeded() ? RandomGeneratorFactory.createStream(renderInfo.getMasterSeed(), RandomGeneratorFactory.STREAM_VIEW, t) : null;
+        List<RenderPacket> packets = new ArrayList<RenderPacket>();
+        for (Flame threadFlame : flames) {
+          packets.add(new RenderPacket(threadFlame, createView(threadFlame)));
+        }
+        res.add(packets);
+      }
+    }
+    finally {
+      viewRandGen = null;
     }
-    if (pFlame.getMotionBlurLength() > 0) {
-      double time = pFrame >= 0 ? pFrame : 0;
+    return res;
+  }
+
+  private List<Flame> createTimeStepFlames(Flame pFlame, int pFrame, boolean pBlurSteps) {
+    List<Flame> res = new ArrayList<Flame>();
+    double time = pFrame >= 0 ? pFrame : 0;
+    MotionCurveEvaluator motionCurves = new MotionCurveEvaluator(pFlame);
+    res.add(motionCurves.apply(pFlame.makeCopy(), time));
+    if (pBlurSteps && pFlame.getMotionBlurLength() > 0) {
       double currTime = time + pFlame.getMotionBlurLength() * pFlame.getMotionBlurTimeStep() / 2.0;
       for (int p = 1; p <= pFlame.getMotionBlurLength(); p++) {
         currTime -= pFlame.getMotionBlurTimeStep();
-        Flame newFlame = AnimationService.evalMotionCurves(pFlame.makeCopy(), currTime);
+        Flame newFlame = motionCurves.apply(pFlame.makeCopy(), currTime);
         for (Layer layer : newFlame.getLayers()) {
-          layer.refreshModWeightTables(flameTransformationContext);
           double brightnessScl = (1.0 - p * p * pFlame.getMotionBlurDecay() * 0.07 / pFlame.getMotionBlurLength());
           if (brightnessScl < 0.01) {
             brightnessScl = 0.01;
           }
           layer.setWeight(brightnessScl * layer.getWeight());
         }
-        FlameRendererView newView = createView(newFlame);
-        res.add(new RenderPacket(newFlame, newView));
+        res.add(newFlame);
       }
     }
     return res;
   }
 
+  // true if the prepared flames may be shared by all render threads, because every variation only reads its
+  // prepared state during transform(). Otherwise each thread needs its own initialized copy.
+  static boolean isThreadSafe(List<Flame> pFlames) {
+    for (Flame flame : pFlames) {
+      for (Layer layer : flame.getLayers()) {
+        if (!isThreadSafeXForms(layer.getXForms()) || !isThreadSafeXForms(layer.getFinalXForms())) {
+          return false;
+        }
+      }
+    }
+    return true;
+  }
+
+  private static boolean isThreadSafeXForms(List<XForm> pXForms) {
+    for (XForm xForm : pXForms) {
+      for (Variation var : xForm.getVariations()) {
+        if (!var.getFunc().isThreadSafe()) {
+          return false;
+        }
+      }
+    }
+    return true;
+  }
+
   protected FlameRendererView createView(Flame initialFlame) {
     if (!Stereo3dEye.UNSPECIFIED.equals(eye)) {
       switch (initialFlame.getAnaglyph3dMode()) {
         case INTERPOLATED_IMAGES:
         case SIDE_BY_SIDE:
         case ANAGLYPH:
-          return new Stereo3dFlameRendererView(eye, initialFlame, randGen, borderWidth, maxBorderWidth, imageWidth, imageHeight, rasterWidth, rasterHeight, flameTransformationContext);
+          return new Stereo3dFlameRendererView(eye, initialFlame, getViewRandGen(), borderWidth, maxBorderWidth, imageWidth, imageHeight, rasterWidth, rasterHeight, flameTransformationContext);
       }
     }
-    return new FlameRendererView(eye, initialFlame, randGen, borderWidth, maxBorderWidth, imageWidth, imageHeight, rasterWidth, rasterHeight, flameTransformationContext);
+    return new FlameRendererView(eye, initialFlame, getViewRandGen(), borderWidth, maxBorderWidth, imageWidth, imageHeight, rasterWidth, rasterHeight, flameTransformationContext);
   }
 
   public RenderThreads startRenderFlame(RenderInfo pRenderInfo) {
     renderInfo = pRenderInfo;
     initRaster(pRenderInfo.getImageWidth(), pRenderInfo.getImageHeight());
-    List<List<RenderPacket>> renderFlames = new ArrayList<List<RenderPacket>>();
-    for (int t = 0; t < prefs.getTinaRenderThreads(); t++) {
-      renderFlames.add(createRenderPackets(flame, flame.getFrame()));
-    }
+    List<List<RenderPacket>> renderFlames = createThreadRenderPackets(prefs.getTinaRenderThreads());
     return startIterate(renderFlames, null, true);
   }
 
   public ResumedFlameRender resumeRenderFlame(String pAbsolutePath) {
     try {
+      if (RenderCheckpoint.isCheckpointFile(pAbsolutePath)) {
+        return resumeRenderFlameFromCheckpoint(pAbsolutePath);
+      }
       ObjectInputStream in = new ObjectInputStream(new BufferedInputStream(new FileInputStream(pAbsolutePath)));
       try {
         // read header
@@ -930,10 +1115,7 @@ public class FlameRenderer {
           state[i] = (RenderThreadPersistentState) in.readObject();
         }
         initRaster(renderInfo.getImageWidth(), renderInfo.getImageHeight());
-        List<List<RenderPacket>> renderFlames = new ArrayList<List<RenderPacket>>();
-        for (int t = 0; t < header.numThreads; t++) {
-          renderFlames.add(createRenderPackets(flame, flame.getFrame()));
-        }
+        List<List<RenderPacket>> renderFlames = createThreadRenderPackets(header.numThreads);
         raster = null;
         // read raster
         raster = (AbstractRaster) in.readObject();
@@ -951,6 +1133,69 @@ public class FlameRenderer {
     }
   }
 
+  private ResumedFlameRender resumeRenderFlameFromCheckpoint(String pAbsolutePath) throws IOException {
+    RenderCheckpoint.Reader in = new RenderCheckpoint.Reader(pAbsolutePath);
+    try {
+      JWFRenderFileHeader header = in.getHeader();
+      flame.assign(in.getFlame());
+      renderInfo = in.getRenderInfo();
+      withAlpha = header.withTransparency;
+      RenderThreadPersistentState state[] = in.getState();
+      initRaster(renderInfo.getImageWidth(), renderInfo.getImageHeight());
+      List<List<RenderPacket>> renderFlames = createThreadRenderPackets(header.numThreads);
+      in.readRaster(raster, rasterWidth, rasterHeight);
+      RenderThreads threads = startIterate(renderFlames, state, false);
+      return new ResumedFlameRender(header, threads.getRenderThreads());
+    }
+    finally {
+      in.close();
+    }
+  }
+
+  // Only iterates the flame into the raster, the raster may then be saved by saveRaster() and merged with the rasters of other renders
+  public long renderRaster(RenderInfo pRenderInfo) {
+    renderInfo = pRenderInfo;
+    initRandomGenerators(pRenderInfo);
+    double origZoom = flame.getCamZoom();
+    try {
+      initRaster(pRenderInfo.getImageWidth(), pRenderInfo.getImageHeight());
+      List<List<RenderPacket>> renderFlames = createThreadRenderPackets(prefs.getTinaRenderThreads());
+      forceAbort = false;
+      iterate(0, 1, renderFlames, null, 1.0, 1);
+      return getIteratedSampleCount();
+    }
+    finally {
+      flame.setCamZoom(origZoom);
+    }
+  }
+
+  // the flame is not stored (the reader of the raster has it anyway, and not every variation is serializable)
+  public void saveRaster(String pAbsolutePath, long pSampleCount, long pElapsedMilliseconds) throws IOException {
+    RenderCheckpoint.write(pAbsolutePath, createRenderFileHeader(0, pSampleCount, pElapsedMilliseconds), null, renderInfo, new RenderThreadPersistentState[0],
+        raster, rasterWidth, rasterHeight, prefs.isTinaCompressRenderCheckpoints());
+  }
+
+  // Sums up the rasters saved by saveRaster() and creates the image from the result. The flame must have the sample density
+  // of all rasters together.
+  public RenderedFlame renderFlameFromRasters(RenderInfo pRenderInfo, List<String> pAbsolutePaths) throws IOException {
+    renderInfo = pRenderInfo;
+    RenderedFlame res = new RenderedFlame();
+    res.init(pRenderInfo);
+    initRaster(pRenderInfo.getImageWidth(), pRenderInfo.getImageHeight());
+    for (String path : pAbsolutePaths) {
+      RenderCheckpoint.Reader in = new RenderCheckpoint.Reader(path);
+      try {
+        in.mergeRaster(raster, rasterWidth, rasterHeight);
+      }
+      finally {
+        in.close();
+      }
+    }
+    renderImage(res.getImage(), res.getHDRImage(), res.getHDRIntensityMap());
+    releaseMappedRaster();
+    return res;
+  }
+
   public Flame getFlame() {
     return flame;
   }
@@ -965,25 +1210,10 @@ public class FlameRenderer {
 
   public void cancel() {
     forceAbort = true;
-    if (runningThreads != null) {
-      while (true) {
-        boolean done = true;
-        for (AbstractRenderThread thread : runningThreads) {
-          if (!thread.isFinished()) {
-            done = false;
-            thread.cancel();
-            try {
-              Thread.sleep(1);
-            }
-            catch (InterruptedException e) {
-              e.printStackTrace();
-            }
-            break;
-          }
-        }
-        if (done) {
-          break;
-        }
+    List<AbstractRenderThread> threads = runningThreads;
+    if (threads != null) {
+      for (AbstractRenderThread thread : threads) {
+        stopThread(thread);
       }
     }
   }
@@ -1031,10 +1261,7 @@ public class FlameRenderer {
         currSlice++;
       }
 
-      List<List<RenderPacket>> renderFlames = new ArrayList<List<RenderPacket>>();
-      for (int t = 0; t < prefs.getTinaRenderThreads(); t++) {
-        renderFlames.add(createRenderPackets(flame, flame.getFrame()));
-      }
+      List<List<RenderPacket>> renderFlames = createThreadRenderPackets(prefs.getTinaRenderThreads());
 
       iterate(0, 1, renderFlames, slices, pSliceThicknessMod, pSliceThicknessSamples);
 
@@ -1079,6 +1306,15 @@ public class FlameRenderer {
     pFlame.setCamPerspective(0.0);
   }
 
+  // samples of the last call of iterate()
+  private long getIteratedSampleCount() {
+    long res = 0;
+    for (AbstractRenderThread thread : runningThreads) {
+      res += thread.getCurrSample();
+    }
+    return res;
+  }
+
   protected AbstractRaster getRaster() {
     return raster;
   }
@@ -1086,10 +1322,7 @@ public class FlameRenderer {
   public void renderPointCloud(String pFilename, double pZmin, double pZmax) {
     initRaster(flame.getWidth(), flame.getHeight());
 
-    List<List<RenderPacket>> renderFlames = new ArrayList<List<RenderPacket>>();
-    for (int t = 0; t < prefs.getTinaRenderThreads(); t++) {
-      renderFlames.add(createRenderPackets(flame, flame.getFrame()));
-    }
+    List<List<RenderPacket>> renderFlames = createThreadRenderPackets(prefs.getTinaRenderThreads());
     iterate(0, 1, renderFlames, null, 1.0, 1);
   }
 
@@ -32,6 +32,9 @@ public final class FlatRenderThread extends DefaultRenderThread {
     if (pRenderPacket.getFlame().getPostBlurRadius() > 0) {
       return new PostBlurRenderIterationState(this, renderer, pRenderPacket, pLayer, ctx, randGen);
     }
+    else if (prefs.getTinaBatchWalkers() > 1) {
+      return new BatchRenderIterationState(this, renderer, pRenderPacket, pLayer, ctx, randGen, prefs.getTinaBatchWalkers());
+    }
     else {
       return new DefaultRenderIterationState(this, renderer, pRenderPacket, pLayer, ctx, randGen);
     }
@@ -32,6 +32,7 @@ public class GammaCorrectionFilter {
   private int inverseVibInt;
   private double gamma;
   private double sclGamma;
+  private GammaCurve gammaCurve;
   private SimpleImage bgImage;
   private boolean withAlpha;
   private double modSaturation;
@@ -59,6 +60,7 @@ public class GammaCorrectionFilter {
 
   private void initFilter() {
     gamma = (flame.getGamma() == 0.0) ? flame.getGamma() : 1.0 / flame.getGamma();
+    gammaCurve = new GammaCurve(gamma);
 
     vibInt = (int) (flame.getVibrancy() * 256.0 + 0.5);
     if (vibInt < 0) {
@@ -99,10 +101,10 @@ public class GammaCorrectionFilter {
       double alpha;
       if (logDensityPnt.intensity <= flame.getGammaThreshold()) {
         double frac = logDensityPnt.intensity / flame.getGammaThreshold();
-        alpha = (1.0 - frac) * logDensityPnt.intensity * sclGamma + frac * pow(logDensityPnt.intensity, gamma);
+        alpha = (1.0 - frac) * logDensityPnt.intensity * sclGamma + frac * gammaCurve.evaluate(logDensityPnt.intensity);
       }
       else {
-        alpha = pow(logDensityPnt.intensity, gamma);
+        alpha = gammaCurve.evaluate(logDensityPnt.intensity);
       }
       logScl = vibInt * alpha / logDensityPnt.intensity;
       int alphaInt = (int) (alpha * 255 * alphaScale + 0.5);
@@ -234,9 +236,9 @@ public class GammaCorrectionFilter {
     double rawRed = 0.0, rawGreen = 0.0, rawBlue = 0.0;
 
     if (inverseVibInt > 0) {
-      rawRed = pLogScl * pLogDensityPnt.red + inverseVibInt * pow(pLogDensityPnt.red, gamma);
-      rawGreen = pLogScl * pLogDensityPnt.green + inverseVibInt * pow(pLogDensityPnt.green, gamma);
-      rawBlue = pLogScl * pLogDensityPnt.blue + inverseVibInt * pow(pLogDensityPnt.blue, gamma);
+      rawRed = pLogScl * pLogDensityPnt.red + inverseVibInt * gammaCurve.evaluate(pLogDensityPnt.red);
+      rawGreen = pLogScl * pLogDensityPnt.green + inverseVibInt * gammaCurve.evaluate(pLogDensityPnt.green);
+      rawBlue = pLogScl * pLogDensityPnt.blue + inverseVibInt * gammaCurve.evaluate(pLogDensityPnt.blue);
     }
     else {
       rawRed = pLogScl * pLogDensityPnt.red;
@@ -270,10 +272,10 @@ public class GammaCorrectionFilter {
       double alpha;
       if (logDensityPnt.intensity <= flame.getGammaThreshold()) {
         double frac = logDensityPnt.intensity / flame.getGammaThreshold();
-        alpha = (1.0 - frac) * logDensityPnt.intensity * sclGamma + frac * pow(logDensityPnt.intensity, gamma);
+        alpha = (1.0 - frac) * logDensityPnt.intensity * sclGamma + frac * gammaCurve.evaluate(logDensityPnt.intensity);
       }
       else {
-        alpha = pow(logDensityPnt.intensity, gamma);
+        alpha = gammaCurve.evaluate(logDensityPnt.intensity);
       }
 
       logScl = vibInt * alpha / logDensityPnt.intensity;
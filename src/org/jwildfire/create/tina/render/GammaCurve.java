@@ -0,0 +1,70 @@
+/*
+  JWildfire - an image and animation processor written in Java 
+  Copyright (C) 1995-2016 Andreas Maschke
+
+  This is free software; you can redistribute it and/or modify it under the terms of the GNU Lesser 
+  General Public License as published by the Free Software Foundation; either version 2.1 of the 
+  License, or (at your option) any later version.
+ 
+  This software is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without 
+  even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU 
+  Lesser General Public License for more details.
+
+  You should have received a copy of the GNU Lesser General Public License along with this software; 
+  if not, write to the Free Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+  02110-1301 USA, or see the FSF site: http://www.fsf.org.
+*/
+package org.jwildfire.create.tina.render;
+
+import static org.jwildfire.base.mathlib.MathLib.pow;
+
+// pow(x, gamma) of the gamma correction as lookup table. x = m * 2^e is split into mantissa and exponent, m^gamma is
+// interpolated in a table over [1, 2] and 2^(e * gamma) is looked up per exponent, so the whole range of doubles is
+// covered with a relative error below 1e-6 for exponents up to 3. Zero, negative, subnormal and non-finite values
+// use pow().
+public class GammaCurve {
+  private static final int MANTISSA_BITS = 52;
+  private static final int TABLE_BITS = 10;
+  private static final int TABLE_SIZE = 1 << TABLE_BITS;
+  private static final int FRACTION_BITS = MANTISSA_BITS - TABLE_BITS;
+  private static final long MANTISSA_MASK = (1L << MANTISSA_BITS) - 1;
+  private static final long FRACTION_MASK = (1L << FRACTION_BITS) - 1;
+  private static final double FRACTION_SCALE = 1.0 / (1L << FRACTION_BITS);
+  private static final int EXPONENT_BIAS = 1023;
+  private static final int MAX_EXPONENT = 2046;
+
+  private final double gamma;
+  private final double mantissa[];
+  private final double exponent[];
+
+  public GammaCurve(double pGamma) {
+    gamma = pGamma;
+    mantissa = new double[TABLE_SIZE + 1];
+    for (int i = 0; i <= TABLE_SIZE; i++) {
+      mantissa[i] = pow(1.0 + (double) i / TABLE_SIZE, gamma);
+    }
+    exponent = new double[MAX_EXPONENT + 1];
+    for (int e = 1; e <= MAX_EXPONENT; e++) {
+      exponent[e] = pow(2.0, (double) (e - EXPONENT_BIAS) * gamma);
+    }
+  }
+
+  public double evaluate(double pValue) {
+    long bits = Double.doubleToRawLongBits(pValue);
+    int e = (int) (bits >>> MANTISSA_BITS);
+    if (e < 1 || e > MAX_EXPONENT) {
+      // sign bit set, zero, subnormal, infinite or NaN
+      return pow(pValue, gamma);
+    }
+    long m = bits & MANTISSA_MASK;
+    int idx = (int) (m >>> FRACTION_BITS);
+    double v0 = mantissa[idx];
+    double v = v0 + (m & FRACTION_MASK) * FRACTION_SCALE * (mantissa[idx + 1] - v0);
+    return exponent[e] * v;
+  }
+
+  public double getGamma() {
+    return gamma;
+  }
+
+}
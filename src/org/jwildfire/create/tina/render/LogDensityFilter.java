@@ -19,9 +19,10 @@ package org.jwildfire.create.tina.render;
 import static org.jwildfire.base.mathlib.MathLib.M_PI;
 import static org.jwildfire.base.mathlib.MathLib.cos;
 import static org.jwildfire.base.mathlib.MathLib.log;
-import static org.jwildfire.base.mathlib.MathLib.log10;
 import static org.jwildfire.base.mathlib.MathLib.sin;
 
+import java.util.Arrays;
+
 import org.jwildfire.base.Tools;
 import org.jwildfire.base.mathlib.GfxMathLib;
 import org.jwildfire.base.mathlib.MathLib;
@@ -31,11 +32,15 @@ import org.jwildfire.base.mathlib.VecMathLib.UVPairD;
 import org.jwildfire.base.mathlib.VecMathLib.VectorD;
 import org.jwildfire.create.tina.base.Flame;
 import org.jwildfire.create.tina.base.raster.AbstractRaster;
+import org.jwildfire.create.tina.base.raster.RasterFloatIntFlat;
+import org.jwildfire.create.tina.base.raster.RasterOccupancy;
 import org.jwildfire.create.tina.base.raster.RasterPoint;
+import org.jwildfire.create.tina.base.raster.RasterWithOccupancy;
 import org.jwildfire.create.tina.base.solidrender.MaterialSettings;
 import org.jwildfire.create.tina.base.solidrender.PointLight;
 import org.jwildfire.create.tina.random.AbstractRandomGenerator;
 import org.jwildfire.create.tina.random.MarsagliaRandomGenerator;
+import org.jwildfire.create.tina.random.XoshiroRandomGenerator;
 import org.jwildfire.create.tina.swing.ChannelMixerCurves;
 import org.jwildfire.create.tina.variation.RessourceManager;
 import org.jwildfire.image.SimpleImage;
@@ -44,13 +49,16 @@ public class LogDensityFilter extends FilterHolder {
   private final ColorFunc colorFunc;
 
   private AbstractRaster raster;
+  private RasterFloatIntFlat flatRaster;
+  private RasterOccupancy.SummedAreaTable occupancy;
   private int rasterWidth, rasterHeight, rasterSize;
-  private final int PRECALC_LOG_ARRAY_SIZE = 512;
-  private double precalcLogArray[];
+  private LogScaleCurve logScaleCurve;
   private double k1, k2;
   private double motionBlurScl;
   private final AbstractRandomGenerator jitterRandGen, dofRandGen;
   private final boolean jitter;
+  private boolean jitterSeeded;
+  private long jitterSeed;
   private final int colorOversampling;
   private boolean solidRendering;
 
@@ -77,8 +85,26 @@ public class LogDensityFilter extends FilterHolder {
     }
   }
 
+  // the jitter of each pixel then only depends on the seed and the position of the pixel, not on the order the image is rendered in
+  public void setJitterSeed(long pSeed) {
+    jitterSeed = pSeed;
+    jitterSeeded = true;
+  }
+
+  private void initJitter(LogDensityPoint pFilteredPnt, int pX, int pY) {
+    if (jitterSeeded && jitter) {
+      if (pFilteredPnt.jitterRandGen == null) {
+        pFilteredPnt.jitterRandGen = new XoshiroRandomGenerator();
+      }
+      pFilteredPnt.jitterRandGen.randomize(XoshiroRandomGenerator.mix(jitterSeed, ((long) pX << 32) | (pY & 0xffffffffL)));
+    }
+  }
+
   public void setRaster(AbstractRaster pRaster, int pRasterWidth, int pRasterHeight, int pImageWidth, int pImageHeight) {
     raster = pRaster;
+    flatRaster = pRaster instanceof RasterFloatIntFlat ? (RasterFloatIntFlat) pRaster : null;
+    RasterOccupancy rasterOccupancy = pRaster instanceof RasterWithOccupancy ? ((RasterWithOccupancy) pRaster).getOccupancy() : null;
+    occupancy = rasterOccupancy != null ? rasterOccupancy.createSummedAreaTable() : null;
     rasterWidth = pRasterWidth;
     rasterHeight = pRasterHeight;
     rasterSize = rasterWidth * rasterHeight;
@@ -95,15 +121,12 @@ public class LogDensityFilter extends FilterHolder {
     double area = ((double) pImageWidth * (double) pImageHeight) / (pixelsPerUnit * pixelsPerUnit);
     k2 = 1.0 / (flame.getContrast() * area * flame.getSampleDensity());
 
-    precalcLogArray = new double[PRECALC_LOG_ARRAY_SIZE + 1];
-    for (int i = 1; i <= PRECALC_LOG_ARRAY_SIZE; i++) {
-      double x = i * motionBlurScl;
-      precalcLogArray[i] = (k1 * log10(1 + x * k2)) / (flame.getWhiteLevel() * x);
-    }
+    logScaleCurve = new LogScaleCurve(k1, k2, flame.getWhiteLevel(), motionBlurScl);
   }
 
   public void transformPointSimple(LogDensityPoint pFilteredPnt, int pX, int pY) {
     pFilteredPnt.clear();
+    initJitter(pFilteredPnt, pX, pY);
     int solidSampleCount = 0;
     for (int px = 0; px < oversample; px++) {
       for (int py = 0; py < oversample; py++) {
@@ -116,12 +139,7 @@ public class LogDensityFilter extends FilterHolder {
 
         double logScale;
         long pCount = pFilteredPnt.rp.count;
-        if (pCount < precalcLogArray.length) {
-          logScale = precalcLogArray[(int) pCount];
-        }
-        else {
-          logScale = (k1 * log10(1.0 + pCount * motionBlurScl * k2)) / (flame.getWhiteLevel() * pCount * motionBlurScl);
-        }
+        logScale = logScaleCurve.evaluate(pCount);
         if (pCount > 0) {
           if (colorFunc == ColorFunc.NULL) {
             pFilteredPnt.red += logScale * pFilteredPnt.rp.red;
@@ -155,6 +173,7 @@ public class LogDensityFilter extends FilterHolder {
 
   private void getSample(LogDensityPoint pFilteredPnt, int pX, int pY) {
     if (jitter && !solidRendering) {
+      AbstractRandomGenerator jitterRandGen = jitterSeeded ? pFilteredPnt.jitterRandGen : this.jitterRandGen;
       final double epsilon = 0.0001;
       final double radius = 0.25;
       double dr = log(jitterRandGen.random() + 0.1) + 1;
@@ -215,7 +234,14 @@ public class LogDensityFilter extends FilterHolder {
 
   public void transformPoint(LogDensityPoint pFilteredPnt, int pX, int pY) {
     pFilteredPnt.clear();
-    if (noiseFilterSize > 1) {
+    if (isEmptyArea(pX, pY)) {
+      return;
+    }
+    initJitter(pFilteredPnt, pX, pY);
+    if (noiseFilterSize > 1 && flatRaster != null && colorFunc == ColorFunc.NULL && !jitter && !solidRendering) {
+      transformPointFlat(pFilteredPnt, pX, pY);
+    }
+    else if (noiseFilterSize > 1) {
       if (colorFunc == ColorFunc.NULL) {
         for (int c = 0; c < colorOversampling; c++) {
           for (int i = 0; i < noiseFilterSize; i++) {
@@ -224,13 +250,7 @@ public class LogDensityFilter extends FilterHolder {
               long count = pFilteredPnt.rp.count;
               int pIdx = (int) count;
               if (pIdx > 0) {
-                double logScale;
-                if (pIdx < precalcLogArray.length) {
-                  logScale = precalcLogArray[pIdx];
-                }
-                else {
-                  logScale = (k1 * log10(1.0 + count * motionBlurScl * k2)) / (flame.getWhiteLevel() * count * motionBlurScl);
-                }
+                double logScale = logScaleCurve.evaluate(count);
                 pFilteredPnt.red += filter[i][j] * logScale * pFilteredPnt.rp.red / (double) colorOversampling;
                 pFilteredPnt.green += filter[i][j] * logScale * pFilteredPnt.rp.green / (double) colorOversampling;
                 pFilteredPnt.blue += filter[i][j] * logScale * pFilteredPnt.rp.blue / (double) colorOversampling;
@@ -248,13 +268,7 @@ public class LogDensityFilter extends FilterHolder {
               long count = pFilteredPnt.rp.count;
               int pIdx = (int) count;
               if (pIdx > 0) {
-                double logScale;
-                if (pIdx < precalcLogArray.length) {
-                  logScale = precalcLogArray[pIdx];
-                }
-                else {
-                  logScale = (k1 * log10(1.0 + count * motionBlurScl * k2)) / (flame.getWhiteLevel() * count * motionBlurScl);
-                }
+                double logScale = logScaleCurve.evaluate(count);
                 final double scale = ChannelMixerCurves.FILTER_SCALE;
                 double rawR = pFilteredPnt.rp.red * scale / (double) count;
                 double rawG = pFilteredPnt.rp.green * scale / (double) count;
@@ -307,12 +321,7 @@ public class LogDensityFilter extends FilterHolder {
             double logScale;
             long pCount = pFilteredPnt.rp.count;
             if (pCount > 0) {
-              if (pCount < precalcLogArray.length) {
-                logScale = precalcLogArray[(int) pCount];
-              }
-              else {
-                logScale = (k1 * log10(1.0 + pCount * motionBlurScl * k2)) / (flame.getWhiteLevel() * pCount * motionBlurScl);
-              }
+              logScale = logScaleCurve.evaluate(pCount);
               if (colorFunc == ColorFunc.NULL) {
                 pFilteredPnt.red += logScale * pFilteredPnt.rp.red / (double) colorOversampling;
                 pFilteredPnt.green += logScale * pFilteredPnt.rp.green / (double) colorOversampling;
@@ -344,6 +353,141 @@ public class LogDensityFilter extends FilterHolder {
     pFilteredPnt.clip();
   }
 
+  // Two pass version of transformPoint() for separable filters: the log density of each raster pixel under the tile
+  // is calculated only once, filtered horizontally and then vertically. This costs about 2n instead of n*n
+  // operations per pixel for a filter of size n. Other filters (and jitter, channel mixer and solid rendering) leave
+  // the tile invalid, so transformPoint(LogDensityTile...) falls back to the per pixel filter.
+  public void prepareTile(LogDensityTile pTile, int pStartX, int pEndX, int pStartY, int pEndY) {
+    pTile.valid = noiseFilterSize > 1 && isSeparableFilter() && colorFunc == ColorFunc.NULL && !jitter && !solidRendering;
+    if (!pTile.valid) {
+      return;
+    }
+    pTile.startX = pStartX;
+    pTile.endX = pEndX;
+    pTile.startY = pStartY;
+    pTile.endY = pEndY;
+    final int channels = LogDensityTile.CHANNELS;
+    final int tileWidth = pEndX - pStartX;
+    final int rx0 = pStartX * oversample, rx1 = Math.min(rasterWidth, (pEndX - 1) * oversample + noiseFilterSize);
+    final int ry0 = pStartY * oversample, ry1 = Math.min(rasterHeight, (pEndY - 1) * oversample + noiseFilterSize);
+    final int rows = (pEndY - 1) * oversample + noiseFilterSize - ry0;
+    final double whiteLevel = flame.getWhiteLevel();
+    double[] row = pTile.row = pTile.ensureCapacity(pTile.row, Math.max(0, rx1 - rx0) * channels);
+    double[] horizontal = pTile.horizontal = pTile.ensureCapacity(pTile.horizontal, rows * tileWidth * channels);
+    double[] result = pTile.result = pTile.ensureCapacity(pTile.result, (pEndY - pStartY) * tileWidth * channels);
+    RasterPoint rp = pTile.rp;
+    Arrays.fill(horizontal, 0, rows * tileWidth * channels, 0.0);
+    for (int y = ry0; y < ry1; y++) {
+      for (int x = rx0; x < rx1; x++) {
+        raster.readRasterPoint(x, y, rp);
+        int idx = (x - rx0) * channels;
+        long count = rp.count;
+        if (count > 0) {
+          double logScale = logScaleCurve.evaluate(count);
+          row[idx + LogDensityTile.RED] = logScale * rp.red;
+          row[idx + LogDensityTile.GREEN] = logScale * rp.green;
+          row[idx + LogDensityTile.BLUE] = logScale * rp.blue;
+          row[idx + LogDensityTile.INTENSITY] = logScale * count * whiteLevel;
+        }
+        else {
+          row[idx] = row[idx + 1] = row[idx + 2] = row[idx + 3] = 0.0;
+        }
+      }
+      int hIdx = (y - ry0) * tileWidth * channels;
+      for (int px = pStartX; px < pEndX; px++, hIdx += channels) {
+        int x0 = px * oversample - rx0;
+        int jMax = Math.min(noiseFilterSize, rx1 - rx0 - x0);
+        double red = 0.0, green = 0.0, blue = 0.0, intensity = 0.0;
+        for (int j = 0, idx = x0 * channels; j < jMax; j++, idx += channels) {
+          double f = filterX[j];
+          red += f * row[idx + LogDensityTile.RED];
+          green += f * row[idx + LogDensityTile.GREEN];
+          blue += f * row[idx + LogDensityTile.BLUE];
+          intensity += f * row[idx + LogDensityTile.INTENSITY];
+        }
+        horizontal[hIdx + LogDensityTile.RED] = red;
+        horizontal[hIdx + LogDensityTile.GREEN] = green;
+        horizontal[hIdx + LogDensityTile.BLUE] = blue;
+        horizontal[hIdx + LogDensityTile.INTENSITY] = intensity;
+      }
+    }
+    for (int py = pStartY; py < pEndY; py++) {
+      int y0 = py * oversample - ry0;
+      for (int px = 0; px < tileWidth; px++) {
+        double red = 0.0, green = 0.0, blue = 0.0, intensity = 0.0;
+        for (int i = 0, hIdx = (y0 * tileWidth + px) * channels; i < noiseFilterSize; i++, hIdx += tileWidth * channels) {
+          double f = filterY[i];
+          red += f * horizontal[hIdx + LogDensityTile.RED];
+          green += f * horizontal[hIdx + LogDensityTile.GREEN];
+          blue += f * horizontal[hIdx + LogDensityTile.BLUE];
+          intensity += f * horizontal[hIdx + LogDensityTile.INTENSITY];
+        }
+        int rIdx = ((py - pStartY) * tileWidth + px) * channels;
+        result[rIdx + LogDensityTile.RED] = red;
+        result[rIdx + LogDensityTile.GREEN] = green;
+        result[rIdx + LogDensityTile.BLUE] = blue;
+        result[rIdx + LogDensityTile.INTENSITY] = intensity;
+      }
+    }
+  }
+
+  public void transformPoint(LogDensityTile pTile, LogDensityPoint pFilteredPnt, int pX, int pY) {
+    if (pTile.valid && pX >= pTile.startX && pX < pTile.endX && pY >= pTile.startY && pY < pTile.endY) {
+      pFilteredPnt.clear();
+      int idx = ((pY - pTile.startY) * (pTile.endX - pTile.startX) + pX - pTile.startX) * LogDensityTile.CHANNELS;
+      pFilteredPnt.red = pTile.result[idx + LogDensityTile.RED];
+      pFilteredPnt.green = pTile.result[idx + LogDensityTile.GREEN];
+      pFilteredPnt.blue = pTile.result[idx + LogDensityTile.BLUE];
+      pFilteredPnt.intensity = pTile.result[idx + LogDensityTile.INTENSITY];
+      pFilteredPnt.clip();
+    }
+    else {
+      transformPoint(pFilteredPnt, pX, pY);
+    }
+  }
+
+  // no samples under the filter kernel (jitter reads one more raster pixel in each direction), so the point stays cleared
+  // and the gamma filter renders the background
+  private boolean isEmptyArea(int pX, int pY) {
+    if (occupancy == null || solidRendering) {
+      return false;
+    }
+    int size = noiseFilterSize > 1 ? noiseFilterSize : oversample;
+    int x0 = pX * oversample;
+    int y0 = pY * oversample;
+    return occupancy.isEmpty(x0 - 1, y0 - 1, x0 + size, y0 + size);
+  }
+
+  // same result as the generic filter loop, but reads the interleaved raster directly instead of going through RasterPoint
+  private void transformPointFlat(LogDensityPoint pFilteredPnt, int pX, int pY) {
+    final float[] data = flatRaster.getData();
+    final double whiteLevel = flame.getWhiteLevel();
+    final int x0 = pX * oversample;
+    final int y0 = pY * oversample;
+    final int xMax = Math.min(noiseFilterSize, rasterWidth - x0);
+    final int yMax = Math.min(noiseFilterSize, rasterHeight - y0);
+    double red = 0.0, green = 0.0, blue = 0.0, intensity = 0.0;
+    for (int i = 0; i < yMax; i++) {
+      final double filterRow[] = filter[i];
+      int idx = ((y0 + i) * rasterWidth + x0) * RasterFloatIntFlat.CHANNELS;
+      for (int j = 0; j < xMax; j++, idx += RasterFloatIntFlat.CHANNELS) {
+        int count = Float.floatToRawIntBits(data[idx + RasterFloatIntFlat.COUNT]);
+        if (count > 0) {
+          double logScale = logScaleCurve.evaluate(count);
+          double f = filterRow[j] * logScale;
+          red += f * data[idx + RasterFloatIntFlat.RED];
+          green += f * data[idx + RasterFloatIntFlat.GREEN];
+          blue += f * data[idx + RasterFloatIntFlat.BLUE];
+          intensity += f * count * whiteLevel;
+        }
+      }
+    }
+    pFilteredPnt.red = red;
+    pFilteredPnt.green = green;
+    pFilteredPnt.blue = blue;
+    pFilteredPnt.intensity = intensity;
+  }
+
   private boolean addSolidColors(LogDensityPoint dest, RasterPoint rp, double colorScale) {
     if (solidRendering && rp.hasNormals) {
       MaterialSettings material = flame.getSolidRenderSettings().getInterpolatedMaterial(rp.material);
@@ -17,6 +17,7 @@
 package org.jwildfire.create.tina.render;
 
 import org.jwildfire.create.tina.base.raster.RasterPoint;
+import org.jwildfire.create.tina.random.XoshiroRandomGenerator;
 
 public class LogDensityPoint {
   public double red;
@@ -40,6 +41,8 @@ public class LogDensityPoint {
   public final RasterPoint ru;
   public final RasterPoint lb;
   public final RasterPoint rb;
+  // jitter generator of seeded renders, created by the LogDensityFilter on demand
+  XoshiroRandomGenerator jitterRandGen;
 
   public LogDensityPoint(int lightCount) {
     rp = new RasterPoint(lightCount);
@@ -0,0 +1,43 @@
+/*
+  JWildfire - an image and animation processor written in Java 
+  Copyright (C) 1995-2016 Andreas Maschke
+
+  This is free software; you can redistribute it and/or modify it under the terms of the GNU Lesser 
+  General Public License as published by the Free Software Foundation; either version 2.1 of the 
+  License, or (at your option) any later version.
+ 
+  This software is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without 
+  even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU 
+  Lesser General Public License for more details.
+
+  You should have received a copy of the GNU Lesser General Public License along with this software; 
+  if not, write to the Free Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+  02110-1301 USA, or see the FSF site: http://www.fsf.org.
+*/
+package org.jwildfire.create.tina.render;
+
+import org.jwildfire.create.tina.base.raster.RasterPoint;
+
+// Buffers of the two pass filter of LogDensityFilter.prepareTile(), one instance per image thread
+public class LogDensityTile {
+  static final int CHANNELS = 4;
+  static final int RED = 0;
+  static final int GREEN = 1;
+  static final int BLUE = 2;
+  static final int INTENSITY = 3;
+
+  final RasterPoint rp = new RasterPoint(0);
+  boolean valid;
+  int startX, endX, startY, endY;
+  // log scaled raster row
+  double[] row = new double[0];
+  // raster rows, filtered horizontally at the positions of the image pixels
+  double[] horizontal = new double[0];
+  // the filtered image pixels of the tile
+  double[] result = new double[0];
+
+  double[] ensureCapacity(double[] pBuffer, int pSize) {
+    return pBuffer.length >= pSize ? pBuffer : new double[pSize];
+  }
+
+}
@@ -0,0 +1,320 @@
+/*
+  JWildfire - an image and animation processor written in Java 
+  Copyright (C) 1995-2016 Andreas Maschke
+
+  This is free software; you can redistribute it and/or modify it under the terms of the GNU Lesser 
+  General Public License as published by the Free Software Foundation; either version 2.1 of the 
+  License, or (at your option) any later version.
+ 
+  This software is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without 
+  even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU 
+  Lesser General Public License for more details.
+
+  You should have received a copy of the GNU Lesser General Public License along with this software; 
+  if not, write to the Free Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+  02110-1301 USA, or see the FSF site: http://www.fsf.org.
+*/
+package org.jwildfire.create.tina.render;
+
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern;
+
+import org.jwildfire.base.mathlib.MathLib;
+import org.jwildfire.create.tina.animate.AnimationService;
+import org.jwildfire.create.tina.animate.AnimationService.MotionCurveAttribute;
+import org.jwildfire.create.tina.animate.MotionCurveEvaluator;
+import org.jwildfire.create.tina.base.Flame;
+import org.jwildfire.create.tina.base.Layer;
+import org.jwildfire.create.tina.base.XForm;
+import org.jwildfire.create.tina.variation.Variation;
+
+// Course of the animated affine coefficients over the motion blur interval, sampled once per render at a
+// few key times. Walkers of a continuous motion blur render pick their own time inside the interval and
+// interpolate the coefficients of their xforms from these keys, so the cost does not depend on the blur length.
+// Only flames where nothing but affine coefficients (directly or by rotate/scale curves) is animated are supported.
+public class MotionBlurTrack {
+  // samples between two changes of the time of a walker
+  public static final int TIME_SAMPLE_ITERATIONS = 2000;
+  private static final int MAX_KEYS = 33;
+  private static final Pattern SUPPORTED_CURVE = Pattern.compile("(xy|yz|zx)(Post)?(Coeff[0-2][0-1]|Rotate|Scale)Curve");
+  // six coefficients for each plane, in the order 00, 01, 10, 11, 20, 21
+  private static final String[] PLANES = { "xyCoeff", "xyPostCoeff", "yzCoeff", "yzPostCoeff", "zxCoeff", "zxPostCoeff" };
+  private static final String[] COEFF_SUFFIXES = { "00", "01", "10", "11", "20", "21" };
+  private static final double[] IDENTITY = { 1.0, 0.0, 0.0, 1.0, 0.0, 0.0 };
+  private static final Field[] COEFF_FIELDS = createCoeffFields();
+
+  private final double blurLength;
+  private final double decay;
+  private final int keyCount;
+  private final List<XFormTrack> xFormTracks;
+
+  private static class XFormTrack {
+    final int layerIdx;
+    final boolean finalXForm;
+    final int xFormIdx;
+    final int coeffs[];
+    final double keys[][];
+
+    XFormTrack(int pLayerIdx, boolean pFinalXForm, int pXFormIdx, int[] pCoeffs, double[][] pKeys) {
+      layerIdx = pLayerIdx;
+      finalXForm = pFinalXForm;
+      xFormIdx = pXFormIdx;
+      coeffs = pCoeffs;
+      keys = pKeys;
+    }
+  }
+
+  private MotionBlurTrack(Flame pFlame, int pKeyCount, List<XFormTrack> pXFormTracks) {
+    blurLength = pFlame.getMotionBlurLength();
+    decay = pFlame.getMotionBlurDecay();
+    keyCount = pKeyCount;
+    xFormTracks = pXFormTracks;
+  }
+
+  private static Field[] createCoeffFields() {
+    Field res[] = new Field[PLANES.length * COEFF_SUFFIXES.length];
+    try {
+      for (int i = 0; i < PLANES.length; i++) {
+        for (int j = 0; j < COEFF_SUFFIXES.length; j++) {
+          Field field = XForm.class.getDeclaredField(PLANES[i] + COEFF_SUFFIXES[j]);
+          field.setAccessible(true);
+          res[i * COEFF_SUFFIXES.length + j] = field;
+        }
+      }
+    }
+    catch (Exception ex) {
+      throw new RuntimeException(ex);
+    }
+    return res;
+  }
+
+  // returns null if the flame has motion curves which can not be interpolated, it must be rendered with
+  // discrete blur steps then
+  public static MotionBlurTrack create(Flame pFlame, int pFrame) {
+    if (pFlame.getMotionBlurLength() <= 0 || !hasOnlySupportedCurves(pFlame)) {
+      return null;
+    }
+    List<XFormTrack> tracks = new ArrayList<XFormTrack>();
+    if (!hasAnimatedXForms(pFlame)) {
+      return new MotionBlurTrack(pFlame, 0, tracks);
+    }
+    int keyCount = Math.min(pFlame.getMotionBlurLength(), MAX_KEYS - 1) + 1;
+    double time = pFrame >= 0 ? pFrame : 0;
+    MotionCurveEvaluator motionCurves = new MotionCurveEvaluator(pFlame);
+    List<Flame> keyFlames = new ArrayList<Flame>();
+    for (int k = 0; k < keyCount; k++) {
+      keyFlames.add(motionCurves.apply(pFlame.makeCopy(), getTime(pFlame, time, getBlurTime(pFlame.getMotionBlurLength(), keyCount, k))));
+    }
+    // the transformation steps of an xform depend on which planes are not the identity, this must not change
+    Flame centreFlame = motionCurves.apply(pFlame.makeCopy(), time);
+    try {
+      for (int l = 0; l < pFlame.getLayers().size(); l++) {
+        for (int f = 0; f < 2; f++) {
+          boolean finalXForm = f > 0;
+          List<XForm> xForms = getXForms(pFlame.getLayers().get(l), finalXForm);
+          for (int x = 0; x < xForms.size(); x++) {
+            double values[][] = new double[COEFF_FIELDS.length][keyCount];
+            for (int k = 0; k < keyCount; k++) {
+              XForm xForm = getXForms(keyFlames.get(k).getLayers().get(l), finalXForm).get(x);
+              for (int c = 0; c < COEFF_FIELDS.length; c++) {
+                values[c][k] = COEFF_FIELDS[c].getDouble(xForm);
+              }
+            }
+            XForm centreXForm = getXForms(centreFlame.getLayers().get(l), finalXForm).get(x);
+            for (int plane = 0; plane < PLANES.length; plane++) {
+              boolean identity = isIdentity(centreXForm, plane);
+              for (int k = 0; k < keyCount; k++) {
+                if (isIdentity(values, plane, k) != identity) {
+                  return null;
+                }
+              }
+            }
+            List<Integer> coeffs = new ArrayList<Integer>();
+            for (int c = 0; c < COEFF_FIELDS.length; c++) {
+              for (int k = 1; k < keyCount; k++) {
+                if (values[c][k] != values[c][0]) {
+                  coeffs.add(c);
+                  break;
+                }
+              }
+            }
+            if (coeffs.size() > 0) {
+              int coeffIdx[] = new int[coeffs.size()];
+              double keys[][] = new double[coeffs.size()][];
+              for (int i = 0; i < coeffIdx.length; i++) {
+                coeffIdx[i] = coeffs.get(i);
+                keys[i] = values[coeffIdx[i]];
+              }
+              tracks.add(new XFormTrack(l, finalXForm, x, coeffIdx, keys));
+            }
+          }
+        }
+      }
+    }
+    catch (IllegalAccessException ex) {
+      throw new RuntimeException(ex);
+    }
+    return new MotionBlurTrack(pFlame, keyCount, tracks);
+  }
+
+  private static double getBlurTime(int pBlurLength, int pKeyCount, int pKey) {
+    return (double) pBlurLength * pKey / (pKeyCount - 1);
+  }
+
+  // same time scale as the discrete blur steps, pBlurTime=0 is the most recent time
+  private static double getTime(Flame pFlame, double pTime, double pBlurTime) {
+    return pTime + pFlame.getMotionBlurLength() * pFlame.getMotionBlurTimeStep() / 2.0 - pBlurTime * pFlame.getMotionBlurTimeStep();
+  }
+
+  private static List<XForm> getXForms(Layer pLayer, boolean pFinalXForms) {
+    return pFinalXForms ? pLayer.getFinalXForms() : pLayer.getXForms();
+  }
+
+  private static boolean isIdentity(XForm pXForm, int pPlane) throws IllegalAccessException {
+    for (int j = 0; j < COEFF_SUFFIXES.length; j++) {
+      if (Math.abs(COEFF_FIELDS[pPlane * COEFF_SUFFIXES.length + j].getDouble(pXForm) - IDENTITY[j]) > MathLib.EPSILON) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static boolean isIdentity(double pValues[][], int pPlane, int pKey) {
+    for (int j = 0; j < COEFF_SUFFIXES.length; j++) {
+      if (Math.abs(pValues[pPlane * COEFF_SUFFIXES.length + j][pKey] - IDENTITY[j]) > MathLib.EPSILON) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static boolean hasOnlySupportedCurves(Flame pFlame) {
+    if (hasEnabledCurves(pFlame, null)) {
+      return false;
+    }
+    for (Layer layer : pFlame.getLayers()) {
+      if (hasEnabledCurves(layer, null) || hasEnabledCurves(layer.getPalette(), null)) {
+        return false;
+      }
+      for (int f = 0; f < 2; f++) {
+        for (XForm xForm : getXForms(layer, f > 0)) {
+          if (hasEnabledCurves(xForm, SUPPORTED_CURVE)) {
+            return false;
+          }
+          for (Variation var : xForm.getVariations()) {
+            if (hasEnabledCurves(var, null)) {
+              return false;
+            }
+            for (String name : var.getFunc().getParameterNames()) {
+              if (var.getMotionCurve(name) != null && var.getMotionCurve(name).isEnabled()) {
+                return false;
+              }
+            }
+          }
+        }
+      }
+    }
+    return true;
+  }
+
+  private static boolean hasAnimatedXForms(Flame pFlame) {
+    for (Layer layer : pFlame.getLayers()) {
+      for (int f = 0; f < 2; f++) {
+        for (XForm xForm : getXForms(layer, f > 0)) {
+          if (hasEnabledCurves(xForm, null)) {
+            return true;
+          }
+        }
+      }
+    }
+    return false;
+  }
+
+  // enabled curves, except those matching pIgnore
+  private static boolean hasEnabledCurves(Object pObject, Pattern pIgnore) {
+    for (MotionCurveAttribute attr : AnimationService.getAllMotionCurves(pObject)) {
+      if (attr.getMotionCurve().isEnabled() && (pIgnore == null || !pIgnore.matcher(attr.getName()).matches())) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  public double getBlurLength() {
+    return blurLength;
+  }
+
+  public boolean isAnimated() {
+    return !xFormTracks.isEmpty();
+  }
+
+  // brightness of the samples at the given blur time, as the layer weights of the discrete blur steps
+  public double getWeight(double pBlurTime) {
+    double res = 1.0 - pBlurTime * pBlurTime * decay * 0.07 / blurLength;
+    return res < 0.01 ? 0.01 : res;
+  }
+
+  // binds the track to the xforms of one layer of a prepared flame, which must be private to the caller
+  public Binding bind(Flame pFlame, Layer pLayer) {
+    int layerIdx = pFlame.getLayers().indexOf(pLayer);
+    List<XForm> xForms = new ArrayList<XForm>();
+    List<XFormTrack> tracks = new ArrayList<XFormTrack>();
+    for (XFormTrack track : xFormTracks) {
+      if (track.layerIdx == layerIdx) {
+        xForms.add(getXForms(pLayer, track.finalXForm).get(track.xFormIdx));
+        tracks.add(track);
+      }
+    }
+    return new Binding(xForms.toArray(new XForm[xForms.size()]), tracks.toArray(new XFormTrack[tracks.size()]));
+  }
+
+  public class Binding {
+    private final XForm xForms[];
+    private final XFormTrack tracks[];
+
+    private Binding(XForm[] pXForms, XFormTrack[] pTracks) {
+      xForms = pXForms;
+      tracks = pTracks;
+    }
+
+    public boolean isAnimated() {
+      return xForms.length > 0;
+    }
+
+    public double getBlurLength() {
+      return blurLength;
+    }
+
+    public double getWeight(double pBlurTime) {
+      return MotionBlurTrack.this.getWeight(pBlurTime);
+    }
+
+    // sets the coefficients of the bound xforms to their values at the given blur time (0..getBlurLength())
+    public void apply(double pBlurTime) {
+      double pos = pBlurTime / blurLength * (keyCount - 1);
+      int k = (int) pos;
+      if (k < 0) {
+        k = 0;
+      }
+      else if (k > keyCount - 2) {
+        k = keyCount - 2;
+      }
+      double t = pos - k;
+      try {
+        for (int i = 0; i < xForms.length; i++) {
+          XFormTrack track = tracks[i];
+          for (int c = 0; c < track.coeffs.length; c++) {
+            double keys[] = track.keys[c];
+            COEFF_FIELDS[track.coeffs[c]].setDouble(xForms[i], keys[k] + (keys[k + 1] - keys[k]) * t);
+          }
+        }
+      }
+      catch (IllegalAccessException ex) {
+        throw new RuntimeException(ex);
+      }
+    }
+  }
+
+}
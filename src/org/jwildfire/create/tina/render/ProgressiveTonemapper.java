@@ -0,0 +1,103 @@
+/*
+  JWildfire - an image and animation processor written in Java 
+  Copyright (C) 1995-2016 Andreas Maschke
+
+  This is free software; you can redistribute it and/or modify it under the terms of the GNU Lesser 
+  General Public License as published by the Free Software Foundation; either version 2.1 of the 
+  License, or (at your option) any later version.
+ 
+  This software is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without 
+  even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU 
+  Lesser General Public License for more details.
+
+  You should have received a copy of the GNU Lesser General Public License along with this software; 
+  if not, write to the Free Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+  02110-1301 USA, or see the FSF site: http://www.fsf.org.
+*/
+package org.jwildfire.create.tina.render;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.jwildfire.create.tina.base.raster.RasterOccupancy;
+
+// Tonemaps the image areas of all raster cells which received samples since the last update, in parallel, using
+// one SampleTonemapper per task. This replaces tonemapping every sample as it is plotted, so the render threads
+// need no observer. Rasters without occupancy are tonemapped completely on every update.
+public class ProgressiveTonemapper {
+  private final List<SampleTonemapper> tonemappers;
+  private final RasterOccupancy occupancy;
+  private final int oversample;
+  private final int imageWidth;
+  private final int imageHeight;
+  private final int cols;
+  private final int rows;
+  private int dirtyCells[];
+
+  public ProgressiveTonemapper(List<SampleTonemapper> pTonemappers, int pOversample) {
+    tonemappers = pTonemappers;
+    oversample = pOversample;
+    SampleTonemapper tonemapper = pTonemappers.get(0);
+    occupancy = tonemapper.getOccupancy();
+    imageWidth = tonemapper.getImageWidth();
+    imageHeight = tonemapper.getImageHeight();
+    cols = ((tonemapper.getRasterWidth() - 1) >> RasterOccupancy.CELL_SHIFT) + 1;
+    rows = ((tonemapper.getRasterHeight() - 1) >> RasterOccupancy.CELL_SHIFT) + 1;
+    dirtyCells = new int[cols * rows];
+  }
+
+  public static ProgressiveTonemapper create(List<AbstractRenderThread> pRenderThreads) {
+    List<SampleTonemapper> tonemappers = new ArrayList<>();
+    for (AbstractRenderThread thread : pRenderThreads) {
+      tonemappers.add(thread.getTonemapper());
+    }
+    return new ProgressiveTonemapper(tonemappers, pRenderThreads.get(0).getOversample());
+  }
+
+  // Writes the ARGB values of all changed pixels into pImageBuffer (imageWidth * imageHeight) and returns the number of updated cells
+  public int update(final int pImageBuffer[]) {
+    int count = 0;
+    for (int row = 0; row < rows; row++) {
+      for (int col = 0; col < cols; col++) {
+        if (occupancy == null || occupancy.clearDirty(col, row)) {
+          dirtyCells[count++] = row * cols + col;
+        }
+      }
+    }
+    if (count > 0) {
+      int taskCount = Math.min(tonemappers.size(), count);
+      List<Runnable> tasks = new ArrayList<>();
+      for (int t = 0; t < taskCount; t++) {
+        final SampleTonemapper tonemapper = tonemappers.get(t);
+        final int from = (int) ((long) count * t / taskCount);
+        final int to = (int) ((long) count * (t + 1) / taskCount);
+        tasks.add(new Runnable() {
+          @Override
+          public void run() {
+            for (int i = from; i < to; i++) {
+              tonemapCell(tonemapper, dirtyCells[i], pImageBuffer);
+            }
+          }
+        });
+      }
+      RenderExecutor.getInstance().runAll(tasks);
+    }
+    return count;
+  }
+
+  private void tonemapCell(SampleTonemapper pTonemapper, int pCell, int pImageBuffer[]) {
+    int col = pCell % cols;
+    int row = pCell / cols;
+    int x0 = (col << RasterOccupancy.CELL_SHIFT) / oversample;
+    int x1 = Math.min(imageWidth - 1, (((col + 1) << RasterOccupancy.CELL_SHIFT) - 1) / oversample);
+    int y0 = (row << RasterOccupancy.CELL_SHIFT) / oversample;
+    int y1 = Math.min(imageHeight - 1, (((row + 1) << RasterOccupancy.CELL_SHIFT) - 1) / oversample);
+    for (int y = y0; y <= y1; y++) {
+      int offset = y * imageWidth;
+      for (int x = x0; x <= x1; x++) {
+        pImageBuffer[offset + x] = pTonemapper.tonemapSample(x, y);
+      }
+    }
+  }
+
+}
@@ -0,0 +1,338 @@
+/*
+  JWildfire - an image and animation processor written in Java 
+  Copyright (C) 1995-2015 Andreas Maschke
+
+  This is free software; you can redistribute it and/or modify it under the terms of the GNU Lesser 
+  General Public License as published by the Free Software Foundation; either version 2.1 of the 
+  License, or (at your option) any later version.
+ 
+  This software is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without 
+  even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU 
+  Lesser General Public License for more details.
+
+  You should have received a copy of the GNU Lesser General Public License along with this software; 
+  if not, write to the Free Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+  02110-1301 USA, or see the FSF site: http://www.fsf.org.
+*/
+package org.jwildfire.create.tina.render;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+import org.jwildfire.create.tina.base.Flame;
+import org.jwildfire.create.tina.base.raster.AbstractRaster;
+import org.jwildfire.create.tina.base.raster.RasterPoint;
+import org.jwildfire.create.tina.base.raster.RasterWithRawAccess;
+
+// Binary render state: a small serialized header (file header, flame, render info and thread states) followed by a plain
+// dump of the raster in bands of rows, each band optionally deflated. All numbers are little endian.
+public class RenderCheckpoint {
+  private static final int MAGIC = 0x4A574643; // "JWFC"
+  public static final int VERSION = 1;
+  private static final int CELL_SIZE = 16;
+  private static final int BAND_SIZE = 4 * 1024 * 1024;
+  private static final String TMP_EXT = ".tmp";
+
+  private RenderCheckpoint() {
+  }
+
+  public static boolean isCheckpointFile(String pAbsolutePath) throws IOException {
+    RandomAccessFile file = new RandomAccessFile(pAbsolutePath, "r");
+    try {
+      if (file.length() < 4) {
+        return false;
+      }
+      ByteBuffer buf = ByteBuffer.allocate(4).order(ByteOrder.LITTLE_ENDIAN);
+      readFully(file.getChannel(), buf);
+      return buf.getInt(0) == MAGIC;
+    }
+    finally {
+      file.close();
+    }
+  }
+
+  // The raster is read while the render threads may still be adding samples, so the dump is not an exact snapshot,
+  // but every sample which is counted also has its color. The file is written under a temporary name and then moved
+  // over the destination, so an existing checkpoint is never left half-written.
+  public static void write(String pAbsolutePath, JWFRenderFileHeader pHeader, Flame pFlame, RenderInfo pRenderInfo, RenderThreadPersistentState pState[],
+      AbstractRaster pRaster, int pRasterWidth, int pRasterHeight, boolean pCompress) throws IOException {
+    File tmpFile = new File(pAbsolutePath + TMP_EXT);
+    RandomAccessFile file = new RandomAccessFile(tmpFile, "rw");
+    try {
+      file.setLength(0);
+      FileChannel channel = file.getChannel();
+      byte[] meta = serializeMeta(pHeader, pFlame, pRenderInfo, pState);
+      int rowsPerBand = Math.max(1, BAND_SIZE / (pRasterWidth * CELL_SIZE));
+      ByteBuffer head = ByteBuffer.allocate(28).order(ByteOrder.LITTLE_ENDIAN);
+      head.putInt(MAGIC).putInt(VERSION).putInt(meta.length);
+      head.flip();
+      writeFully(channel, head);
+      writeFully(channel, ByteBuffer.wrap(meta));
+      head.clear();
+      head.putInt(pRasterWidth).putInt(pRasterHeight).putInt(rowsPerBand).putInt(pCompress ? 1 : 0);
+      head.flip();
+      writeFully(channel, head);
+
+      ByteBuffer band = ByteBuffer.allocate(rowsPerBand * pRasterWidth * CELL_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+      byte[] compressed = pCompress ? new byte[band.capacity() + band.capacity() / 100 + 64] : null;
+      Deflater deflater = pCompress ? new Deflater(Deflater.BEST_SPEED) : null;
+      ByteBuffer bandHead = ByteBuffer.allocate(8).order(ByteOrder.LITTLE_ENDIAN);
+      RasterPoint rp = new RasterPoint(0);
+      try {
+        for (int y0 = 0; y0 < pRasterHeight; y0 += rowsPerBand) {
+          int y1 = Math.min(pRasterHeight, y0 + rowsPerBand);
+          band.clear();
+          for (int y = y0; y < y1; y++) {
+            for (int x = 0; x < pRasterWidth; x++) {
+              pRaster.readRasterPoint(x, y, rp);
+              band.putFloat((float) rp.red).putFloat((float) rp.green).putFloat((float) rp.blue).putInt((int) rp.count);
+            }
+          }
+          band.flip();
+          int rawLength = band.remaining();
+          ByteBuffer data = band;
+          if (deflater != null) {
+            deflater.reset();
+            deflater.setInput(band.array(), 0, rawLength);
+            deflater.finish();
+            int length = 0;
+            while (!deflater.finished()) {
+              if (length == compressed.length) {
+                byte[] newCompressed = new byte[compressed.length * 2];
+                System.arraycopy(compressed, 0, newCompressed, 0, length);
+                compressed = newCompressed;
+              }
+              length += deflater.deflate(compressed, length, compressed.length - length);
+            }
+            data = ByteBuffer.wrap(compressed, 0, length);
+          }
+          bandHead.clear();
+          bandHead.putInt(rawLength).putInt(data.remaining());
+          bandHead.flip();
+          writeFully(channel, bandHead);
+          writeFully(channel, data);
+        }
+      }
+      finally {
+        if (deflater != null) {
+          deflater.end();
+        }
+      }
+      channel.force(false);
+    }
+    catch (Throwable ex) {
+      file.close();
+      tmpFile.delete();
+      throw ex;
+    }
+    finally {
+      file.close();
+    }
+    Files.move(tmpFile.toPath(), new File(pAbsolutePath).toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+  }
+
+  private static byte[] serializeMeta(JWFRenderFileHeader pHeader, Flame pFlame, RenderInfo pRenderInfo, RenderThreadPersistentState pState[]) throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    ObjectOutputStream out = new ObjectOutputStream(bytes);
+    try {
+      out.writeObject(pHeader);
+      out.writeObject(pFlame);
+      out.writeObject(pRenderInfo);
+      out.writeObject(pState);
+    }
+    finally {
+      out.close();
+    }
+    return bytes.toByteArray();
+  }
+
+  private static void writeFully(FileChannel pChannel, ByteBuffer pBuffer) throws IOException {
+    while (pBuffer.hasRemaining()) {
+      pChannel.write(pBuffer);
+    }
+  }
+
+  private static void readFully(FileChannel pChannel, ByteBuffer pBuffer) throws IOException {
+    while (pBuffer.hasRemaining()) {
+      if (pChannel.read(pBuffer) < 0) {
+        throw new EOFException();
+      }
+    }
+    pBuffer.flip();
+  }
+
+  public static class Reader implements Closeable {
+    private final RandomAccessFile file;
+    private final FileChannel channel;
+    private final JWFRenderFileHeader header;
+    private final Flame flame;
+    private final RenderInfo renderInfo;
+    private final RenderThreadPersistentState state[];
+
+    public Reader(String pAbsolutePath) throws IOException {
+      file = new RandomAccessFile(pAbsolutePath, "r");
+      try {
+        channel = file.getChannel();
+        ByteBuffer head = ByteBuffer.allocate(12).order(ByteOrder.LITTLE_ENDIAN);
+        readFully(channel, head);
+        if (head.getInt() != MAGIC) {
+          throw new IOException("<" + pAbsolutePath + "> is not a render checkpoint");
+        }
+        int version = head.getInt();
+        if (version != VERSION) {
+          throw new IOException("Unsupported render checkpoint version " + version);
+        }
+        ByteBuffer meta = ByteBuffer.allocate(head.getInt());
+        readFully(channel, meta);
+        ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(meta.array()));
+        try {
+          header = (JWFRenderFileHeader) in.readObject();
+          flame = (Flame) in.readObject();
+          renderInfo = (RenderInfo) in.readObject();
+          state = (RenderThreadPersistentState[]) in.readObject();
+        }
+        finally {
+          in.close();
+        }
+      }
+      catch (ClassNotFoundException ex) {
+        file.close();
+        throw new IOException(ex);
+      }
+      catch (IOException ex) {
+        file.close();
+        throw ex;
+      }
+    }
+
+    public JWFRenderFileHeader getHeader() {
+      return header;
+    }
+
+    public Flame getFlame() {
+      return flame;
+    }
+
+    public RenderInfo getRenderInfo() {
+      return renderInfo;
+    }
+
+    public RenderThreadPersistentState[] getState() {
+      return state;
+    }
+
+    public void readRaster(AbstractRaster pRaster, int pRasterWidth, int pRasterHeight) throws IOException {
+      readRaster(pRaster, pRasterWidth, pRasterHeight, false);
+    }
+
+    // adds the stored raster to the given one, the rasters only hold sums, so rasters of independent renders of the same flame can be merged
+    public void mergeRaster(AbstractRaster pRaster, int pRasterWidth, int pRasterHeight) throws IOException {
+      readRaster(pRaster, pRasterWidth, pRasterHeight, true);
+    }
+
+    private void readRaster(AbstractRaster pRaster, int pRasterWidth, int pRasterHeight, boolean pAdd) throws IOException {
+      if (!(pRaster instanceof RasterWithRawAccess)) {
+        throw new IOException("Raster type " + pRaster.getClass().getSimpleName() + " can not be restored from a checkpoint");
+      }
+      RasterWithRawAccess raster = (RasterWithRawAccess) pRaster;
+      ByteBuffer rasterHead = ByteBuffer.allocate(16).order(ByteOrder.LITTLE_ENDIAN);
+      readFully(channel, rasterHead);
+      int width = rasterHead.getInt();
+      int height = rasterHead.getInt();
+      int rowsPerBand = rasterHead.getInt();
+      boolean compressed = rasterHead.getInt() != 0;
+      if (width != pRasterWidth || height != pRasterHeight) {
+        throw new IOException("Raster size " + width + "x" + height + " does not match " + pRasterWidth + "x" + pRasterHeight);
+      }
+      ByteBuffer band = ByteBuffer.allocate(rowsPerBand * width * CELL_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+      ByteBuffer bandHead = ByteBuffer.allocate(8).order(ByteOrder.LITTLE_ENDIAN);
+      Inflater inflater = compressed ? new Inflater() : null;
+      RasterPoint rp = new RasterPoint(0);
+      try {
+        for (int y0 = 0; y0 < height; y0 += rowsPerBand) {
+          int y1 = Math.min(height, y0 + rowsPerBand);
+          bandHead.clear();
+          readFully(channel, bandHead);
+          int rawLength = bandHead.getInt();
+          int storedLength = bandHead.getInt();
+          if (rawLength != (y1 - y0) * width * CELL_SIZE) {
+            throw new IOException("Corrupt raster band at row " + y0);
+          }
+          band.clear();
+          if (inflater != null) {
+            ByteBuffer data = ByteBuffer.allocate(storedLength);
+            readFully(channel, data);
+            inflater.reset();
+            inflater.setInput(data.array());
+            try {
+              int length = 0;
+              while (length < rawLength && !inflater.finished()) {
+                int inflated = inflater.inflate(band.array(), length, rawLength - length);
+                if (inflated == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                  throw new IOException("Corrupt raster band at row " + y0);
+                }
+                length += inflated;
+              }
+              if (length != rawLength) {
+                throw new IOException("Corrupt raster band at row " + y0);
+              }
+            }
+            catch (DataFormatException ex) {
+              throw new IOException(ex);
+            }
+          }
+          else {
+            band.limit(rawLength);
+            readFully(channel, band);
+          }
+          band.position(0);
+          for (int y = y0; y < y1; y++) {
+            for (int x = 0; x < width; x++) {
+              float red = band.getFloat();
+              float green = band.getFloat();
+              float blue = band.getFloat();
+              int count = band.getInt();
+              if (pAdd) {
+                if (count == 0) {
+                  continue;
+                }
+                pRaster.readRasterPoint(x, y, rp);
+                red += (float) rp.red;
+                green += (float) rp.green;
+                blue += (float) rp.blue;
+                count += (int) rp.count;
+              }
+              raster.writeRawPoint(x, y, red, green, blue, count);
+            }
+          }
+        }
+      }
+      finally {
+        if (inflater != null) {
+          inflater.end();
+        }
+      }
+    }
+
+    @Override
+    public void close() throws IOException {
+      file.close();
+    }
+  }
+
+}
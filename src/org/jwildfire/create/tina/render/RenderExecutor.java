@@ -0,0 +1,215 @@
+/*
+  JWildfire - an image and animation processor written in Java 
+  Copyright (C) 1995-2015 Andreas Maschke
+
+  This is free software; you can redistribute it and/or modify it under the terms of the GNU Lesser 
+  General Public License as published by the Free Software Foundation; either version 2.1 of the 
+  License, or (at your option) any later version.
+ 
+  This software is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without 
+  even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU 
+  Lesser General Public License for more details.
+
+  You should have received a copy of the GNU Lesser General Public License along with this software; 
+  if not, write to the Free Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+  02110-1301 USA, or see the FSF site: http://www.fsf.org.
+*/
+package org.jwildfire.create.tina.render;
+
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.jwildfire.base.Prefs;
+
+// Process-wide pool for all finite render work (iteration and image threads of the FlameRenderer, batch jobs,
+// previews), so threads and their JIT state are reused between renders. It is a work-stealing pool with a
+// fixed parallelism; waiting for other render tasks is done as a managed block, so the pool adds a spare
+// thread instead of deadlocking when a render task waits for the threads it started.
+public class RenderExecutor {
+  private static final String THREAD_NAME_PREFIX = "JWildfire-Render-";
+  private static RenderExecutor instance;
+
+  private final ForkJoinPool pool;
+  private final AtomicInteger threadCount = new AtomicInteger();
+  private final AtomicInteger peakLoad = new AtomicInteger();
+
+  public static synchronized RenderExecutor getInstance() {
+    if (instance == null) {
+      int parallelism = Math.max(Runtime.getRuntime().availableProcessors(), Prefs.getPrefs().getTinaRenderThreads());
+      instance = new RenderExecutor(parallelism);
+    }
+    return instance;
+  }
+
+  private RenderExecutor(int pParallelism) {
+    pool = new ForkJoinPool(pParallelism, new ForkJoinPool.ForkJoinWorkerThreadFactory() {
+      @Override
+      public ForkJoinWorkerThread newThread(ForkJoinPool pPool) {
+        ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pPool);
+        thread.setName(THREAD_NAME_PREFIX + threadCount.incrementAndGet());
+        return thread;
+      }
+    }, null, true);
+  }
+
+  public void execute(Runnable pTask) {
+    pool.execute(pTask);
+    updatePeakLoad();
+  }
+
+  public <T> Future<T> submit(Callable<T> pTask) {
+    Future<T> res = pool.submit(pTask);
+    updatePeakLoad();
+    return res;
+  }
+
+  public Future<?> submit(Runnable pTask) {
+    Future<?> res = pool.submit(pTask);
+    updatePeakLoad();
+    return res;
+  }
+
+  // Runs all tasks in parallel and returns when all are finished. The calling thread runs the first task itself.
+  public void runAll(List<? extends Runnable> pTasks) {
+    if (pTasks.size() == 1) {
+      pTasks.get(0).run();
+      return;
+    }
+    CountDownLatch done = new CountDownLatch(pTasks.size() - 1);
+    for (int i = 1; i < pTasks.size(); i++) {
+      execute(new CountDownRunnable(pTasks.get(i), done));
+    }
+    try {
+      pTasks.get(0).run();
+    }
+    finally {
+      awaitUninterruptibly(done);
+    }
+  }
+
+  public boolean await(CountDownLatch pLatch, long pTimeout, TimeUnit pUnit) throws InterruptedException {
+    LatchBlocker blocker = new LatchBlocker(pLatch, pUnit.toNanos(pTimeout));
+    ForkJoinPool.managedBlock(blocker);
+    return pLatch.getCount() == 0;
+  }
+
+  public void awaitUninterruptibly(CountDownLatch pLatch) {
+    boolean interrupted = false;
+    while (true) {
+      try {
+        ForkJoinPool.managedBlock(new LatchBlocker(pLatch, -1));
+        break;
+      }
+      catch (InterruptedException ex) {
+        interrupted = true;
+      }
+    }
+    if (interrupted) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private void updatePeakLoad() {
+    int load = getLoad();
+    while (true) {
+      int peak = peakLoad.get();
+      if (load <= peak || peakLoad.compareAndSet(peak, load)) {
+        break;
+      }
+    }
+  }
+
+  public int getParallelism() {
+    return pool.getParallelism();
+  }
+
+  public int getPoolSize() {
+    return pool.getPoolSize();
+  }
+
+  public int getActiveThreadCount() {
+    return pool.getActiveThreadCount();
+  }
+
+  public int getQueuedTaskCount() {
+    return (int) Math.min(Integer.MAX_VALUE, pool.getQueuedTaskCount() + pool.getQueuedSubmissionCount());
+  }
+
+  // running and waiting tasks
+  public int getLoad() {
+    return getActiveThreadCount() + getQueuedTaskCount();
+  }
+
+  // 1.0 means all threads are busy, values above 1.0 mean that tasks are waiting for a thread
+  public double getSaturation() {
+    return (double) getLoad() / (double) getParallelism();
+  }
+
+  public double getPeakSaturation() {
+    return (double) peakLoad.get() / (double) getParallelism();
+  }
+
+  public void resetPeakSaturation() {
+    peakLoad.set(0);
+  }
+
+  @Override
+  public String toString() {
+    return "parallelism " + getParallelism() + ", threads " + getPoolSize() + ", active " + getActiveThreadCount() + ", queued " + getQueuedTaskCount() + ", saturation " + Math.round(getSaturation() * 100.0) + "% (peak " + Math.round(getPeakSaturation() * 100.0) + "%)";
+  }
+
+  public static class CountDownRunnable implements Runnable {
+    private final Runnable runnable;
+    private final CountDownLatch latch;
+
+    public CountDownRunnable(Runnable pRunnable, CountDownLatch pLatch) {
+      runnable = pRunnable;
+      latch = pLatch;
+    }
+
+    @Override
+    public void run() {
+      try {
+        runnable.run();
+      }
+      finally {
+        latch.countDown();
+      }
+    }
+  }
+
+  private static class LatchBlocker implements ForkJoinPool.ManagedBlocker {
+    private final CountDownLatch latch;
+    private final long deadline;
+    private final boolean timed;
+
+    public LatchBlocker(CountDownLatch pLatch, long pTimeoutNanos) {
+      latch = pLatch;
+      timed = pTimeoutNanos >= 0;
+      deadline = timed ? System.nanoTime() + pTimeoutNanos : 0;
+    }
+
+    @Override
+    public boolean block() throws InterruptedException {
+      if (timed) {
+        latch.await(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+      }
+      else {
+        latch.await();
+      }
+      return true;
+    }
+
+    @Override
+    public boolean isReleasable() {
+      return latch.getCount() == 0 || (timed && System.nanoTime() >= deadline);
+    }
+  }
+
+}
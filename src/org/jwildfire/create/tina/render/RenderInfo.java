@@ -27,6 +27,12 @@ public class RenderInfo implements Assignable<RenderInfo>, Serializable {
   private int imageWidth;
   private int imageHeight;
   private RenderMode renderMode = RenderMode.PRODUCTION;
+  private boolean seeded;
+  private long masterSeed;
+  private double convergenceThreshold;
+  private double maxSampleDensity;
+  private long renderTimeBudget;
+  private boolean continuousMotionBlur;
 
   protected RenderInfo() {
 
@@ -81,6 +87,12 @@ public class RenderInfo implements Assignable<RenderInfo>, Serializable {
     renderHDRIntensityMap = pSrc.renderHDRIntensityMap;
     imageWidth = pSrc.imageWidth;
     imageHeight = pSrc.imageHeight;
+    seeded = pSrc.seeded;
+    masterSeed = pSrc.masterSeed;
+    convergenceThreshold = pSrc.convergenceThreshold;
+    maxSampleDensity = pSrc.maxSampleDensity;
+    renderTimeBudget = pSrc.renderTimeBudget;
+    continuousMotionBlur = pSrc.continuousMotionBlur;
   }
 
   @Override
@@ -93,7 +105,9 @@ public class RenderInfo implements Assignable<RenderInfo>, Serializable {
   @Override
   public boolean isEqual(RenderInfo pSrc) {
     if (renderHDR != pSrc.renderHDR || renderHDRIntensityMap != pSrc.renderHDRIntensityMap ||
-        imageWidth != pSrc.imageWidth || imageHeight != pSrc.imageHeight) {
+        imageWidth != pSrc.imageWidth || imageHeight != pSrc.imageHeight || seeded != pSrc.seeded || masterSeed != pSrc.masterSeed ||
+        convergenceThreshold != pSrc.convergenceThreshold || maxSampleDensity != pSrc.maxSampleDensity || renderTimeBudget != pSrc.renderTimeBudget ||
+        continuousMotionBlur != pSrc.continuousMotionBlur) {
       return false;
     }
     return true;
@@ -107,4 +121,60 @@ public class RenderInfo implements Assignable<RenderInfo>, Serializable {
     this.renderMode = renderMode;
   }
 
+  public boolean isSeeded() {
+    return seeded;
+  }
+
+  public long getMasterSeed() {
+    return masterSeed;
+  }
+
+  // A seeded render is reproducible: the same flame, seed, size and number of threads give the same image
+  public void setMasterSeed(long pMasterSeed) {
+    masterSeed = pMasterSeed;
+    seeded = true;
+  }
+
+  public void clearMasterSeed() {
+    masterSeed = 0;
+    seeded = false;
+  }
+
+  public boolean isAdaptive() {
+    return convergenceThreshold > 0.0;
+  }
+
+  // An adaptive render does not iterate a fixed number of samples, but stops as soon as the estimated noise
+  // (see ConvergenceEstimator) of every tile is below pConvergenceThreshold (0.01 is a good start), when the
+  // sample density reaches pMaxSampleDensity (<= 0: 4 times the sample density of the flame), or when the
+  // time budget is used up (<= 0: no limit). The achieved quality is reported by RenderedFlame.getConvergenceInfo().
+  public void setAdaptive(double pConvergenceThreshold, double pMaxSampleDensity, long pRenderTimeBudgetMillis) {
+    convergenceThreshold = pConvergenceThreshold;
+    maxSampleDensity = pMaxSampleDensity;
+    renderTimeBudget = pRenderTimeBudgetMillis;
+  }
+
+  public double getConvergenceThreshold() {
+    return convergenceThreshold;
+  }
+
+  public double getMaxSampleDensity() {
+    return maxSampleDensity;
+  }
+
+  public long getRenderTimeBudget() {
+    return renderTimeBudget;
+  }
+
+  public boolean isContinuousMotionBlur() {
+    return continuousMotionBlur;
+  }
+
+  // With continuous motion blur every walker samples its own time inside the blur interval, instead of
+  // iterating one evaluated copy of the flame per blur step (see MotionBlurTrack). Flames with motion curves
+  // which can not be interpolated this way are still rendered with the discrete blur steps.
+  public void setContinuousMotionBlur(boolean pContinuousMotionBlur) {
+    continuousMotionBlur = pContinuousMotionBlur;
+  }
+
 }
@@ -23,6 +23,9 @@ public class RenderedFlame {
   private SimpleImage image;
   private SimpleHDRImage hdrImage;
   private SimpleHDRImage hdrHeightMap;
+  private ConvergenceInfo convergenceInfo;
+  private long sampleCount;
+  private long iterationTime;
 
   public SimpleImage getImage() {
     return image;
@@ -46,4 +49,31 @@ public class RenderedFlame {
     }
   }
 
+  // only available for adaptive renders
+  public ConvergenceInfo getConvergenceInfo() {
+    return convergenceInfo;
+  }
+
+  public void setConvergenceInfo(ConvergenceInfo pConvergenceInfo) {
+    convergenceInfo = pConvergenceInfo;
+  }
+
+  // samples iterated into the raster and the time (in ms) this took, without the creation of the image
+  public void setIterationStats(long pSampleCount, long pIterationTime) {
+    sampleCount = pSampleCount;
+    iterationTime = pIterationTime;
+  }
+
+  public long getSampleCount() {
+    return sampleCount;
+  }
+
+  public long getIterationTime() {
+    return iterationTime;
+  }
+
+  public double getSamplesPerSecond() {
+    return iterationTime > 0 ? sampleCount * 1000.0 / iterationTime : 0.0;
+  }
+
 }
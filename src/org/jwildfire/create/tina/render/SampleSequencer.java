@@ -0,0 +1,105 @@
+/*
+  JWildfire - an image and animation processor written in Java 
+  Copyright (C) 1995-2015 Andreas Maschke
+
+  This is free software; you can redistribute it and/or modify it under the terms of the GNU Lesser 
+  General Public License as published by the Free Software Foundation; either version 2.1 of the 
+  License, or (at your option) any later version.
+ 
+  This software is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without 
+  even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU 
+  Lesser General Public License for more details.
+
+  You should have received a copy of the GNU Lesser General Public License along with this software; 
+  if not, write to the Free Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+  02110-1301 USA, or see the FSF site: http://www.fsf.org.
+*/
+package org.jwildfire.create.tina.render;
+
+import java.util.concurrent.ForkJoinPool;
+
+// Lets the render threads of a seeded render add their samples to the raster in a fixed round-robin order.
+// The float sums of the raster depend on the order of addition, so this makes the raster (and the image)
+// independent of the thread timing. Threads which are done leave the rotation, also in their turn.
+// Waiting is done as a managed block, so the render pool adds a spare thread when all pool threads wait.
+public class SampleSequencer {
+  private final boolean[] active;
+  private int turn;
+
+  public SampleSequencer(int pThreadCount) {
+    active = new boolean[pThreadCount];
+    for (int i = 0; i < pThreadCount; i++) {
+      active[i] = true;
+    }
+  }
+
+  public void acquire(int pThreadId) {
+    boolean interrupted = false;
+    while (true) {
+      try {
+        ForkJoinPool.managedBlock(new TurnBlocker(pThreadId));
+        break;
+      }
+      catch (InterruptedException ex) {
+        interrupted = true;
+      }
+    }
+    if (interrupted) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  public synchronized void release(int pThreadId) {
+    if (turn != pThreadId) {
+      throw new IllegalStateException("Thread " + pThreadId + " does not have the turn");
+    }
+    passTurn();
+  }
+
+  public void leave(int pThreadId) {
+    acquire(pThreadId);
+    synchronized (this) {
+      active[pThreadId] = false;
+      passTurn();
+    }
+  }
+
+  private void passTurn() {
+    for (int i = 1; i <= active.length; i++) {
+      int next = (turn + i) % active.length;
+      if (active[next]) {
+        turn = next;
+        break;
+      }
+    }
+    notifyAll();
+  }
+
+  private synchronized boolean hasTurn(int pThreadId) {
+    return turn == pThreadId;
+  }
+
+  private class TurnBlocker implements ForkJoinPool.ManagedBlocker {
+    private final int threadId;
+
+    public TurnBlocker(int pThreadId) {
+      threadId = pThreadId;
+    }
+
+    @Override
+    public boolean block() throws InterruptedException {
+      synchronized (SampleSequencer.this) {
+        while (turn != threadId) {
+          SampleSequencer.this.wait();
+        }
+      }
+      return true;
+    }
+
+    @Override
+    public boolean isReleasable() {
+      return hasTurn(threadId);
+    }
+  }
+
+}
@@ -18,6 +18,8 @@ package org.jwildfire.create.tina.render;
 
 import org.jwildfire.create.tina.base.Flame;
 import org.jwildfire.create.tina.base.raster.AbstractRaster;
+import org.jwildfire.create.tina.base.raster.RasterOccupancy;
+import org.jwildfire.create.tina.base.raster.RasterWithOccupancy;
 import org.jwildfire.create.tina.random.AbstractRandomGenerator;
 import org.jwildfire.image.Pixel;
 
@@ -76,4 +78,24 @@ public class SampleTonemapper {
     logDensityFilter = newLogDensityFilter;
   }
 
+  public RasterOccupancy getOccupancy() {
+    return raster instanceof RasterWithOccupancy ? ((RasterWithOccupancy) raster).getOccupancy() : null;
+  }
+
+  public int getRasterWidth() {
+    return rasterWidth;
+  }
+
+  public int getRasterHeight() {
+    return rasterHeight;
+  }
+
+  public int getImageWidth() {
+    return imageWidth;
+  }
+
+  public int getImageHeight() {
+    return imageHeight;
+  }
+
 }
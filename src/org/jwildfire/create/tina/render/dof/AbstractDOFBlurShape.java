@@ -120,7 +120,7 @@ public abstract class AbstractDOFBlurShape implements DOFBlurShape {
       return randGen.random();
     }
     else {
-      return randGen.random() <= fade ? Math.random() : 1.0;
+      return randGen.random() <= fade ? randGen.random() : 1.0;
     }
   }
 
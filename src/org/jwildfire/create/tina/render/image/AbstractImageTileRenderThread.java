@@ -14,60 +14,29 @@
   if not, write to the Free Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
   02110-1301 USA, or see the FSF site: http://www.fsf.org.
 */
-package org.jwildfire.create.tina.render.postdof;
+package org.jwildfire.create.tina.render.image;
 
-public class PostDOFSample {
-  private final int x, y;
-  private final float z, dofDist;
-  private float r, g, b;
+public abstract class AbstractImageTileRenderThread extends AbstractImageRenderThread {
+  private final ImageTiles tiles;
 
-  public PostDOFSample(int x, int y, float z, float dofDist, float r, float g, float b) {
-    this.x = x;
-    this.y = y;
-    this.z = z;
-    this.dofDist = dofDist;
-    this.r = r;
-    this.g = g;
-    this.b = b;
+  public AbstractImageTileRenderThread(ImageTiles pTiles) {
+    tiles = pTiles;
   }
 
-  public int getX() {
-    return x;
+  @Override
+  public void run() {
+    setDone(false);
+    try {
+      int tile;
+      while ((tile = tiles.nextTile()) >= 0) {
+        renderTile(tiles.getStartX(tile), tiles.getEndX(tile), tiles.getStartY(tile), tiles.getEndY(tile));
+      }
+    }
+    finally {
+      setDone(true);
+    }
   }
 
-  public int getY() {
-    return y;
-  }
-
-  public float getZ() {
-    return z;
-  }
-
-  public float getDofDist() {
-    return dofDist;
-  }
-
-  public float getR() {
-    return r;
-  }
-
-  public float getG() {
-    return g;
-  }
-
-  public float getB() {
-    return b;
-  }
-
-  public void setR(float r) {
-    this.r = r;
-  }
-
-  public void setG(float g) {
-    this.g = g;
-  }
+  protected abstract void renderTile(int pStartX, int pEndX, int pStartY, int pEndY);
 
-  public void setB(float b) {
-    this.b = b;
-  }
 }
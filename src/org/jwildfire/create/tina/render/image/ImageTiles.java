@@ -0,0 +1,86 @@
+/*
+  JWildfire - an image and animation processor written in Java 
+  Copyright (C) 1995-2016 Andreas Maschke
+
+  This is free software; you can redistribute it and/or modify it under the terms of the GNU Lesser 
+  General Public License as published by the Free Software Foundation; either version 2.1 of the 
+  License, or (at your option) any later version.
+ 
+  This software is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without 
+  even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU 
+  Lesser General Public License for more details.
+
+  You should have received a copy of the GNU Lesser General Public License along with this software; 
+  if not, write to the Free Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+  02110-1301 USA, or see the FSF site: http://www.fsf.org.
+*/
+package org.jwildfire.create.tina.render.image;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Splits an image into small tiles which the image render threads fetch one after another, so threads
+// which got cheap (e.g. empty) regions just take more tiles instead of waiting for the others.
+public class ImageTiles {
+  public static final int DEFAULT_TILE_SIZE = 64;
+
+  private final int imageWidth, imageHeight;
+  private final int tileWidth, tileHeight;
+  private final int tileCols, tileRows;
+  private final AtomicInteger nextTile = new AtomicInteger();
+
+  public ImageTiles(int pImageWidth, int pImageHeight) {
+    this(pImageWidth, pImageHeight, DEFAULT_TILE_SIZE, DEFAULT_TILE_SIZE);
+  }
+
+  public ImageTiles(int pImageWidth, int pImageHeight, int pTileWidth, int pTileHeight) {
+    imageWidth = pImageWidth;
+    imageHeight = pImageHeight;
+    tileWidth = Math.max(1, pTileWidth);
+    tileHeight = Math.max(1, pTileHeight);
+    tileCols = (imageWidth + tileWidth - 1) / tileWidth;
+    tileRows = (imageHeight + tileHeight - 1) / tileHeight;
+  }
+
+  // returns -1 when all tiles are taken
+  public int nextTile() {
+    int tile = nextTile.getAndIncrement();
+    return tile < getTileCount() ? tile : -1;
+  }
+
+  public int getTileCount() {
+    return tileCols * tileRows;
+  }
+
+  public int getImageWidth() {
+    return imageWidth;
+  }
+
+  public int getImageHeight() {
+    return imageHeight;
+  }
+
+  public int getTileHeight() {
+    return tileHeight;
+  }
+
+  public int getTileCols() {
+    return tileCols;
+  }
+
+  public int getStartX(int pTile) {
+    return (pTile % tileCols) * tileWidth;
+  }
+
+  public int getEndX(int pTile) {
+    return Math.min(imageWidth, getStartX(pTile) + tileWidth);
+  }
+
+  public int getStartY(int pTile) {
+    return (pTile / tileCols) * tileHeight;
+  }
+
+  public int getEndY(int pTile) {
+    return Math.min(imageHeight, getStartY(pTile) + tileHeight);
+  }
+
+}
@@ -0,0 +1,91 @@
+/*
+  JWildfire - an image and animation processor written in Java 
+  Copyright (C) 1995-2016 Andreas Maschke
+
+  This is free software; you can redistribute it and/or modify it under the terms of the GNU Lesser 
+  General Public License as published by the Free Software Foundation; either version 2.1 of the 
+  License, or (at your option) any later version.
+ 
+  This software is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without 
+  even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU 
+  Lesser General Public License for more details.
+
+  You should have received a copy of the GNU Lesser General Public License along with this software; 
+  if not, write to the Free Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+  02110-1301 USA, or see the FSF site: http://www.fsf.org.
+*/
+package org.jwildfire.create.tina.render.image;
+
+import java.io.IOException;
+
+import org.jwildfire.io.FloatScanlineWriter;
+
+// Collects the linear RGBA output of the image tile threads in bands of one tile row. Tiles are taken
+// in row-major order, so a band is complete soon after its last tile was fetched; complete bands are
+// handed to the writer in order and then released, so only a few bands are held in memory at a time.
+public class LinearImageRows {
+  private final FloatScanlineWriter writer;
+  private final int width;
+  private final int height;
+  private final int bandHeight;
+  private final int tileCols;
+  private final float[][] bands;
+  private final int[] doneTiles;
+  private int nextBand;
+  private IOException error;
+
+  public LinearImageRows(ImageTiles pTiles, FloatScanlineWriter pWriter) {
+    if (pWriter.getWidth() != pTiles.getImageWidth() || pWriter.getHeight() != pTiles.getImageHeight()) {
+      throw new IllegalArgumentException(pWriter.getWidth() + "x" + pWriter.getHeight());
+    }
+    writer = pWriter;
+    width = pTiles.getImageWidth();
+    height = pTiles.getImageHeight();
+    bandHeight = pTiles.getTileHeight();
+    tileCols = pTiles.getTileCols();
+    int bandCount = (height + bandHeight - 1) / bandHeight;
+    bands = new float[bandCount][];
+    doneTiles = new int[bandCount];
+  }
+
+  // returns the buffer of the band which contains the row pY, see getOffset()
+  public synchronized float[] getBand(int pY) {
+    int band = pY / bandHeight;
+    if (bands[band] == null) {
+      int rows = Math.min(height, (band + 1) * bandHeight) - band * bandHeight;
+      bands[band] = new float[rows * width * 4];
+    }
+    return bands[band];
+  }
+
+  public int getOffset(int pX, int pY) {
+    return ((pY % bandHeight) * width + pX) * 4;
+  }
+
+  public synchronized void tileDone(int pStartY) {
+    doneTiles[pStartY / bandHeight]++;
+    while (nextBand < bands.length && doneTiles[nextBand] == tileCols) {
+      float[] band = bands[nextBand];
+      bands[nextBand] = null;
+      if (error == null) {
+        try {
+          for (int offset = 0; offset < band.length; offset += width * 4) {
+            writer.writeScanline(band, offset);
+          }
+        }
+        catch (IOException ex) {
+          error = ex;
+        }
+      }
+      nextBand++;
+    }
+  }
+
+  // must be called after all tiles are rendered, reports the first error of the writer
+  public synchronized void finish() throws IOException {
+    if (error != null) {
+      throw error;
+    }
+  }
+
+}
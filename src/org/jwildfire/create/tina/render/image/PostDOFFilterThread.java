@@ -14,33 +14,21 @@
   if not, write to the Free Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
   02110-1301 USA, or see the FSF site: http://www.fsf.org.
 */
-package org.jwildfire.create.tina.render.postdof;
+package org.jwildfire.create.tina.render.image;
 
-public class PostDOFFilteredSample {
-  private final int x, y;
-  private final PostDOFSample sample;
-  private final double intensity;
+import org.jwildfire.create.tina.render.postdof.PostDOFBuffer;
 
-  public PostDOFFilteredSample(int x, int y, PostDOFSample sample, double intensity) {
-    this.x = x;
-    this.y = y;
-    this.sample = sample;
-    this.intensity = intensity;
-  }
-
-  public int getX() {
-    return x;
-  }
+public class PostDOFFilterThread extends AbstractImageTileRenderThread {
+  private final PostDOFBuffer buffer;
 
-  public int getY() {
-    return y;
+  public PostDOFFilterThread(ImageTiles pTiles, PostDOFBuffer pBuffer) {
+    super(pTiles);
+    buffer = pBuffer;
   }
 
-  public PostDOFSample getSample() {
-    return sample;
+  @Override
+  protected void renderTile(int pStartX, int pEndX, int pStartY, int pEndY) {
+    buffer.filterTile(pStartX, pEndX, pStartY, pEndY);
   }
 
-  public double getIntensity() {
-    return intensity;
-  }
 }
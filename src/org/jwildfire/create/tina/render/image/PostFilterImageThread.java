@@ -22,8 +22,7 @@ import org.jwildfire.base.mathlib.MathLib;
 import org.jwildfire.image.Pixel;
 import org.jwildfire.image.SimpleImage;
 
-public class PostFilterImageThread extends AbstractImageRenderThread {
-  private final int startRow, endRow;
+public class PostFilterImageThread extends AbstractImageTileRenderThread {
   private final SimpleImage input, output;
   private final boolean showHits;
   private final Pixel toolPixel1 = new Pixel();
@@ -41,30 +40,22 @@ public class PostFilterImageThread extends AbstractImageRenderThread {
     }
   }
 
-  public PostFilterImageThread(int pStartRow, int pEndRow, SimpleImage pInput, SimpleImage pOutput, double pThreshold) {
+  public PostFilterImageThread(ImageTiles pTiles, SimpleImage pInput, SimpleImage pOutput, double pThreshold) {
+    super(pTiles);
     input = pInput;
     output = pOutput;
-    startRow = pStartRow;
-    endRow = pEndRow;
     threshold = -MathLib.log(pThreshold) / 2.0;
     showHits = Prefs.getPrefs().isDevelopmentMode();
   }
 
   @Override
-  public void run() {
-    setDone(false);
-    try {
-      doFilter3();
-    }
-    finally {
-      setDone(true);
-    }
+  protected void renderTile(int pStartX, int pEndX, int pStartY, int pEndY) {
+    doFilter3(pStartX, pEndX, pStartY, pEndY);
   }
 
-  private void doFilter3() {
-    hits = 0;
-    for (int y = startRow; y < endRow; y++) {
-      for (int x = 0; x < input.getImageWidth(); x++) {
+  private void doFilter3(int pStartX, int pEndX, int pStartY, int pEndY) {
+    for (int y = pStartY; y < pEndY; y++) {
+      for (int x = pStartX; x < pEndX; x++) {
         PixelValue pCenter = getPixel(input, toolPixel1, x, y);
         PixelValue pLeft = getPixel(input, toolPixel1, x - 1, y);
         PixelValue pRight = getPixel(input, toolPixel1, x + 1, y);
@@ -21,24 +21,24 @@ import org.jwildfire.create.tina.render.GammaCorrectedHDRPoint;
 import org.jwildfire.create.tina.render.GammaCorrectionFilter;
 import org.jwildfire.create.tina.render.LogDensityFilter;
 import org.jwildfire.create.tina.render.LogDensityPoint;
+import org.jwildfire.create.tina.render.LogDensityTile;
 import org.jwildfire.create.tina.render.postdof.PostDOFCalculator;
 import org.jwildfire.image.SimpleHDRImage;
 
-public class RenderHDRImageThread extends AbstractImageRenderThread {
+public class RenderHDRImageThread extends AbstractImageTileRenderThread {
   private final LogDensityFilter logDensityFilter;
   private final GammaCorrectionFilter gammaCorrectionFilter;
 
-  private final int startRow, endRow;
   private final LogDensityPoint logDensityPnt;
+  private final LogDensityTile logDensityTile = new LogDensityTile();
   private final GammaCorrectedHDRPoint rbgPoint;
   private final SimpleHDRImage img;
   private final PostDOFCalculator dofCalculator;
 
-  public RenderHDRImageThread(Flame pFlame, LogDensityFilter pLogDensityFilter, GammaCorrectionFilter pGammaCorrectionFilter, int pStartRow, int pEndRow, SimpleHDRImage pImg, PostDOFCalculator pDofCalculator) {
+  public RenderHDRImageThread(Flame pFlame, LogDensityFilter pLogDensityFilter, GammaCorrectionFilter pGammaCorrectionFilter, ImageTiles pTiles, SimpleHDRImage pImg, PostDOFCalculator pDofCalculator) {
+    super(pTiles);
     logDensityFilter = pLogDensityFilter;
     gammaCorrectionFilter = pGammaCorrectionFilter;
-    startRow = pStartRow;
-    endRow = pEndRow;
     logDensityPnt = new LogDensityPoint(pFlame.getActiveLightCount());
     rbgPoint = new GammaCorrectedHDRPoint();
     img = pImg;
@@ -46,23 +46,18 @@ public class RenderHDRImageThread extends AbstractImageRenderThread {
   }
 
   @Override
-  public void run() {
-    setDone(false);
-    try {
-      for (int i = startRow; i < endRow; i++) {
-        for (int j = 0; j < img.getImageWidth(); j++) {
-          logDensityFilter.transformPoint(logDensityPnt, j, i);
-          gammaCorrectionFilter.transformPointHDR(logDensityPnt, rbgPoint, j, i);
-          if (dofCalculator != null) {
-            dofCalculator.addSample(j, i, rbgPoint.red, rbgPoint.green, rbgPoint.blue, logDensityPnt.dofDist, logDensityPnt.rp.zBuf);
-          }
-          img.setRGB(j, i, rbgPoint.red, rbgPoint.green, rbgPoint.blue);
+  protected void renderTile(int pStartX, int pEndX, int pStartY, int pEndY) {
+    logDensityFilter.prepareTile(logDensityTile, pStartX, pEndX, pStartY, pEndY);
+    for (int i = pStartY; i < pEndY; i++) {
+      for (int j = pStartX; j < pEndX; j++) {
+        logDensityFilter.transformPoint(logDensityTile, logDensityPnt, j, i);
+        gammaCorrectionFilter.transformPointHDR(logDensityPnt, rbgPoint, j, i);
+        if (dofCalculator != null) {
+          dofCalculator.addSample(j, i, rbgPoint.red, rbgPoint.green, rbgPoint.blue, logDensityPnt.dofDist, logDensityPnt.rp.zBuf);
         }
+        img.setRGB(j, i, rbgPoint.red, rbgPoint.green, rbgPoint.blue);
       }
     }
-    finally {
-      setDone(true);
-    }
   }
 
 }
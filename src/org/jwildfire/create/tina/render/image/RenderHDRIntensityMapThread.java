@@ -19,37 +19,32 @@ package org.jwildfire.create.tina.render.image;
 import org.jwildfire.create.tina.base.Flame;
 import org.jwildfire.create.tina.render.LogDensityFilter;
 import org.jwildfire.create.tina.render.LogDensityPoint;
+import org.jwildfire.create.tina.render.LogDensityTile;
 import org.jwildfire.image.SimpleHDRImage;
 
-public class RenderHDRIntensityMapThread extends AbstractImageRenderThread {
+public class RenderHDRIntensityMapThread extends AbstractImageTileRenderThread {
   private final LogDensityFilter logDensityFilter;
 
-  private final int startRow, endRow;
   private final LogDensityPoint logDensityPnt;
+  private final LogDensityTile logDensityTile = new LogDensityTile();
   private final SimpleHDRImage img;
 
-  public RenderHDRIntensityMapThread(Flame pFlame, LogDensityFilter pLogDensityFilter, int pStartRow, int pEndRow, SimpleHDRImage pImg) {
+  public RenderHDRIntensityMapThread(Flame pFlame, LogDensityFilter pLogDensityFilter, ImageTiles pTiles, SimpleHDRImage pImg) {
+    super(pTiles);
     logDensityFilter = pLogDensityFilter;
-    startRow = pStartRow;
-    endRow = pEndRow;
     logDensityPnt = new LogDensityPoint(pFlame.getActiveLightCount());
     img = pImg;
   }
 
   @Override
-  public void run() {
-    setDone(false);
-    try {
-      for (int i = startRow; i < endRow; i++) {
-        for (int j = 0; j < img.getImageWidth(); j++) {
-          logDensityFilter.transformPoint(logDensityPnt, j, i);
-          img.setRGB(j, i, (float) logDensityPnt.intensity, (float) logDensityPnt.intensity, (float) logDensityPnt.intensity);
-        }
+  protected void renderTile(int pStartX, int pEndX, int pStartY, int pEndY) {
+    logDensityFilter.prepareTile(logDensityTile, pStartX, pEndX, pStartY, pEndY);
+    for (int i = pStartY; i < pEndY; i++) {
+      for (int j = pStartX; j < pEndX; j++) {
+        logDensityFilter.transformPoint(logDensityTile, logDensityPnt, j, i);
+        img.setRGB(j, i, (float) logDensityPnt.intensity, (float) logDensityPnt.intensity, (float) logDensityPnt.intensity);
       }
     }
-    finally {
-      setDone(true);
-    }
   }
 
 }
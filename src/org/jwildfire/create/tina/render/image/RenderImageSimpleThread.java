@@ -45,12 +45,15 @@ public class RenderImageSimpleThread extends AbstractImageRenderThread {
   public void run() {
     setDone(false);
     try {
+      int width = img.getImageWidth();
+      int[] line = new int[width];
       for (int i = startRow; i < endRow; i++) {
-        for (int j = 0; j < img.getImageWidth(); j++) {
+        for (int j = 0; j < width; j++) {
           logDensityFilter.transformPointSimple(logDensityPnt, j, i);
           gammaCorrectionFilter.transformPoint(logDensityPnt, rbgPoint, j, i);
-          img.setARGB(j, i, rbgPoint.alpha, rbgPoint.red, rbgPoint.green, rbgPoint.blue);
+          line[j] = (rbgPoint.alpha << 24) | (rbgPoint.red << 16) | (rbgPoint.green << 8) | rbgPoint.blue;
         }
+        img.setARGBRow(i, 0, width, line);
       }
     }
     finally {
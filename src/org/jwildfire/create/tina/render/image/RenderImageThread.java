@@ -21,47 +21,67 @@ import org.jwildfire.create.tina.render.GammaCorrectedRGBPoint;
 import org.jwildfire.create.tina.render.GammaCorrectionFilter;
 import org.jwildfire.create.tina.render.LogDensityFilter;
 import org.jwildfire.create.tina.render.LogDensityPoint;
+import org.jwildfire.create.tina.render.LogDensityTile;
 import org.jwildfire.create.tina.render.postdof.PostDOFCalculator;
 import org.jwildfire.image.SimpleImage;
 
-public class RenderImageThread extends AbstractImageRenderThread {
+public class RenderImageThread extends AbstractImageTileRenderThread {
   private final LogDensityFilter logDensityFilter;
   private final GammaCorrectionFilter gammaCorrectionFilter;
 
-  private final int startRow, endRow;
   private final LogDensityPoint logDensityPnt;
+  private final LogDensityTile logDensityTile = new LogDensityTile();
   private final GammaCorrectedRGBPoint rbgPoint;
   private final SimpleImage img;
   private final PostDOFCalculator dofCalculator;
+  private final LinearImageRows linearRows;
+  private int[] line = new int[0];
 
-  public RenderImageThread(Flame pFlame, LogDensityFilter pLogDensityFilter, GammaCorrectionFilter pGammaCorrectionFilter, int pStartRow, int pEndRow, SimpleImage pImg, PostDOFCalculator pDofCalculator) {
+  public RenderImageThread(Flame pFlame, LogDensityFilter pLogDensityFilter, GammaCorrectionFilter pGammaCorrectionFilter, ImageTiles pTiles, SimpleImage pImg, PostDOFCalculator pDofCalculator) {
+    this(pFlame, pLogDensityFilter, pGammaCorrectionFilter, pTiles, pImg, pDofCalculator, null);
+  }
+
+  // pLinearRows is optional and receives the density points of the same pass, before the gamma curve, vibrancy and the
+  // background are applied, premultiplied with an alpha of their intensity
+  public RenderImageThread(Flame pFlame, LogDensityFilter pLogDensityFilter, GammaCorrectionFilter pGammaCorrectionFilter, ImageTiles pTiles, SimpleImage pImg, PostDOFCalculator pDofCalculator, LinearImageRows pLinearRows) {
+    super(pTiles);
     logDensityFilter = pLogDensityFilter;
     gammaCorrectionFilter = pGammaCorrectionFilter;
-    startRow = pStartRow;
-    endRow = pEndRow;
     logDensityPnt = new LogDensityPoint(pFlame.getActiveLightCount());
     rbgPoint = new GammaCorrectedRGBPoint();
     img = pImg;
     dofCalculator = pDofCalculator;
+    linearRows = pLinearRows;
   }
 
   @Override
-  public void run() {
-    setDone(false);
-    try {
-      for (int i = startRow; i < endRow; i++) {
-        for (int j = 0; j < img.getImageWidth(); j++) {
-          logDensityFilter.transformPoint(logDensityPnt, j, i);
-          gammaCorrectionFilter.transformPoint(logDensityPnt, rbgPoint, j, i);
-          if (dofCalculator != null) {
-            dofCalculator.addSample(j, i, rbgPoint.red, rbgPoint.green, rbgPoint.blue, logDensityPnt.dofDist, logDensityPnt.rp.zBuf);
-          }
-          img.setARGB(j, i, rbgPoint.alpha, rbgPoint.red, rbgPoint.green, rbgPoint.blue);
+  protected void renderTile(int pStartX, int pEndX, int pStartY, int pEndY) {
+    logDensityFilter.prepareTile(logDensityTile, pStartX, pEndX, pStartY, pEndY);
+    // a tile never spans more than one band
+    float[] band = linearRows != null ? linearRows.getBand(pStartY) : null;
+    if (line.length < pEndX - pStartX) {
+      line = new int[pEndX - pStartX];
+    }
+    for (int i = pStartY; i < pEndY; i++) {
+      for (int j = pStartX; j < pEndX; j++) {
+        logDensityFilter.transformPoint(logDensityTile, logDensityPnt, j, i);
+        gammaCorrectionFilter.transformPoint(logDensityPnt, rbgPoint, j, i);
+        if (dofCalculator != null) {
+          dofCalculator.addSample(j, i, rbgPoint.red, rbgPoint.green, rbgPoint.blue, logDensityPnt.dofDist, logDensityPnt.rp.zBuf);
+        }
+        line[j - pStartX] = (rbgPoint.alpha << 24) | (rbgPoint.red << 16) | (rbgPoint.green << 8) | rbgPoint.blue;
+        if (band != null) {
+          int offset = linearRows.getOffset(j, i);
+          band[offset] = (float) logDensityPnt.red;
+          band[offset + 1] = (float) logDensityPnt.green;
+          band[offset + 2] = (float) logDensityPnt.blue;
+          band[offset + 3] = (float) Math.min(1.0, logDensityPnt.intensity);
         }
       }
+      img.setARGBRow(i, pStartX, pEndX, line);
     }
-    finally {
-      setDone(true);
+    if (linearRows != null) {
+      linearRows.tileDone(pStartY);
     }
   }
 }
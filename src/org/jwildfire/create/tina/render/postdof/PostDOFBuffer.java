@@ -16,55 +16,190 @@
 */
 package org.jwildfire.create.tina.render.postdof;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import org.jwildfire.base.Tools;
+import org.jwildfire.base.mathlib.MathLib;
+import org.jwildfire.create.tina.render.filter.FilterKernel;
+import org.jwildfire.create.tina.render.filter.SineBlurFilterKernel;
 import org.jwildfire.image.SimpleHDRImage;
 import org.jwildfire.image.SimpleImage;
 
+// Post DOF in two passes without any shared lock:
+// 1. the image threads store the color and the quantized blur radius of each pixel (each pixel is written by one thread only),
+// 2. the pixels are blurred tile by tile: each tile gathers the precomputed kernels of all source pixels around it
+// into its own part of the output buffer, so the tiles can be processed in parallel and in any order.
 public class PostDOFBuffer {
+  // blur radii are quantized to 1/8 pixel below FINE_RADIUS and to steps of about 3% above
+  private static final double FINE_RADIUS = 4.0;
+  private static final int FINE_STEPS = 8;
+  private static final double COARSE_STEPS = 33.0;
+  private static final int FINE_INDEX_COUNT = (int) (FINE_RADIUS * FINE_STEPS);
+  private static final int NO_SAMPLE = -1;
+
   private final int width, height;
-  private final float[][] rBuf, gBuf, bBuf;
+  private final float[] srcR, srcG, srcB;
+  private final int[] srcKernel;
+  private final float[] rBuf, gBuf, bBuf;
+  private final FilterKernel filterKernel = new SineBlurFilterKernel();
+  private int[] srcKernelIdx;
+  private PostDOFKernel[] kernels;
+  private int maxKernelSize;
 
   public PostDOFBuffer(SimpleImage pImage) {
-    width = pImage.getImageWidth();
-    height = pImage.getImageHeight();
-    rBuf = new float[getWidth()][getHeight()];
-    gBuf = new float[getWidth()][getHeight()];
-    bBuf = new float[getWidth()][getHeight()];
+    this(pImage.getImageWidth(), pImage.getImageHeight());
   }
 
   public PostDOFBuffer(SimpleHDRImage pImage) {
-    width = pImage.getImageWidth();
-    height = pImage.getImageHeight();
-    rBuf = new float[getWidth()][getHeight()];
-    gBuf = new float[getWidth()][getHeight()];
-    bBuf = new float[getWidth()][getHeight()];
+    this(pImage.getImageWidth(), pImage.getImageHeight());
+  }
+
+  private PostDOFBuffer(int pWidth, int pHeight) {
+    width = pWidth;
+    height = pHeight;
+    int size = width * height;
+    srcR = new float[size];
+    srcG = new float[size];
+    srcB = new float[size];
+    srcKernel = new int[size];
+    Arrays.fill(srcKernel, NO_SAMPLE);
+    rBuf = new float[size];
+    gBuf = new float[size];
+    bBuf = new float[size];
+  }
+
+  public static int getRadiusIndex(double pPlainRadius) {
+    if (pPlainRadius < FINE_RADIUS) {
+      return (int) (pPlainRadius * FINE_STEPS + 0.5);
+    }
+    return FINE_INDEX_COUNT + (int) (MathLib.log(pPlainRadius / FINE_RADIUS) * COARSE_STEPS + 0.5);
+  }
+
+  public static double getRadius(int pRadiusIndex) {
+    if (pRadiusIndex <= FINE_INDEX_COUNT) {
+      return (double) pRadiusIndex / (double) FINE_STEPS;
+    }
+    return FINE_RADIUS * MathLib.exp((double) (pRadiusIndex - FINE_INDEX_COUNT) / COARSE_STEPS);
+  }
+
+  // pKernelKey is the radius index combined with the step mode, see createKernel()
+  public void setSample(int pX, int pY, float pR, float pG, float pB, int pKernelKey) {
+    if (pX >= 0 && pX < width && pY >= 0 && pY < height) {
+      int idx = pY * width + pX;
+      srcR[idx] = pR;
+      srcG[idx] = pG;
+      srcB[idx] = pB;
+      srcKernel[idx] = pKernelKey;
+    }
+  }
+
+  public static int getKernelKey(int pRadiusIndex, int pStepMode) {
+    return (pRadiusIndex << 2) | pStepMode;
   }
 
-  public void addColorToBuffer(int x, int y, PostDOFSample sample, double scale, double z) {
-    if (x >= 0 && x < getWidth() && y >= 0 && y < getHeight()) {
-      rBuf[x][y] += (float) (sample.getR() * scale);
-      gBuf[x][y] += (float) (sample.getG() * scale);
-      bBuf[x][y] += (float) (sample.getB() * scale);
+  private PostDOFKernel createKernel(int pKernelKey) {
+    double plainRadius = getRadius(pKernelKey >> 2);
+    int stepMode = pKernelKey & 3;
+    if (stepMode == PostDOFCalculator.STEP_MODE_DEFAULT) {
+      double radius = Tools.FTOI(plainRadius);
+      if (radius < 2.0) {
+        radius = 2.0;
+      }
+      return new PostDOFKernel(filterKernel, plainRadius, radius, PostDOFCalculator.getStepSize(radius));
+    }
+    else {
+      // enlarged bokeh radius, which covers the whole kernel
+      return new PostDOFKernel(filterKernel, plainRadius, plainRadius + 1.0, PostDOFCalculator.getBokehStepSize(stepMode));
+    }
+  }
+
+  // must be called after all samples were set and before filterTile()
+  public void prepareKernels() {
+    srcKernelIdx = new int[srcKernel.length];
+    Map<Integer, Integer> indexMap = new HashMap<>();
+    List<PostDOFKernel> kernelList = new ArrayList<>();
+    maxKernelSize = 0;
+    for (int i = 0; i < srcKernel.length; i++) {
+      int key = srcKernel[i];
+      if (key != NO_SAMPLE) {
+        Integer idx = indexMap.get(key);
+        if (idx == null) {
+          PostDOFKernel kernel = createKernel(key);
+          idx = kernelList.size();
+          kernelList.add(kernel);
+          indexMap.put(key, idx);
+          maxKernelSize = Math.max(maxKernelSize, kernel.getSize());
+        }
+        srcKernelIdx[i] = idx;
+      }
+      else {
+        srcKernelIdx[i] = NO_SAMPLE;
+      }
+    }
+    kernels = kernelList.toArray(new PostDOFKernel[kernelList.size()]);
+  }
+
+  public void filterTile(int pStartX, int pEndX, int pStartY, int pEndY) {
+    int srcStartX = Math.max(0, pStartX - maxKernelSize), srcEndX = Math.min(width, pEndX + maxKernelSize);
+    int srcStartY = Math.max(0, pStartY - maxKernelSize), srcEndY = Math.min(height, pEndY + maxKernelSize);
+    for (int sy = srcStartY; sy < srcEndY; sy++) {
+      for (int sx = srcStartX; sx < srcEndX; sx++) {
+        int srcIdx = sy * width + sx;
+        int kernelIdx = srcKernelIdx[srcIdx];
+        if (kernelIdx == NO_SAMPLE) {
+          continue;
+        }
+        PostDOFKernel kernel = kernels[kernelIdx];
+        int size = kernel.getSize();
+        int x0 = Math.max(pStartX, sx - size), x1 = Math.min(pEndX, sx + size + 1);
+        int y0 = Math.max(pStartY, sy - size), y1 = Math.min(pEndY, sy + size + 1);
+        if (x0 >= x1 || y0 >= y1) {
+          continue;
+        }
+        float r = srcR[srcIdx], g = srcG[srcIdx], b = srcB[srcIdx];
+        float[] weights = kernel.getWeights();
+        int kernelWidth = 2 * size + 1;
+        for (int y = y0; y < y1; y++) {
+          int weightIdx = (y - sy + size) * kernelWidth + (x0 - sx + size);
+          int dstIdx = y * width + x0;
+          for (int x = x0; x < x1; x++, weightIdx++, dstIdx++) {
+            float w = weights[weightIdx];
+            if (w != 0.0f) {
+              rBuf[dstIdx] += r * w;
+              gBuf[dstIdx] += g * w;
+              bBuf[dstIdx] += b * w;
+            }
+          }
+        }
+      }
     }
   }
 
   public void renderToImage(SimpleImage pImage) {
-    for (int i = 0; i < width; i++) {
-      for (int j = 0; j < height; j++) {
-        int r = Tools.roundColor(rBuf[i][j]);
-        int g = Tools.roundColor(gBuf[i][j]);
-        int b = Tools.roundColor(bBuf[i][j]);
-        pImage.setARGB(i, j, pImage.getAValue(i, j), r, g, b);
+    int[] line = new int[width];
+    for (int j = 0; j < height; j++) {
+      // keep the alpha of the image
+      pImage.getARGBRow(j, 0, width, line);
+      for (int i = 0; i < width; i++) {
+        int idx = j * width + i;
+        int r = Tools.roundColor(rBuf[idx]);
+        int g = Tools.roundColor(gBuf[idx]);
+        int b = Tools.roundColor(bBuf[idx]);
+        line[i] = (line[i] & 0xff000000) | (r << 16) | (g << 8) | b;
       }
+      pImage.setARGBRow(j, 0, width, line);
     }
   }
 
   public void renderToImage(SimpleHDRImage pHDRImage) {
-    for (int i = 0; i < width; i++) {
-      for (int j = 0; j < height; j++) {
-        pHDRImage.setRGB(i, j, rBuf[i][j], gBuf[i][j], bBuf[i][j]);
+    for (int j = 0; j < height; j++) {
+      for (int i = 0; i < width; i++) {
+        int idx = j * width + i;
+        pHDRImage.setRGB(i, j, rBuf[idx], gBuf[idx], bBuf[idx]);
       }
     }
   }
@@ -77,10 +212,4 @@ public class PostDOFBuffer {
     return height;
   }
 
-  public synchronized void addSamples(List<PostDOFFilteredSample> filteredSamples, double intensitySum) {
-    for (PostDOFFilteredSample filteredSample : filteredSamples) {
-      addColorToBuffer(filteredSample.getX(), filteredSample.getY(), filteredSample.getSample(), filteredSample.getIntensity() / intensitySum, 0.0);
-    }
-  }
-
 }
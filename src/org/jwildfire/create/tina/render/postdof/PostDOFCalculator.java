@@ -16,122 +16,92 @@
 */
 package org.jwildfire.create.tina.render.postdof;
 
-import java.util.ArrayList;
-import java.util.List;
-
 import org.jwildfire.base.Tools;
 import org.jwildfire.base.mathlib.MathLib;
-import org.jwildfire.create.tina.render.filter.FilterKernel;
-import org.jwildfire.create.tina.render.filter.SineBlurFilterKernel;
+import org.jwildfire.create.tina.random.XoshiroRandomGenerator;
 
+// Decides about the blur (and the random bokeh effect) of each pixel, the blur itself is done by the PostDOFBuffer.
+// There is one calculator for each image thread, each with its own random generator.
 public class PostDOFCalculator {
+  static final int STEP_MODE_DEFAULT = 0;
+  static final int STEP_MODE_BOKEH_05 = 1;
+  static final int STEP_MODE_BOKEH_075 = 2;
+  static final int STEP_MODE_BOKEH_1 = 3;
+
   private final PostDOFBuffer buffer;
-  private final double imgSize;
-  private final FilterKernel kernel;
-  private final List<PostDOFFilteredSample> filteredSamples;
-  private final double kernelScale;
+  private final double bokehIntensity;
+  private final XoshiroRandomGenerator randGen;
+  // seeded renders draw the random numbers of a sample from a generator seeded by the sample position
+  private boolean seeded;
+  private long seed;
 
   public PostDOFCalculator(PostDOFBuffer buffer) {
-    super();
     this.buffer = buffer;
-    imgSize = MathLib.sqrt(MathLib.sqr(buffer.getWidth()) + MathLib.sqr(buffer.getHeight()));
-
-    kernel = new SineBlurFilterKernel();//new GaussianFilterKernel();
-
-    filteredSamples = new ArrayList<>();
+    double imgSize = MathLib.sqrt(MathLib.sqr(buffer.getWidth()) + MathLib.sqr(buffer.getHeight()));
+    bokehIntensity = 0.005 * 1000.0 / imgSize;
+    randGen = new XoshiroRandomGenerator(XoshiroRandomGenerator.mix(System.nanoTime(), System.identityHashCode(this)));
+  }
 
-    kernelScale = 1.0;
+  public void setSeed(long pSeed) {
+    seed = pSeed;
+    seeded = true;
   }
 
-  public void addSample(int x, int y, float r, float g, float b, double dofDist, double z) {
-    if (r > 0 || g > 0 || b > 0) {
-      PostDOFSample sample = new PostDOFSample(x, y, (float) z, (float) dofDist, r, g, b);
-      processSample(sample);
+  static double getStepSize(double pRadius) {
+    if (pRadius < 2.0) {
+      return 0.0625;
+    }
+    else if (pRadius < 3.0) {
+      return 0.125;
+    }
+    else if (pRadius < 4.0) {
+      return 0.25;
+    }
+    else if (pRadius < 5.0) {
+      return 0.5;
+    }
+    else if (pRadius < 6.0) {
+      return 0.75;
+    }
+    else {
+      return 1.0;
     }
   }
 
-  private void processSample(PostDOFSample sample) {
-    double plainRadius = MathLib.fabs(sample.getDofDist()) * 10.0;
-    double radius = Tools.FTOI(MathLib.fabs(sample.getDofDist()) * 10.0);
-    if (radius < 2.0) {
-      radius = 2.0;
+  static double getBokehStepSize(int pStepMode) {
+    switch (pStepMode) {
+      case STEP_MODE_BOKEH_05:
+        return 0.5;
+      case STEP_MODE_BOKEH_075:
+        return 0.75;
+      default:
+        return 1.0;
     }
+  }
 
-    double bokehIntensity = 0.005 * 1000.0 / imgSize;
-    double bokehBrightness = 1.0;
-    double bokehSize = 2.0;
-
-    int bokehMinIntensity = 6;
-
-    if (radius > 0.0) {
-      filteredSamples.clear();
-
-      if (Math.random() > 1.0 - bokehIntensity && (sample.getR() >= bokehMinIntensity || sample.getG() >= bokehMinIntensity || sample.getB() >= bokehMinIntensity)) {
-        double intensity = (Math.random() + 1.0) / 5.0;
-
-        sample.setR(Tools.FTOI(sample.getR() * intensity * radius * radius * bokehBrightness));
-        sample.setG(Tools.FTOI(sample.getG() * intensity * radius * radius * bokehBrightness));
-        sample.setB(Tools.FTOI(sample.getB() * intensity * radius * radius * bokehBrightness));
-
-        radius *= bokehSize * (1.0 + Math.random() * 2.0);
-      }
-      else {
-        radius *= (1.0 + (0.5 - Math.random()) * 0.1);
+  public void addSample(int x, int y, float r, float g, float b, double dofDist, double z) {
+    if (r > 0 || g > 0 || b > 0) {
+      if (seeded) {
+        randGen.randomize(XoshiroRandomGenerator.mix(seed, ((long) x << 32) | (y & 0xffffffffL)));
       }
-
-      double scaledInvRadius = 1.0 / plainRadius * kernelScale * kernel.getSpatialSupport();
-
-      double intensitySum = 0.0;
-      //      double stepSize = (radius < 5.0) ? 0.5 : 1.0;
-      double stepSize;
+      double plainRadius = MathLib.fabs(dofDist) * 10.0;
+      double radius = Tools.FTOI(plainRadius);
       if (radius < 2.0) {
-        stepSize = 0.0625;
-      }
-      else if (radius < 3.0) {
-        stepSize = 0.125;
-      }
-      else if (radius < 4.0) {
-        stepSize = 0.25;
-      }
-      else if (radius < 5.0) {
-        stepSize = 0.5;
+        radius = 2.0;
       }
-      else if (radius < 6.0) {
-        stepSize = 0.75;
+      final double bokehBrightness = 1.0;
+      final double bokehSize = 2.0;
+      final int bokehMinIntensity = 6;
+      int stepMode = STEP_MODE_DEFAULT;
+      if (randGen.random() > 1.0 - bokehIntensity && (r >= bokehMinIntensity || g >= bokehMinIntensity || b >= bokehMinIntensity)) {
+        double intensity = (randGen.random() + 1.0) / 5.0;
+        r = Tools.FTOI(r * intensity * radius * radius * bokehBrightness);
+        g = Tools.FTOI(g * intensity * radius * radius * bokehBrightness);
+        b = Tools.FTOI(b * intensity * radius * radius * bokehBrightness);
+        double bokehRadius = radius * bokehSize * (1.0 + randGen.random() * 2.0);
+        stepMode = bokehRadius < 5.0 ? STEP_MODE_BOKEH_05 : bokehRadius < 6.0 ? STEP_MODE_BOKEH_075 : STEP_MODE_BOKEH_1;
       }
-      else {
-        stepSize = 1.0;
-      }
-
-      for (double i = -radius; i < radius + MathLib.EPSILON; i += stepSize) {
-        double dstX = sample.getX() + i;
-        double i_square = MathLib.sqr(i * scaledInvRadius);
-        for (double j = -radius; j < radius + MathLib.EPSILON; j += stepSize) {
-          double dstY = sample.getY() + j;
-
-          double r = MathLib.sqrt(i_square + MathLib.sqr(j * scaledInvRadius));
-          double intensity = kernel.getFilterCoeff(r);
-
-          if (intensity > MathLib.EPSILON) {
-            intensitySum += intensity;
-            filteredSamples.add(new PostDOFFilteredSample(Tools.FTOI(dstX), Tools.FTOI(dstY), sample, intensity));
-          }
-        }
-      }
-      if (filteredSamples.size() != 0) {
-        buffer.addSamples(filteredSamples, intensitySum);
-        filteredSamples.clear();
-      }
-      else {
-        filteredSamples.add(new PostDOFFilteredSample(sample.getX(), sample.getY(), sample, 1.0));
-        buffer.addSamples(filteredSamples, 1.0);
-        filteredSamples.clear();
-      }
-    }
-    else {
-      filteredSamples.add(new PostDOFFilteredSample(sample.getX(), sample.getY(), sample, 1.0));
-      buffer.addSamples(filteredSamples, 1.0);
-      filteredSamples.clear();
+      buffer.setSample(x, y, r, g, b, PostDOFBuffer.getKernelKey(PostDOFBuffer.getRadiusIndex(plainRadius), stepMode));
     }
   }
 
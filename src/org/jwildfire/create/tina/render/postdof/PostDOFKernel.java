@@ -0,0 +1,82 @@
+/*
+  JWildfire - an image and animation processor written in Java 
+  Copyright (C) 1995-2016 Andreas Maschke
+
+  This is free software; you can redistribute it and/or modify it under the terms of the GNU Lesser 
+  General Public License as published by the Free Software Foundation; either version 2.1 of the 
+  License, or (at your option) any later version.
+ 
+  This software is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without 
+  even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU 
+  Lesser General Public License for more details.
+
+  You should have received a copy of the GNU Lesser General Public License along with this software; 
+  if not, write to the Free Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+  02110-1301 USA, or see the FSF site: http://www.fsf.org.
+*/
+package org.jwildfire.create.tina.render.postdof;
+
+import org.jwildfire.base.mathlib.MathLib;
+import org.jwildfire.create.tina.render.filter.FilterKernel;
+
+// Normalized, precomputed splat of one pixel with a given blur radius: the filter kernel is sampled at a
+// grid with sub pixel step size and the samples are summed up per target pixel.
+public class PostDOFKernel {
+  private final int size;
+  private final float[] weights;
+
+  public PostDOFKernel(FilterKernel pKernel, double pPlainRadius, double pExtent, double pStepSize) {
+    int maxSize = (int) Math.ceil(pExtent + 0.5);
+    float[] w = new float[(2 * maxSize + 1) * (2 * maxSize + 1)];
+    double scaledInvRadius = pPlainRadius > 0.0 ? pKernel.getSpatialSupport() / pPlainRadius : 0.0;
+    double weightSum = 0.0;
+    int usedSize = 0;
+    int steps = (int) (pExtent / pStepSize + MathLib.EPSILON);
+    if (scaledInvRadius > 0.0) {
+      for (int i = -steps; i <= steps; i++) {
+        double di = i * pStepSize;
+        int dx = (int) MathLib.floor(di + 0.5);
+        double iSquare = MathLib.sqr(di * scaledInvRadius);
+        for (int j = -steps; j <= steps; j++) {
+          double dj = j * pStepSize;
+          double intensity = pKernel.getFilterCoeff(MathLib.sqrt(iSquare + MathLib.sqr(dj * scaledInvRadius)));
+          if (intensity > MathLib.EPSILON) {
+            int dy = (int) MathLib.floor(dj + 0.5);
+            w[(dy + maxSize) * (2 * maxSize + 1) + dx + maxSize] += (float) intensity;
+            weightSum += intensity;
+            usedSize = Math.max(usedSize, Math.max(Math.abs(dx), Math.abs(dy)));
+          }
+        }
+      }
+    }
+    if (weightSum <= 0.0) {
+      // no blur at all
+      size = 0;
+      weights = new float[] { 1.0f };
+    }
+    else {
+      size = usedSize;
+      weights = new float[(2 * size + 1) * (2 * size + 1)];
+      for (int dy = -size; dy <= size; dy++) {
+        for (int dx = -size; dx <= size; dx++) {
+          weights[(dy + size) * (2 * size + 1) + dx + size] = (float) (w[(dy + maxSize) * (2 * maxSize + 1) + dx + maxSize] / weightSum);
+        }
+      }
+    }
+  }
+
+  // the kernel covers the offsets -size..size in both directions
+  public int getSize() {
+    return size;
+  }
+
+  public float getWeight(int pDX, int pDY) {
+    return weights[(pDY + size) * (2 * size + 1) + pDX + size];
+  }
+
+  // (2 * size + 1) rows of (2 * size + 1) weights, starting at offset (-size, -size)
+  float[] getWeights() {
+    return weights;
+  }
+
+}
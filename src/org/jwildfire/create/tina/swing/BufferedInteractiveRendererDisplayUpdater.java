@@ -16,6 +16,8 @@
 */
 package org.jwildfire.create.tina.swing;
 
+import java.util.List;
+
 import javax.swing.JPanel;
 
 import org.jwildfire.create.tina.render.AbstractRenderThread;
@@ -116,4 +118,13 @@ public class BufferedInteractiveRendererDisplayUpdater implements InteractiveRen
   public void initRender(int pThreadGroupSize) {
     iterationCount = new long[pThreadGroupSize];
   }
+
+  @Override
+  public boolean isIterationObserver() {
+    return true;
+  }
+
+  @Override
+  public void setRenderThreads(List<AbstractRenderThread> pRenderThreads) {
+  }
 }
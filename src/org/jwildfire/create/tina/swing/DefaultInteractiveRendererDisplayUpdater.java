@@ -16,6 +16,8 @@
 */
 package org.jwildfire.create.tina.swing;
 
+import java.util.List;
+
 import javax.swing.JPanel;
 
 import org.jwildfire.create.tina.render.AbstractRenderThread;
@@ -100,4 +102,13 @@ public class DefaultInteractiveRendererDisplayUpdater implements InteractiveRend
   public void initRender(int pThreadGroupSize) {
     iterationCount = new long[pThreadGroupSize];
   }
+
+  @Override
+  public boolean isIterationObserver() {
+    return true;
+  }
+
+  @Override
+  public void setRenderThreads(List<AbstractRenderThread> pRenderThreads) {
+  }
 }
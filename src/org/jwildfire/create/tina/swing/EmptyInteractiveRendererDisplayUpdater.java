@@ -16,6 +16,8 @@
 */
 package org.jwildfire.create.tina.swing;
 
+import java.util.List;
+
 import org.jwildfire.create.tina.render.AbstractRenderThread;
 
 public class EmptyInteractiveRendererDisplayUpdater implements InteractiveRendererDisplayUpdater {
@@ -45,4 +47,13 @@ public class EmptyInteractiveRendererDisplayUpdater implements InteractiveRender
   public void initRender(int pThreadGroupSize) {
   }
 
+  @Override
+  public boolean isIterationObserver() {
+    return false;
+  }
+
+  @Override
+  public void setRenderThreads(List<AbstractRenderThread> pRenderThreads) {
+  }
+
 }
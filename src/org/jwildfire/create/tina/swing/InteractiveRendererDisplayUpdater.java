@@ -16,6 +16,8 @@
 */
 package org.jwildfire.create.tina.swing;
 
+import java.util.List;
+
 import org.jwildfire.create.tina.render.AbstractRenderThread;
 
 public interface InteractiveRendererDisplayUpdater {
@@ -31,4 +33,9 @@ public interface InteractiveRendererDisplayUpdater {
 
   void initImage(int pBGRed, int pBGGreen, int pBGBlue, String pBGImagefile);
 
+  // false if the updater reads the raster in updateImage(), so it needs no iterationFinished() calls
+  boolean isIterationObserver();
+
+  void setRenderThreads(List<AbstractRenderThread> pRenderThreads);
+
 }
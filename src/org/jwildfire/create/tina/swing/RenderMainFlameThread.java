@@ -24,12 +24,14 @@ import org.jwildfire.base.QualityProfile;
 import org.jwildfire.base.ResolutionProfile;
 import org.jwildfire.base.Tools;
 import org.jwildfire.create.tina.base.Flame;
+import org.jwildfire.create.tina.base.Stereo3dMode;
 import org.jwildfire.create.tina.io.FlameWriter;
 import org.jwildfire.create.tina.render.FlameRenderer;
 import org.jwildfire.create.tina.render.ProgressUpdater;
 import org.jwildfire.create.tina.render.RenderInfo;
 import org.jwildfire.create.tina.render.RenderMode;
 import org.jwildfire.create.tina.render.RenderedFlame;
+import org.jwildfire.io.EXRWriter;
 import org.jwildfire.io.ImageWriter;
 
 public class RenderMainFlameThread implements Runnable {
@@ -74,8 +76,18 @@ public class RenderMainFlameThread implements Runnable {
       long t0, t1;
       renderer = new FlameRenderer(flame, prefs, flame.isBGTransparency(), false);
       renderer.setProgressUpdater(progressUpdater);
+      EXRWriter exrWriter = prefs.isTinaSaveLinearEXR() && Stereo3dMode.NONE.equals(flame.getStereo3dMode()) ? new EXRWriter(outFile.getAbsolutePath() + ".exr", info.getImageWidth(), info.getImageHeight(), true) : null;
+      renderer.setLinearImageOutput(exrWriter);
       t0 = Calendar.getInstance().getTimeInMillis();
-      RenderedFlame res = renderer.renderFlame(info);
+      RenderedFlame res;
+      try {
+        res = renderer.renderFlame(info);
+      }
+      finally {
+        if (exrWriter != null) {
+          exrWriter.close();
+        }
+      }
       if (forceAbort) {
         finished = true;
         return;
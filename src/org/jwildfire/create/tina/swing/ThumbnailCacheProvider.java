@@ -2,8 +2,6 @@ package org.jwildfire.create.tina.swing;
 
 import java.io.File;
 
-import javax.swing.JLabel;
-
 import org.jwildfire.base.Prefs;
 import org.jwildfire.base.Tools;
 import org.jwildfire.image.SimpleImage;
@@ -33,7 +31,7 @@ public class ThumbnailCacheProvider {
   private static SimpleImage tryReadImage(int pWidth, int pHeight, File pFile) {
     if (pFile.exists()) {
       try {
-        SimpleImage img = new ImageReader(new JLabel()).loadImage(pFile.getAbsolutePath());
+        SimpleImage img = new ImageReader().loadImage(pFile.getAbsolutePath());
         if (img != null && img.getImageWidth() == pWidth && img.getImageHeight() == pHeight) {
           return img;
         }
@@ -48,7 +46,7 @@ public class ThumbnailCacheProvider {
   private static SimpleImage tryReadImage(int pWidth, File pFile) {
     if (pFile.exists()) {
       try {
-        SimpleImage img = new ImageReader(new JLabel()).loadImage(pFile.getAbsolutePath());
+        SimpleImage img = new ImageReader().loadImage(pFile.getAbsolutePath());
         if (img != null && img.getImageWidth() == pWidth) {
           return img;
         }
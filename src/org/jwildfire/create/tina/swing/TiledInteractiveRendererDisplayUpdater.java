@@ -0,0 +1,125 @@
+/*
+  JWildfire - an image and animation processor written in Java 
+  Copyright (C) 1995-2016 Andreas Maschke
+
+  This is free software; you can redistribute it and/or modify it under the terms of the GNU Lesser 
+  General Public License as published by the Free Software Foundation; either version 2.1 of the 
+  License, or (at your option) any later version.
+ 
+  This software is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without 
+  even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU 
+  Lesser General Public License for more details.
+
+  You should have received a copy of the GNU Lesser General Public License along with this software; 
+  if not, write to the Free Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+  02110-1301 USA, or see the FSF site: http://www.fsf.org.
+*/
+package org.jwildfire.create.tina.swing;
+
+import java.util.List;
+
+import javax.swing.JPanel;
+
+import org.jwildfire.create.tina.render.AbstractRenderThread;
+import org.jwildfire.create.tina.render.ProgressiveTonemapper;
+import org.jwildfire.create.tina.variation.RessourceManager;
+import org.jwildfire.image.SimpleImage;
+
+// Re-tonemaps the raster cells which received samples since the last update, at the refresh rate of the display
+// thread, instead of tonemapping every sample inside the render threads
+public class TiledInteractiveRendererDisplayUpdater implements InteractiveRendererDisplayUpdater {
+  private final JPanel imageRootPanel;
+  private final SimpleImage image;
+  private final int imageWidth;
+  private final int imageHeight;
+  private int[] buffer;
+  private volatile List<AbstractRenderThread> renderThreads;
+  private ProgressiveTonemapper tonemapper;
+  private boolean showPreview;
+
+  public TiledInteractiveRendererDisplayUpdater(JPanel pImageRootPanel, SimpleImage pImage, boolean pShowPreview) {
+    imageRootPanel = pImageRootPanel;
+    image = pImage;
+    imageWidth = image.getImageWidth();
+    imageHeight = image.getImageHeight();
+    buffer = getBufferFromImage();
+    showPreview = pShowPreview;
+  }
+
+  private int[] getBufferFromImage() {
+    return image.getBufferedImg().getRGB(0, 0, imageWidth, imageHeight, null, 0, imageWidth);
+  }
+
+  @Override
+  public void iterationFinished(AbstractRenderThread pEventSource, int pX, int pY) {
+  }
+
+  @Override
+  public void updateImage(InteractiveRendererImagePostProcessor pProcessor) {
+    if (showPreview && tonemapper != null) {
+      if (tonemapper.update(buffer) > 0) {
+        image.getBufferedImg().setRGB(0, 0, imageWidth, imageHeight, buffer, 0, imageWidth);
+        if (pProcessor != null) {
+          pProcessor.postProcessImage(image);
+        }
+        imageRootPanel.repaint();
+      }
+    }
+  }
+
+  @Override
+  public long getSampleCount() {
+    List<AbstractRenderThread> threads = renderThreads;
+    long res = 0;
+    if (threads != null) {
+      for (AbstractRenderThread thread : threads) {
+        res += thread.getCurrSample();
+      }
+    }
+    return res;
+  }
+
+  @Override
+  public void setShowPreview(boolean pShowPreview) {
+    showPreview = pShowPreview;
+  }
+
+  @Override
+  public void initImage(int pBGRed, int pBGGreen, int pBGBlue, String pBGImagefile) {
+    boolean repaint = false;
+    if (pBGRed > 0 || pBGGreen > 0 || pBGBlue > 0) {
+      SimpleImage img = new SimpleImage(image.getBufferedImg(), imageWidth, imageHeight);
+      img.fillBackground(pBGRed, pBGGreen, pBGBlue);
+      repaint = true;
+    }
+    if (pBGImagefile != null && pBGImagefile.length() > 0) {
+      try {
+        SimpleImage img = new SimpleImage(image.getBufferedImg(), imageWidth, imageHeight);
+        SimpleImage bgImg = (SimpleImage) RessourceManager.getImage(pBGImagefile);
+        img.fillBackground(bgImg);
+        repaint = true;
+      }
+      catch (Exception ex) {
+        ex.printStackTrace();
+      }
+    }
+    if (repaint) {
+      buffer = getBufferFromImage();
+    }
+  }
+
+  @Override
+  public void initRender(int pThreadGroupSize) {
+  }
+
+  @Override
+  public boolean isIterationObserver() {
+    return false;
+  }
+
+  @Override
+  public void setRenderThreads(List<AbstractRenderThread> pRenderThreads) {
+    renderThreads = pRenderThreads;
+    tonemapper = ProgressiveTonemapper.create(pRenderThreads);
+  }
+}
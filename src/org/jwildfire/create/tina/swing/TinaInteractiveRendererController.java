@@ -95,6 +95,9 @@ public class TinaInteractiveRendererController implements IterationObserver {
   private SimpleImage image;
   private Flame currFlame;
   private RenderThreads threads;
+  // saving a render state replaces the executing threads, so it must not run while they are suspended (they would never stop)
+  private final Object threadsLock = new Object();
+  private boolean threadsSuspended;
   private UpdateDisplayThread updateDisplayThread;
   private FlameRenderer renderer;
   private State state = State.IDLE;
@@ -311,8 +314,10 @@ public class TinaInteractiveRendererController implements IterationObserver {
         image.fillBackground(flame.getBGColorRed(), flame.getBGColorGreen(), flame.getBGColorBlue());
       }
       renderer = new FlameRenderer(flame, prefs, flame.isBGTransparency(), false);
-      renderer.registerIterationObserver(this);
       displayUpdater = createDisplayUpdater();
+      if (displayUpdater.isIterationObserver()) {
+        renderer.registerIterationObserver(this);
+      }
       renderStartTime = System.currentTimeMillis();
       pausedRenderTime = 0;
       lastQuality = 0.0;
@@ -323,6 +328,7 @@ public class TinaInteractiveRendererController implements IterationObserver {
       for (Thread t : threads.getExecutingThreads()) {
         t.setPriority(Thread.MIN_PRIORITY);
       }
+      displayUpdater.setRenderThreads(threads.getRenderThreads());
       updateDisplayThread = new UpdateDisplayThread();
       startRenderThread(updateDisplayThread);
 
@@ -349,7 +355,7 @@ public class TinaInteractiveRendererController implements IterationObserver {
   }
 
   private InteractiveRendererDisplayUpdater createDisplayUpdater() {
-    return prefs.isTinaOptimizedRenderingIR() ? new BufferedInteractiveRendererDisplayUpdater(imageRootPanel, image, showPreviewButton.isSelected()) : new DefaultInteractiveRendererDisplayUpdater(imageRootPanel, image, showPreviewButton.isSelected());
+    return prefs.isTinaOptimizedRenderingIR() ? new TiledInteractiveRendererDisplayUpdater(imageRootPanel, image, showPreviewButton.isSelected()) : new DefaultInteractiveRendererDisplayUpdater(imageRootPanel, image, showPreviewButton.isSelected());
   }
 
   public void stopButton_clicked() {
@@ -436,17 +442,23 @@ public class TinaInteractiveRendererController implements IterationObserver {
   }
 
   private void resumeRenderThreads() {
-    if (threads != null && state == State.RENDER) {
-      for (Thread t : threads.getExecutingThreads()) {
-        t.resume();
+    synchronized (threadsLock) {
+      if (threadsSuspended) {
+        for (Thread t : threads.getExecutingThreads()) {
+          t.resume();
+        }
+        threadsSuspended = false;
       }
     }
   }
 
   private void pauseRenderThreads() {
-    if (threads != null && state == State.RENDER) {
-      for (Thread t : threads.getExecutingThreads()) {
-        t.suspend();
+    synchronized (threadsLock) {
+      if (threads != null && state == State.RENDER) {
+        for (Thread t : threads.getExecutingThreads()) {
+          t.suspend();
+        }
+        threadsSuspended = true;
       }
     }
   }
@@ -465,6 +477,7 @@ public class TinaInteractiveRendererController implements IterationObserver {
     private long nextImageUpdate;
     private long nextStatsUpdate;
     private long lastImageUpdateInterval;
+    private long nextCheckpoint;
     private boolean cancelSignalled;
     private boolean finished;
 
@@ -473,6 +486,7 @@ public class TinaInteractiveRendererController implements IterationObserver {
       nextImageUpdate = time + INITIAL_IMAGE_UPDATE_INTERVAL;
       nextStatsUpdate = time + STATS_UPDATE_INTERVAL;
       lastImageUpdateInterval = INITIAL_IMAGE_UPDATE_INTERVAL;
+      nextCheckpoint = time + prefs.getTinaRenderCheckpointInterval() * 60000L;
     }
 
     @Override
@@ -502,6 +516,10 @@ public class TinaInteractiveRendererController implements IterationObserver {
               }
               nextStatsUpdate = System.currentTimeMillis() + STATS_UPDATE_INTERVAL;
             }
+            if (prefs.getTinaRenderCheckpointInterval() > 0 && time >= nextCheckpoint) {
+              saveCheckpoint();
+              nextCheckpoint = System.currentTimeMillis() + prefs.getTinaRenderCheckpointInterval() * 60000L;
+            }
 
             Thread.sleep(SLEEP_INTERVAL);
           }
@@ -756,9 +774,12 @@ public class TinaInteractiveRendererController implements IterationObserver {
         if (flame.getBGColorRed() > 0 || flame.getBGColorGreen() > 0 || flame.getBGColorBlue() > 0) {
           image.fillBackground(flame.getBGColorRed(), flame.getBGColorGreen(), flame.getBGColorBlue());
         }
-        renderer.registerIterationObserver(this);
         displayUpdater = createDisplayUpdater();
+        if (displayUpdater.isIterationObserver()) {
+          renderer.registerIterationObserver(this);
+        }
         displayUpdater.initRender(threads.getRenderThreads().size());
+        displayUpdater.setRenderThreads(threads.getRenderThreads());
 
         pausedRenderTime = resumedRender.getHeader().getElapsedMilliseconds();
         renderStartTime = System.currentTimeMillis();
@@ -797,7 +818,7 @@ public class TinaInteractiveRendererController implements IterationObserver {
         if (chooser.showSaveDialog(imageRootPanel) == JFileChooser.APPROVE_OPTION) {
           File file = chooser.getSelectedFile();
           prefs.setLastOutputFlameFile(file);
-          renderer.saveState(file.getAbsolutePath(), threads.getRenderThreads(), displayUpdater.getSampleCount(), System.currentTimeMillis() - renderStartTime + pausedRenderTime, null);
+          saveRenderState(file);
         }
       }
       catch (Throwable ex) {
@@ -806,6 +827,26 @@ public class TinaInteractiveRendererController implements IterationObserver {
     }
   }
 
+  private void saveCheckpoint() {
+    String path = prefs.getOutputFlamePath();
+    File drawer = new File(path != null && path.length() > 0 ? path : System.getProperty("java.io.tmpdir"));
+    File file = new File(drawer, "autosave." + Tools.FILEEXT_JWFRENDER);
+    saveRenderState(file);
+  }
+
+  private void saveRenderState(File pFile) {
+    synchronized (threadsLock) {
+      if (threadsSuspended) {
+        return;
+      }
+      List<Thread> executingThreads = renderer.saveState(pFile.getAbsolutePath(), threads.getRenderThreads(), displayUpdater.getSampleCount(), System.currentTimeMillis() - renderStartTime + pausedRenderTime, null);
+      for (Thread t : executingThreads) {
+        t.setPriority(Thread.MIN_PRIORITY);
+      }
+      threads = new RenderThreads(threads.getRenderThreads(), executingThreads);
+    }
+  }
+
   public void showStatsBtn_changed() {
     showStats = showStatsButton.isSelected();
   }
@@ -48,4 +48,9 @@ public class ArchFunc extends SimpleVariationFunc {
     return "arch";
   }
 
+  @Override
+  public boolean isThreadSafe() {
+    return true;
+  }
+
 }
@@ -42,4 +42,9 @@ public class BentFunc extends SimpleVariationFunc {
     return "bent";
   }
 
+  @Override
+  public boolean isThreadSafe() {
+    return true;
+  }
+
 }
@@ -55,4 +55,9 @@ public class BladeFunc extends SimpleVariationFunc {
     return "blade";
   }
 
+  @Override
+  public boolean isThreadSafe() {
+    return true;
+  }
+
 }
@@ -46,4 +46,9 @@ public class BlurFunc extends SimpleVariationFunc {
     return "blur";
   }
 
+  @Override
+  public boolean isThreadSafe() {
+    return true;
+  }
+
 }
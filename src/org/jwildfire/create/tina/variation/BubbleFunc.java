@@ -36,4 +36,9 @@ public class BubbleFunc extends SimpleVariationFunc {
     return "bubble";
   }
 
+  @Override
+  public boolean isThreadSafe() {
+    return true;
+  }
+
 }
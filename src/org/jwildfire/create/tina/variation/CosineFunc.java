@@ -46,4 +46,9 @@ public class CosineFunc extends SimpleVariationFunc {
     return "cosine";
   }
 
+  @Override
+  public boolean isThreadSafe() {
+    return true;
+  }
+
 }
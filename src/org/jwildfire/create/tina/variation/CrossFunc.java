@@ -53,4 +53,9 @@ public class CrossFunc extends SimpleVariationFunc {
     return "cross";
   }
 
+  @Override
+  public boolean isThreadSafe() {
+    return true;
+  }
+
 }
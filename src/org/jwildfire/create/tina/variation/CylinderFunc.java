@@ -38,4 +38,9 @@ public class CylinderFunc extends SimpleVariationFunc {
     return "cylinder";
   }
 
+  @Override
+  public boolean isThreadSafe() {
+    return true;
+  }
+
 }
@@ -44,4 +44,9 @@ public class DiamondFunc extends SimpleVariationFunc {
     return "diamond";
   }
 
+  @Override
+  public boolean isThreadSafe() {
+    return true;
+  }
+
 }
@@ -77,4 +77,9 @@ public class Disc3DFunc extends VariationFunc {
       pi = EPSILON;
   }
 
+  @Override
+  public boolean isThreadSafe() {
+    return true;
+  }
+
 }
@@ -45,4 +45,9 @@ public class DiscFunc extends SimpleVariationFunc {
     return "disc";
   }
 
+  @Override
+  public boolean isThreadSafe() {
+    return true;
+  }
+
 }
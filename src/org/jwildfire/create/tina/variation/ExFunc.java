@@ -46,4 +46,9 @@ public class ExFunc extends SimpleVariationFunc {
     return "ex";
   }
 
+  @Override
+  public boolean isThreadSafe() {
+    return true;
+  }
+
 }
@@ -45,4 +45,9 @@ public class ExponentialFunc extends SimpleVariationFunc {
     return "exponential";
   }
 
+  @Override
+  public boolean isThreadSafe() {
+    return true;
+  }
+
 }
@@ -39,4 +39,9 @@ public class EyefishFunc extends SimpleVariationFunc {
     return "eyefish";
   }
 
+  @Override
+  public boolean isThreadSafe() {
+    return true;
+  }
+
 }
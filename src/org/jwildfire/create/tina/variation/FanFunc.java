@@ -52,4 +52,9 @@ public class FanFunc extends SimpleVariationFunc {
     return "fan";
   }
 
+  @Override
+  public boolean isThreadSafe() {
+    return true;
+  }
+
 }
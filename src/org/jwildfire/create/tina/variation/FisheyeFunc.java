@@ -40,4 +40,9 @@ public class FisheyeFunc extends SimpleVariationFunc {
     return "fisheye";
   }
 
+  @Override
+  public boolean isThreadSafe() {
+    return true;
+  }
+
 }
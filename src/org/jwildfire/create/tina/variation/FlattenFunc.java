@@ -37,4 +37,9 @@ public class FlattenFunc extends SimpleVariationFunc {
     return +1;
   }
 
+  @Override
+  public boolean isThreadSafe() {
+    return true;
+  }
+
 }
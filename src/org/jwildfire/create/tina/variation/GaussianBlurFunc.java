@@ -44,4 +44,9 @@ public class GaussianBlurFunc extends SimpleVariationFunc {
     return "gaussian_blur";
   }
 
+  @Override
+  public boolean isThreadSafe() {
+    return true;
+  }
+
 }
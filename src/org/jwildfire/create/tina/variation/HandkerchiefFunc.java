@@ -42,4 +42,9 @@ public class HandkerchiefFunc extends SimpleVariationFunc {
     return "handkerchief";
   }
 
+  @Override
+  public boolean isThreadSafe() {
+    return true;
+  }
+
 }
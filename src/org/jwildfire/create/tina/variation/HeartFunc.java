@@ -45,4 +45,9 @@ public class HeartFunc extends SimpleVariationFunc {
     return "heart";
   }
 
+  @Override
+  public boolean isThreadSafe() {
+    return true;
+  }
+
 }
@@ -38,4 +38,9 @@ public class HorseshoeFunc extends SimpleVariationFunc {
     return "horseshoe";
   }
 
+  @Override
+  public boolean isThreadSafe() {
+    return true;
+  }
+
 }
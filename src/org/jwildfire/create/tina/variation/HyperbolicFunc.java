@@ -37,4 +37,9 @@ public class HyperbolicFunc extends SimpleVariationFunc {
     return "hyperbolic";
   }
 
+  @Override
+  public boolean isThreadSafe() {
+    return true;
+  }
+
 }
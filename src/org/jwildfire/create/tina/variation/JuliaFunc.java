@@ -45,4 +45,9 @@ public class JuliaFunc extends SimpleVariationFunc {
     return "julia";
   }
 
+  @Override
+  public boolean isThreadSafe() {
+    return true;
+  }
+
 }
@@ -34,4 +34,9 @@ public class Linear3DFunc extends SimpleVariationFunc {
     return "linear3D";
   }
 
+  @Override
+  public boolean isThreadSafe() {
+    return true;
+  }
+
 }
@@ -36,4 +36,9 @@ public class LinearFunc extends SimpleVariationFunc {
     return "linear";
   }
 
+  @Override
+  public boolean isThreadSafe() {
+    return true;
+  }
+
 }
@@ -44,4 +44,9 @@ public class NoiseFunc extends SimpleVariationFunc {
     return "noise";
   }
 
+  @Override
+  public boolean isThreadSafe() {
+    return true;
+  }
+
 }
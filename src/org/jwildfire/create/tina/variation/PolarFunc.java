@@ -41,4 +41,9 @@ public class PolarFunc extends SimpleVariationFunc {
     return "polar";
   }
 
+  @Override
+  public boolean isThreadSafe() {
+    return true;
+  }
+
 }
@@ -47,4 +47,9 @@ public class PopcornFunc extends SimpleVariationFunc {
     return "popcorn";
   }
 
+  @Override
+  public boolean isThreadSafe() {
+    return true;
+  }
+
 }
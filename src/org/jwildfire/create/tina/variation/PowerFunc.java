@@ -40,4 +40,9 @@ public class PowerFunc extends SimpleVariationFunc {
     return "power";
   }
 
+  @Override
+  public boolean isThreadSafe() {
+    return true;
+  }
+
 }
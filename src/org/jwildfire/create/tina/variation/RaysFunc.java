@@ -47,4 +47,9 @@ public class RaysFunc extends SimpleVariationFunc {
     return "rays";
   }
 
+  @Override
+  public boolean isThreadSafe() {
+    return true;
+  }
+
 }
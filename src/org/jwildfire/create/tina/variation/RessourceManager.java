@@ -20,20 +20,19 @@ import java.io.File;
 import java.io.FileNotFoundException;
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-
-import javax.swing.JLabel;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.jwildfire.base.Tools;
 import org.jwildfire.image.WFImage;
 import org.jwildfire.io.ImageReader;
 
+// Prepared data (images, meshes, point lists...) is shared read-only by all variation instances and render threads
 public class RessourceManager {
-  private static final Map<String, WFImage> imageMapByName = new HashMap<String, WFImage>();
-  private static final Map<Integer, WFImage> imageMapByHash = new HashMap<Integer, WFImage>();
-  private static final Map<String, Object> ressourceMap = new HashMap<String, Object>();
+  private static final Map<String, WFImage> imageMapByName = new ConcurrentHashMap<String, WFImage>();
+  private static final Map<Integer, WFImage> imageMapByHash = new ConcurrentHashMap<Integer, WFImage>();
+  private static final Map<String, Object> ressourceMap = new ConcurrentHashMap<String, Object>();
 
   public static void clearAll() {
     imageMapByName.clear();
@@ -58,10 +57,10 @@ public class RessourceManager {
         }
       }
       if ("hdr".equalsIgnoreCase(fileExt)) {
-        res = new ImageReader(new JLabel()).loadHDRImage(pFilename);
+        res = new ImageReader().loadHDRImage(pFilename);
       }
       else {
-        res = new ImageReader(new JLabel()).loadImage(pFilename);
+        res = new ImageReader().loadImage(pFilename);
       }
       imageMapByName.put(pFilename, res);
     }
@@ -77,10 +76,15 @@ public class RessourceManager {
   }
 
   public static void putRessource(String pKey, Object pRessource) {
-    ressourceMap.put(pKey, pRessource);
+    if (pRessource != null) {
+      ressourceMap.put(pKey, pRessource);
+    }
+    else {
+      ressourceMap.remove(pKey);
+    }
   }
 
-  private static Map<String, Integer> hashMap = new HashMap<String, Integer>();
+  private static Map<String, Integer> hashMap = new ConcurrentHashMap<String, Integer>();
 
   private static String getHashKey(byte[] pImageData) {
     if (pImageData != null && pImageData.length > 0) {
@@ -111,10 +115,10 @@ public class RessourceManager {
       Tools.writeFile(f.getAbsolutePath(), pImageData);
 
       if ("hdr".equalsIgnoreCase(fileExt)) {
-        res = new ImageReader(new JLabel()).loadHDRImage(f.getAbsolutePath());
+        res = new ImageReader().loadHDRImage(f.getAbsolutePath());
       }
       else {
-        res = new ImageReader(new JLabel()).loadImage(f.getAbsolutePath());
+        res = new ImageReader().loadImage(f.getAbsolutePath());
       }
       imageMapByHash.put(key, res);
     }
@@ -76,4 +76,9 @@ public class Rings2Func extends VariationFunc {
     _dx = val * val + EPSILON;
   }
 
+  @Override
+  public boolean isThreadSafe() {
+    return true;
+  }
+
 }
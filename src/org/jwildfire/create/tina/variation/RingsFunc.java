@@ -41,4 +41,9 @@ public class RingsFunc extends SimpleVariationFunc {
     return "rings";
   }
 
+  @Override
+  public boolean isThreadSafe() {
+    return true;
+  }
+
 }
@@ -27,7 +27,9 @@ import java.awt.Graphics2D;
 import java.awt.RenderingHints;
 import java.io.StringReader;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import org.jwildfire.base.Tools;
 import org.jwildfire.create.tina.base.Layer;
@@ -440,15 +442,12 @@ public class SVGWFFunc extends VariationFunc {
   }
 
   private List<Point> _points;
-  private RenderColor[] renderColors;
+  // palette index of each point, depends on the palette of the layer
+  private double[] colorIndices;
   private boolean previewMode = false;
 
   @Override
   public void init(FlameTransformationContext pContext, Layer pLayer, XForm pXForm, double pAmount) {
-    // renderColors = pContext.getFlameRenderer().getColorMap();
-    // TODO optimize
-    renderColors = pLayer.getPalette().createRenderPalette(pContext.getFlameRenderer().getFlame().getWhiteLevel());
-    lastR = lastG = lastB = -1;
     previewMode = pContext.isPreview();
     if (previewMode) {
       resolution_multiplier = 0.25;
@@ -461,6 +460,26 @@ public class SVGWFFunc extends VariationFunc {
       true_color = 1;
       pre_antialias = 0;
     }
+    // the points and color indices are prepared here, so transform() only reads them and may be called by all render threads
+    List<Point> points = getPoints();
+    RenderColor[] renderColors = pLayer.getPalette().createRenderPalette(pContext.getFlameRenderer().getFlame().getWhiteLevel());
+    Map<Integer, Double> colorIdxMap = new HashMap<Integer, Double>();
+    colorIndices = new double[points.size()];
+    for (int i = 0; i < colorIndices.length; i++) {
+      Point point = points.get(i);
+      Integer rgb = (point.r << 16) | (point.g << 8) | point.b;
+      Double colorIdx = colorIdxMap.get(rgb);
+      if (colorIdx == null) {
+        colorIdx = getColorIdx(renderColors, point.r, point.g, point.b);
+        colorIdxMap.put(rgb, colorIdx);
+      }
+      colorIndices[i] = colorIdx;
+    }
+  }
+
+  @Override
+  public boolean isThreadSafe() {
+    return true;
   }
 
   private String makeRessourceKey() {
@@ -583,9 +602,10 @@ public class SVGWFFunc extends VariationFunc {
 
   @Override
   public void transform(FlameTransformationContext pContext, XForm pXForm, XYZPoint pAffineTP, XYZPoint pVarTP, double pAmount) {
-    List<Point> points = getPoints();
+    List<Point> points = _points;
     if (points.size() > 1) {
-      Point point = points.get(pContext.random(points.size()));
+      int idx = pContext.random(points.size());
+      Point point = points.get(idx);
       double rawX = point.x;
       double rawY = point.y;
       if (antialias_radius > 0.01) {
@@ -602,7 +622,7 @@ public class SVGWFFunc extends VariationFunc {
         pVarTP.greenColor = point.g;
         pVarTP.blueColor = point.b;
       }
-      pVarTP.color = getColorIdx(point.r, point.g, point.b);
+      pVarTP.color = colorIndices[idx];
     }
     else {
       pVarTP.x += pContext.random();
@@ -619,13 +639,7 @@ public class SVGWFFunc extends VariationFunc {
     return "svg_wf";
   }
 
-  private double lastR, lastG, lastB;
-  private double lastColorIdx;
-
-  private double getColorIdx(double pR, double pG, double pB) {
-    if (pR == lastR && pG == lastG && pB == lastB) {
-      return lastColorIdx;
-    }
+  private static double getColorIdx(RenderColor[] renderColors, double pR, double pG, double pB) {
     int nearestIdx = 0;
     RenderColor color = renderColors[0];
     double dr, dg, db;
@@ -644,10 +658,6 @@ public class SVGWFFunc extends VariationFunc {
         nearestIdx = i;
       }
     }
-    lastColorIdx = (double) nearestIdx / (double) (renderColors.length - 1);
-    lastR = pR;
-    lastG = pG;
-    lastB = pB;
-    return lastColorIdx;
+    return (double) nearestIdx / (double) (renderColors.length - 1);
   }
 }
@@ -50,4 +50,9 @@ public class Secant2Func extends SimpleVariationFunc {
     return "secant2";
   }
 
+  @Override
+  public boolean isThreadSafe() {
+    return true;
+  }
+
 }
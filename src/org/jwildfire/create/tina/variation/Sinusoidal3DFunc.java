@@ -39,4 +39,9 @@ public class Sinusoidal3DFunc extends SimpleVariationFunc {
     return "sinusoidal3d";
   }
 
+  @Override
+  public boolean isThreadSafe() {
+    return true;
+  }
+
 }
@@ -38,4 +38,9 @@ public class SinusoidalFunc extends SimpleVariationFunc {
     return "sinusoidal";
   }
 
+  @Override
+  public boolean isThreadSafe() {
+    return true;
+  }
+
 }
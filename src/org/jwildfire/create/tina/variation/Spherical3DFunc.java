@@ -37,4 +37,9 @@ public class Spherical3DFunc extends SimpleVariationFunc {
     return "spherical3D";
   }
 
+  @Override
+  public boolean isThreadSafe() {
+    return true;
+  }
+
 }
@@ -39,4 +39,9 @@ public class SphericalFunc extends SimpleVariationFunc {
     return "spherical";
   }
 
+  @Override
+  public boolean isThreadSafe() {
+    return true;
+  }
+
 }
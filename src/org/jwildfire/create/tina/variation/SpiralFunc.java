@@ -45,4 +45,9 @@ public class SpiralFunc extends SimpleVariationFunc {
     return "spiral";
   }
 
+  @Override
+  public boolean isThreadSafe() {
+    return true;
+  }
+
 }
@@ -36,4 +36,9 @@ public class SquareFunc extends SimpleVariationFunc {
     return "square";
   }
 
+  @Override
+  public boolean isThreadSafe() {
+    return true;
+  }
+
 }
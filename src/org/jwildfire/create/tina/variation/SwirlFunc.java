@@ -42,4 +42,9 @@ public class SwirlFunc extends SimpleVariationFunc {
     return "swirl";
   }
 
+  @Override
+  public boolean isThreadSafe() {
+    return true;
+  }
+
 }
@@ -51,4 +51,9 @@ public class TangentFunc extends SimpleVariationFunc {
     return "tangent";
   }
 
+  @Override
+  public boolean isThreadSafe() {
+    return true;
+  }
+
 }
@@ -54,4 +54,9 @@ public class TwintrianFunc extends SimpleVariationFunc {
     return "twintrian";
   }
 
+  @Override
+  public boolean isThreadSafe() {
+    return true;
+  }
+
 }
@@ -189,5 +189,13 @@ public abstract class VariationFunc implements Serializable {
   
   /** should return true if at least one parameter can trigger parameter addition/removal */
   public boolean dynamicParameterExpansion() { return false; }
+
+  /**
+   * if isThreadSafe is true, transform() only reads the state prepared by init(),
+   *   so one initialized instance may be shared by all render threads instead of
+   *   initializing a private copy for each of them. Scratch state which transform()
+   *   changes must then be kept per render thread (see IFlamesFunc)
+   */
+  public boolean isThreadSafe() { return false; }
   
 }
@@ -39,4 +39,9 @@ public class WavesFunc extends SimpleVariationFunc {
     return "waves";
   }
 
+  @Override
+  public boolean isThreadSafe() {
+    return true;
+  }
+
 }
@@ -32,4 +32,9 @@ public class ZScaleFunc extends SimpleVariationFunc {
     return "zscale";
   }
 
+  @Override
+  public boolean isThreadSafe() {
+    return true;
+  }
+
 }
@@ -32,4 +32,9 @@ public class ZTranslateFunc extends SimpleVariationFunc {
     return "ztranslate";
   }
 
+  @Override
+  public boolean isThreadSafe() {
+    return true;
+  }
+
 }
@@ -27,7 +27,6 @@ import org.jwildfire.base.mathlib.MathLib;
 import org.jwildfire.create.tina.random.AbstractRandomGenerator;
 import org.jwildfire.create.tina.render.GammaCorrectionFilter.HSLRGBConverter;
 import org.jwildfire.create.tina.render.ProgressUpdater;
-import org.jwildfire.create.tina.variation.FlameTransformationContext;
 import org.jwildfire.create.tina.variation.RessourceManager;
 import org.jwildfire.create.tina.variation.iflames.CreationStatistics.ActionType;
 import org.jwildfire.image.Pixel;
@@ -87,7 +86,7 @@ public class BaseFlameListCreator {
     preview = motionParams.getPreview() == 1;
   }
 
-  public List<BaseFlame> calcBaseFlameList(FlameTransformationContext pContext, WFImage pColorMap) {
+  public List<BaseFlame> calcBaseFlameList(WFImage pColorMap) {
     instances.clear();
     currProgress = 0;
     iteratorCount = 0;
@@ -144,7 +143,7 @@ public class BaseFlameListCreator {
                 int yoffset = params.getGridYOffset();
                 int ysize = params.getGridYSize();
                 if (ysize > 0 && (yoffset + i) % ysize == 0) {
-                  addBaseFlame(pContext, paramMaps1, paramMaps2, paramMaps3, res, i, j, intensity, k, params);
+                  addBaseFlame(paramMaps1, paramMaps2, paramMaps3, res, i, j, intensity, k, params);
                 }
               }
             }
@@ -172,7 +171,7 @@ public class BaseFlameListCreator {
               int shapeIndex = calcShapeIndex(toolPixel.r, toolPixel.g, toolPixel.b);
               FlameParams params = shapeIndex >= 0 && shapeIndex < flameParams.size() ? flameParams.get(shapeIndex) : null;
               if (params != null && params.getFlameXML() != null && params.getFlameXML().length() > 0) {
-                addBaseFlame(pContext, paramMaps1, paramMaps2, paramMaps3, res, i, j, intensity, shapeIndex, params);
+                addBaseFlame(paramMaps1, paramMaps2, paramMaps3, res, i, j, intensity, shapeIndex, params);
               }
             }
           }
@@ -207,7 +206,7 @@ public class BaseFlameListCreator {
     }
   }
 
-  private void addBaseFlame(FlameTransformationContext pContext, List<SimpleImage> paramMaps1, List<SimpleImage> paramMaps2, List<SimpleImage> paramMaps3, List<BaseFlame> res, int i, int j, double intensity, int shapeIndex, FlameParams params) {
+  private void addBaseFlame(List<SimpleImage> paramMaps1, List<SimpleImage> paramMaps2, List<SimpleImage> paramMaps3, List<BaseFlame> res, int i, int j, double intensity, int shapeIndex, FlameParams params) {
     if (preview) {
       double pInt = intensity / (1.0 - imageParams.getStructure_threshold());
       DynamicProperties motionProperties = calculateMotionProperties(imageParams.getScaleColorMap() * j, imageParams.getScaleColorMap() * i, pInt, params);
@@ -235,7 +234,7 @@ public class BaseFlameListCreator {
       if (params.isInstancing()) {
         iterator = instances.get(params);
         if (iterator == null) {
-          iterator = new IFlamesIterator(pContext, params, null, null);
+          iterator = new IFlamesIterator(params, null, null);
           iteratorCount++;
           instances.put(params, iterator);
         }
@@ -286,11 +285,11 @@ public class BaseFlameListCreator {
             paramNames.add(params.getFlameParam3());
             paramValues.add(value);
           }
-          iterator = new IFlamesIterator(pContext, params, paramNames, paramValues);
+          iterator = new IFlamesIterator(params, paramNames, paramValues);
           iteratorCount++;
         }
         else{
-          iterator = new IFlamesIterator(pContext, params, null, null);
+          iterator = new IFlamesIterator(params, null, null);
           iteratorCount++;
         }
       }
@@ -27,7 +27,6 @@ import org.jwildfire.create.tina.base.XForm;
 import org.jwildfire.create.tina.base.XYZPoint;
 import org.jwildfire.create.tina.base.motion.MotionCurve;
 import org.jwildfire.create.tina.random.AbstractRandomGenerator;
-import org.jwildfire.create.tina.random.MarsagliaRandomGenerator;
 import org.jwildfire.create.tina.variation.FlameTransformationContext;
 import org.jwildfire.create.tina.variation.RessourceManager;
 import org.jwildfire.create.tina.variation.RessourceType;
@@ -47,10 +46,13 @@ public class IFlamesFunc extends VariationFunc {
 
   private final String[] ressourceNames = flameParams.appendRessourceNames(motionParams.appendRessourceNames(imageParams.appendRessourceNames(new String[0])));
 
-  // derived params
-  private final Pixel toolPixel = new Pixel();
-  private int flameIdx;
-  private AbstractRandomGenerator randGen;
+  // scratch state of one render thread, the flame and particle lists prepared by init() are only read by transform()
+  private static class ThreadState {
+    private final Pixel toolPixel = new Pixel();
+    private int flameIdx;
+  }
+
+  private transient ThreadLocal<ThreadState> threadStates;
 
   @Override
   public String[] getParameterNames() {
@@ -80,7 +82,7 @@ public class IFlamesFunc extends VariationFunc {
       long t0 = System.currentTimeMillis();
       RessourceManager.clearRessources(KEY_PREFIX + "#" + imageParams.getId());
 
-      flameList = new BaseFlameListCreator(flameParams, motionParams, imageParams).calcBaseFlameList(pContext, imageParams.getColorMap());
+      flameList = new BaseFlameListCreator(flameParams, motionParams, imageParams).calcBaseFlameList(imageParams.getColorMap());
       RessourceManager.putRessource(key, flameList);
       System.out.println("NPUT " + key);
       long t1 = System.currentTimeMillis();
@@ -102,10 +104,22 @@ public class IFlamesFunc extends VariationFunc {
       System.out.println("IFLAMES: " + flameList.size() + " flames animated in " + (t1 - t0) / 1000.0 + "s (t=" + motionParams.getTime() + ")");
       //      }
     }
-    randGen = new MarsagliaRandomGenerator();
-    randGen.randomize(System.currentTimeMillis());
+    threadStates = new ThreadLocal<ThreadState>();
+  }
 
-    flameIdx = flameList != null && flameList.size() > 0 ? randGen.random(flameList.size()) : 0;
+  private ThreadState getThreadState(AbstractRandomGenerator pRandGen) {
+    ThreadState res = threadStates.get();
+    if (res == null) {
+      res = new ThreadState();
+      res.flameIdx = flameList != null && flameList.size() > 0 ? pRandGen.random(flameList.size()) : 0;
+      threadStates.set(res);
+    }
+    return res;
+  }
+
+  @Override
+  public boolean isThreadSafe() {
+    return true;
   }
 
   private IFlamesAnimatorMotionStore getMotionStore(String particleKey) {
@@ -187,6 +201,8 @@ public class IFlamesFunc extends VariationFunc {
 
   @Override
   public void transform(FlameTransformationContext pContext, XForm pXForm, XYZPoint pAffineTP, XYZPoint pVarTP, double pAmount) {
+    AbstractRandomGenerator randGen = pContext.getRandGen();
+    ThreadState state = getThreadState(randGen);
     if (imageParams.getImage_brightness() < MathLib.EPSILON || randGen.random() < imageParams.getIFlame_density()) {
       if (flameList.size() == 0) {
         return;
@@ -197,9 +213,9 @@ public class IFlamesFunc extends VariationFunc {
         idx = randGen.random(flameList.size());
       }
       else {
-        idx = flameIdx++;
-        if (flameIdx >= flameList.size()) {
-          flameIdx = 0;
+        idx = state.flameIdx++;
+        if (state.flameIdx >= flameList.size()) {
+          state.flameIdx = 0;
         }
       }
       BaseFlame baseFlame = flameList.get(idx);
@@ -218,7 +234,7 @@ public class IFlamesFunc extends VariationFunc {
         else {
           XYZPoint src = new XYZPoint();
           XYZPoint dst = new XYZPoint();
-          baseFlame.getIterator().iterate(src, dst, baseFlame.getSize(), particle.getRotation().getX(), particle.getRotation().getY(), particle.getRotation().getZ());
+          baseFlame.getIterator().iterate(pContext, src, dst, baseFlame.getSize(), particle.getRotation().getX(), particle.getRotation().getY(), particle.getRotation().getZ());
           pVarTP.x += dst.x + particle.getPosition().getX();
           pVarTP.y += dst.y + particle.getPosition().getY();
           pVarTP.z += dst.z + particle.getPosition().getZ();
@@ -230,15 +246,15 @@ public class IFlamesFunc extends VariationFunc {
         }
       }
       else {
-        addImage(pVarTP, randGen);
+        addImage(pVarTP, randGen, state.toolPixel);
       }
     }
     else {
-      addImage(pVarTP, randGen);
+      addImage(pVarTP, randGen, state.toolPixel);
     }
   }
 
-  private void addImage(XYZPoint pVarTP, AbstractRandomGenerator randGen) {
+  private void addImage(XYZPoint pVarTP, AbstractRandomGenerator randGen, Pixel toolPixel) {
     double xCoord = randGen.random(imageParams.getImgWidth()) + (0.5 - randGen.random());
     double yCoord = randGen.random(imageParams.getImgHeight()) + (0.5 - randGen.random());
     double dx = xCoord * imageParams.getScaleX() / (double) (imageParams.getImgWidth() - 1) + imageParams.getOffsetX();
@@ -36,63 +36,72 @@ import org.jwildfire.create.tina.variation.SubFlameWFFunc;
 import org.jwildfire.create.tina.variation.VariationFunc;
 
 public class IFlamesIterator {
-  private final XYZPoint affine, var, ifsPoint;
-  private final VariationFunc fnc;
-  private final XForm xform;
-  private final FlameTransformationContext flameTransformationContext;
   private final FlameParams params;
-  private final double rotateMatrix[][] = new double[3][3];
+  private final String flameXML;
+  // the sub flame keeps its current point between calls, so every render thread iterates its own copy
+  private final ThreadLocal<IterationState> states;
 
   public final static IFlamesIterator BLANK = new IFlamesIterator();
 
-  public IFlamesIterator(FlameTransformationContext pFlameTransformationContext, FlameParams pFlameParams, List<String> pParamNames, List<Double> pParamValues) {
-    flameTransformationContext = pFlameTransformationContext;
-    params = pFlameParams;
+  private static class IterationState {
+    private final XYZPoint affine = new XYZPoint();
+    private final XYZPoint var = new XYZPoint();
+    private final XYZPoint ifsPoint = new XYZPoint();
+    private final VariationFunc fnc = new SubFlameWFFunc();
+    private final XForm xform = new XForm();
+    private final double rotateMatrix[][] = new double[3][3];
+  }
 
-    affine = new XYZPoint();
-    var = new XYZPoint();
-    ifsPoint = new XYZPoint();
-    xform = new XForm();
-    fnc = new SubFlameWFFunc();
-    String flameXML = params.getFlameXML();
+  public IFlamesIterator(FlameParams pFlameParams, List<String> pParamNames, List<Double> pParamValues) {
+    params = pFlameParams;
+    String xml = params.getFlameXML();
     if (pParamNames != null && pParamNames.size() > 0) {
       try {
-        Flame flame = new FlameReader(Prefs.getPrefs()).readFlamesfromXML(flameXML).get(0);
+        Flame flame = new FlameReader(Prefs.getPrefs()).readFlamesfromXML(xml).get(0);
         for (int i = 0; i < pParamNames.size(); i++) {
           FlamePropertyPath path = new FlamePropertyPath(flame, pParamNames.get(i));
           AnimationModelService.setFlameProperty(flame, path, pParamValues.get(i));
         }
-        flameXML = new FlameWriter().getFlameXML(flame);
+        xml = new FlameWriter().getFlameXML(flame);
       }
       catch (Exception ex) {
         ex.printStackTrace();
       }
     }
-    fnc.setRessource(SubFlameWFFunc.RESSOURCE_FLAME, flameXML.getBytes());
-    fnc.init(pFlameTransformationContext, new Layer(), xform, 1.0);
+    flameXML = xml;
+    states = new ThreadLocal<IterationState>();
   }
 
   private IFlamesIterator() {
-    affine = var = ifsPoint = null;
-    fnc = null;
-    xform = null;
-    flameTransformationContext = null;
     params = null;
+    flameXML = null;
+    states = null;
   }
 
-  public void iterate(XForm pXForm, XYZPoint pAffineTP, XYZPoint pVarTP) {
-    fnc.transform(flameTransformationContext, pXForm, pAffineTP, pVarTP, 1.0);
+  private IterationState getState(FlameTransformationContext pContext) {
+    IterationState res = states.get();
+    if (res == null) {
+      res = new IterationState();
+      res.fnc.setRessource(SubFlameWFFunc.RESSOURCE_FLAME, flameXML.getBytes());
+      res.fnc.init(pContext, new Layer(), res.xform, 1.0);
+      states.set(res);
+    }
+    return res;
   }
 
-  public void iterate(XYZPoint pSrc, XYZPoint pDest, double pSize, double pAngleAlpha, double pAngleBeta, double pAngleGamma) {
-    affine.clear();
+  public void iterate(FlameTransformationContext pContext, XYZPoint pSrc, XYZPoint pDest, double pSize, double pAngleAlpha, double pAngleBeta, double pAngleGamma) {
+    IterationState state = getState(pContext);
+    XYZPoint var = state.var;
+    XYZPoint ifsPoint = state.ifsPoint;
+    double rotateMatrix[][] = state.rotateMatrix;
+    state.affine.clear();
     var.clear();
 
     double dr = pSize;
     double centreX = params.getCentreX();
     double centreY = params.getCentreY();
 
-    fnc.transform(flameTransformationContext, xform, affine, var, 1.0);
+    state.fnc.transform(pContext, state.xform, state.affine, var, 1.0);
 
     if (fabs(pAngleBeta) < EPSILON && fabs(pAngleGamma) < EPSILON) {
       double dx = var.x - centreX;
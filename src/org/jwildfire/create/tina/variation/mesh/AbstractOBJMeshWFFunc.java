@@ -185,6 +185,12 @@ public abstract class AbstractOBJMeshWFFunc extends VariationFunc {
     return mesh;
   }
 
+  // the mesh is prepared by init() and shared through the RessourceManager, transform() only reads it
+  @Override
+  public boolean isThreadSafe() {
+    return true;
+  }
+
   protected String getMeshname(String prefix) {
     String res = prefix + "#" + subdiv_level;
     if (subdiv_level > 0) {
@@ -0,0 +1,130 @@
+/*
+  JWildfire - an image and animation processor written in Java 
+  Copyright (C) 1995-2016 Andreas Maschke
+
+  This is free software; you can redistribute it and/or modify it under the terms of the GNU Lesser 
+  General Public License as published by the Free Software Foundation; either version 2.1 of the 
+  License, or (at your option) any later version.
+ 
+  This software is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without 
+  even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU 
+  Lesser General Public License for more details.
+
+  You should have received a copy of the GNU Lesser General Public License along with this software; 
+  if not, write to the Free Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+  02110-1301 USA, or see the FSF site: http://www.fsf.org.
+*/
+package org.jwildfire.envelope;
+
+import org.jwildfire.base.Tools;
+import org.jwildfire.envelope.Envelope.Interpolation;
+
+// Pre-interpolated, immutable form of an Envelope. evaluate() gives the same results as Envelope.evaluate(),
+// but does neither allocate nor look up the interpolated points, so it is cheap and may be shared by threads.
+public final class CompiledEnvelope {
+  private final int size;
+  private final int xmin, xmax;
+  private final double firstY, lastY;
+  private final boolean useBisection;
+  private final double vSX[];
+  private final double vSY[];
+  // rounded x values, as compared by the linear search of Envelope.evaluate()
+  private final int vSXRounded[];
+
+  CompiledEnvelope(int pX[], double pY[], Interpolation pInterpolation, boolean pUseBisection) {
+    size = pX.length;
+    useBisection = pUseBisection;
+    if (size > 0) {
+      int min = pX[0], max = pX[0];
+      for (int i = 1; i < size; i++) {
+        if (pX[i] < min)
+          min = pX[i];
+        else if (pX[i] > max)
+          max = pX[i];
+      }
+      xmin = min;
+      xmax = max;
+      firstY = pY[0];
+      lastY = pY[size - 1];
+    }
+    else {
+      xmin = xmax = 0;
+      firstY = lastY = 0.0;
+    }
+    if (size > 1) {
+      Envelope.InterpolatedPoints iPoints = new Envelope.InterpolatedPoints(pX.clone(), pY.clone(), pInterpolation);
+      vSX = iPoints.getvSX();
+      vSY = iPoints.getvSY();
+    }
+    else {
+      vSX = new double[0];
+      vSY = new double[0];
+    }
+    vSXRounded = new int[vSX.length];
+    for (int i = 0; i < vSX.length; i++) {
+      vSXRounded[i] = Tools.FTOI(vSX[i]);
+    }
+  }
+
+  public double evaluate(double pTime) {
+    if (size == 0)
+      return 0.0;
+    else if (size == 1)
+      return firstY;
+    else if (pTime <= xmin)
+      return firstY;
+    else if (pTime >= xmax)
+      return lastY;
+
+    int indl = -1, indr = -1;
+    int vSNum = vSX.length;
+    if (useBisection) {
+      int low = 0;
+      int high = vSNum - 1;
+      while (low <= high) {
+        int mid = (low + high) >>> 1;
+        double midVal = vSX[mid];
+        if (midVal < pTime) {
+          low = mid + 1;
+          indl = mid;
+        }
+        else if (midVal > pTime) {
+          indr = mid;
+          high = mid - 1;
+        }
+        else {
+          return vSY[mid];
+        }
+      }
+    }
+    else {
+      for (int i = 0; i < vSNum; i++) {
+        if (vSXRounded[i] <= pTime) {
+          indl = i;
+        }
+        else {
+          indr = i;
+          break;
+        }
+      }
+    }
+
+    if ((indl >= 0) && (indr >= 0)) {
+      double xdist = vSX[indr] - vSX[indl];
+      if (xdist < 0.00000001)
+        return vSX[indl];
+      else
+        return vSY[indl] + (pTime - vSX[indl]) / xdist * (vSY[indr] - vSY[indl]);
+    }
+    else if (indl >= 0) {
+      return vSY[indl];
+    }
+    else if (indr >= 0) {
+      return vSY[indr];
+    }
+    else {
+      return 0.0;
+    }
+  }
+
+}
@@ -18,6 +18,7 @@ package org.jwildfire.envelope;
 
 import java.io.Serializable;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.Map;
 import java.util.WeakHashMap;
 
@@ -203,7 +204,7 @@ public class Envelope implements Serializable {
     updateMinMax();
   }
 
-  private static final Map<InterpolatedPointsKey, InterpolatedPoints> interpolatedPointCache = new WeakHashMap<InterpolatedPointsKey, InterpolatedPoints>();
+  private static final Map<InterpolatedPointsKey, InterpolatedPoints> interpolatedPointCache = Collections.synchronizedMap(new WeakHashMap<InterpolatedPointsKey, InterpolatedPoints>());
 
   private static InterpolatedPoints getInterpolatedPoints(int pX[], double pY[], Interpolation pInterpolation) {
     InterpolatedPointsKey key = new InterpolatedPointsKey(pX, pY, pInterpolation);
@@ -262,7 +263,7 @@ public class Envelope implements Serializable {
 
   }
 
-  private static class InterpolatedPoints {
+  static class InterpolatedPoints {
 
     private final double vSX[];
     private final double vSY[];
@@ -424,6 +425,11 @@ public class Envelope implements Serializable {
     useBisection = pUseBisection;
   }
 
+  // immutable copy for repeated evaluation, see CompiledEnvelope
+  public CompiledEnvelope compile() {
+    return new CompiledEnvelope(x, y, interpolation, useBisection);
+  }
+
   public void smooth(int pSize) {
     if (pSize >= 3 && y != null && y.length > pSize) {
       double newY[] = new double[y.length];
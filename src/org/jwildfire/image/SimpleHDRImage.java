@@ -238,6 +238,28 @@ public class SimpleHDRImage implements WFImage {
     bBuffer[off] = e * (pB + 0.5f);
   }
 
+  // pRGBE holds 4 bytes (r, g, b, e) per pixel of the row
+  public void setRGBERow(int pY, byte[] pRGBE) {
+    int off = getOffset(0, pY);
+    for (int j = 0, k = 0; j < imageWidth; j++, k += 4) {
+      float e = EXPONENT[pRGBE[k + 3] & 0xff];
+      rBuffer[off + j] = e * ((pRGBE[k] & 0xff) + 0.5f);
+      gBuffer[off + j] = e * ((pRGBE[k + 1] & 0xff) + 0.5f);
+      bBuffer[off + j] = e * ((pRGBE[k + 2] & 0xff) + 0.5f);
+    }
+  }
+
+  public void getRGBERow(int pY, byte[] pRGBE) {
+    int off = getOffset(0, pY);
+    for (int j = 0, k = 0; j < imageWidth; j++, k += 4) {
+      int rgbe = convertRGBToRGBE(rBuffer[off + j], gBuffer[off + j], bBuffer[off + j]);
+      pRGBE[k] = (byte) (rgbe >> 24);
+      pRGBE[k + 1] = (byte) (rgbe >> 16);
+      pRGBE[k + 2] = (byte) (rgbe >> 8);
+      pRGBE[k + 3] = (byte) rgbe;
+    }
+  }
+
   public void getMinMaxLum(float[] pLum) {
     float minLum = Float.MAX_VALUE;
     float maxLum = 0.0f;
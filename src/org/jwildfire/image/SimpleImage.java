@@ -19,6 +19,10 @@ package org.jwildfire.image;
 import java.awt.Color;
 import java.awt.Graphics;
 import java.awt.image.BufferedImage;
+import java.awt.image.DataBuffer;
+import java.awt.image.DataBufferInt;
+import java.awt.image.SinglePixelPackedSampleModel;
+import java.awt.image.WritableRaster;
 
 import org.jwildfire.base.Tools;
 import org.jwildfire.base.mathlib.GfxMathLib;
@@ -28,11 +32,14 @@ public class SimpleImage implements WFImage {
   private int imageWidth = -1;
   private int imageHeight = -1;
   private BufferedImage bufferedImg;
+  // the ARGB values of bufferedImg, if it is a plain TYPE_INT_ARGB image, else null
+  private int[] pixels;
 
   public SimpleImage(int pWidth, int pHeight) {
     bufferedImg = new BufferedImage(pWidth, pHeight, BufferedImage.TYPE_INT_ARGB);
     imageWidth = pWidth;
     imageHeight = pHeight;
+    pixels = getPixels(bufferedImg, imageWidth, imageHeight);
   }
 
   public SimpleImage(BufferedImage pBufferedImg, int pWidth, int pHeight) {
@@ -46,6 +53,63 @@ public class SimpleImage implements WFImage {
     bufferedImg = pBufferedImg;
     imageWidth = pWidth;
     imageHeight = pHeight;
+    pixels = getPixels(bufferedImg, imageWidth, imageHeight);
+  }
+
+  private static int[] getPixels(BufferedImage pImg, int pWidth, int pHeight) {
+    if (pImg == null || pImg.getType() != BufferedImage.TYPE_INT_ARGB || pImg.getWidth() != pWidth || pImg.getHeight() != pHeight) {
+      return null;
+    }
+    WritableRaster raster = pImg.getRaster();
+    DataBuffer dataBuffer = raster.getDataBuffer();
+    // sub images share the buffer of their parent
+    if (!(dataBuffer instanceof DataBufferInt) || dataBuffer.getNumBanks() != 1 || dataBuffer.getOffset() != 0
+        || !(raster.getSampleModel() instanceof SinglePixelPackedSampleModel) || ((SinglePixelPackedSampleModel) raster.getSampleModel()).getScanlineStride() != pWidth
+        || raster.getSampleModelTranslateX() != 0 || raster.getSampleModelTranslateY() != 0) {
+      return null;
+    }
+    return ((DataBufferInt) dataBuffer).getData();
+  }
+
+  // Direct access to the ARGB values of the image, row by row, without the per pixel colour model
+  // conversion of the BufferedImage. Changes are visible in both directions. Returns null if the image
+  // is not backed by a plain TYPE_INT_ARGB raster, then getARGBRow()/setARGBRow() must be used.
+  public int[] getPixels() {
+    return pixels;
+  }
+
+  private int getIndex(int pX, int pY) {
+    if (pX < 0 || pX >= imageWidth || pY < 0 || pY >= imageHeight) {
+      throw new ArrayIndexOutOfBoundsException("Coordinate out of bounds!");
+    }
+    return pY * imageWidth + pX;
+  }
+
+  private int getRowIndex(int pY, int pStartX, int pEndX) {
+    if (pEndX < pStartX || pEndX > imageWidth) {
+      throw new ArrayIndexOutOfBoundsException("Coordinate out of bounds!");
+    }
+    return getIndex(pStartX, pY);
+  }
+
+  // copies the pixels pStartX..pEndX-1 of the row pY to pARGB, starting at index 0
+  public void getARGBRow(int pY, int pStartX, int pEndX, int[] pARGB) {
+    if (pixels != null) {
+      System.arraycopy(pixels, getRowIndex(pY, pStartX, pEndX), pARGB, 0, pEndX - pStartX);
+    }
+    else {
+      bufferedImg.getRGB(pStartX, pY, pEndX - pStartX, 1, pARGB, 0, imageWidth);
+    }
+  }
+
+  // sets the pixels pStartX..pEndX-1 of the row pY from pARGB, starting at index 0
+  public void setARGBRow(int pY, int pStartX, int pEndX, int[] pARGB) {
+    if (pixels != null) {
+      System.arraycopy(pARGB, 0, pixels, getRowIndex(pY, pStartX, pEndX), pEndX - pStartX);
+    }
+    else {
+      bufferedImg.setRGB(pStartX, pY, pEndX - pStartX, 1, pARGB, 0, imageWidth);
+    }
   }
 
   @Override
@@ -82,8 +146,14 @@ public class SimpleImage implements WFImage {
         BufferedImage.TYPE_INT_ARGB);
     res.imageWidth = getImageWidth();
     res.imageHeight = getImageHeight();
-    Graphics g = res.bufferedImg.getGraphics();
-    g.drawImage(getBufferedImg(), 0, 0, null);
+    res.pixels = getPixels(res.bufferedImg, res.imageWidth, res.imageHeight);
+    if (pixels != null && res.pixels != null) {
+      System.arraycopy(pixels, 0, res.pixels, 0, pixels.length);
+    }
+    else {
+      Graphics g = res.bufferedImg.getGraphics();
+      g.drawImage(getBufferedImg(), 0, 0, null);
+    }
     return res;
   }
 
@@ -92,28 +162,29 @@ public class SimpleImage implements WFImage {
   }
 
   public void setRGB(int pX, int pY, int pR, int pG, int pB) {
-    getBufferedImg().setRGB(pX, pY, getARGB(255, pR, pG, pB));
+    setARGB(pX, pY, getARGB(255, pR, pG, pB));
   }
 
   public void setARGB(int pX, int pY, int pA, int pR, int pG, int pB) {
-    getBufferedImg().setRGB(pX, pY, getARGB(pA, pR, pG, pB));
-  }
-
-  private void setARGBValue(int pX, int pY, int pARGBValue) {
-    getBufferedImg().setRGB(pX, pY, pARGBValue);
+    setARGB(pX, pY, getARGB(pA, pR, pG, pB));
   }
 
   public void setRGB(int pX, int pY, Pixel pPixel) {
-    getBufferedImg().setRGB(pX, pY, pPixel.getARGBValue());
+    setARGB(pX, pY, pPixel.getARGBValue());
   }
 
   public void setARGB(int pX, int pY, int pARGB) {
-    getBufferedImg().setRGB(pX, pY, pARGB);
+    if (pixels != null) {
+      pixels[getIndex(pX, pY)] = pARGB;
+    }
+    else {
+      getBufferedImg().setRGB(pX, pY, pARGB);
+    }
   }
 
   public int getARGBValue(int pX, int pY) {
     try {
-      return getBufferedImg().getRGB(pX, pY);
+      return pixels != null ? pixels[getIndex(pX, pY)] : getBufferedImg().getRGB(pX, pY);
     }
     catch (Exception ex) {
       throw new RuntimeException("(" + pX + ", " + pY + ") is out of bounds (0.."
@@ -151,11 +222,23 @@ public class SimpleImage implements WFImage {
     return SimpleHDRImage.convertRGBToRGBE((float) pR / 255.0f, (float) pG / 255.0f, (float) pB / 255.0f);
   }
 
+  // pRGBE receives 4 bytes (r, g, b, e) per pixel of the row
+  public void getRGBERow(int pY, byte[] pRGBE) {
+    int[] argb = getLine(pY);
+    for (int j = 0, k = 0; j < imageWidth; j++, k += 4) {
+      int rgbe = convertRGBToRGBE((argb[j] >> 16) & 0xff, (argb[j] >> 8) & 0xff, argb[j] & 0xff);
+      pRGBE[k] = (byte) (rgbe >> 24);
+      pRGBE[k + 1] = (byte) (rgbe >> 16);
+      pRGBE[k + 2] = (byte) (rgbe >> 8);
+      pRGBE[k + 3] = (byte) rgbe;
+    }
+  }
+
   public int getARGBValueIgnoreBounds(int pX, int pY) {
     if ((pX < 0) || (pX >= imageWidth) || (pY < 0) || (pY >= imageHeight))
       return 0;
     else
-      return getBufferedImg().getRGB(pX, pY);
+      return pixels != null ? pixels[pY * imageWidth + pX] : getBufferedImg().getRGB(pX, pY);
   }
 
   public int getRValueIgnoreBounds(int pX, int pY) {
@@ -182,29 +265,26 @@ public class SimpleImage implements WFImage {
     bufferedImg = new BufferedImage(pWidth, pHeight, BufferedImage.TYPE_INT_RGB);
     imageWidth = pWidth;
     imageHeight = pHeight;
+    pixels = null;
   }
 
   public int[] getLine(int pY) {
     int res[] = new int[imageWidth];
-    for (int i = 0; i < imageWidth; i++) {
-      res[i] = getARGBValue(i, pY);
-    }
+    getARGBRow(pY, 0, imageWidth, res);
     return res;
   }
 
   public void setLine(int pY, int[] pLine) {
-    for (int i = 0; i < imageWidth; i++) {
-      setARGBValue(i, pY, pLine[i]);
-    }
+    setARGBRow(pY, 0, imageWidth, pLine);
   }
 
   public void fillBackground(SimpleImage pImage) {
     Pixel toolPixel = new Pixel();
     if (pImage.getImageWidth() == imageWidth && pImage.getImageHeight() == imageHeight) {
+      int[] line = new int[imageWidth];
       for (int i = 0; i < imageHeight; i++) {
-        for (int j = 0; j < imageWidth; j++) {
-          setARGB(j, i, pImage.getARGBValue(j, i));
-        }
+        pImage.getARGBRow(i, 0, imageWidth, line);
+        setARGBRow(i, 0, imageWidth, line);
       }
     }
     else {
@@ -0,0 +1,154 @@
+/*
+  JWildfire - an image and animation processor written in Java 
+  Copyright (C) 1995-2016 Andreas Maschke
+
+  This is free software; you can redistribute it and/or modify it under the terms of the GNU Lesser 
+  General Public License as published by the Free Software Foundation; either version 2.1 of the 
+  License, or (at your option) any later version.
+ 
+  This software is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without 
+  even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU 
+  Lesser General Public License for more details.
+
+  You should have received a copy of the GNU Lesser General Public License along with this software; 
+  if not, write to the Free Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+  02110-1301 USA, or see the FSF site: http://www.fsf.org.
+*/
+package org.jwildfire.io;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+
+import org.jwildfire.image.SimpleImage;
+
+// Writes a PD Howler AnimBrush file frame by frame. The file stores one plane per channel and frame,
+// grouped by channel (all red planes, then all green planes, ...), so the planes are placed for the
+// expected number of frames and compacted on close if fewer frames were added. Only one frame is held
+// in memory at a time.
+public class ANBWriter implements Closeable {
+  private static final int HEADER_SIZE = 36;
+  private static final int FRAMECOUNT_OFFSET = 12;
+  private static final int CHANNELS = 4;
+
+  private final RandomAccessFile file;
+  private final int width;
+  private final int height;
+  private final int maxFrameCount;
+  private final int planeSize;
+  private final byte[] plane;
+  private int frameCount;
+
+  public ANBWriter(String pFilename, int pWidth, int pHeight, int pMaxFrameCount) throws IOException {
+    if (pWidth <= 0 || pHeight <= 0 || pMaxFrameCount <= 0) {
+      throw new IllegalArgumentException(pWidth + "x" + pHeight + ", " + pMaxFrameCount + " frames");
+    }
+    width = pWidth;
+    height = pHeight;
+    maxFrameCount = pMaxFrameCount;
+    planeSize = (width + 1) * (height + 1);
+    plane = new byte[planeSize];
+    file = new RandomAccessFile(pFilename, "rw");
+    try {
+      file.setLength(0);
+      writeHeader();
+    }
+    catch (IOException ex) {
+      file.close();
+      throw ex;
+    }
+  }
+
+  private void writeHeader() throws IOException {
+    int direction = 1;
+    int endBehaviour = 0;
+    int step = 16;
+    int reserved1 = 0;
+    int reserved2 = 0;
+    byte buffer[] = new byte[HEADER_SIZE];
+    buffer[0] = 'A';
+    buffer[1] = 'N';
+    buffer[2] = 'B';
+    buffer[3] = 'R';
+    putInt(buffer, 4, width);
+    putInt(buffer, 8, height);
+    putInt(buffer, FRAMECOUNT_OFFSET, maxFrameCount - 1);
+    putInt(buffer, 16, direction);
+    putInt(buffer, 20, endBehaviour);
+    putInt(buffer, 24, step);
+    putInt(buffer, 28, reserved1);
+    putInt(buffer, 32, reserved2);
+    file.seek(0);
+    file.write(buffer);
+  }
+
+  private static void putInt(byte[] pBuffer, int pOffset, int pValue) {
+    pBuffer[pOffset] = (byte) (pValue);
+    pBuffer[pOffset + 1] = (byte) (pValue >> 8);
+    pBuffer[pOffset + 2] = (byte) (pValue >> 16);
+    pBuffer[pOffset + 3] = (byte) (pValue >> 24);
+  }
+
+  private long planeOffset(int pChannel, int pFrame, int pFrameCount) {
+    return HEADER_SIZE + ((long) pChannel * pFrameCount + pFrame) * planeSize;
+  }
+
+  public void addFrame(SimpleImage pImage) throws IOException {
+    if (pImage.getImageWidth() != width || pImage.getImageHeight() != height) {
+      throw new IllegalArgumentException(pImage.getImageWidth() + "x" + pImage.getImageHeight());
+    }
+    if (frameCount >= maxFrameCount) {
+      throw new IllegalStateException("Too many frames");
+    }
+    int lineWidth = width + 1;
+    int[] pixels = pImage.getBufferedImg().getRGB(0, 0, width, height, null, 0, width);
+    for (int channel = 0; channel < CHANNELS; channel++) {
+      // the right and bottom padding are never written and stay zero
+      int shift = channel == 0 ? 16 : channel == 1 ? 8 : channel == 2 ? 0 : 24;
+      for (int i = 0; i < height; i++) {
+        int src = i * width;
+        int dst = i * lineWidth;
+        for (int j = 0; j < width; j++) {
+          plane[dst + j] = (byte) (pixels[src + j] >>> shift);
+        }
+      }
+      file.seek(planeOffset(channel, frameCount, maxFrameCount));
+      file.write(plane);
+    }
+    frameCount++;
+  }
+
+  public int getFrameCount() {
+    return frameCount;
+  }
+
+  @Override
+  public void close() throws IOException {
+    try {
+      if (frameCount > 0 && frameCount < maxFrameCount) {
+        compact();
+      }
+      byte buffer[] = new byte[4];
+      putInt(buffer, 0, frameCount - 1);
+      file.seek(FRAMECOUNT_OFFSET);
+      file.write(buffer);
+    }
+    finally {
+      file.close();
+    }
+  }
+
+  private void compact() throws IOException {
+    // channel 0 is already in place, move the planes of the other channels down
+    for (int channel = 1; channel < CHANNELS; channel++) {
+      for (int i = 0; i < frameCount; i++) {
+        file.seek(planeOffset(channel, i, maxFrameCount));
+        file.readFully(plane);
+        file.seek(planeOffset(channel, i, frameCount));
+        file.write(plane);
+      }
+    }
+    file.setLength(planeOffset(CHANNELS, 0, frameCount));
+  }
+
+}
@@ -0,0 +1,232 @@
+/*
+  JWildfire - an image and animation processor written in Java 
+  Copyright (C) 1995-2016 Andreas Maschke
+
+  This is free software; you can redistribute it and/or modify it under the terms of the GNU Lesser 
+  General Public License as published by the Free Software Foundation; either version 2.1 of the 
+  License, or (at your option) any later version.
+ 
+  This software is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without 
+  even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU 
+  Lesser General Public License for more details.
+
+  You should have received a copy of the GNU Lesser General Public License along with this software; 
+  if not, write to the Free Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+  02110-1301 USA, or see the FSF site: http://www.fsf.org.
+*/
+package org.jwildfire.io;
+
+import java.io.BufferedOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+
+// Writes an uncompressed single part scanline OpenEXR file with half or float RGBA channels. Every row is
+// a chunk of its own, all chunks have the same size, so the offset table can be written ahead of the
+// pixels and the rows are streamed to the file as they arrive.
+public class EXRWriter implements FloatScanlineWriter {
+  private static final int MAGIC = 20000630;
+  private static final int VERSION = 2;
+  private static final int PIXEL_TYPE_HALF = 1;
+  private static final int PIXEL_TYPE_FLOAT = 2;
+  // stored in alphabetical order, with the index of the channel in the RGBA quadruples
+  private static final String[] CHANNEL_NAMES = { "A", "B", "G", "R" };
+  private static final int[] CHANNEL_IDX = { 3, 2, 1, 0 };
+
+  private final OutputStream out;
+  private final int width;
+  private final int height;
+  private final boolean halfFloat;
+  private final ByteBuffer chunk;
+  private int rowCount;
+
+  public EXRWriter(String pFilename, int pWidth, int pHeight, boolean pHalfFloat) throws IOException {
+    this(new BufferedOutputStream(new FileOutputStream(pFilename), 1 << 16), pWidth, pHeight, pHalfFloat);
+  }
+
+  public EXRWriter(OutputStream pOut, int pWidth, int pHeight, boolean pHalfFloat) throws IOException {
+    if (pWidth <= 0 || pHeight <= 0) {
+      throw new IllegalArgumentException(pWidth + "x" + pHeight);
+    }
+    out = pOut;
+    width = pWidth;
+    height = pHeight;
+    halfFloat = pHalfFloat;
+    chunk = ByteBuffer.allocate(8 + getRowSize()).order(ByteOrder.LITTLE_ENDIAN);
+    try {
+      writeHeader();
+    }
+    catch (IOException ex) {
+      out.close();
+      throw ex;
+    }
+  }
+
+  private int getRowSize() {
+    return width * CHANNEL_NAMES.length * (halfFloat ? 2 : 4);
+  }
+
+  private void writeHeader() throws IOException {
+    ByteBuffer buffer = ByteBuffer.allocate(1024).order(ByteOrder.LITTLE_ENDIAN);
+    buffer.putInt(MAGIC);
+    buffer.putInt(VERSION);
+
+    putAttributeHeader(buffer, "channels", "chlist", CHANNEL_NAMES.length * 18 + 1);
+    for (String name : CHANNEL_NAMES) {
+      putString(buffer, name);
+      buffer.putInt(halfFloat ? PIXEL_TYPE_HALF : PIXEL_TYPE_FLOAT);
+      // pLinear and reserved bytes
+      buffer.putInt(0);
+      // x and y sampling
+      buffer.putInt(1);
+      buffer.putInt(1);
+    }
+    buffer.put((byte) 0);
+
+    putAttributeHeader(buffer, "compression", "compression", 1);
+    buffer.put((byte) 0);
+    putAttributeHeader(buffer, "dataWindow", "box2i", 16);
+    putBox(buffer);
+    putAttributeHeader(buffer, "displayWindow", "box2i", 16);
+    putBox(buffer);
+    putAttributeHeader(buffer, "lineOrder", "lineOrder", 1);
+    buffer.put((byte) 0);
+    putAttributeHeader(buffer, "pixelAspectRatio", "float", 4);
+    buffer.putFloat(1.0f);
+    putAttributeHeader(buffer, "screenWindowCenter", "v2f", 8);
+    buffer.putFloat(0.0f);
+    buffer.putFloat(0.0f);
+    putAttributeHeader(buffer, "screenWindowWidth", "float", 4);
+    buffer.putFloat(1.0f);
+    buffer.put((byte) 0);
+    out.write(buffer.array(), 0, buffer.position());
+
+    ByteBuffer offsets = ByteBuffer.allocate(8 * height).order(ByteOrder.LITTLE_ENDIAN);
+    long offset = buffer.position() + offsets.capacity();
+    for (int i = 0; i < height; i++) {
+      offsets.putLong(offset);
+      offset += chunk.capacity();
+    }
+    out.write(offsets.array());
+  }
+
+  private void putAttributeHeader(ByteBuffer pBuffer, String pName, String pType, int pSize) {
+    putString(pBuffer, pName);
+    putString(pBuffer, pType);
+    pBuffer.putInt(pSize);
+  }
+
+  private void putString(ByteBuffer pBuffer, String pValue) {
+    pBuffer.put(pValue.getBytes(StandardCharsets.US_ASCII));
+    pBuffer.put((byte) 0);
+  }
+
+  private void putBox(ByteBuffer pBuffer) {
+    pBuffer.putInt(0);
+    pBuffer.putInt(0);
+    pBuffer.putInt(width - 1);
+    pBuffer.putInt(height - 1);
+  }
+
+  @Override
+  public int getWidth() {
+    return width;
+  }
+
+  @Override
+  public int getHeight() {
+    return height;
+  }
+
+  public boolean isHalfFloat() {
+    return halfFloat;
+  }
+
+  @Override
+  public void writeScanline(float[] pRGBA, int pOffset) throws IOException {
+    if (rowCount >= height) {
+      throw new IllegalStateException("Too many rows");
+    }
+    chunk.clear();
+    chunk.putInt(rowCount);
+    chunk.putInt(getRowSize());
+    for (int c = 0; c < CHANNEL_NAMES.length; c++) {
+      int idx = pOffset + CHANNEL_IDX[c];
+      if (halfFloat) {
+        for (int i = 0; i < width; i++, idx += 4) {
+          chunk.putShort(toHalfFloat(pRGBA[idx]));
+        }
+      }
+      else {
+        for (int i = 0; i < width; i++, idx += 4) {
+          chunk.putFloat(pRGBA[idx]);
+        }
+      }
+    }
+    out.write(chunk.array(), 0, chunk.position());
+    rowCount++;
+  }
+
+  public int getRowCount() {
+    return rowCount;
+  }
+
+  @Override
+  public void close() throws IOException {
+    try {
+      // rows which were never written (e.g. of a cancelled render) are stored as transparent black,
+      // so that every entry of the offset table is valid
+      if (rowCount < height) {
+        float[] empty = new float[width * 4];
+        while (rowCount < height) {
+          writeScanline(empty, 0);
+        }
+      }
+      out.flush();
+    }
+    finally {
+      out.close();
+    }
+  }
+
+  // IEEE 754 binary16, rounded to nearest even
+  public static short toHalfFloat(float pValue) {
+    int bits = Float.floatToRawIntBits(pValue);
+    int sign = (bits >>> 16) & 0x8000;
+    int exponent = (bits >>> 23) & 0xff;
+    int mantissa = bits & 0x7fffff;
+    if (exponent == 0xff) {
+      // infinity or NaN
+      return (short) (sign | 0x7c00 | (mantissa != 0 ? 0x200 : 0));
+    }
+    int halfExponent = exponent - 127 + 15;
+    if (halfExponent >= 0x1f) {
+      return (short) (sign | 0x7c00);
+    }
+    int shift, half;
+    if (halfExponent <= 0) {
+      // subnormal half
+      if (halfExponent < -10) {
+        return (short) sign;
+      }
+      mantissa |= 0x800000;
+      shift = 14 - halfExponent;
+      half = mantissa >> shift;
+    }
+    else {
+      shift = 13;
+      half = (halfExponent << 10) | (mantissa >> shift);
+    }
+    int remainder = mantissa & ((1 << shift) - 1);
+    int halfway = 1 << (shift - 1);
+    // a carry into the exponent is intended, it yields the next power of two or infinity
+    if (remainder > halfway || (remainder == halfway && (half & 1) != 0)) {
+      half++;
+    }
+    return (short) (sign | half);
+  }
+
+}
@@ -0,0 +1,32 @@
+/*
+  JWildfire - an image and animation processor written in Java 
+  Copyright (C) 1995-2016 Andreas Maschke
+
+  This is free software; you can redistribute it and/or modify it under the terms of the GNU Lesser 
+  General Public License as published by the Free Software Foundation; either version 2.1 of the 
+  License, or (at your option) any later version.
+ 
+  This software is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without 
+  even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU 
+  Lesser General Public License for more details.
+
+  You should have received a copy of the GNU Lesser General Public License along with this software; 
+  if not, write to the Free Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+  02110-1301 USA, or see the FSF site: http://www.fsf.org.
+*/
+package org.jwildfire.io;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+// Receives a linear float RGBA image (no gamma curve applied) row by row, from the top to the bottom
+public interface FloatScanlineWriter extends Closeable {
+
+  int getWidth();
+
+  int getHeight();
+
+  // writes the next row, taking getWidth() RGBA quadruples from pRGBA, starting at pOffset
+  void writeScanline(float[] pRGBA, int pOffset) throws IOException;
+
+}
@@ -17,100 +17,129 @@
 package org.jwildfire.io;
 
 import java.awt.Component;
-import java.awt.Graphics;
-import java.awt.Image;
-import java.awt.MediaTracker;
-import java.awt.Toolkit;
 import java.awt.image.BufferedImage;
-import java.io.BufferedInputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
+import java.io.IOException;
 import java.io.InputStream;
+import java.util.Iterator;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
-import javax.swing.JLabel;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageTypeSpecifier;
+import javax.imageio.stream.ImageInputStream;
 
 import org.jwildfire.image.SimpleHDRImage;
 import org.jwildfire.image.SimpleImage;
 
+// Decodes images with ImageIO, so no display is required. Images are decoded directly into TYPE_INT_ARGB if the
+// decoder supports it, otherwise converted once, keeping the alpha channel.
 public class ImageReader {
-  private Component owner;
 
   public ImageReader(Component pOwner) {
-    owner = pOwner;
+    // the owner was needed by the former MediaTracker based decoding
   }
 
   public ImageReader() {
-    owner = new JLabel();
   }
 
   public SimpleImage loadImage(String pFilename) throws Exception {
     File file = new File(pFilename);
     if (!file.exists())
       throw new FileNotFoundException(pFilename);
-    Image fileImg = Toolkit.getDefaultToolkit().createImage(pFilename);
-    MediaTracker tracker = new MediaTracker(owner);
-    tracker.addImage(fileImg, 0);
-    tracker.waitForID(0);
-    int width = fileImg.getWidth(null);
-    int height = fileImg.getHeight(null);
-    BufferedImage bImg = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
-    Graphics g = bImg.getGraphics();
-    g.drawImage(fileImg, 0, 0, null);
-    fileImg = null;
-    return new SimpleImage(bImg, width, height);
+    BufferedImage img = readImage(file);
+    if (img.getType() != BufferedImage.TYPE_INT_ARGB) {
+      img = convertToARGB(img);
+    }
+    return new SimpleImage(img, img.getWidth(), img.getHeight());
   }
 
-  private String readNextLine(InputStream is) throws Exception {
-    int b, idx = 0;
-    byte line[] = new byte[256];
-    while ((b = is.read()) != -1) {
-      if (b == '\n') {
-        break;
+  private BufferedImage readImage(File pFile) throws IOException {
+    ImageInputStream in = ImageIO.createImageInputStream(pFile);
+    if (in == null) {
+      throw new IOException("Can not read <" + pFile.getAbsolutePath() + ">");
+    }
+    try {
+      Iterator<javax.imageio.ImageReader> readers = ImageIO.getImageReaders(in);
+      if (!readers.hasNext()) {
+        throw new IOException("Unsupported image format <" + pFile.getAbsolutePath() + ">");
+      }
+      javax.imageio.ImageReader reader = readers.next();
+      try {
+        reader.setInput(in, true, true);
+        ImageReadParam param = reader.getDefaultReadParam();
+        Iterator<ImageTypeSpecifier> types = reader.getImageTypes(0);
+        while (types.hasNext()) {
+          ImageTypeSpecifier type = types.next();
+          if (type.getBufferedImageType() == BufferedImage.TYPE_INT_ARGB) {
+            param.setDestinationType(type);
+            break;
+          }
+        }
+        return reader.read(0, param);
       }
-      line[idx++] = (byte) b;
+      finally {
+        reader.dispose();
+      }
+    }
+    finally {
+      in.close();
     }
-    return idx > 0 ? new String(line, 0, idx) : "";
+  }
+
+  private BufferedImage convertToARGB(BufferedImage pImg) {
+    int width = pImg.getWidth();
+    int height = pImg.getHeight();
+    BufferedImage res = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+    int[] row = new int[width];
+    for (int i = 0; i < height; i++) {
+      pImg.getRGB(0, i, width, 1, row, 0, width);
+      res.setRGB(0, i, width, 1, row, 0, width);
+    }
+    return res;
   }
 
   public SimpleHDRImage loadHDRImage(String pFilename) throws Exception {
     File file = new File(pFilename);
     if (!file.exists())
       throw new FileNotFoundException(pFilename);
-    InputStream f = new BufferedInputStream(new FileInputStream(pFilename));
-    // header
-    String header = readNextLine(f);
-    if (!"#?RGBE".equals(header)) {
-      throw new IllegalArgumentException("Invalid header <" + header + ">");
-    }
-    // format
-    String format = readNextLine(f);
-    if (!"FORMAT=32-bit_rle_rgbe".equals(format)) {
-      throw new IllegalArgumentException("Invalid format <" + format + ">");
-    }
-    // skip empty line
-    readNextLine(f);
-    // image size
-    String dimension = readNextLine(f);
-    Pattern pattern = Pattern.compile("\\-Y ([0-9]+) \\+X ([0-9]+)");
-    Matcher matcher = pattern.matcher(dimension);
-    if (!matcher.find()) {
-      throw new IllegalArgumentException("Invalid dimension identifier<" + dimension + ">");
-    }
-    int width = Integer.parseInt(matcher.group(2));
-    int height = Integer.parseInt(matcher.group(1));
-    SimpleHDRImage res = new SimpleHDRImage(width, height);
-    for (int i = 0; i < height; i++) {
-      for (int j = 0; j < width; j++) {
-        int r = f.read();
-        int g = f.read();
-        int b = f.read();
-        int e = f.read();
-        res.setRGBEValue(j, i, r, g, b, e);
+    InputStream f = new FileInputStream(pFilename);
+    try {
+      RGBEScanlines.Input in = new RGBEScanlines.Input(f);
+      // header
+      String header = in.readLine();
+      if (!"#?RGBE".equals(header) && !"#?RADIANCE".equals(header)) {
+        throw new IllegalArgumentException("Invalid header <" + header + ">");
+      }
+      // variables up to the empty line
+      String line;
+      while ((line = in.readLine()).length() > 0) {
+        if (line.startsWith("FORMAT=") && !"FORMAT=32-bit_rle_rgbe".equals(line)) {
+          throw new IllegalArgumentException("Invalid format <" + line + ">");
+        }
       }
+      // image size
+      String dimension = in.readLine();
+      Pattern pattern = Pattern.compile("\\-Y ([0-9]+) \\+X ([0-9]+)");
+      Matcher matcher = pattern.matcher(dimension);
+      if (!matcher.find()) {
+        throw new IllegalArgumentException("Invalid dimension identifier<" + dimension + ">");
+      }
+      int width = Integer.parseInt(matcher.group(2));
+      int height = Integer.parseInt(matcher.group(1));
+      SimpleHDRImage res = new SimpleHDRImage(width, height);
+      byte[] row = new byte[4 * width];
+      for (int i = 0; i < height; i++) {
+        RGBEScanlines.decodeRow(in, row, width);
+        res.setRGBERow(i, row);
+      }
+      return res;
+    }
+    finally {
+      f.close();
     }
-    return res;
   }
 }
@@ -113,36 +113,38 @@ public class ImageWriter {
   }
 
   public void saveAsHDR(SimpleImage pImg, String pFilename) throws Exception {
+    int width = pImg.getImageWidth();
+    int height = pImg.getImageHeight();
     OutputStream f = new BufferedOutputStream(new FileOutputStream(pFilename));
-    f.write("#?RGBE\n".getBytes());
-    f.write("FORMAT=32-bit_rle_rgbe\n\n".getBytes());
-    f.write(("-Y " + pImg.getImageHeight() + " +X " + pImg.getImageWidth() + "\n").getBytes());
-    for (int i = 0; i < pImg.getImageHeight(); i++) {
-      for (int j = 0; j < pImg.getImageWidth(); j++) {
-        int rgbe = pImg.getRGBEValue(j, i);
-        f.write(rgbe >> 24);
-        f.write(rgbe >> 16);
-        f.write(rgbe >> 8);
-        f.write(rgbe);
+    try {
+      RGBEScanlines.writeHeader(f, width, height);
+      byte[] row = new byte[4 * width];
+      byte[] encoded = new byte[RGBEScanlines.maxEncodedSize(width)];
+      for (int i = 0; i < height; i++) {
+        pImg.getRGBERow(i, row);
+        f.write(encoded, 0, RGBEScanlines.encodeRow(row, width, encoded));
       }
     }
-    f.close();
+    finally {
+      f.close();
+    }
   }
 
   public void saveAsHDR(SimpleHDRImage pImg, String pFilename) throws Exception {
+    int width = pImg.getImageWidth();
+    int height = pImg.getImageHeight();
     OutputStream f = new BufferedOutputStream(new FileOutputStream(pFilename));
-    f.write("#?RGBE\n".getBytes());
-    f.write("FORMAT=32-bit_rle_rgbe\n\n".getBytes());
-    f.write(("-Y " + pImg.getImageHeight() + " +X " + pImg.getImageWidth() + "\n").getBytes());
-    for (int i = 0; i < pImg.getImageHeight(); i++) {
-      for (int j = 0; j < pImg.getImageWidth(); j++) {
-        int rgbe = pImg.getRGBEValue(j, i);
-        f.write(rgbe >> 24);
-        f.write(rgbe >> 16);
-        f.write(rgbe >> 8);
-        f.write(rgbe);
+    try {
+      RGBEScanlines.writeHeader(f, width, height);
+      byte[] row = new byte[4 * width];
+      byte[] encoded = new byte[RGBEScanlines.maxEncodedSize(width)];
+      for (int i = 0; i < height; i++) {
+        pImg.getRGBERow(i, row);
+        f.write(encoded, 0, RGBEScanlines.encodeRow(row, width, encoded));
       }
     }
-    f.close();
+    finally {
+      f.close();
+    }
   }
 }
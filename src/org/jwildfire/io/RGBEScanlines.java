@@ -0,0 +1,211 @@
+/*
+  JWildfire - an image and animation processor written in Java 
+  Copyright (C) 1995-2016 Andreas Maschke
+
+  This is free software; you can redistribute it and/or modify it under the terms of the GNU Lesser 
+  General Public License as published by the Free Software Foundation; either version 2.1 of the 
+  License, or (at your option) any later version.
+ 
+  This software is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without 
+  even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU 
+  Lesser General Public License for more details.
+
+  You should have received a copy of the GNU Lesser General Public License along with this software; 
+  if not, write to the Free Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+  02110-1301 USA, or see the FSF site: http://www.fsf.org.
+*/
+package org.jwildfire.io;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+
+// Scanlines of Radiance HDR files. Rows of 8..32767 pixels are written with the adaptive run length encoding of
+// Radiance (each of the four components encoded separately), other rows as flat RGBE. Both kinds are read.
+class RGBEScanlines {
+  private static final int MIN_RLE_WIDTH = 8;
+  private static final int MAX_RLE_WIDTH = 0x7fff;
+  private static final int MIN_RUN = 4;
+  private static final int MAX_RUN = 127;
+  private static final int MAX_DUMP = 128;
+
+  static boolean isRLEWidth(int pWidth) {
+    return pWidth >= MIN_RLE_WIDTH && pWidth <= MAX_RLE_WIDTH;
+  }
+
+  // pRGBE holds the 4 * pWidth bytes of the row, pOut must hold at least maxEncodedSize(pWidth) bytes, returns the encoded size
+  static int encodeRow(byte[] pRGBE, int pWidth, byte[] pOut) {
+    if (!isRLEWidth(pWidth)) {
+      System.arraycopy(pRGBE, 0, pOut, 0, 4 * pWidth);
+      return 4 * pWidth;
+    }
+    int pos = 0;
+    pOut[pos++] = 2;
+    pOut[pos++] = 2;
+    pOut[pos++] = (byte) (pWidth >> 8);
+    pOut[pos++] = (byte) pWidth;
+    for (int c = 0; c < 4; c++) {
+      int cur = 0;
+      while (cur < pWidth) {
+        // find the next run of at least MIN_RUN equal values
+        int begRun = cur;
+        int runCount = 0;
+        int oldRunCount = 0;
+        while (runCount < MIN_RUN && begRun < pWidth) {
+          begRun += runCount;
+          oldRunCount = runCount;
+          if (begRun >= pWidth) {
+            runCount = 0;
+            break;
+          }
+          runCount = 1;
+          byte value = pRGBE[4 * begRun + c];
+          while (begRun + runCount < pWidth && runCount < MAX_RUN && pRGBE[4 * (begRun + runCount) + c] == value) {
+            runCount++;
+          }
+        }
+        // a short run directly before the long run is written as run, too
+        if (oldRunCount > 1 && oldRunCount == begRun - cur) {
+          pOut[pos++] = (byte) (128 + oldRunCount);
+          pOut[pos++] = pRGBE[4 * cur + c];
+          cur = begRun;
+        }
+        while (cur < begRun) {
+          int count = Math.min(MAX_DUMP, begRun - cur);
+          pOut[pos++] = (byte) count;
+          for (int i = 0; i < count; i++) {
+            pOut[pos++] = pRGBE[4 * (cur + i) + c];
+          }
+          cur += count;
+        }
+        if (runCount >= MIN_RUN) {
+          pOut[pos++] = (byte) (128 + runCount);
+          pOut[pos++] = pRGBE[4 * begRun + c];
+          cur += runCount;
+        }
+      }
+    }
+    return pos;
+  }
+
+  static int maxEncodedSize(int pWidth) {
+    // 4 bytes header, each value needs at most 2 bytes (a literal of length 1)
+    return 4 + 8 * pWidth;
+  }
+
+  static void writeHeader(OutputStream pOut, int pWidth, int pHeight) throws IOException {
+    pOut.write("#?RGBE\n".getBytes());
+    pOut.write("FORMAT=32-bit_rle_rgbe\n\n".getBytes());
+    pOut.write(("-Y " + pHeight + " +X " + pWidth + "\n").getBytes());
+  }
+
+  // Buffered reader on a channel, so the decoder touches the stream only once per 64 KB
+  static class Input {
+    private static final int BUFFER_SIZE = 65536;
+    private final ReadableByteChannel channel;
+    private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+
+    Input(InputStream pIn) {
+      channel = Channels.newChannel(pIn);
+      buffer.limit(0);
+    }
+
+    private boolean fill() throws IOException {
+      buffer.compact();
+      try {
+        while (buffer.position() == 0) {
+          if (channel.read(buffer) < 0) {
+            return false;
+          }
+        }
+        return true;
+      }
+      finally {
+        buffer.flip();
+      }
+    }
+
+    int read() throws IOException {
+      if (!buffer.hasRemaining() && !fill()) {
+        return -1;
+      }
+      return buffer.get() & 0xff;
+    }
+
+    int readByte() throws IOException {
+      int res = read();
+      if (res < 0) {
+        throw new EOFException();
+      }
+      return res;
+    }
+
+    void readFully(byte[] pDest, int pOffset, int pLength) throws IOException {
+      while (pLength > 0) {
+        if (!buffer.hasRemaining() && !fill()) {
+          throw new EOFException();
+        }
+        int count = Math.min(pLength, buffer.remaining());
+        buffer.get(pDest, pOffset, count);
+        pOffset += count;
+        pLength -= count;
+      }
+    }
+
+    String readLine() throws IOException {
+      StringBuilder sb = new StringBuilder();
+      int b;
+      while ((b = read()) != -1 && b != '\n') {
+        sb.append((char) b);
+      }
+      return sb.toString();
+    }
+  }
+
+  // reads the 4 * pWidth bytes of the next row, run length encoded or flat
+  static void decodeRow(Input pIn, byte[] pRGBE, int pWidth) throws IOException {
+    if (!isRLEWidth(pWidth)) {
+      pIn.readFully(pRGBE, 0, 4 * pWidth);
+      return;
+    }
+    pIn.readFully(pRGBE, 0, 4);
+    if (pRGBE[0] != 2 || pRGBE[1] != 2 || (pRGBE[2] & 0x80) != 0) {
+      // flat row, the 4 bytes are the first pixel
+      pIn.readFully(pRGBE, 4, 4 * (pWidth - 1));
+      return;
+    }
+    int width = ((pRGBE[2] & 0xff) << 8) | (pRGBE[3] & 0xff);
+    if (width != pWidth) {
+      throw new IOException("Invalid scanline width " + width);
+    }
+    for (int c = 0; c < 4; c++) {
+      int x = 0;
+      while (x < pWidth) {
+        int count = pIn.readByte();
+        if (count > 128) {
+          count -= 128;
+          if (count > pWidth - x) {
+            throw new IOException("Invalid run length");
+          }
+          byte value = (byte) pIn.readByte();
+          for (int i = 0; i < count; i++) {
+            pRGBE[4 * (x++) + c] = value;
+          }
+        }
+        else {
+          if (count == 0 || count > pWidth - x) {
+            throw new IOException("Invalid run length");
+          }
+          for (int i = 0; i < count; i++) {
+            pRGBE[4 * (x++) + c] = (byte) pIn.readByte();
+          }
+        }
+      }
+    }
+  }
+
+}
@@ -47,15 +47,15 @@ public abstract class Mesh2DTransformer extends Transformer {
       srcS.clear();
     }
     else {
-      srcP.setARGBValue(srcImg.getBufferedImg().getRGB(x, y));
+      srcP.setARGBValue(srcImg.getARGBValue(x, y));
       if (x < w - 1)
-        srcQ.setARGBValue(srcImg.getBufferedImg().getRGB(x + 1, y));
+        srcQ.setARGBValue(srcImg.getARGBValue(x + 1, y));
       else
         srcQ.assign(srcP);
       if (y < h - 1) {
-        srcR.setARGBValue(srcImg.getBufferedImg().getRGB(x, y + 1));
+        srcR.setARGBValue(srcImg.getARGBValue(x, y + 1));
         if (x < w - 1)
-          srcS.setARGBValue(srcImg.getBufferedImg().getRGB(x + 1, y + 1));
+          srcS.setARGBValue(srcImg.getARGBValue(x + 1, y + 1));
         else
           srcS.assign(srcQ);
       }
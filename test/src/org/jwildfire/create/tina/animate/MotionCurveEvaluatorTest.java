@@ -0,0 +1,127 @@
+package org.jwildfire.create.tina.animate;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.jwildfire.create.tina.base.Flame;
+import org.jwildfire.create.tina.base.Layer;
+import org.jwildfire.create.tina.base.XForm;
+import org.jwildfire.create.tina.base.motion.MotionCurve;
+import org.jwildfire.create.tina.transform.XFormTransformService;
+import org.jwildfire.create.tina.variation.JuliaNFunc;
+import org.jwildfire.create.tina.variation.Linear3DFunc;
+import org.jwildfire.envelope.CompiledEnvelope;
+import org.jwildfire.envelope.Envelope;
+import org.jwildfire.envelope.Envelope.Interpolation;
+
+public class MotionCurveEvaluatorTest {
+  private static final int X[] = { -10, 0, 17, 40, 41, 90 };
+  private static final double Y[] = { 3.0, -1.5, 2.25, 7.0, -4.0, 0.5 };
+
+  private void setCurve(MotionCurve pCurve, int pX[], double pY[]) {
+    pCurve.setPoints(pX, pY);
+    pCurve.setEnabled(true);
+  }
+
+  private Flame createFlame() {
+    Flame flame = new Flame();
+    Layer layer = flame.getFirstLayer();
+    XForm xForm = new XForm();
+    xForm.setWeight(1.0);
+    xForm.addVariation(1.0, new Linear3DFunc());
+    xForm.addVariation(0.5, new JuliaNFunc());
+    xForm.setXYCoeff00(0.5);
+    xForm.setXYCoeff11(0.5);
+    layer.getXForms().add(xForm);
+    setCurve(xForm.getXYCoeff20Curve(), X, Y);
+    setCurve(xForm.getXYRotateCurve(), new int[] { 0, 100 }, new double[] { 0.0, 360.0 });
+    setCurve(xForm.getVariation(0).getAmountCurve(), new int[] { 0, 50, 100 }, new double[] { 1.0, 0.25, 1.0 });
+    MotionCurve distCurve = xForm.getVariation(1).getMotionCurve("dist");
+    if (distCurve == null) {
+      distCurve = xForm.getVariation(1).createMotionCurve("dist");
+    }
+    setCurve(distCurve, new int[] { 0, 100 }, new double[] { 1.0, 3.0 });
+    setCurve(AnimationService.getPropertyCurve(flame, "camPitch"), new int[] { 0, 30, 100 }, new double[] { 10.0, 50.0, 75.0 });
+    setCurve(AnimationService.getPropertyCurve(layer.getPalette(), "modShift"), new int[] { 0, 100 }, new double[] { 0.0, 100.0 });
+    return flame;
+  }
+
+  @Test
+  public void testCompiledEnvelopeMatchesEnvelope() {
+    for (Interpolation interpolation : Interpolation.values()) {
+      Envelope envelope = new Envelope(X.clone(), Y.clone());
+      envelope.setInterpolation(interpolation);
+      CompiledEnvelope compiled = envelope.compile();
+      for (double t = -20.0; t <= 100.0; t += 0.125) {
+        Assert.assertEquals(envelope.evaluate(t), compiled.evaluate(t), 0.0);
+      }
+    }
+  }
+
+  private void assertFrame(Flame pSource, Flame pActual, double pFrame) {
+    XForm src = pSource.getFirstLayer().getXForms().get(0);
+    XForm expected = src.makeCopy();
+    expected.setXYCoeff20(src.getXYCoeff20Curve().toEnvelope().evaluate(pFrame));
+    XFormTransformService.rotate(expected, src.getXYRotateCurve().toEnvelope().evaluate(pFrame), false);
+    XForm actual = pActual.getFirstLayer().getXForms().get(0);
+    Assert.assertEquals(expected.getXYCoeff00(), actual.getXYCoeff00(), 0.0);
+    Assert.assertEquals(expected.getXYCoeff01(), actual.getXYCoeff01(), 0.0);
+    Assert.assertEquals(expected.getXYCoeff10(), actual.getXYCoeff10(), 0.0);
+    Assert.assertEquals(expected.getXYCoeff11(), actual.getXYCoeff11(), 0.0);
+    Assert.assertEquals(expected.getXYCoeff20(), actual.getXYCoeff20(), 0.0);
+    Assert.assertEquals(src.getVariation(0).getAmountCurve().toEnvelope().evaluate(pFrame), actual.getVariation(0).getAmount(), 0.0);
+    Assert.assertEquals(src.getVariation(1).getMotionCurve("dist").toEnvelope().evaluate(pFrame), ((Number) actual.getVariation(1).getFunc().getParameter("dist")).doubleValue(), 0.0);
+    Assert.assertEquals(AnimationService.getPropertyCurve(pSource, "camPitch").toEnvelope().evaluate(pFrame), pActual.getCamPitch(), 0.0);
+    double modShift = AnimationService.getPropertyCurve(pSource.getFirstLayer().getPalette(), "modShift").toEnvelope().evaluate(pFrame);
+    Assert.assertEquals(Math.round(modShift), AnimationService.getPropertyValue(pActual.getFirstLayer().getPalette(), "modShift"), 0.0);
+  }
+
+  @Test
+  public void testEvaluatorSetsCurveValues() {
+    Flame flame = createFlame();
+    MotionCurveEvaluator evaluator = new MotionCurveEvaluator(flame);
+    Assert.assertFalse(evaluator.isEmpty());
+    for (double frame : new double[] { -5.0, 0.0, 12.5, 40.0, 77.0, 120.0 }) {
+      assertFrame(flame, evaluator.apply(flame.makeCopy(), frame), frame);
+      assertFrame(flame, AnimationService.evalMotionCurves(flame.makeCopy(), frame), frame);
+    }
+    Assert.assertTrue(new MotionCurveEvaluator(new Flame()).isEmpty());
+  }
+
+  @Test
+  public void testEvaluatorIsThreadSafe() throws Exception {
+    final Flame flame = createFlame();
+    final MotionCurveEvaluator evaluator = new MotionCurveEvaluator(flame);
+    final List<Throwable> errors = new ArrayList<Throwable>();
+    List<Thread> threads = new ArrayList<Thread>();
+    for (int t = 0; t < 8; t++) {
+      final int offset = t;
+      threads.add(new Thread(new Runnable() {
+        @Override
+        public void run() {
+          try {
+            for (int i = 0; i < 200; i++) {
+              double frame = (i * 8 + offset) * 0.0625;
+              assertFrame(flame, evaluator.apply(flame.makeCopy(), frame), frame);
+            }
+          }
+          catch (Throwable ex) {
+            synchronized (errors) {
+              errors.add(ex);
+            }
+          }
+        }
+      }));
+    }
+    for (Thread thread : threads) {
+      thread.start();
+    }
+    for (Thread thread : threads) {
+      thread.join();
+    }
+    Assert.assertTrue(errors.toString(), errors.isEmpty());
+  }
+
+}
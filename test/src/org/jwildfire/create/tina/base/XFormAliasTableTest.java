@@ -0,0 +1,74 @@
+package org.jwildfire.create.tina.base;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.jwildfire.create.tina.random.AbstractRandomGenerator;
+import org.jwildfire.create.tina.random.MersenneTwisterRandomGenerator;
+
+public class XFormAliasTableTest {
+  private static final int SAMPLES = 4000000;
+
+  private List<XForm> createXForms(int pCount) {
+    List<XForm> res = new ArrayList<>();
+    for (int i = 0; i < pCount; i++) {
+      res.add(new XForm());
+    }
+    return res;
+  }
+
+  private void checkFrequencies(double pWeights[]) {
+    List<XForm> xForms = createXForms(pWeights.length);
+    XFormAliasTable table = new XFormAliasTable(xForms, pWeights, pWeights.length);
+    double total = 0.0;
+    for (double weight : pWeights) {
+      total += weight;
+    }
+    for (int i = 0; i < pWeights.length; i++) {
+      Assert.assertEquals(pWeights[i] / total, table.getProbability(i), 1.0e-12);
+    }
+
+    AbstractRandomGenerator randGen = new MersenneTwisterRandomGenerator();
+    randGen.randomize(1234L);
+    int hits[] = new int[pWeights.length];
+    for (int s = 0; s < SAMPLES; s++) {
+      XForm xForm = table.select(randGen);
+      hits[xForms.indexOf(xForm)]++;
+    }
+    for (int i = 0; i < pWeights.length; i++) {
+      double expected = SAMPLES * pWeights[i] / total;
+      // 5 standard deviations of the binomial distribution
+      double tolerance = 5.0 * Math.sqrt(expected * (1.0 - pWeights[i] / total)) + 1.0;
+      Assert.assertEquals("xform " + i, expected, hits[i], tolerance);
+    }
+  }
+
+  @Test
+  public void testUniformWeights() {
+    checkFrequencies(new double[] { 1.0, 1.0, 1.0, 1.0, 1.0 });
+  }
+
+  @Test
+  public void testMixedWeights() {
+    checkFrequencies(new double[] { 0.5, 3.0, 0.0, 1.25, 7.0, 0.1 });
+  }
+
+  @Test
+  public void testWeightBelowLookupTableResolution() {
+    // 1/4000 of the total weight, less than one entry of the 1024-entry lookup table
+    double weights[] = new double[] { 3999.0, 1.0 };
+    checkFrequencies(weights);
+
+    List<XForm> xForms = createXForms(weights.length);
+    XFormAliasTable table = new XFormAliasTable(xForms, weights, weights.length);
+    Assert.assertEquals(1.0 / 4000.0, table.getProbability(1), 1.0e-15);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testZeroWeights() {
+    new XFormAliasTable(createXForms(2), new double[] { 0.0, 0.0 }, 2);
+  }
+
+}
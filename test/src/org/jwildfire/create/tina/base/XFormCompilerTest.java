@@ -0,0 +1,108 @@
+package org.jwildfire.create.tina.base;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.jwildfire.base.Prefs;
+import org.jwildfire.create.tina.random.MersenneTwisterRandomGenerator;
+import org.jwildfire.create.tina.variation.BlurFunc;
+import org.jwildfire.create.tina.variation.FlameTransformationContext;
+import org.jwildfire.create.tina.variation.JuliaFunc;
+import org.jwildfire.create.tina.variation.Linear3DFunc;
+import org.jwildfire.create.tina.variation.PostCurlFunc;
+import org.jwildfire.create.tina.variation.PreBlurFunc;
+import org.jwildfire.create.tina.variation.SphericalFunc;
+import org.jwildfire.create.tina.variation.SwirlFunc;
+import org.jwildfire.create.tina.variation.Variation;
+
+public class XFormCompilerTest {
+  private static final int ITERATIONS = 100000;
+  private boolean compiledXForms;
+
+  @Before
+  public void savePrefs() {
+    compiledXForms = Prefs.getPrefs().isTinaCompiledXForms();
+  }
+
+  @After
+  public void restorePrefs() {
+    Prefs.getPrefs().setTinaCompiledXForms(compiledXForms);
+  }
+
+  private Layer createLayer() {
+    Layer layer = new Layer();
+    {
+      XForm xForm = new XForm();
+      xForm.addVariation(0.5, new Linear3DFunc());
+      xForm.addVariation(0.25, new SphericalFunc());
+      xForm.addVariation(0.1, new JuliaFunc());
+      xForm.setXYCoeff00(0.8);
+      xForm.setXYCoeff01(0.2);
+      xForm.setXYCoeff20(0.1);
+      layer.getXForms().add(xForm);
+    }
+    {
+      XForm xForm = new XForm();
+      xForm.addVariation(0.3, new PreBlurFunc());
+      xForm.addVariation(0.7, new SwirlFunc());
+      // enforced pre and post variations
+      xForm.addVariation(0.2, new SphericalFunc()).setPriority(-1);
+      xForm.addVariation(0.4, new BlurFunc()).setPriority(1);
+      xForm.addVariation(0.6, new PostCurlFunc());
+      xForm.setYZCoeff01(0.3);
+      xForm.setXYPostCoeff20(-0.2);
+      xForm.setXYPostCoeff11(0.9);
+      layer.getXForms().add(xForm);
+    }
+    return layer;
+  }
+
+  private double[] iterate(Layer pLayer, boolean pCompiled) {
+    Prefs.getPrefs().setTinaCompiledXForms(pCompiled);
+    MersenneTwisterRandomGenerator randGen = new MersenneTwisterRandomGenerator();
+    randGen.randomize(4711L);
+    FlameTransformationContext ctx = new FlameTransformationContext(null, randGen, 1);
+    ctx.setPreserveZCoordinate(true);
+    for (XForm xForm : pLayer.getXForms()) {
+      xForm.initTransform();
+      for (Variation var : xForm.getVariations()) {
+        var.getFunc().init(ctx, pLayer, xForm, var.getAmount());
+      }
+      Assert.assertEquals(pCompiled, xForm.getCompiledTransformation() != null);
+    }
+
+    XYZPoint affineT = new XYZPoint();
+    XYZPoint varT = new XYZPoint();
+    XYZPoint p = new XYZPoint();
+    XYZPoint q = new XYZPoint();
+    p.x = 0.3;
+    p.y = -0.2;
+    p.z = 0.1;
+    p.color = 0.5;
+    double res[] = new double[ITERATIONS * 4];
+    for (int i = 0; i < ITERATIONS; i++) {
+      XForm xForm = pLayer.getXForms().get(randGen.random(pLayer.getXForms().size()));
+      xForm.transformPoint(ctx, affineT, varT, p, q);
+      res[i * 4] = q.x;
+      res[i * 4 + 1] = q.y;
+      res[i * 4 + 2] = q.z;
+      res[i * 4 + 3] = q.color;
+      XYZPoint t = p;
+      p = q;
+      q = t;
+    }
+    return res;
+  }
+
+  @Test
+  public void testCompiledMatchesInterpreted() {
+    Layer layer = createLayer();
+    double expected[] = iterate(layer, false);
+    double actual[] = iterate(layer, true);
+    for (int i = 0; i < expected.length; i++) {
+      Assert.assertEquals(Double.doubleToLongBits(expected[i]), Double.doubleToLongBits(actual[i]));
+    }
+  }
+
+}
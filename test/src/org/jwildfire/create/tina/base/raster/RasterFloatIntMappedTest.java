@@ -0,0 +1,88 @@
+package org.jwildfire.create.tina.base.raster;
+
+import java.io.File;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.jwildfire.base.Prefs;
+import org.jwildfire.create.tina.base.Flame;
+import org.jwildfire.create.tina.render.PlotSample;
+
+public class RasterFloatIntMappedTest {
+  private static final int WIDTH = 173;
+  private static final int HEIGHT = 97;
+
+  private void assertSameRaster(AbstractRaster pExpected, AbstractRaster pActual) {
+    RasterPoint expected = new RasterPoint(0);
+    RasterPoint actual = new RasterPoint(0);
+    for (int y = 0; y < HEIGHT; y++) {
+      for (int x = 0; x < WIDTH; x++) {
+        pExpected.readRasterPoint(x, y, expected);
+        pActual.readRasterPoint(x, y, actual);
+        Assert.assertEquals(expected.count, actual.count);
+        Assert.assertEquals(expected.red, actual.red, 0.0);
+        Assert.assertEquals(expected.green, actual.green, 0.0);
+        Assert.assertEquals(expected.blue, actual.blue, 0.0);
+      }
+    }
+  }
+
+  @Test
+  public void testRawPointsMatchDefaultRaster() throws Exception {
+    Prefs prefs = Prefs.getPrefs();
+    String oldScratchPath = prefs.getTinaRasterScratchPath();
+    File drawer = File.createTempFile("jwf_scratch", "");
+    drawer.delete();
+    drawer.mkdir();
+    prefs.setTinaRasterScratchPath(drawer.getAbsolutePath());
+    try {
+      Flame flame = new Flame();
+      RasterFloatInt reference = new RasterFloatInt();
+      reference.allocRaster(flame, WIDTH, HEIGHT);
+      RasterFloatIntMapped mapped = new RasterFloatIntMapped();
+      mapped.allocRaster(flame, WIDTH, HEIGHT);
+
+      Random rnd = new Random(11L);
+      for (int i = 0; i < 5000; i++) {
+        int x = rnd.nextInt(WIDTH);
+        int y = rnd.nextInt(HEIGHT);
+        float red = rnd.nextFloat() * 1000.0f;
+        float green = rnd.nextFloat();
+        float blue = rnd.nextFloat() * 10.0f;
+        int count = rnd.nextInt(100000);
+        reference.writeRawPoint(x, y, red, green, blue, count);
+        mapped.writeRawPoint(x, y, red, green, blue, count);
+      }
+      PlotSample[] buffer = new PlotSample[1024];
+      for (int i = 0; i < buffer.length; i++) {
+        buffer[i] = new PlotSample();
+        buffer[i].set(rnd.nextInt(WIDTH), rnd.nextInt(HEIGHT), rnd.nextInt(4), rnd.nextInt(4), rnd.nextInt(4), 0.0, 0.0, 0.0, 0.0, 0.0, 0.0, 0.0, 0.0);
+      }
+      reference.addSamples(buffer, buffer.length);
+      mapped.addSamples(buffer, buffer.length);
+      assertSameRaster(reference, mapped);
+
+      RasterPoint point = new RasterPoint(0);
+      for (int y = 0; y < HEIGHT; y++) {
+        for (int x = 0; x < WIDTH; x++) {
+          mapped.readRasterPoint(x, y, point);
+          if (point.count > 0) {
+            Assert.assertTrue(mapped.getOccupancy().isOccupied(x, y));
+          }
+        }
+      }
+
+      mapped.cleanupRaster();
+      Assert.assertEquals(0, drawer.listFiles().length);
+    }
+    finally {
+      prefs.setTinaRasterScratchPath(oldScratchPath);
+      for (File file : drawer.listFiles()) {
+        file.delete();
+      }
+      drawer.delete();
+    }
+  }
+
+}
@@ -0,0 +1,74 @@
+package org.jwildfire.create.tina.base.raster;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.jwildfire.create.tina.base.Flame;
+import org.jwildfire.create.tina.render.PlotSample;
+
+public class RasterFloatIntStripedTest {
+  private static final int WIDTH = 173;
+  private static final int HEIGHT = 97;
+  private static final int THREADS = 8;
+  private static final int BUFFERS_PER_THREAD = 200;
+  private static final int BUFFER_SIZE = 1024;
+
+  @Test
+  public void testConcurrentAddSamplesMatchesSynchronizedRaster() throws Exception {
+    Flame flame = new Flame();
+    final RasterFloatInt reference = new RasterFloatInt();
+    reference.allocRaster(flame, WIDTH, HEIGHT);
+    final RasterFloatIntStriped striped = new RasterFloatIntStriped();
+    striped.allocRaster(flame, WIDTH, HEIGHT);
+    Assert.assertTrue(striped.getStripeCount() > 1);
+
+    List<Thread> threads = new ArrayList<>();
+    for (int t = 0; t < THREADS; t++) {
+      final long seed = t;
+      threads.add(new Thread(new Runnable() {
+        @Override
+        public void run() {
+          Random rnd = new Random(seed);
+          PlotSample[] buffer = new PlotSample[BUFFER_SIZE];
+          for (int i = 0; i < buffer.length; i++) {
+            buffer[i] = new PlotSample();
+          }
+          for (int b = 0; b < BUFFERS_PER_THREAD; b++) {
+            for (int i = 0; i < buffer.length; i++) {
+              // integral colors, so the float sums do not depend on the order of addition
+              buffer[i].set(rnd.nextInt(WIDTH), rnd.nextInt(HEIGHT), rnd.nextInt(4), rnd.nextInt(4), rnd.nextInt(4), 0.0, 0.0, 0.0, 0.0, 0.0, 0.0, 0.0, 0.0);
+            }
+            striped.addSamples(buffer, buffer.length);
+            reference.addSamples(buffer, buffer.length);
+          }
+        }
+      }));
+    }
+    for (Thread thread : threads) {
+      thread.start();
+    }
+    for (Thread thread : threads) {
+      thread.join();
+    }
+
+    RasterPoint expected = new RasterPoint(0);
+    RasterPoint actual = new RasterPoint(0);
+    long totalCount = 0;
+    for (int x = 0; x < WIDTH; x++) {
+      for (int y = 0; y < HEIGHT; y++) {
+        reference.readRasterPoint(x, y, expected);
+        striped.readRasterPoint(x, y, actual);
+        Assert.assertEquals(expected.count, actual.count);
+        Assert.assertEquals(expected.red, actual.red, 0.0);
+        Assert.assertEquals(expected.green, actual.green, 0.0);
+        Assert.assertEquals(expected.blue, actual.blue, 0.0);
+        totalCount += actual.count;
+      }
+    }
+    Assert.assertEquals((long) THREADS * BUFFERS_PER_THREAD * BUFFER_SIZE, totalCount);
+  }
+
+}
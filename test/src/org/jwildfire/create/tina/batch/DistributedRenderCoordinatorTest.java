@@ -0,0 +1,126 @@
+package org.jwildfire.create.tina.batch;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.jwildfire.base.Prefs;
+import org.jwildfire.create.tina.base.Flame;
+import org.jwildfire.create.tina.random.RandomGeneratorType;
+import org.jwildfire.create.tina.render.FlameRenderer;
+import org.jwildfire.create.tina.render.RenderInfo;
+import org.jwildfire.create.tina.render.RenderMode;
+import org.jwildfire.create.tina.render.RenderedFlame;
+import org.jwildfire.create.tina.render.TestFlames;
+import org.jwildfire.image.Pixel;
+import org.jwildfire.image.SimpleImage;
+
+public class DistributedRenderCoordinatorTest {
+  private static final int IMAGE_WIDTH = 160;
+  private static final int IMAGE_HEIGHT = 120;
+
+  private double getMeanBrightness(SimpleImage pImage) {
+    Pixel pixel = new Pixel();
+    double sum = 0.0;
+    for (int y = 0; y < pImage.getImageHeight(); y++) {
+      for (int x = 0; x < pImage.getImageWidth(); x++) {
+        pixel.setARGBValue(pImage.getARGBValue(x, y));
+        sum += pixel.r + pixel.g + pixel.b;
+      }
+    }
+    return sum / (3.0 * pImage.getImageWidth() * pImage.getImageHeight());
+  }
+
+  private File createJobDrawer() throws Exception {
+    File drawer = File.createTempFile("jwf_job", "");
+    drawer.delete();
+    return drawer;
+  }
+
+  private void deleteJobDrawer(File pDrawer) {
+    File files[] = pDrawer.listFiles();
+    if (files != null) {
+      for (File file : files) {
+        file.delete();
+      }
+    }
+    pDrawer.delete();
+  }
+
+  @Test
+  public void testMergedWorkerRastersMatchSingleRender() throws Exception {
+    RenderInfo renderInfo = new RenderInfo(IMAGE_WIDTH, IMAGE_HEIGHT, RenderMode.PRODUCTION);
+    File drawer = createJobDrawer();
+    try {
+      DistributedRenderCoordinator coordinator = new DistributedRenderCoordinator(TestFlames.createSierpinskiFlame(200.0, 40.0), Prefs.getPrefs(), renderInfo, drawer, new double[] { 1.0, 2.0, 1.0 });
+      coordinator.prepareJob();
+      for (int i = 0; i < 3; i++) {
+        new DistributedRenderWorker(drawer, i, Prefs.getPrefs()).render();
+      }
+      RenderedFlame merged = coordinator.awaitResult(1000);
+
+      RenderedFlame single = new FlameRenderer(TestFlames.createSierpinskiFlame(200.0, 40.0), Prefs.getPrefs(), false, false).renderFlame(renderInfo);
+      double expected = getMeanBrightness(single.getImage());
+      double actual = getMeanBrightness(merged.getImage());
+      Assert.assertTrue(expected > 1.0);
+      Assert.assertEquals(expected, actual, expected * 0.05);
+    }
+    finally {
+      deleteJobDrawer(drawer);
+    }
+  }
+
+  private int[] renderWorkerResult(File pDrawer, int pWorkerIdx, RenderInfo pRenderInfo) throws Exception {
+    new DistributedRenderWorker(pDrawer, pWorkerIdx, Prefs.getPrefs()).render();
+    String path = DistributedRenderCoordinator.getWorkerResultFile(pDrawer, pWorkerIdx).getAbsolutePath();
+    Flame flame = TestFlames.createSierpinskiFlame(200.0, 40.0);
+    flame.setSampleDensity(flame.getSampleDensity() / 2.0);
+    return new FlameRenderer(flame, Prefs.getPrefs(), false, false).renderFlameFromRasters(pRenderInfo, Collections.singletonList(path)).getImage().getPixels().clone();
+  }
+
+  @Test
+  public void testWorkersRenderDifferentSamples() throws Exception {
+    Prefs prefs = Prefs.getPrefs();
+    RandomGeneratorType oldGenerator = prefs.getTinaRandomNumberGenerator();
+    // starts with the same constant state in every worker process
+    prefs.setTinaRandomNumberGenerator(RandomGeneratorType.MARSAGLIA);
+    RenderInfo renderInfo = new RenderInfo(IMAGE_WIDTH, IMAGE_HEIGHT, RenderMode.PRODUCTION);
+    File drawer = createJobDrawer();
+    try {
+      new DistributedRenderCoordinator(TestFlames.createSierpinskiFlame(200.0, 40.0), prefs, renderInfo, drawer, 2).prepareJob();
+      int first[] = renderWorkerResult(drawer, 0, renderInfo);
+      int second[] = renderWorkerResult(drawer, 1, renderInfo);
+      Assert.assertFalse(Arrays.equals(first, second));
+      // a worker which is started again renders the same samples as before
+      Assert.assertArrayEquals(first, renderWorkerResult(drawer, 0, renderInfo));
+    }
+    finally {
+      prefs.setTinaRandomNumberGenerator(oldGenerator);
+      deleteJobDrawer(drawer);
+    }
+  }
+
+  @Test
+  public void testMissingWorkerTimesOut() throws Exception {
+    File drawer = createJobDrawer();
+    try {
+      DistributedRenderCoordinator coordinator = new DistributedRenderCoordinator(TestFlames.createSierpinskiFlame(200.0, 40.0), Prefs.getPrefs(), new RenderInfo(IMAGE_WIDTH, IMAGE_HEIGHT, RenderMode.PRODUCTION), drawer, 2);
+      coordinator.prepareJob();
+      new DistributedRenderWorker(drawer, 0, Prefs.getPrefs()).render();
+      try {
+        coordinator.awaitResult(200);
+        Assert.fail("Expected timeout");
+      }
+      catch (IOException ex) {
+        // expected
+      }
+    }
+    finally {
+      deleteJobDrawer(drawer);
+    }
+  }
+
+}
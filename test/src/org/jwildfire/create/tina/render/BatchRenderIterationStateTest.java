@@ -0,0 +1,63 @@
+package org.jwildfire.create.tina.render;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.jwildfire.base.Prefs;
+import org.jwildfire.create.tina.base.Flame;
+import org.jwildfire.create.tina.base.XForm;
+import org.jwildfire.create.tina.variation.JuliaFunc;
+import org.jwildfire.create.tina.variation.SphericalFunc;
+import org.jwildfire.image.SimpleImage;
+
+public class BatchRenderIterationStateTest {
+  private static final int IMAGE_WIDTH = 160;
+  private static final int IMAGE_HEIGHT = 120;
+
+  private Flame createFlame() {
+    Flame flame = TestFlames.createSierpinskiFlame(200.0, 40.0);
+    XForm xForm = new XForm();
+    xForm.setWeight(0.3);
+    xForm.addVariation(0.2, new SphericalFunc());
+    xForm.addVariation(0.1, new JuliaFunc());
+    flame.getFirstLayer().getXForms().add(xForm);
+    return flame;
+  }
+
+  private RenderedFlame render(Prefs pPrefs) {
+    Flame flame = createFlame();
+    FlameRenderer renderer = new FlameRenderer(flame, pPrefs, false, false);
+    RenderInfo info = new RenderInfo(IMAGE_WIDTH, IMAGE_HEIGHT, RenderMode.PRODUCTION);
+    return renderer.renderFlame(info);
+  }
+
+  private double getMeanBrightness(RenderedFlame pRenderedFlame) {
+    SimpleImage image = pRenderedFlame.getImage();
+    double sum = 0.0;
+    for (int y = 0; y < image.getImageHeight(); y++) {
+      for (int x = 0; x < image.getImageWidth(); x++) {
+        sum += image.getRValue(x, y) + image.getGValue(x, y) + image.getBValue(x, y);
+      }
+    }
+    return sum / (3.0 * image.getImageWidth() * image.getImageHeight());
+  }
+
+  @Test
+  public void testBatchRenderMatchesSingleWalker() {
+    Prefs prefs = Prefs.newInstance();
+    prefs.assign(Prefs.getPrefs());
+
+    prefs.setTinaBatchWalkers(0);
+    RenderedFlame single = render(prefs);
+    prefs.setTinaBatchWalkers(64);
+    RenderedFlame batch = render(prefs);
+    double expected = getMeanBrightness(single);
+    double actual = getMeanBrightness(batch);
+    Assert.assertTrue(expected > 1.0);
+    Assert.assertEquals(expected, actual, expected * 0.05);
+    // both modes count every sample of every walker, so their samples per second may be compared
+    Assert.assertTrue(single.getSampleCount() > 0);
+    Assert.assertEquals(single.getSampleCount(), batch.getSampleCount(), single.getSampleCount() * 0.01);
+    Assert.assertTrue(batch.getSamplesPerSecond() > 0.0);
+  }
+
+}
@@ -0,0 +1,240 @@
+package org.jwildfire.create.tina.render;
+
+import java.io.IOException;
+import java.util.Collections;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.jwildfire.base.Prefs;
+import org.jwildfire.create.tina.base.Flame;
+import org.jwildfire.create.tina.base.XForm;
+import org.jwildfire.create.tina.base.raster.RasterCreator;
+import org.jwildfire.create.tina.variation.JuliaNFunc;
+import org.jwildfire.create.tina.variation.SVGWFFunc;
+import org.jwildfire.create.tina.variation.mesh.OBJMeshPrimitiveWFFunc;
+import org.jwildfire.image.SimpleImage;
+import org.jwildfire.io.FloatScanlineWriter;
+
+public class FlameRendererTest {
+  private static final int IMAGE_WIDTH = 160;
+  private static final int IMAGE_HEIGHT = 120;
+
+  private Thread startRender(final FlameRenderer pRenderer) {
+    Thread thread = new Thread(new Runnable() {
+      @Override
+      public void run() {
+        pRenderer.renderFlame(new RenderInfo(IMAGE_WIDTH, IMAGE_HEIGHT, RenderMode.PRODUCTION));
+      }
+    });
+    thread.start();
+    return thread;
+  }
+
+  @Test
+  public void testCancel() throws Exception {
+    FlameRenderer renderer = new FlameRenderer(TestFlames.createSierpinskiFlame(1000000.0, 40.0), Prefs.getPrefs(), false, false);
+    Thread thread = startRender(renderer);
+    Thread.sleep(200);
+    renderer.cancel();
+    thread.join(10000);
+    Assert.assertFalse(thread.isAlive());
+  }
+
+  @Test
+  public void testInterruptCancelsRender() throws Exception {
+    FlameRenderer renderer = new FlameRenderer(TestFlames.createSierpinskiFlame(1000000.0, 40.0), Prefs.getPrefs(), false, false);
+    Thread thread = startRender(renderer);
+    Thread.sleep(200);
+    thread.interrupt();
+    thread.join(10000);
+    Assert.assertFalse(thread.isAlive());
+  }
+
+  @Test
+  public void testRenderCompletes() throws Exception {
+    FlameRenderer renderer = new FlameRenderer(TestFlames.createSierpinskiFlame(50.0, 40.0), Prefs.getPrefs(), false, false);
+    RenderedFlame res = renderer.renderFlame(new RenderInfo(IMAGE_WIDTH, IMAGE_HEIGHT, RenderMode.PRODUCTION));
+    Assert.assertEquals(IMAGE_WIDTH, res.getImage().getImageWidth());
+    Assert.assertEquals(IMAGE_HEIGHT, res.getImage().getImageHeight());
+  }
+
+  private SimpleImage renderSeeded(long pSeed) {
+    return renderSeeded(TestFlames.createSierpinskiFlame(100.0, 40.0), pSeed);
+  }
+
+  private SimpleImage renderSeeded(Flame flame, long pSeed) {
+    flame.setSampleJittering(true);
+    FlameRenderer renderer = new FlameRenderer(flame, Prefs.getPrefs(), false, false);
+    RenderInfo info = new RenderInfo(IMAGE_WIDTH, IMAGE_HEIGHT, RenderMode.PRODUCTION);
+    info.setMasterSeed(pSeed);
+    return renderer.renderFlame(info).getImage();
+  }
+
+  private int countDifferentPixels(SimpleImage pA, SimpleImage pB) {
+    int res = 0;
+    for (int y = 0; y < IMAGE_HEIGHT; y++) {
+      for (int x = 0; x < IMAGE_WIDTH; x++) {
+        if (pA.getARGBValue(x, y) != pB.getARGBValue(x, y)) {
+          res++;
+        }
+      }
+    }
+    return res;
+  }
+
+  @Test
+  public void testSeededRenderIsReproducible() throws Exception {
+    SimpleImage first = renderSeeded(4711L);
+    SimpleImage second = renderSeeded(4711L);
+    Assert.assertEquals(0, countDifferentPixels(first, second));
+
+    SimpleImage other = renderSeeded(4712L);
+    Assert.assertTrue(countDifferentPixels(first, other) > 0);
+  }
+
+  @Test
+  public void testUnsharedFlamesRenderReproducibly() throws Exception {
+    Flame flame = TestFlames.createSierpinskiFlame(100.0, 40.0);
+    Assert.assertTrue(FlameRenderer.isThreadSafe(Collections.singletonList(flame)));
+
+    // julian is not marked as thread safe, so every render thread gets its own initialized copy
+    XForm xForm = new XForm();
+    xForm.setWeight(0.5);
+    xForm.addVariation(1.0, new JuliaNFunc());
+    flame.getFirstLayer().getXForms().add(xForm);
+    Assert.assertFalse(FlameRenderer.isThreadSafe(Collections.singletonList(flame)));
+
+    SimpleImage first = renderSeeded(flame.makeCopy(), 4711L);
+    SimpleImage second = renderSeeded(flame.makeCopy(), 4711L);
+    Assert.assertEquals(0, countDifferentPixels(first, second));
+  }
+
+  @Test
+  public void testPreparedVariationsAreShared() throws Exception {
+    Flame flame = TestFlames.createSierpinskiFlame(100.0, 40.0);
+    XForm svgXForm = new XForm();
+    svgXForm.setWeight(0.5);
+    svgXForm.addVariation(1.0, new SVGWFFunc());
+    flame.getFirstLayer().getXForms().add(svgXForm);
+    XForm meshXForm = new XForm();
+    meshXForm.setWeight(0.5);
+    meshXForm.addVariation(0.5, new OBJMeshPrimitiveWFFunc());
+    flame.getFirstLayer().getXForms().add(meshXForm);
+    // the points and the mesh are prepared once and read by all render threads
+    Assert.assertTrue(FlameRenderer.isThreadSafe(Collections.singletonList(flame)));
+
+    SimpleImage first = renderSeeded(flame.makeCopy(), 4711L);
+    SimpleImage second = renderSeeded(flame.makeCopy(), 4711L);
+    Assert.assertEquals(0, countDifferentPixels(first, second));
+  }
+
+  private double meanBrightness(SimpleImage pImage) {
+    double sum = 0.0;
+    for (int y = 0; y < pImage.getImageHeight(); y++) {
+      for (int x = 0; x < pImage.getImageWidth(); x++) {
+        sum += pImage.getRValue(x, y) + pImage.getGValue(x, y) + pImage.getBValue(x, y);
+      }
+    }
+    return sum / (3.0 * pImage.getImageWidth() * pImage.getImageHeight());
+  }
+
+  @Test
+  public void testAdaptiveRenderStopsWhenConverged() throws Exception {
+    RenderInfo info = new RenderInfo(IMAGE_WIDTH, IMAGE_HEIGHT, RenderMode.PRODUCTION);
+    info.setAdaptive(0.01, 2000.0, 0);
+    RenderedFlame adaptive = new FlameRenderer(TestFlames.createSierpinskiFlame(500.0, 40.0), Prefs.getPrefs(), false, false).renderFlame(info);
+    ConvergenceInfo convergence = adaptive.getConvergenceInfo();
+    Assert.assertNotNull(convergence);
+    Assert.assertEquals(ConvergenceInfo.StopReason.CONVERGED, convergence.getStopReason());
+    Assert.assertTrue(convergence.getNoise() <= 0.01);
+    Assert.assertTrue(convergence.getSampleDensity() < 500.0);
+
+    // the image is filtered with the achieved density, so it is as bright as a fixed render
+    RenderedFlame fixed = new FlameRenderer(TestFlames.createSierpinskiFlame(50.0, 40.0), Prefs.getPrefs(), false, false).renderFlame(new RenderInfo(IMAGE_WIDTH, IMAGE_HEIGHT, RenderMode.PRODUCTION));
+    Assert.assertNull(fixed.getConvergenceInfo());
+    Assert.assertEquals(meanBrightness(fixed.getImage()), meanBrightness(adaptive.getImage()), 0.05 * meanBrightness(fixed.getImage()));
+  }
+
+  @Test
+  public void testAdaptiveRenderRespectsTimeBudget() throws Exception {
+    RenderInfo info = new RenderInfo(IMAGE_WIDTH, IMAGE_HEIGHT, RenderMode.PRODUCTION);
+    info.setAdaptive(0.000001, 0.0, 300);
+    long t0 = System.currentTimeMillis();
+    RenderedFlame res = new FlameRenderer(TestFlames.createSierpinskiFlame(1000000.0, 40.0), Prefs.getPrefs(), false, false).renderFlame(info);
+    Assert.assertTrue(System.currentTimeMillis() - t0 < 10000);
+    Assert.assertEquals(ConvergenceInfo.StopReason.TIME_BUDGET, res.getConvergenceInfo().getStopReason());
+    Assert.assertTrue(res.getConvergenceInfo().getNoise() > 0.000001);
+  }
+
+  @Test
+  public void testLinearImageOutput() throws Exception {
+    final float[] rows = new float[IMAGE_WIDTH * IMAGE_HEIGHT * 4];
+    final int[] rowCount = new int[1];
+    FloatScanlineWriter output = new FloatScanlineWriter() {
+
+      @Override
+      public int getWidth() {
+        return IMAGE_WIDTH;
+      }
+
+      @Override
+      public int getHeight() {
+        return IMAGE_HEIGHT;
+      }
+
+      @Override
+      public void writeScanline(float[] pRGBA, int pOffset) throws IOException {
+        System.arraycopy(pRGBA, pOffset, rows, rowCount[0] * IMAGE_WIDTH * 4, IMAGE_WIDTH * 4);
+        rowCount[0]++;
+      }
+
+      @Override
+      public void close() throws IOException {
+      }
+    };
+    FlameRenderer renderer = new FlameRenderer(TestFlames.createSierpinskiFlame(100.0, 40.0), Prefs.getPrefs(), true, false);
+    renderer.setLinearImageOutput(output);
+    RenderedFlame res = renderer.renderFlame(new RenderInfo(IMAGE_WIDTH, IMAGE_HEIGHT, RenderMode.PRODUCTION));
+    Assert.assertEquals(IMAGE_HEIGHT, rowCount[0]);
+
+    SimpleImage img = res.getImage();
+    int opaquePixels = 0;
+    for (int y = 0; y < IMAGE_HEIGHT; y++) {
+      for (int x = 0; x < IMAGE_WIDTH; x++) {
+        int idx = (y * IMAGE_WIDTH + x) * 4;
+        float alpha = rows[idx + 3];
+        Assert.assertTrue(alpha >= 0.0f && alpha <= 1.0f);
+        if (alpha > 0.0f) {
+          opaquePixels++;
+        }
+        else {
+          // no samples, so no color and no coverage in the 8 bit image either
+          Assert.assertEquals(0.0f, rows[idx], 0.0f);
+          Assert.assertEquals(0, (img.getARGBValue(x, y) >>> 24) & 0xff);
+        }
+      }
+    }
+    Assert.assertTrue(opaquePixels > 0);
+  }
+
+  @Test
+  public void testMappedRasterIsReleasedAfterRender() throws Exception {
+    Prefs prefs = Prefs.getPrefs();
+    RasterCreator oldRasterType = prefs.getTinaRasterType();
+    prefs.setTinaRasterType(RasterCreator.FLOAT_INT_RASTER_MAPPED);
+    try {
+      FlameRenderer renderer = new FlameRenderer(TestFlames.createSierpinskiFlame(50.0, 40.0), prefs, false, false);
+      RenderInfo info = new RenderInfo(IMAGE_WIDTH, IMAGE_HEIGHT, RenderMode.PRODUCTION);
+      renderer.renderFlame(info);
+      Assert.assertNull(renderer.getRaster());
+      // the raster is gone, so the flame is rendered again
+      RenderedFlame res = renderer.rerenderFlame(info);
+      Assert.assertEquals(IMAGE_WIDTH, res.getImage().getImageWidth());
+      Assert.assertNull(renderer.getRaster());
+    }
+    finally {
+      prefs.setTinaRasterType(oldRasterType);
+    }
+  }
+
+}
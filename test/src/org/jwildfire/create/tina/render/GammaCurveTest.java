@@ -0,0 +1,39 @@
+package org.jwildfire.create.tina.render;
+
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.jwildfire.base.mathlib.MathLib;
+
+public class GammaCurveTest {
+
+  private void assertMatchesPow(double pGamma) {
+    GammaCurve curve = new GammaCurve(pGamma);
+    Random rnd = new Random(42L);
+    for (int i = 0; i < 100000; i++) {
+      // log-uniform over a wide range, as the intensities and colors of a render
+      double x = Math.pow(10.0, rnd.nextDouble() * 24.0 - 12.0);
+      double expected = MathLib.pow(x, pGamma);
+      Assert.assertEquals(expected, curve.evaluate(x), 1.0e-6 * expected);
+    }
+    // 8 bit output of the gamma curve over the visible range
+    for (int i = 0; i <= 10000; i++) {
+      double x = i / 10000.0;
+      Assert.assertEquals(MathLib.pow(x, pGamma) * 255.0, curve.evaluate(x) * 255.0, 1.0 / 255.0);
+    }
+    Assert.assertEquals(MathLib.pow(0.0, pGamma), curve.evaluate(0.0), 0.0);
+    Assert.assertEquals(MathLib.pow(Double.MIN_VALUE, pGamma), curve.evaluate(Double.MIN_VALUE), 0.0);
+    Assert.assertTrue(Double.isNaN(curve.evaluate(-1.0)) == Double.isNaN(MathLib.pow(-1.0, pGamma)));
+  }
+
+  @Test
+  public void testMatchesPow() {
+    assertMatchesPow(1.0 / 4.0);
+    assertMatchesPow(1.0 / 2.2);
+    assertMatchesPow(1.0);
+    assertMatchesPow(2.5);
+    assertMatchesPow(0.0);
+  }
+
+}
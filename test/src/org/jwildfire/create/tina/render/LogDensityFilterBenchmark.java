@@ -0,0 +1,91 @@
+package org.jwildfire.create.tina.render;
+
+import java.util.Locale;
+
+import org.jwildfire.base.Prefs;
+import org.jwildfire.create.tina.base.Flame;
+import org.jwildfire.create.tina.base.raster.AbstractRaster;
+import org.jwildfire.create.tina.io.FlameReader;
+import org.jwildfire.create.tina.random.MarsagliaRandomGenerator;
+import org.jwildfire.create.tina.render.filter.FilterKernelType;
+import org.jwildfire.create.tina.render.image.ImageTiles;
+
+// Compares the per pixel filter of LogDensityFilter with the two pass filter of separable kernels at growing filter radii.
+// Not a unit test, start it from the project directory:
+// LogDensityFilterBenchmark [flame file] [image width] [image height]
+public class LogDensityFilterBenchmark {
+  // the gaussian at radius 8 has the max. filter size of the renderer (25)
+  private static final double FILTER_RADII[] = { 1.0, 2.0, 4.0, 6.0, 8.0 };
+  private static final int REPEATS = 3;
+
+  public static void main(String args[]) throws Exception {
+    String filename = args.length > 0 ? args[0] : "resources/flames/benchmark1.flame";
+    int width = args.length > 1 ? Integer.parseInt(args[1]) : 960;
+    int height = args.length > 2 ? Integer.parseInt(args[2]) : 540;
+
+    Prefs prefs = Prefs.getPrefs();
+    Flame flame = new FlameReader(prefs).readFlames(filename).get(0);
+    flame.setSampleDensity(50.0);
+    flame.setSpatialOversampling(1);
+    flame.setSampleJittering(false);
+    flame.setSpatialFilterKernel(FilterKernelType.GAUSSIAN);
+
+    // the raster does not depend on the filter, so it is rendered only once
+    FlameRenderer renderer = new FlameRenderer(flame, prefs, false, false);
+    long t0 = System.currentTimeMillis();
+    renderer.renderRaster(new RenderInfo(width, height, RenderMode.PRODUCTION));
+    System.out.println(filename + " " + width + "x" + height + ": raster rendered in " + (System.currentTimeMillis() - t0) + " ms");
+    AbstractRaster raster = renderer.getRaster();
+
+    for (double radius : FILTER_RADII) {
+      flame.setSpatialFilterRadius(radius);
+      LogDensityFilter filter = new LogDensityFilter(flame, new MarsagliaRandomGenerator());
+      filter.setRaster(raster, renderer.rasterWidth, renderer.rasterHeight, width, height);
+      long perPixelTime = Long.MAX_VALUE, twoPassTime = Long.MAX_VALUE;
+      double perPixelSum = 0.0, twoPassSum = 0.0;
+      for (int i = 0; i < REPEATS; i++) {
+        long t1 = System.nanoTime();
+        perPixelSum = filterPerPixel(filter, width, height);
+        long t2 = System.nanoTime();
+        twoPassSum = filterTiles(filter, width, height);
+        long t3 = System.nanoTime();
+        perPixelTime = Math.min(perPixelTime, t2 - t1);
+        twoPassTime = Math.min(twoPassTime, t3 - t2);
+      }
+      System.out.println(String.format(Locale.US, "gaussian radius %.1f (filter size %d, separable %s): per pixel %d ms, two pass %d ms (%.1fx), intensity %.6g / %.6g",
+          radius, filter.getNoiseFilterSize(), filter.isSeparableFilter(), perPixelTime / 1000000L, twoPassTime / 1000000L,
+          (double) perPixelTime / (double) twoPassTime, perPixelSum, twoPassSum));
+    }
+  }
+
+  private static double filterPerPixel(LogDensityFilter pFilter, int pWidth, int pHeight) {
+    LogDensityPoint pnt = new LogDensityPoint(0);
+    double res = 0.0;
+    for (int y = 0; y < pHeight; y++) {
+      for (int x = 0; x < pWidth; x++) {
+        pFilter.transformPoint(pnt, x, y);
+        res += pnt.intensity;
+      }
+    }
+    return res;
+  }
+
+  private static double filterTiles(LogDensityFilter pFilter, int pWidth, int pHeight) {
+    ImageTiles tiles = new ImageTiles(pWidth, pHeight);
+    LogDensityTile tile = new LogDensityTile();
+    LogDensityPoint pnt = new LogDensityPoint(0);
+    double res = 0.0;
+    int idx;
+    while ((idx = tiles.nextTile()) >= 0) {
+      pFilter.prepareTile(tile, tiles.getStartX(idx), tiles.getEndX(idx), tiles.getStartY(idx), tiles.getEndY(idx));
+      for (int y = tiles.getStartY(idx); y < tiles.getEndY(idx); y++) {
+        for (int x = tiles.getStartX(idx); x < tiles.getEndX(idx); x++) {
+          pFilter.transformPoint(tile, pnt, x, y);
+          res += pnt.intensity;
+        }
+      }
+    }
+    return res;
+  }
+
+}
@@ -0,0 +1,216 @@
+package org.jwildfire.create.tina.render;
+
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.jwildfire.create.tina.base.Flame;
+import org.jwildfire.create.tina.base.raster.AbstractRaster;
+import org.jwildfire.create.tina.base.raster.RasterFloatInt;
+import org.jwildfire.create.tina.base.raster.RasterFloatIntFlat;
+import org.jwildfire.create.tina.base.raster.RasterOccupancy;
+import org.jwildfire.create.tina.base.raster.RasterPoint;
+import org.jwildfire.create.tina.base.raster.RasterWithOccupancy;
+import org.jwildfire.create.tina.random.MarsagliaRandomGenerator;
+import org.jwildfire.create.tina.render.filter.FilterKernelType;
+
+public class LogDensityFilterTest {
+  private static final int IMAGE_WIDTH = 64;
+  private static final int IMAGE_HEIGHT = 48;
+
+  private Flame createFlame() {
+    Flame flame = new Flame();
+    flame.setSampleJittering(false);
+    flame.setSpatialOversampling(2);
+    flame.setSpatialFilterRadius(1.25);
+    return flame;
+  }
+
+  private void fillRaster(AbstractRaster pRaster, int pRasterWidth, int pRasterHeight, long pSeed) {
+    Random rnd = new Random(pSeed);
+    PlotSample[] buffer = new PlotSample[1024];
+    for (int i = 0; i < buffer.length; i++) {
+      buffer[i] = new PlotSample();
+    }
+    for (int b = 0; b < 200; b++) {
+      for (int i = 0; i < buffer.length; i++) {
+        // dense centre, empty border
+        int x = Math.min(pRasterWidth - 1, Math.abs((int) (rnd.nextGaussian() * pRasterWidth / 8 + pRasterWidth / 2)));
+        int y = Math.min(pRasterHeight - 1, Math.abs((int) (rnd.nextGaussian() * pRasterHeight / 8 + pRasterHeight / 2)));
+        buffer[i].set(x, y, rnd.nextDouble() * 255.0, rnd.nextDouble() * 255.0, rnd.nextDouble() * 255.0, 0.0, 0.0, 0.0, 0.0, 0.0, 0.0, 0.0, 0.0);
+      }
+      pRaster.addSamples(buffer, buffer.length);
+    }
+  }
+
+  private LogDensityFilter createFilter(Flame pFlame, AbstractRaster pRaster, int pRasterWidth, int pRasterHeight) {
+    LogDensityFilter filter = new LogDensityFilter(pFlame, new MarsagliaRandomGenerator());
+    filter.setRaster(pRaster, pRasterWidth, pRasterHeight, IMAGE_WIDTH, IMAGE_HEIGHT);
+    return filter;
+  }
+
+  @Test
+  public void testFlatRasterMatchesDefaultRaster() {
+    Flame flame = createFlame();
+    int rasterWidth = IMAGE_WIDTH * flame.getSpatialOversampling() + 8;
+    int rasterHeight = IMAGE_HEIGHT * flame.getSpatialOversampling() + 8;
+
+    RasterFloatInt raster = new RasterFloatInt();
+    raster.allocRaster(flame, rasterWidth, rasterHeight);
+    fillRaster(raster, rasterWidth, rasterHeight, 42L);
+    RasterFloatIntFlat flatRaster = new RasterFloatIntFlat();
+    flatRaster.allocRaster(flame, rasterWidth, rasterHeight);
+    fillRaster(flatRaster, rasterWidth, rasterHeight, 42L);
+
+    LogDensityFilter filter = createFilter(flame, raster, rasterWidth, rasterHeight);
+    LogDensityFilter flatFilter = createFilter(flame, flatRaster, rasterWidth, rasterHeight);
+    Assert.assertTrue(filter.getNoiseFilterSize() > 1);
+
+    LogDensityPoint expected = new LogDensityPoint(0);
+    LogDensityPoint actual = new LogDensityPoint(0);
+    for (int y = 0; y < IMAGE_HEIGHT; y++) {
+      for (int x = 0; x < IMAGE_WIDTH; x++) {
+        filter.transformPoint(expected, x, y);
+        flatFilter.transformPoint(actual, x, y);
+        Assert.assertEquals(expected.red, actual.red, 0.0);
+        Assert.assertEquals(expected.green, actual.green, 0.0);
+        Assert.assertEquals(expected.blue, actual.blue, 0.0);
+        Assert.assertEquals(expected.intensity, actual.intensity, 0.0);
+      }
+    }
+  }
+
+  @Test
+  public void testSkippingEmptyAreasMatchesFullFilter() {
+    Flame flame = createFlame();
+    int rasterWidth = IMAGE_WIDTH * flame.getSpatialOversampling() + 8;
+    int rasterHeight = IMAGE_HEIGHT * flame.getSpatialOversampling() + 8;
+
+    final RasterFloatInt raster = new RasterFloatInt();
+    raster.allocRaster(flame, rasterWidth, rasterHeight);
+    fillRaster(raster, rasterWidth, rasterHeight, 42L);
+    RasterOccupancy occupancy = ((RasterWithOccupancy) raster).getOccupancy();
+    Assert.assertTrue(occupancy.getOccupiedCellCount() > 0);
+    Assert.assertTrue(occupancy.getOccupiedCellCount() < occupancy.getCellCount());
+
+    // same data, but without occupancy, so the filter has to visit every pixel
+    AbstractRaster plainRaster = new AbstractRaster() {
+
+      @Override
+      public void incCount(int pX, int pY) {
+        raster.incCount(pX, pY);
+      }
+
+      @Override
+      public void allocRaster(Flame pFlame, int pWidth, int pHeight) {
+        raster.allocRaster(pFlame, pWidth, pHeight);
+      }
+
+      @Override
+      public void readRasterPoint(int pX, int pY, RasterPoint pDestRasterPoint) {
+        raster.readRasterPoint(pX, pY, pDestRasterPoint);
+      }
+
+      @Override
+      public void readRasterPointSafe(int pX, int pY, RasterPoint pDestRasterPoint) {
+        raster.readRasterPointSafe(pX, pY, pDestRasterPoint);
+      }
+
+      @Override
+      public void addSamples(PlotSample[] pPlotBuffer, int pCount) {
+        raster.addSamples(pPlotBuffer, pCount);
+      }
+
+      @Override
+      public void finalizeRaster() {
+      }
+
+      @Override
+      public void cleanupRaster() {
+      }
+
+      @Override
+      public void addShadowMapSamples(int pShadowMapIdx, PlotSample[] pPlotBuffer, int pCount) {
+      }
+
+      @Override
+      public void notifyInit(FlameRendererView view) {
+      }
+    };
+
+    LogDensityFilter filter = createFilter(flame, plainRaster, rasterWidth, rasterHeight);
+    LogDensityFilter sparseFilter = createFilter(flame, raster, rasterWidth, rasterHeight);
+    LogDensityPoint expected = new LogDensityPoint(0);
+    LogDensityPoint actual = new LogDensityPoint(0);
+    for (int y = 0; y < IMAGE_HEIGHT; y++) {
+      for (int x = 0; x < IMAGE_WIDTH; x++) {
+        filter.transformPoint(expected, x, y);
+        sparseFilter.transformPoint(actual, x, y);
+        Assert.assertEquals(expected.red, actual.red, 0.0);
+        Assert.assertEquals(expected.green, actual.green, 0.0);
+        Assert.assertEquals(expected.blue, actual.blue, 0.0);
+        Assert.assertEquals(expected.intensity, actual.intensity, 0.0);
+      }
+    }
+  }
+
+  private void assertTileMatchesFilter(FilterKernelType pKernelType, double pFilterRadius, boolean pSeparable) {
+    Flame flame = createFlame();
+    flame.setSpatialFilterKernel(pKernelType);
+    flame.setSpatialFilterRadius(pFilterRadius);
+    LogDensityFilter filter = new LogDensityFilter(flame, new MarsagliaRandomGenerator());
+    Assert.assertEquals(pSeparable, filter.isSeparableFilter());
+    int rasterWidth = IMAGE_WIDTH * flame.getSpatialOversampling() + filter.getNoiseFilterSize();
+    int rasterHeight = IMAGE_HEIGHT * flame.getSpatialOversampling() + filter.getNoiseFilterSize();
+    RasterFloatInt raster = new RasterFloatInt();
+    raster.allocRaster(flame, rasterWidth, rasterHeight);
+    fillRaster(raster, rasterWidth, rasterHeight, 42L);
+    filter.setRaster(raster, rasterWidth, rasterHeight, IMAGE_WIDTH, IMAGE_HEIGHT);
+
+    double expected[] = new double[IMAGE_WIDTH * IMAGE_HEIGHT * 4];
+    LogDensityPoint pnt = new LogDensityPoint(0);
+    for (int y = 0; y < IMAGE_HEIGHT; y++) {
+      for (int x = 0; x < IMAGE_WIDTH; x++) {
+        filter.transformPoint(pnt, x, y);
+        int idx = (y * IMAGE_WIDTH + x) * 4;
+        expected[idx] = pnt.red;
+        expected[idx + 1] = pnt.green;
+        expected[idx + 2] = pnt.blue;
+        expected[idx + 3] = pnt.intensity;
+      }
+    }
+    // tiles of odd size, so that some of them touch the border of the image
+    final int tileSize = 20;
+    LogDensityTile tile = new LogDensityTile();
+    double actual[] = new double[IMAGE_WIDTH * IMAGE_HEIGHT * 4];
+    for (int ty = 0; ty < IMAGE_HEIGHT; ty += tileSize) {
+      for (int tx = 0; tx < IMAGE_WIDTH; tx += tileSize) {
+        int ex = Math.min(IMAGE_WIDTH, tx + tileSize), ey = Math.min(IMAGE_HEIGHT, ty + tileSize);
+        filter.prepareTile(tile, tx, ex, ty, ey);
+        for (int y = ty; y < ey; y++) {
+          for (int x = tx; x < ex; x++) {
+            filter.transformPoint(tile, pnt, x, y);
+            int idx = (y * IMAGE_WIDTH + x) * 4;
+            actual[idx] = pnt.red;
+            actual[idx + 1] = pnt.green;
+            actual[idx + 2] = pnt.blue;
+            actual[idx + 3] = pnt.intensity;
+          }
+        }
+      }
+    }
+    for (int i = 0; i < expected.length; i++) {
+      Assert.assertEquals(expected[i], actual[i], 1.0e-9 * Math.max(1.0, Math.abs(expected[i])));
+    }
+  }
+
+  @Test
+  public void testSeparableFilterMatchesFullFilter() {
+    assertTileMatchesFilter(FilterKernelType.GAUSSIAN, 0.75, true);
+    assertTileMatchesFilter(FilterKernelType.GAUSSIAN, 2.0, true);
+    assertTileMatchesFilter(FilterKernelType.GAUSSIAN, 6.0, true);
+    // radial kernel, which is not separable, falls back to the per pixel filter
+    assertTileMatchesFilter(FilterKernelType.MITCHELL, 2.0, false);
+  }
+
+}
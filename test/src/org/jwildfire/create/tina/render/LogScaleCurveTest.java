@@ -0,0 +1,34 @@
+package org.jwildfire.create.tina.render;
+
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class LogScaleCurveTest {
+
+  private void assertMatchesExact(double pK2, double pMotionBlurScl) {
+    LogScaleCurve curve = new LogScaleCurve(4.0, pK2, 1.0, pMotionBlurScl);
+    Assert.assertEquals(0.0, curve.evaluate(0), 0.0);
+    for (int count = 1; count < 5000; count++) {
+      double expected = curve.evaluateExact(count);
+      Assert.assertEquals(expected, curve.evaluate(count), 1.0e-5 * expected);
+    }
+    Random rnd = new Random(42L);
+    for (int i = 0; i < 100000; i++) {
+      // log-uniform over the whole range of counts
+      long count = (long) Math.pow(2.0, rnd.nextDouble() * 62.0);
+      double expected = curve.evaluateExact(count);
+      Assert.assertEquals(expected, curve.evaluate(count), 1.0e-5 * expected);
+    }
+    Assert.assertEquals(curve.evaluateExact(Long.MAX_VALUE), curve.evaluate(Long.MAX_VALUE), 1.0e-5 * curve.evaluateExact(Long.MAX_VALUE));
+  }
+
+  @Test
+  public void testMatchesExactLogScale() {
+    assertMatchesExact(1.0e-3, 1.0);
+    assertMatchesExact(1.0e-7, 1.0);
+    assertMatchesExact(0.5, 1.0 / 11.0);
+  }
+
+}
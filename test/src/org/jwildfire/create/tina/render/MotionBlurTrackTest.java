@@ -0,0 +1,125 @@
+package org.jwildfire.create.tina.render;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.jwildfire.base.Prefs;
+import org.jwildfire.create.tina.animate.AnimationService;
+import org.jwildfire.create.tina.base.Flame;
+import org.jwildfire.create.tina.base.Layer;
+import org.jwildfire.create.tina.base.XForm;
+import org.jwildfire.image.SimpleImage;
+
+public class MotionBlurTrackTest {
+  private static final int IMAGE_WIDTH = 80;
+  private static final int IMAGE_HEIGHT = 60;
+  private static final int FRAME = 50;
+
+  private Flame createFlame(int pMotionBlurLength) {
+    Flame flame = TestFlames.createSierpinskiFlame(100.0, 20.0);
+    // one full turn in 100 frames
+    XForm xForm = flame.getFirstLayer().getXForms().get(1);
+    xForm.getXYRotateCurve().setPoints(new int[] { 0, 100 }, new double[] { 0.0, 360.0 });
+    xForm.getXYRotateCurve().setEnabled(true);
+    flame.setFrame(FRAME);
+    flame.setMotionBlurLength(pMotionBlurLength);
+    flame.setMotionBlurTimeStep(0.5);
+    flame.setMotionBlurDecay(0.1);
+    return flame;
+  }
+
+  private void assertCoeffs(XForm pExpected, XForm pActual) {
+    Assert.assertEquals(pExpected.getXYCoeff00(), pActual.getXYCoeff00(), 1.0e-12);
+    Assert.assertEquals(pExpected.getXYCoeff01(), pActual.getXYCoeff01(), 1.0e-12);
+    Assert.assertEquals(pExpected.getXYCoeff10(), pActual.getXYCoeff10(), 1.0e-12);
+    Assert.assertEquals(pExpected.getXYCoeff11(), pActual.getXYCoeff11(), 1.0e-12);
+    Assert.assertEquals(pExpected.getXYCoeff20(), pActual.getXYCoeff20(), 1.0e-12);
+    Assert.assertEquals(pExpected.getXYCoeff21(), pActual.getXYCoeff21(), 1.0e-12);
+  }
+
+  @Test
+  public void testTrackMatchesMotionCurvesAtKeys() {
+    Flame flame = createFlame(8);
+    MotionBlurTrack track = MotionBlurTrack.create(flame, FRAME);
+    Assert.assertNotNull(track);
+    Assert.assertTrue(track.isAnimated());
+
+    Flame renderFlame = AnimationService.evalMotionCurves(flame.makeCopy(), FRAME);
+    Layer layer = renderFlame.getFirstLayer();
+    MotionBlurTrack.Binding binding = track.bind(renderFlame, layer);
+    Assert.assertTrue(binding.isAnimated());
+    for (int step = 0; step <= 8; step++) {
+      binding.apply(step);
+      double time = FRAME + 8 * 0.5 / 2.0 - step * 0.5;
+      Flame expected = AnimationService.evalMotionCurves(flame.makeCopy(), time);
+      for (int i = 0; i < layer.getXForms().size(); i++) {
+        assertCoeffs(expected.getFirstLayer().getXForms().get(i), layer.getXForms().get(i));
+      }
+    }
+    Assert.assertEquals(1.0, track.getWeight(0.0), 0.0);
+    Assert.assertTrue(track.getWeight(8.0) < track.getWeight(4.0));
+  }
+
+  @Test
+  public void testUnsupportedCurvesUseBlurSteps() {
+    Flame flame = createFlame(8);
+    XForm xForm = flame.getFirstLayer().getXForms().get(0);
+    xForm.getVariation(0).getAmountCurve().setPoints(new int[] { 0, 100 }, new double[] { 1.0, 0.5 });
+    xForm.getVariation(0).getAmountCurve().setEnabled(true);
+    Assert.assertNull(MotionBlurTrack.create(flame, FRAME));
+
+    Flame unanimated = createFlame(8);
+    unanimated.getFirstLayer().getXForms().get(1).getXYRotateCurve().setEnabled(false);
+    MotionBlurTrack track = MotionBlurTrack.create(unanimated, FRAME);
+    Assert.assertNotNull(track);
+    Assert.assertFalse(track.isAnimated());
+  }
+
+  private SimpleImage render(Flame pFlame, boolean pContinuous) {
+    return render(pFlame, pContinuous, Prefs.getPrefs());
+  }
+
+  private SimpleImage render(Flame pFlame, boolean pContinuous, Prefs pPrefs) {
+    // dense enough that the noise is well below the difference made by the blur
+    pFlame.setSampleDensity(400.0);
+    RenderInfo info = new RenderInfo(IMAGE_WIDTH, IMAGE_HEIGHT, RenderMode.PRODUCTION);
+    info.setContinuousMotionBlur(pContinuous);
+    return new FlameRenderer(pFlame, pPrefs, false, false).renderFlame(info).getImage();
+  }
+
+  private double meanDifference(SimpleImage pA, SimpleImage pB) {
+    double res = 0.0;
+    for (int y = 0; y < IMAGE_HEIGHT; y++) {
+      for (int x = 0; x < IMAGE_WIDTH; x++) {
+        int a = pA.getARGBValue(x, y);
+        int b = pB.getARGBValue(x, y);
+        for (int shift = 0; shift <= 16; shift += 8) {
+          res += Math.abs(((a >> shift) & 0xff) - ((b >> shift) & 0xff));
+        }
+      }
+    }
+    return res / (IMAGE_WIDTH * IMAGE_HEIGHT * 3);
+  }
+
+  @Test
+  public void testContinuousBlurMatchesBlurSteps() {
+    SimpleImage steps = render(createFlame(20), false);
+    SimpleImage continuous = render(createFlame(20), true);
+    SimpleImage unblurred = render(createFlame(0), false);
+    double blurDifference = meanDifference(steps, unblurred);
+    Assert.assertTrue(blurDifference > 0.5);
+    Assert.assertTrue(meanDifference(steps, continuous) < 0.25 * blurDifference);
+  }
+
+  @Test
+  public void testBatchContinuousBlurMatchesBlurSteps() {
+    Prefs prefs = Prefs.newInstance();
+    prefs.assign(Prefs.getPrefs());
+    prefs.setTinaBatchWalkers(256);
+    SimpleImage steps = render(createFlame(20), false);
+    SimpleImage continuous = render(createFlame(20), true, prefs);
+    SimpleImage unblurred = render(createFlame(0), false);
+    double blurDifference = meanDifference(steps, unblurred);
+    Assert.assertTrue(meanDifference(steps, continuous) < 0.25 * blurDifference);
+  }
+
+}
@@ -0,0 +1,92 @@
+package org.jwildfire.create.tina.render;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.jwildfire.create.tina.base.Flame;
+import org.jwildfire.create.tina.base.raster.RasterFloatInt;
+import org.jwildfire.create.tina.random.MarsagliaRandomGenerator;
+
+public class ProgressiveTonemapperTest {
+  private static final int IMAGE_WIDTH = 50;
+  private static final int IMAGE_HEIGHT = 30;
+  private static final int OVERSAMPLE = 3;
+  private static final int RASTER_WIDTH = IMAGE_WIDTH * OVERSAMPLE + 4;
+  private static final int RASTER_HEIGHT = IMAGE_HEIGHT * OVERSAMPLE + 4;
+
+  private Flame createFlame() {
+    Flame flame = new Flame();
+    flame.setSampleJittering(false);
+    flame.setSpatialOversampling(OVERSAMPLE);
+    flame.setSampleDensity(10);
+    return flame;
+  }
+
+  private SampleTonemapper createTonemapper(Flame pFlame, RasterFloatInt pRaster) {
+    return new SampleTonemapper(pFlame, pRaster, RASTER_WIDTH, RASTER_HEIGHT, IMAGE_WIDTH, IMAGE_HEIGHT, new MarsagliaRandomGenerator());
+  }
+
+  private void addSamples(RasterFloatInt pRaster, Random pRnd, int pX0, int pY0, int pX1, int pY1, int pCount) {
+    PlotSample[] buffer = new PlotSample[pCount];
+    for (int i = 0; i < pCount; i++) {
+      buffer[i] = new PlotSample();
+      buffer[i].set(pX0 + pRnd.nextInt(pX1 - pX0), pY0 + pRnd.nextInt(pY1 - pY0), pRnd.nextDouble() * 255.0, pRnd.nextDouble() * 255.0, pRnd.nextDouble() * 255.0, 0.0, 0.0, 0.0, 0.0, 0.0, 0.0, 0.0, 0.0);
+    }
+    pRaster.addSamples(buffer, pCount);
+  }
+
+  private void assertMatchesSampleTonemapping(SampleTonemapper pReference, int[] pBuffer, int pBackground) {
+    for (int y = 0; y < IMAGE_HEIGHT; y++) {
+      for (int x = 0; x < IMAGE_WIDTH; x++) {
+        int argb = pBuffer[y * IMAGE_WIDTH + x];
+        if (argb != pBackground) {
+          Assert.assertEquals(pReference.tonemapSample(x, y), argb);
+        }
+      }
+    }
+  }
+
+  @Test
+  public void testOnlyChangedCellsAreTonemapped() {
+    Flame flame = createFlame();
+    RasterFloatInt raster = new RasterFloatInt();
+    raster.allocRaster(flame, RASTER_WIDTH, RASTER_HEIGHT);
+    List<SampleTonemapper> tonemappers = new ArrayList<>();
+    for (int i = 0; i < 3; i++) {
+      tonemappers.add(createTonemapper(flame, raster));
+    }
+    ProgressiveTonemapper tonemapper = new ProgressiveTonemapper(tonemappers, OVERSAMPLE);
+    SampleTonemapper reference = createTonemapper(flame, raster);
+    final int background = 0x12345678;
+    int[] buffer = new int[IMAGE_WIDTH * IMAGE_HEIGHT];
+    Arrays.fill(buffer, background);
+
+    Assert.assertEquals(0, tonemapper.update(buffer));
+
+    Random rnd = new Random(42L);
+    addSamples(raster, rnd, 0, 0, IMAGE_WIDTH * OVERSAMPLE, IMAGE_HEIGHT * OVERSAMPLE, 20000);
+    int cells = tonemapper.update(buffer);
+    Assert.assertTrue(cells > 1);
+    assertMatchesSampleTonemapping(reference, buffer, background);
+    Assert.assertEquals(0, tonemapper.update(buffer));
+
+    // samples inside one cell only change the pixels of that cell
+    int[] before = buffer.clone();
+    addSamples(raster, rnd, 16, 8, 24, 16, 500);
+    Assert.assertEquals(1, tonemapper.update(buffer));
+    assertMatchesSampleTonemapping(reference, buffer, background);
+    for (int y = 0; y < IMAGE_HEIGHT; y++) {
+      for (int x = 0; x < IMAGE_WIDTH; x++) {
+        if (buffer[y * IMAGE_WIDTH + x] != before[y * IMAGE_WIDTH + x]) {
+          Assert.assertTrue(x >= 16 / OVERSAMPLE && x <= 23 / OVERSAMPLE);
+          Assert.assertTrue(y >= 8 / OVERSAMPLE && y <= 15 / OVERSAMPLE);
+        }
+      }
+    }
+  }
+
+}
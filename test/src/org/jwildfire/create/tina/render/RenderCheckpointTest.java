@@ -0,0 +1,196 @@
+package org.jwildfire.create.tina.render;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.jwildfire.base.Prefs;
+import org.jwildfire.create.tina.base.Flame;
+import org.jwildfire.create.tina.base.raster.RasterFloatInt;
+import org.jwildfire.create.tina.base.raster.RasterFloatIntFlat;
+import org.jwildfire.create.tina.base.raster.RasterPoint;
+
+public class RenderCheckpointTest {
+  private static final int RASTER_WIDTH = 301;
+  private static final int RASTER_HEIGHT = 203;
+
+  private void checkRoundTrip(boolean pCompress) throws Exception {
+    Flame flame = TestFlames.createSierpinskiFlame(1000000.0, 40.0);
+    RasterFloatInt raster = new RasterFloatInt();
+    raster.allocRaster(flame, RASTER_WIDTH, RASTER_HEIGHT);
+    Random rnd = new Random(7L);
+    for (int i = 0; i < 20000; i++) {
+      raster.writeRawPoint(rnd.nextInt(RASTER_WIDTH), rnd.nextInt(RASTER_HEIGHT), rnd.nextFloat() * 1000.0f, rnd.nextFloat(), rnd.nextFloat() * 10.0f, rnd.nextInt(100000));
+    }
+    RenderThreadPersistentState state[] = { new DefaultRenderThreadPersistentState(), new DefaultRenderThreadPersistentState() };
+    JWFRenderFileHeader header = new JWFRenderFileHeader(state.length, 320, 200, 12345L, 678L, 1, 1, 100, true, false, false);
+    File file = File.createTempFile("jwf_checkpoint", ".jwfrender");
+    try {
+      RenderCheckpoint.write(file.getAbsolutePath(), header, flame, new RenderInfo(320, 200, RenderMode.PRODUCTION), state, raster, RASTER_WIDTH, RASTER_HEIGHT, pCompress);
+      Assert.assertTrue(RenderCheckpoint.isCheckpointFile(file.getAbsolutePath()));
+
+      // restore into a raster with a different layout
+      RasterFloatIntFlat restored = new RasterFloatIntFlat();
+      restored.allocRaster(flame, RASTER_WIDTH, RASTER_HEIGHT);
+      RenderCheckpoint.Reader in = new RenderCheckpoint.Reader(file.getAbsolutePath());
+      try {
+        Assert.assertEquals(12345L, in.getHeader().getSampleCount());
+        Assert.assertEquals(2, in.getState().length);
+        Assert.assertEquals(320, in.getRenderInfo().getImageWidth());
+        Assert.assertEquals(flame.getXForms().size(), in.getFlame().getXForms().size());
+        in.readRaster(restored, RASTER_WIDTH, RASTER_HEIGHT);
+      }
+      finally {
+        in.close();
+      }
+
+      RasterPoint expected = new RasterPoint(0);
+      RasterPoint actual = new RasterPoint(0);
+      for (int y = 0; y < RASTER_HEIGHT; y++) {
+        for (int x = 0; x < RASTER_WIDTH; x++) {
+          raster.readRasterPoint(x, y, expected);
+          restored.readRasterPoint(x, y, actual);
+          Assert.assertEquals(expected.red, actual.red, 0.0);
+          Assert.assertEquals(expected.green, actual.green, 0.0);
+          Assert.assertEquals(expected.blue, actual.blue, 0.0);
+          Assert.assertEquals(expected.count, actual.count);
+          if (expected.count > 0) {
+            Assert.assertTrue(restored.getOccupancy().isOccupied(x, y));
+          }
+        }
+      }
+    }
+    finally {
+      file.delete();
+    }
+  }
+
+  @Test
+  public void testRoundTrip() throws Exception {
+    checkRoundTrip(false);
+  }
+
+  @Test
+  public void testCompressedRoundTrip() throws Exception {
+    checkRoundTrip(true);
+  }
+
+  @Test(timeout = 10000)
+  public void testTruncatedCompressedBand() throws Exception {
+    Flame flame = TestFlames.createSierpinskiFlame(1000000.0, 40.0);
+    RasterFloatInt raster = new RasterFloatInt();
+    raster.allocRaster(flame, RASTER_WIDTH, RASTER_HEIGHT);
+    Random rnd = new Random(7L);
+    for (int i = 0; i < 20000; i++) {
+      raster.writeRawPoint(rnd.nextInt(RASTER_WIDTH), rnd.nextInt(RASTER_HEIGHT), rnd.nextFloat() * 1000.0f, rnd.nextFloat(), rnd.nextFloat() * 10.0f, rnd.nextInt(100000));
+    }
+    RenderThreadPersistentState state[] = { new DefaultRenderThreadPersistentState() };
+    JWFRenderFileHeader header = new JWFRenderFileHeader(state.length, 320, 200, 12345L, 678L, 1, 1, 100, true, false, false);
+    File file = File.createTempFile("jwf_checkpoint", ".jwfrender");
+    try {
+      RenderCheckpoint.write(file.getAbsolutePath(), header, flame, new RenderInfo(320, 200, RenderMode.PRODUCTION), state, raster, RASTER_WIDTH, RASTER_HEIGHT, true);
+
+      // cut the first band in half, keeping its stored length consistent with the file
+      RandomAccessFile damaged = new RandomAccessFile(file, "rw");
+      try {
+        ByteBuffer buf = ByteBuffer.allocate(8).order(ByteOrder.LITTLE_ENDIAN);
+        damaged.seek(8);
+        damaged.readFully(buf.array(), 0, 4);
+        long bandHeadPos = 12 + buf.getInt(0) + 16;
+        damaged.seek(bandHeadPos);
+        damaged.readFully(buf.array(), 0, 8);
+        int storedLength = buf.getInt(4) / 2;
+        buf.putInt(4, storedLength);
+        damaged.seek(bandHeadPos);
+        damaged.write(buf.array(), 0, 8);
+        damaged.setLength(bandHeadPos + 8 + storedLength);
+      }
+      finally {
+        damaged.close();
+      }
+
+      RasterFloatIntFlat restored = new RasterFloatIntFlat();
+      restored.allocRaster(flame, RASTER_WIDTH, RASTER_HEIGHT);
+      RenderCheckpoint.Reader in = new RenderCheckpoint.Reader(file.getAbsolutePath());
+      try {
+        in.readRaster(restored, RASTER_WIDTH, RASTER_HEIGHT);
+        Assert.fail("truncated band was accepted");
+      }
+      catch (IOException ex) {
+        Assert.assertEquals("Corrupt raster band at row 0", ex.getMessage());
+      }
+      finally {
+        in.close();
+      }
+    }
+    finally {
+      file.delete();
+    }
+  }
+
+  @Test
+  public void testSaveAndResumeRunningRender() throws Exception {
+    FlameRenderer renderer = new FlameRenderer(TestFlames.createSierpinskiFlame(1000000.0, 40.0), Prefs.getPrefs(), false, false);
+    RenderThreads threads = renderer.startRenderFlame(new RenderInfo(160, 120, RenderMode.PRODUCTION));
+    File file = File.createTempFile("jwf_checkpoint", ".jwfrender");
+    try {
+      Thread.sleep(200);
+      List<Thread> executingThreads = renderer.saveState(file.getAbsolutePath(), threads.getRenderThreads(), 1000L, 200L, null);
+      Assert.assertEquals(threads.getRenderThreads().size(), executingThreads.size());
+      for (Thread thread : executingThreads) {
+        Assert.assertTrue(thread.isAlive());
+      }
+      Assert.assertTrue(RenderCheckpoint.isCheckpointFile(file.getAbsolutePath()));
+      Assert.assertFalse(new File(file.getAbsolutePath() + ".tmp").exists());
+      // the threads keep iterating after the save
+      for (AbstractRenderThread thread : threads.getRenderThreads()) {
+        Assert.assertFalse(thread.awaitFinished(50));
+      }
+
+      FlameRenderer resumedRenderer = new FlameRenderer(new Flame(), Prefs.getPrefs(), false, false);
+      ResumedFlameRender resumed = resumedRenderer.resumeRenderFlame(file.getAbsolutePath());
+      Assert.assertEquals(threads.getRenderThreads().size(), resumed.getThreads().size());
+      Assert.assertEquals(1000L, resumed.getHeader().getSampleCount());
+      Assert.assertEquals(160, resumedRenderer.getRenderInfo().getImageWidth());
+    }
+    finally {
+      for (AbstractRenderThread thread : threads.getRenderThreads()) {
+        thread.cancel();
+      }
+      file.delete();
+    }
+  }
+
+  @Test(timeout = 10000)
+  public void testCancelBeforeStartIsNotLost() throws Exception {
+    FlameRenderer renderer = new FlameRenderer(TestFlames.createSierpinskiFlame(1000000.0, 40.0), Prefs.getPrefs(), false, false);
+    RenderThreads threads = renderer.startRenderFlame(new RenderInfo(160, 120, RenderMode.PRODUCTION));
+    File file = File.createTempFile("jwf_checkpoint", ".jwfrender");
+    try {
+      Thread.sleep(100);
+      renderer.saveState(file.getAbsolutePath(), threads.getRenderThreads(), 1000L, 100L, null);
+      // the resumed threads are not started yet and would iterate without end
+      ResumedFlameRender resumed = new FlameRenderer(new Flame(), Prefs.getPrefs(), false, false).resumeRenderFlame(file.getAbsolutePath());
+      for (AbstractRenderThread thread : resumed.getThreads()) {
+        thread.cancel();
+        new Thread(thread).start();
+      }
+      for (AbstractRenderThread thread : resumed.getThreads()) {
+        thread.awaitFinished();
+      }
+    }
+    finally {
+      for (AbstractRenderThread thread : threads.getRenderThreads()) {
+        thread.cancel();
+      }
+      file.delete();
+    }
+  }
+
+}
@@ -0,0 +1,68 @@
+package org.jwildfire.create.tina.render;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class RenderExecutorTest {
+
+  private List<Runnable> createTasks(int pCount, final AtomicInteger pCounter) {
+    List<Runnable> res = new ArrayList<>();
+    for (int i = 0; i < pCount; i++) {
+      res.add(new Runnable() {
+        @Override
+        public void run() {
+          try {
+            Thread.sleep(5);
+          }
+          catch (InterruptedException ex) {
+            throw new RuntimeException(ex);
+          }
+          pCounter.incrementAndGet();
+        }
+      });
+    }
+    return res;
+  }
+
+  @Test
+  public void testNestedRunAllDoesNotDeadlock() throws Exception {
+    final RenderExecutor executor = RenderExecutor.getInstance();
+    final AtomicInteger counter = new AtomicInteger();
+    // more outer tasks than threads, every outer task waits for its own inner tasks
+    int outerCount = executor.getParallelism() * 3;
+    final int innerCount = executor.getParallelism() + 1;
+    List<Future<?>> outer = new ArrayList<>();
+    for (int i = 0; i < outerCount; i++) {
+      outer.add(executor.submit(new Runnable() {
+        @Override
+        public void run() {
+          executor.runAll(createTasks(innerCount, counter));
+        }
+      }));
+    }
+    for (Future<?> task : outer) {
+      task.get(60, TimeUnit.SECONDS);
+    }
+    Assert.assertEquals(outerCount * innerCount, counter.get());
+    Assert.assertTrue(executor.getPeakSaturation() > 0.0);
+  }
+
+  @Test
+  public void testThreadNames() throws Exception {
+    final String names[] = new String[1];
+    RenderExecutor.getInstance().submit(new Runnable() {
+      @Override
+      public void run() {
+        names[0] = Thread.currentThread().getName();
+      }
+    }).get();
+    Assert.assertTrue(names[0].startsWith("JWildfire-Render-"));
+  }
+
+}
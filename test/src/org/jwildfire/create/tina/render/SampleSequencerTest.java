@@ -0,0 +1,58 @@
+package org.jwildfire.create.tina.render;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class SampleSequencerTest {
+
+  @Test
+  public void testTurnsAreRoundRobin() throws Exception {
+    final int turns[] = { 5, 1, 3, 0, 4 };
+    final SampleSequencer sequencer = new SampleSequencer(turns.length);
+    final List<Integer> order = Collections.synchronizedList(new ArrayList<Integer>());
+    List<Thread> threads = new ArrayList<>();
+    for (int t = turns.length - 1; t >= 0; t--) {
+      final int threadId = t;
+      threads.add(new Thread(new Runnable() {
+        @Override
+        public void run() {
+          for (int i = 0; i < turns[threadId]; i++) {
+            // uneven amounts of work between the turns
+            Thread.yield();
+            sequencer.acquire(threadId);
+            order.add(threadId);
+            sequencer.release(threadId);
+          }
+          sequencer.leave(threadId);
+        }
+      }));
+    }
+    for (Thread thread : threads) {
+      thread.start();
+    }
+    for (Thread thread : threads) {
+      thread.join(10000);
+      Assert.assertFalse(thread.isAlive());
+    }
+
+    List<Integer> expected = new ArrayList<>();
+    int left[] = turns.clone();
+    boolean pending = true;
+    while (pending) {
+      pending = false;
+      for (int t = 0; t < left.length; t++) {
+        if (left[t] > 0) {
+          expected.add(t);
+          left[t]--;
+          pending = true;
+        }
+      }
+    }
+    Assert.assertEquals(expected, order);
+  }
+
+}
@@ -0,0 +1,35 @@
+package org.jwildfire.create.tina.render;
+
+import org.jwildfire.create.tina.base.Flame;
+import org.jwildfire.create.tina.base.Layer;
+import org.jwildfire.create.tina.base.XForm;
+import org.jwildfire.create.tina.palette.RGBPalette;
+import org.jwildfire.create.tina.variation.Linear3DFunc;
+
+// Flames shared by the render tests
+public class TestFlames {
+
+  // a sierpinski triangle of three linear xforms, colored from magenta to yellow
+  public static Flame createSierpinskiFlame(double pSampleDensity, double pPixelsPerUnit) {
+    Flame flame = new Flame();
+    flame.setSampleDensity(pSampleDensity);
+    flame.setPixelsPerUnit(pPixelsPerUnit);
+    Layer layer = flame.getFirstLayer();
+    for (int i = 0; i < RGBPalette.PALETTE_SIZE; i++) {
+      layer.getPalette().setColor(i, 255, i, 255 - i);
+    }
+    double offsets[][] = { { 0.0, 0.0 }, { 0.5, 0.0 }, { 0.25, 0.5 } };
+    for (double offset[] : offsets) {
+      XForm xForm = new XForm();
+      xForm.setWeight(1.0);
+      xForm.addVariation(1.0, new Linear3DFunc());
+      xForm.setXYCoeff00(0.5);
+      xForm.setXYCoeff11(0.5);
+      xForm.setXYCoeff20(offset[0]);
+      xForm.setXYCoeff21(offset[1]);
+      layer.getXForms().add(xForm);
+    }
+    return flame;
+  }
+
+}
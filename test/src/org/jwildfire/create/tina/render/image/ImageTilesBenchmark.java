@@ -0,0 +1,87 @@
+package org.jwildfire.create.tina.render.image;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.jwildfire.create.tina.base.Flame;
+import org.jwildfire.create.tina.base.raster.AbstractRaster;
+import org.jwildfire.create.tina.base.raster.RasterFloatInt;
+import org.jwildfire.create.tina.random.MarsagliaRandomGenerator;
+import org.jwildfire.create.tina.render.GammaCorrectionFilter;
+import org.jwildfire.create.tina.render.LogDensityFilter;
+import org.jwildfire.create.tina.render.PlotSample;
+import org.jwildfire.create.tina.render.RenderExecutor;
+import org.jwildfire.create.tina.render.filter.FilterKernelType;
+import org.jwildfire.image.SimpleImage;
+
+// Compares the wall-clock time of tone mapping a flame with a dense centre and empty borders in one row band per
+// thread (as before the tiles) and in 64x64 tiles. Not a unit test, start it with:
+// ImageTilesBenchmark [image width] [image height] [threads]
+public class ImageTilesBenchmark {
+  private static final int REPEATS = 5;
+
+  public static void main(String args[]) {
+    int width = args.length > 0 ? Integer.parseInt(args[0]) : 1920;
+    int height = args.length > 1 ? Integer.parseInt(args[1]) : 1080;
+    int threads = args.length > 2 ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors();
+
+    Flame flame = new Flame();
+    flame.setSampleJittering(false);
+    flame.setSpatialOversampling(1);
+    // a radial kernel, so every pixel goes through the full filter
+    flame.setSpatialFilterKernel(FilterKernelType.MITCHELL);
+    flame.setSpatialFilterRadius(2.0);
+    LogDensityFilter logDensityFilter = new LogDensityFilter(flame, new MarsagliaRandomGenerator());
+    int rasterWidth = width + logDensityFilter.getNoiseFilterSize();
+    int rasterHeight = height + logDensityFilter.getNoiseFilterSize();
+    RasterFloatInt raster = new RasterFloatInt();
+    raster.allocRaster(flame, rasterWidth, rasterHeight);
+    fillRaster(raster, rasterWidth, rasterHeight);
+    logDensityFilter.setRaster(raster, rasterWidth, rasterHeight, width, height);
+    GammaCorrectionFilter gammaCorrectionFilter = new GammaCorrectionFilter(flame, false, rasterWidth, rasterHeight);
+
+    int rowsPerThread = (height + threads - 1) / threads;
+    long bandsTime = Long.MAX_VALUE, tilesTime = Long.MAX_VALUE;
+    for (int i = 0; i < REPEATS; i++) {
+      long t0 = System.nanoTime();
+      render(flame, logDensityFilter, gammaCorrectionFilter, width, height, width, rowsPerThread, threads);
+      long t1 = System.nanoTime();
+      render(flame, logDensityFilter, gammaCorrectionFilter, width, height, ImageTiles.DEFAULT_TILE_SIZE, ImageTiles.DEFAULT_TILE_SIZE, threads);
+      long t2 = System.nanoTime();
+      bandsTime = Math.min(bandsTime, t1 - t0);
+      tilesTime = Math.min(tilesTime, t2 - t1);
+    }
+    System.out.println("Tone mapping " + width + "x" + height + " with " + threads + " threads (render pool parallelism " + RenderExecutor.getInstance().getParallelism() + "): " + threads + " bands " + bandsTime / 1000000L + " ms, "
+        + ImageTiles.DEFAULT_TILE_SIZE + "x" + ImageTiles.DEFAULT_TILE_SIZE + " tiles " + tilesTime / 1000000L + " ms");
+  }
+
+  private static SimpleImage render(Flame pFlame, LogDensityFilter pLogDensityFilter, GammaCorrectionFilter pGammaCorrectionFilter, int pWidth, int pHeight, int pTileWidth, int pTileHeight, int pThreads) {
+    SimpleImage img = new SimpleImage(pWidth, pHeight);
+    ImageTiles tiles = new ImageTiles(pWidth, pHeight, pTileWidth, pTileHeight);
+    List<RenderImageThread> threads = new ArrayList<>();
+    for (int i = 0; i < pThreads; i++) {
+      threads.add(new RenderImageThread(pFlame, pLogDensityFilter, pGammaCorrectionFilter, tiles, img, null));
+    }
+    RenderExecutor.getInstance().runAll(threads);
+    return img;
+  }
+
+  private static void fillRaster(AbstractRaster pRaster, int pRasterWidth, int pRasterHeight) {
+    Random rnd = new Random(42L);
+    PlotSample[] buffer = new PlotSample[1024];
+    for (int i = 0; i < buffer.length; i++) {
+      buffer[i] = new PlotSample();
+    }
+    for (int b = 0; b < 4000; b++) {
+      for (int i = 0; i < buffer.length; i++) {
+        // dense centre, empty border: the middle bands carry most of the filter work
+        int x = Math.min(pRasterWidth - 1, Math.abs((int) (rnd.nextGaussian() * pRasterWidth / 10 + pRasterWidth / 2)));
+        int y = Math.min(pRasterHeight - 1, Math.abs((int) (rnd.nextGaussian() * pRasterHeight / 10 + pRasterHeight / 2)));
+        buffer[i].set(x, y, rnd.nextDouble() * 255.0, rnd.nextDouble() * 255.0, rnd.nextDouble() * 255.0, 0.0, 0.0, 0.0, 0.0, 0.0, 0.0, 0.0, 0.0);
+      }
+      pRaster.addSamples(buffer, buffer.length);
+    }
+  }
+
+}
@@ -0,0 +1,98 @@
+package org.jwildfire.create.tina.render.image;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.jwildfire.create.tina.base.Flame;
+import org.jwildfire.create.tina.base.raster.AbstractRaster;
+import org.jwildfire.create.tina.base.raster.RasterFloatInt;
+import org.jwildfire.create.tina.random.MarsagliaRandomGenerator;
+import org.jwildfire.create.tina.render.GammaCorrectionFilter;
+import org.jwildfire.create.tina.render.LogDensityFilter;
+import org.jwildfire.create.tina.render.PlotSample;
+import org.jwildfire.create.tina.render.RenderExecutor;
+import org.jwildfire.image.SimpleImage;
+
+public class ImageTilesTest {
+  private static final int IMAGE_WIDTH = 640;
+  private static final int IMAGE_HEIGHT = 480;
+  private static final int THREADS = 4;
+
+  @Test
+  public void testTilesCoverImageOnce() {
+    ImageTiles tiles = new ImageTiles(130, 70);
+    Assert.assertEquals(3 * 2, tiles.getTileCount());
+    int[][] covered = new int[130][70];
+    int tile;
+    while ((tile = tiles.nextTile()) >= 0) {
+      for (int x = tiles.getStartX(tile); x < tiles.getEndX(tile); x++) {
+        for (int y = tiles.getStartY(tile); y < tiles.getEndY(tile); y++) {
+          covered[x][y]++;
+        }
+      }
+    }
+    for (int x = 0; x < 130; x++) {
+      for (int y = 0; y < 70; y++) {
+        Assert.assertEquals(1, covered[x][y]);
+      }
+    }
+    Assert.assertEquals(-1, tiles.nextTile());
+  }
+
+  @Test
+  public void testTiledRenderingMatchesBandedRendering() {
+    Flame flame = new Flame();
+    flame.setSampleJittering(false);
+    flame.setSpatialOversampling(1);
+    int rasterWidth = IMAGE_WIDTH + 8;
+    int rasterHeight = IMAGE_HEIGHT + 8;
+    RasterFloatInt raster = new RasterFloatInt();
+    raster.allocRaster(flame, rasterWidth, rasterHeight);
+    fillRaster(raster, rasterWidth, rasterHeight);
+    LogDensityFilter logDensityFilter = new LogDensityFilter(flame, new MarsagliaRandomGenerator());
+    logDensityFilter.setRaster(raster, rasterWidth, rasterHeight, IMAGE_WIDTH, IMAGE_HEIGHT);
+    GammaCorrectionFilter gammaCorrectionFilter = new GammaCorrectionFilter(flame, false, rasterWidth, rasterHeight);
+
+    int rowsPerThread = (IMAGE_HEIGHT + THREADS - 1) / THREADS;
+    SimpleImage banded = render(flame, logDensityFilter, gammaCorrectionFilter, IMAGE_WIDTH, rowsPerThread);
+    SimpleImage tiled = render(flame, logDensityFilter, gammaCorrectionFilter, ImageTiles.DEFAULT_TILE_SIZE, ImageTiles.DEFAULT_TILE_SIZE);
+
+    for (int y = 0; y < IMAGE_HEIGHT; y++) {
+      for (int x = 0; x < IMAGE_WIDTH; x++) {
+        Assert.assertEquals(banded.getARGBValue(x, y), tiled.getARGBValue(x, y));
+      }
+    }
+  }
+
+  private SimpleImage render(Flame pFlame, LogDensityFilter pLogDensityFilter, GammaCorrectionFilter pGammaCorrectionFilter, int pTileWidth, int pTileHeight) {
+    SimpleImage img = new SimpleImage(IMAGE_WIDTH, IMAGE_HEIGHT);
+    ImageTiles tiles = new ImageTiles(IMAGE_WIDTH, IMAGE_HEIGHT, pTileWidth, pTileHeight);
+    List<RenderImageThread> threads = new ArrayList<>();
+    for (int i = 0; i < THREADS; i++) {
+      threads.add(new RenderImageThread(pFlame, pLogDensityFilter, pGammaCorrectionFilter, tiles, img, null));
+    }
+    RenderExecutor.getInstance().runAll(threads);
+    return img;
+  }
+
+  private void fillRaster(AbstractRaster pRaster, int pRasterWidth, int pRasterHeight) {
+    Random rnd = new Random(42L);
+    PlotSample[] buffer = new PlotSample[1024];
+    for (int i = 0; i < buffer.length; i++) {
+      buffer[i] = new PlotSample();
+    }
+    for (int b = 0; b < 500; b++) {
+      for (int i = 0; i < buffer.length; i++) {
+        // dense centre, sparse border: the middle bands carry most of the filter work
+        int x = Math.min(pRasterWidth - 1, Math.abs((int) (rnd.nextGaussian() * pRasterWidth / 10 + pRasterWidth / 2)));
+        int y = Math.min(pRasterHeight - 1, Math.abs((int) (rnd.nextGaussian() * pRasterHeight / 10 + pRasterHeight / 2)));
+        buffer[i].set(x, y, rnd.nextDouble() * 255.0, rnd.nextDouble() * 255.0, rnd.nextDouble() * 255.0, 0.0, 0.0, 0.0, 0.0, 0.0, 0.0, 0.0, 0.0);
+      }
+      pRaster.addSamples(buffer, buffer.length);
+    }
+  }
+
+}
@@ -0,0 +1,105 @@
+package org.jwildfire.create.tina.render.image;
+
+import java.io.IOException;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.jwildfire.create.tina.base.Flame;
+import org.jwildfire.create.tina.base.raster.RasterFloatInt;
+import org.jwildfire.create.tina.random.MarsagliaRandomGenerator;
+import org.jwildfire.create.tina.render.GammaCorrectionFilter;
+import org.jwildfire.create.tina.render.LogDensityFilter;
+import org.jwildfire.image.SimpleImage;
+import org.jwildfire.io.FloatScanlineWriter;
+
+public class RenderImageThreadTest {
+  private static final int IMAGE_WIDTH = 40;
+  private static final int IMAGE_HEIGHT = 24;
+
+  private Flame createFlame(double pGamma, double pVibrancy) {
+    Flame flame = new Flame();
+    flame.setSampleJittering(false);
+    flame.setSpatialOversampling(1);
+    flame.setSpatialFilterRadius(0.0);
+    // keeps the counts below in the linear range of the log density curve
+    flame.setSampleDensity(1.0e9);
+    flame.setGamma(pGamma);
+    flame.setVibrancy(pVibrancy);
+    flame.setBGColorRed(40);
+    flame.setBGColorGreen(80);
+    flame.setBGColorBlue(120);
+    return flame;
+  }
+
+  private float[] renderLinear(Flame pFlame) throws IOException {
+    RasterFloatInt raster = new RasterFloatInt();
+    raster.allocRaster(pFlame, IMAGE_WIDTH, IMAGE_HEIGHT);
+    raster.writeRawPoint(5, 5, 100.0f, 50.0f, 25.0f, 1000);
+    // same count, twice the color
+    raster.writeRawPoint(6, 5, 200.0f, 100.0f, 50.0f, 1000);
+    // twice the count with the same average color
+    raster.writeRawPoint(7, 5, 200.0f, 100.0f, 50.0f, 2000);
+    LogDensityFilter logDensityFilter = new LogDensityFilter(pFlame, new MarsagliaRandomGenerator());
+    logDensityFilter.setRaster(raster, IMAGE_WIDTH, IMAGE_HEIGHT, IMAGE_WIDTH, IMAGE_HEIGHT);
+    GammaCorrectionFilter gammaCorrectionFilter = new GammaCorrectionFilter(pFlame, true, IMAGE_WIDTH, IMAGE_HEIGHT);
+
+    final float[] rows = new float[IMAGE_WIDTH * IMAGE_HEIGHT * 4];
+    FloatScanlineWriter writer = new FloatScanlineWriter() {
+      private int row;
+
+      @Override
+      public int getWidth() {
+        return IMAGE_WIDTH;
+      }
+
+      @Override
+      public int getHeight() {
+        return IMAGE_HEIGHT;
+      }
+
+      @Override
+      public void writeScanline(float[] pRGBA, int pOffset) throws IOException {
+        System.arraycopy(pRGBA, pOffset, rows, row++ * IMAGE_WIDTH * 4, IMAGE_WIDTH * 4);
+      }
+
+      @Override
+      public void close() throws IOException {
+      }
+    };
+    ImageTiles tiles = new ImageTiles(IMAGE_WIDTH, IMAGE_HEIGHT, 16, 16);
+    LinearImageRows linearRows = new LinearImageRows(tiles, writer);
+    new RenderImageThread(pFlame, logDensityFilter, gammaCorrectionFilter, tiles, new SimpleImage(IMAGE_WIDTH, IMAGE_HEIGHT), null, linearRows).run();
+    linearRows.finish();
+    return rows;
+  }
+
+  private int offset(int pX, int pY) {
+    return (pY * IMAGE_WIDTH + pX) * 4;
+  }
+
+  @Test
+  public void testLinearOutputIsLinearInTheDensity() throws Exception {
+    float[] rows = renderLinear(createFlame(4.0, 1.0));
+    int base = offset(5, 5);
+    Assert.assertTrue(rows[base] > 0.0f);
+    for (int c = 0; c < 3; c++) {
+      Assert.assertEquals(2.0f * rows[base + c], rows[offset(6, 5) + c], 1.0e-5f * rows[base + c]);
+      Assert.assertEquals(2.0f * rows[base + c], rows[offset(7, 5) + c], 1.0e-4f * rows[base + c]);
+    }
+    Assert.assertEquals(2.0f * rows[base + 1], rows[base], 1.0e-5f * rows[base]);
+    Assert.assertEquals(2.0f * rows[base + 3], rows[offset(7, 5) + 3], 1.0e-4f * rows[base + 3]);
+    // empty pixels are transparent, the background color is left to the compositor
+    int empty = offset(20, 12);
+    for (int c = 0; c < 4; c++) {
+      Assert.assertEquals(0.0f, rows[empty + c], 0.0f);
+    }
+  }
+
+  @Test
+  public void testLinearOutputIgnoresGammaAndVibrancy() throws Exception {
+    float[] expected = renderLinear(createFlame(1.0, 1.0));
+    float[] actual = renderLinear(createFlame(4.0, 0.5));
+    Assert.assertArrayEquals(expected, actual, 0.0f);
+  }
+
+}
@@ -0,0 +1,130 @@
+package org.jwildfire.create.tina.render.postdof;
+
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.jwildfire.base.Tools;
+import org.jwildfire.base.mathlib.MathLib;
+import org.jwildfire.create.tina.render.filter.FilterKernel;
+import org.jwildfire.create.tina.render.filter.SineBlurFilterKernel;
+import org.jwildfire.image.SimpleHDRImage;
+
+public class PostDOFBufferTest {
+  private static final int WIDTH = 200;
+  private static final int HEIGHT = 150;
+
+  private void filter(PostDOFBuffer pBuffer, int pTileSize) {
+    pBuffer.prepareKernels();
+    for (int y = 0; y < HEIGHT; y += pTileSize) {
+      for (int x = 0; x < WIDTH; x += pTileSize) {
+        pBuffer.filterTile(x, Math.min(WIDTH, x + pTileSize), y, Math.min(HEIGHT, y + pTileSize));
+      }
+    }
+  }
+
+  private PostDOFBuffer createBuffer(long pSeed, double pMaxDofDist, float pMaxColor) {
+    PostDOFBuffer buffer = new PostDOFBuffer(new SimpleHDRImage(WIDTH, HEIGHT));
+    PostDOFCalculator calculator = new PostDOFCalculator(buffer);
+    calculator.setSeed(pSeed);
+    Random rnd = new Random(pSeed);
+    for (int y = 0; y < HEIGHT; y++) {
+      for (int x = 0; x < WIDTH; x++) {
+        // blur increases from left to right, like a tilted focus plane
+        double dofDist = pMaxDofDist * x / WIDTH;
+        calculator.addSample(x, y, rnd.nextFloat() * pMaxColor, rnd.nextFloat() * pMaxColor, rnd.nextFloat() * pMaxColor, dofDist, 0.0);
+      }
+    }
+    return buffer;
+  }
+
+  private SimpleHDRImage toImage(PostDOFBuffer pBuffer) {
+    SimpleHDRImage res = new SimpleHDRImage(WIDTH, HEIGHT);
+    pBuffer.renderToImage(res);
+    return res;
+  }
+
+  @Test
+  public void testResultDoesNotDependOnTiling() {
+    PostDOFBuffer tiled = createBuffer(42L, 2.0, 255.0f);
+    filter(tiled, 64);
+    PostDOFBuffer untiled = createBuffer(42L, 2.0, 255.0f);
+    filter(untiled, Math.max(WIDTH, HEIGHT));
+    SimpleHDRImage expected = toImage(untiled);
+    SimpleHDRImage actual = toImage(tiled);
+    for (int y = 0; y < HEIGHT; y++) {
+      for (int x = 0; x < WIDTH; x++) {
+        Assert.assertEquals(expected.getRValue(x, y), actual.getRValue(x, y), 0.0f);
+        Assert.assertEquals(expected.getGValue(x, y), actual.getGValue(x, y), 0.0f);
+        Assert.assertEquals(expected.getBValue(x, y), actual.getBValue(x, y), 0.0f);
+      }
+    }
+  }
+
+  @Test
+  public void testBlurKeepsBrightness() {
+    // colors below the bokeh threshold, so no pixel is brightened
+    PostDOFBuffer buffer = createBuffer(4711L, 1.0, 5.9f);
+    PostDOFBuffer unblurred = createBuffer(4711L, 0.0, 5.9f);
+    filter(unblurred, 64);
+    filter(buffer, 64);
+    SimpleHDRImage expected = toImage(unblurred);
+    SimpleHDRImage actual = toImage(buffer);
+    // only compare the inner part, the blur loses light at the borders
+    double expectedSum = 0.0, actualSum = 0.0;
+    for (int y = 20; y < HEIGHT - 20; y++) {
+      for (int x = 20; x < WIDTH - 20; x++) {
+        expectedSum += expected.getRValue(x, y);
+        actualSum += actual.getRValue(x, y);
+      }
+    }
+    Assert.assertEquals(expectedSum, actualSum, 0.01 * expectedSum);
+  }
+
+  // the former scatter implementation (without the random bokeh and radius jitter)
+  private void scatter(float[] pDst, int pX, int pY, float pColor, double pPlainRadius) {
+    FilterKernel kernel = new SineBlurFilterKernel();
+    double radius = Tools.FTOI(pPlainRadius);
+    if (radius < 2.0) {
+      radius = 2.0;
+    }
+    double stepSize = PostDOFCalculator.getStepSize(radius);
+    double scaledInvRadius = 1.0 / pPlainRadius * kernel.getSpatialSupport();
+    double intensitySum = 0.0;
+    float[] tmp = new float[pDst.length];
+    for (double i = -radius; i < radius + MathLib.EPSILON; i += stepSize) {
+      double iSquare = MathLib.sqr(i * scaledInvRadius);
+      for (double j = -radius; j < radius + MathLib.EPSILON; j += stepSize) {
+        double intensity = kernel.getFilterCoeff(MathLib.sqrt(iSquare + MathLib.sqr(j * scaledInvRadius)));
+        if (intensity > MathLib.EPSILON) {
+          intensitySum += intensity;
+          tmp[Tools.FTOI(pY + j) * WIDTH + Tools.FTOI(pX + i)] += intensity;
+        }
+      }
+    }
+    for (int i = 0; i < tmp.length; i++) {
+      pDst[i] += (float) (tmp[i] * pColor / intensitySum);
+    }
+  }
+
+  @Test
+  public void testSplatMatchesScatterImplementation() {
+    double[] radii = { 2.5, 3.25, 3.875 };
+    for (double plainRadius : radii) {
+      PostDOFBuffer buffer = new PostDOFBuffer(new SimpleHDRImage(WIDTH, HEIGHT));
+      PostDOFCalculator calculator = new PostDOFCalculator(buffer);
+      calculator.setSeed(1L);
+      calculator.addSample(WIDTH / 2, HEIGHT / 2, 5.0f, 5.0f, 5.0f, plainRadius / 10.0, 0.0);
+      filter(buffer, 64);
+      SimpleHDRImage actual = toImage(buffer);
+      float[] expected = new float[WIDTH * HEIGHT];
+      scatter(expected, WIDTH / 2, HEIGHT / 2, 5.0f, plainRadius);
+      for (int y = 0; y < HEIGHT; y++) {
+        for (int x = 0; x < WIDTH; x++) {
+          Assert.assertEquals(expected[y * WIDTH + x], actual.getRValue(x, y), 0.0001f);
+        }
+      }
+    }
+  }
+
+}
@@ -0,0 +1,84 @@
+package org.jwildfire.image;
+
+import java.awt.image.BufferedImage;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class SimpleImageTest {
+  private static final int WIDTH = 37;
+  private static final int HEIGHT = 23;
+
+  @Test
+  public void testDirectPixelsMatchBufferedImage() {
+    SimpleImage img = new SimpleImage(WIDTH, HEIGHT);
+    int[] pixels = img.getPixels();
+    Assert.assertNotNull(pixels);
+    Assert.assertEquals(WIDTH * HEIGHT, pixels.length);
+
+    Random rnd = new Random(42L);
+    for (int y = 0; y < HEIGHT; y++) {
+      for (int x = 0; x < WIDTH; x++) {
+        int argb = rnd.nextInt();
+        img.setARGB(x, y, argb);
+        Assert.assertEquals(argb, img.getBufferedImg().getRGB(x, y));
+        Assert.assertEquals(argb, pixels[y * WIDTH + x]);
+      }
+    }
+    img.getBufferedImg().setRGB(3, 4, 0x12345678);
+    Assert.assertEquals(0x12345678, img.getARGBValue(3, 4));
+    img.setRGB(5, 6, 10, 20, 30);
+    Assert.assertEquals(0xff0a141e, img.getBufferedImg().getRGB(5, 6));
+
+    SimpleImage clone = img.clone();
+    Assert.assertNotSame(pixels, clone.getPixels());
+    Assert.assertArrayEquals(pixels, clone.getPixels());
+  }
+
+  @Test
+  public void testRowsWithAndWithoutDirectPixels() {
+    SimpleImage direct = new SimpleImage(WIDTH, HEIGHT);
+    // a sub image shares the raster of its parent, so it must use the BufferedImage accessors
+    BufferedImage parent = new BufferedImage(WIDTH + 2, HEIGHT + 2, BufferedImage.TYPE_INT_ARGB);
+    SimpleImage indirect = new SimpleImage(parent.getSubimage(1, 1, WIDTH, HEIGHT), WIDTH, HEIGHT);
+    Assert.assertNotNull(direct.getPixels());
+    Assert.assertNull(indirect.getPixels());
+
+    Random rnd = new Random(4711L);
+    int[] line = new int[WIDTH];
+    for (int y = 0; y < HEIGHT; y++) {
+      for (int x = 0; x < WIDTH; x++) {
+        line[x] = rnd.nextInt();
+      }
+      direct.setLine(y, line);
+      indirect.setLine(y, line);
+    }
+    for (int y = 0; y < HEIGHT; y++) {
+      Assert.assertArrayEquals(direct.getLine(y), indirect.getLine(y));
+      for (int x = 0; x < WIDTH; x++) {
+        Assert.assertEquals(direct.getARGBValue(x, y), parent.getRGB(x + 1, y + 1));
+      }
+    }
+    // the border of the parent stays untouched
+    Assert.assertEquals(0, parent.getRGB(0, 0));
+    Assert.assertEquals(0, parent.getRGB(WIDTH + 1, HEIGHT + 1));
+
+    int[] part = new int[5];
+    direct.getARGBRow(7, 10, 15, part);
+    for (int i = 0; i < part.length; i++) {
+      Assert.assertEquals(direct.getARGBValue(10 + i, 7), part[i]);
+    }
+  }
+
+  @Test(expected = RuntimeException.class)
+  public void testOutOfBounds() {
+    new SimpleImage(WIDTH, HEIGHT).getARGBValue(WIDTH, 0);
+  }
+
+  @Test(expected = ArrayIndexOutOfBoundsException.class)
+  public void testRowOutOfBounds() {
+    new SimpleImage(WIDTH, HEIGHT).setARGBRow(0, 1, WIDTH + 1, new int[WIDTH]);
+  }
+
+}
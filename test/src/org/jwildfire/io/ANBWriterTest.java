@@ -0,0 +1,93 @@
+package org.jwildfire.io;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.jwildfire.image.SimpleImage;
+
+public class ANBWriterTest {
+  private static final int WIDTH = 13;
+  private static final int HEIGHT = 7;
+
+  private List<SimpleImage> createFrames(int pCount) {
+    Random rnd = new Random(42L);
+    List<SimpleImage> res = new ArrayList<SimpleImage>();
+    for (int i = 0; i < pCount; i++) {
+      SimpleImage img = new SimpleImage(WIDTH, HEIGHT);
+      for (int y = 0; y < HEIGHT; y++) {
+        for (int x = 0; x < WIDTH; x++) {
+          img.setARGB(x, y, rnd.nextInt());
+        }
+      }
+      res.add(img);
+    }
+    return res;
+  }
+
+  // the layout of the former in-memory writer: header, then one plane per channel and frame, grouped by channel
+  private byte[] createExpected(List<SimpleImage> pFrames) {
+    int frameCount = pFrames.size();
+    int size = (WIDTH + 1) * (HEIGHT + 1);
+    byte[] buffer = new byte[36 + 4 * frameCount * size];
+    int[] header = { WIDTH, HEIGHT, frameCount - 1, 1, 0, 16, 0, 0 };
+    buffer[0] = 'A';
+    buffer[1] = 'N';
+    buffer[2] = 'B';
+    buffer[3] = 'R';
+    for (int i = 0; i < header.length; i++) {
+      for (int b = 0; b < 4; b++) {
+        buffer[4 + i * 4 + b] = (byte) (header[i] >> (8 * b));
+      }
+    }
+    int offset = 36;
+    int[] shifts = { 16, 8, 0, 24 };
+    for (int channel = 0; channel < 4; channel++) {
+      for (SimpleImage frame : pFrames) {
+        for (int y = 0; y < HEIGHT; y++) {
+          for (int x = 0; x < WIDTH; x++) {
+            buffer[offset + y * (WIDTH + 1) + x] = (byte) (frame.getARGBValue(x, y) >> shifts[channel]);
+          }
+        }
+        offset += size;
+      }
+    }
+    return buffer;
+  }
+
+  private byte[] write(List<SimpleImage> pFrames, int pMaxFrameCount) throws Exception {
+    File file = File.createTempFile("jwf", ".anb");
+    try {
+      ANBWriter writer = new ANBWriter(file.getAbsolutePath(), WIDTH, HEIGHT, pMaxFrameCount);
+      try {
+        for (SimpleImage frame : pFrames) {
+          writer.addFrame(frame);
+        }
+      }
+      finally {
+        writer.close();
+      }
+      return Files.readAllBytes(file.toPath());
+    }
+    finally {
+      file.delete();
+    }
+  }
+
+  @Test
+  public void testStreamedFileMatchesBufferedLayout() throws Exception {
+    List<SimpleImage> frames = createFrames(5);
+    Assert.assertArrayEquals(createExpected(frames), write(frames, 5));
+  }
+
+  @Test
+  public void testCancelledSequenceIsCompacted() throws Exception {
+    List<SimpleImage> frames = createFrames(3);
+    Assert.assertArrayEquals(createExpected(frames), write(frames, 8));
+  }
+
+}
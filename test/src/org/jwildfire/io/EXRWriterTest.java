@@ -0,0 +1,137 @@
+package org.jwildfire.io;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class EXRWriterTest {
+  private static final int WIDTH = 11;
+  private static final int HEIGHT = 5;
+
+  private static float fromHalfFloat(short pValue) {
+    int sign = (pValue & 0x8000) != 0 ? -1 : 1;
+    int exponent = (pValue >>> 10) & 0x1f;
+    int mantissa = pValue & 0x3ff;
+    if (exponent == 0x1f) {
+      return mantissa != 0 ? Float.NaN : sign * Float.POSITIVE_INFINITY;
+    }
+    if (exponent == 0) {
+      return sign * mantissa * (float) Math.pow(2.0, -24.0);
+    }
+    return sign * (1.0f + mantissa / 1024.0f) * (float) Math.pow(2.0, exponent - 15);
+  }
+
+  @Test
+  public void testHalfFloat() {
+    Assert.assertEquals(0x3c00, EXRWriter.toHalfFloat(1.0f));
+    Assert.assertEquals(0x3800, EXRWriter.toHalfFloat(0.5f));
+    Assert.assertEquals((short) 0xc000, EXRWriter.toHalfFloat(-2.0f));
+    Assert.assertEquals(0x7bff, EXRWriter.toHalfFloat(65504.0f));
+    Assert.assertEquals(0x7c00, EXRWriter.toHalfFloat(65520.0f));
+    Assert.assertEquals(0x7c00, EXRWriter.toHalfFloat(Float.POSITIVE_INFINITY));
+    Assert.assertTrue(Float.isNaN(fromHalfFloat(EXRWriter.toHalfFloat(Float.NaN))));
+    Assert.assertEquals(0x0001, EXRWriter.toHalfFloat((float) Math.pow(2.0, -24.0)));
+    Assert.assertEquals(0x0000, EXRWriter.toHalfFloat((float) Math.pow(2.0, -26.0)));
+    // ties round to even
+    Assert.assertEquals(0x3c00, EXRWriter.toHalfFloat(1.0f + 1.0f / 2048.0f));
+    Assert.assertEquals(0x3c02, EXRWriter.toHalfFloat(1.0f + 3.0f / 2048.0f));
+
+    Random rnd = new Random(42L);
+    for (int i = 0; i < 100000; i++) {
+      float value = (float) ((rnd.nextDouble() - 0.5) * Math.pow(2.0, rnd.nextInt(40) - 24));
+      float half = fromHalfFloat(EXRWriter.toHalfFloat(value));
+      // half a unit in the last place for normal values, 2^-25 for subnormal ones
+      double tolerance = Math.max(Math.abs(value) / 2048.0, Math.pow(2.0, -25.0));
+      Assert.assertEquals(value, half, tolerance);
+    }
+  }
+
+  private float[] createRows(long pSeed) {
+    Random rnd = new Random(pSeed);
+    float[] res = new float[WIDTH * HEIGHT * 4];
+    for (int i = 0; i < res.length; i++) {
+      res[i] = rnd.nextFloat() * 4.0f;
+    }
+    return res;
+  }
+
+  private ByteBuffer write(float[] pRows, int pRowCount, boolean pHalfFloat) throws Exception {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    EXRWriter writer = new EXRWriter(out, WIDTH, HEIGHT, pHalfFloat);
+    for (int i = 0; i < pRowCount; i++) {
+      writer.writeScanline(pRows, i * WIDTH * 4);
+    }
+    writer.close();
+    return ByteBuffer.wrap(out.toByteArray()).order(ByteOrder.LITTLE_ENDIAN);
+  }
+
+  private int skipHeader(ByteBuffer pData) {
+    Assert.assertEquals(20000630, pData.getInt(0));
+    Assert.assertEquals(2, pData.getInt(4));
+    int pos = 8;
+    // attributes, terminated by an empty name
+    while (pData.get(pos) != 0) {
+      while (pData.get(pos++) != 0) {
+      }
+      while (pData.get(pos++) != 0) {
+      }
+      int size = pData.getInt(pos);
+      pos += 4 + size;
+    }
+    return pos + 1;
+  }
+
+  private void assertFile(boolean pHalfFloat) throws Exception {
+    float[] rows = createRows(4711L);
+    ByteBuffer data = write(rows, HEIGHT, pHalfFloat);
+    int bytesPerValue = pHalfFloat ? 2 : 4;
+    int offsetTable = skipHeader(data);
+    int chunkSize = 8 + WIDTH * 4 * bytesPerValue;
+    Assert.assertEquals(offsetTable + 8 * HEIGHT + HEIGHT * chunkSize, data.capacity());
+    int[] channelIdx = { 3, 2, 1, 0 };
+    for (int y = 0; y < HEIGHT; y++) {
+      int chunk = (int) data.getLong(offsetTable + 8 * y);
+      Assert.assertEquals(offsetTable + 8 * HEIGHT + y * chunkSize, chunk);
+      Assert.assertEquals(y, data.getInt(chunk));
+      Assert.assertEquals(chunkSize - 8, data.getInt(chunk + 4));
+      int pos = chunk + 8;
+      for (int c = 0; c < 4; c++) {
+        for (int x = 0; x < WIDTH; x++, pos += bytesPerValue) {
+          float expected = rows[(y * WIDTH + x) * 4 + channelIdx[c]];
+          if (pHalfFloat) {
+            Assert.assertEquals(EXRWriter.toHalfFloat(expected), data.getShort(pos));
+          }
+          else {
+            Assert.assertEquals(expected, data.getFloat(pos), 0.0f);
+          }
+        }
+      }
+    }
+  }
+
+  @Test
+  public void testWriteHalfFloat() throws Exception {
+    assertFile(true);
+  }
+
+  @Test
+  public void testWriteFloat() throws Exception {
+    assertFile(false);
+  }
+
+  @Test
+  public void testMissingRowsAreFilled() throws Exception {
+    ByteBuffer data = write(createRows(42L), 2, false);
+    int offsetTable = skipHeader(data);
+    int chunkSize = 8 + WIDTH * 4 * 4;
+    Assert.assertEquals(offsetTable + 8 * HEIGHT + HEIGHT * chunkSize, data.capacity());
+    int lastChunk = (int) data.getLong(offsetTable + 8 * (HEIGHT - 1));
+    Assert.assertEquals(HEIGHT - 1, data.getInt(lastChunk));
+    Assert.assertEquals(0.0f, data.getFloat(lastChunk + 8), 0.0f);
+  }
+
+}
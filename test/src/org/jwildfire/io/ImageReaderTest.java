@@ -0,0 +1,133 @@
+package org.jwildfire.io;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.jwildfire.base.Tools;
+import org.jwildfire.image.SimpleHDRImage;
+import org.jwildfire.image.SimpleImage;
+
+public class ImageReaderTest {
+
+  private SimpleHDRImage createHDRImage(int pWidth, int pHeight) {
+    Random rnd = new Random(42L);
+    SimpleHDRImage img = new SimpleHDRImage(pWidth, pHeight);
+    for (int i = 0; i < pHeight; i++) {
+      for (int j = 0; j < pWidth; j++) {
+        // flat areas and noise, so the rows contain runs and literals
+        if (j < pWidth / 3) {
+          img.setRGB(j, i, 0.25f, 0.5f, 0.75f);
+        }
+        else {
+          img.setRGB(j, i, rnd.nextFloat() * 4.0f, rnd.nextFloat(), rnd.nextFloat() * 0.01f);
+        }
+      }
+    }
+    return img;
+  }
+
+  // the image as read pixel by pixel from its RGBE values
+  private void assertSameRGBE(SimpleHDRImage pImage, SimpleHDRImage pActual) {
+    Assert.assertEquals(pImage.getImageWidth(), pActual.getImageWidth());
+    Assert.assertEquals(pImage.getImageHeight(), pActual.getImageHeight());
+    SimpleHDRImage expected = new SimpleHDRImage(pImage.getImageWidth(), pImage.getImageHeight());
+    for (int i = 0; i < pImage.getImageHeight(); i++) {
+      for (int j = 0; j < pImage.getImageWidth(); j++) {
+        int rgbe = pImage.getRGBEValue(j, i);
+        expected.setRGBEValue(j, i, (rgbe >> 24) & 0xff, (rgbe >> 16) & 0xff, (rgbe >> 8) & 0xff, rgbe & 0xff);
+        Assert.assertEquals(expected.getRValue(j, i), pActual.getRValue(j, i), 0.0f);
+        Assert.assertEquals(expected.getGValue(j, i), pActual.getGValue(j, i), 0.0f);
+        Assert.assertEquals(expected.getBValue(j, i), pActual.getBValue(j, i), 0.0f);
+      }
+    }
+  }
+
+  private void assertHDRRoundTrip(int pWidth, int pHeight) throws Exception {
+    SimpleHDRImage img = createHDRImage(pWidth, pHeight);
+    File file = File.createTempFile("jwf", ".hdr");
+    try {
+      new ImageWriter().saveAsHDR(img, file.getAbsolutePath());
+      assertSameRGBE(img, new ImageReader().loadHDRImage(file.getAbsolutePath()));
+    }
+    finally {
+      file.delete();
+    }
+  }
+
+  @Test
+  public void testHDRRoundTrip() throws Exception {
+    assertHDRRoundTrip(300, 20);
+    // too narrow for run length encoding
+    assertHDRRoundTrip(5, 7);
+  }
+
+  @Test
+  public void testRunLengthEncodingCompressesFlatAreas() throws Exception {
+    SimpleHDRImage img = new SimpleHDRImage(640, 480);
+    img.fillBackground(10, 20, 30);
+    File file = File.createTempFile("jwf", ".hdr");
+    try {
+      new ImageWriter().saveAsHDR(img, file.getAbsolutePath());
+      Assert.assertTrue(file.length() < 640 * 480 / 10);
+      assertSameRGBE(img, new ImageReader().loadHDRImage(file.getAbsolutePath()));
+    }
+    finally {
+      file.delete();
+    }
+  }
+
+  @Test
+  public void testReadFlatHDR() throws Exception {
+    // files written by former versions store every row as flat RGBE
+    SimpleHDRImage img = createHDRImage(64, 8);
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    RGBEScanlines.writeHeader(out, img.getImageWidth(), img.getImageHeight());
+    for (int i = 0; i < img.getImageHeight(); i++) {
+      for (int j = 0; j < img.getImageWidth(); j++) {
+        int rgbe = img.getRGBEValue(j, i);
+        out.write(rgbe >> 24);
+        out.write(rgbe >> 16);
+        out.write(rgbe >> 8);
+        out.write(rgbe);
+      }
+    }
+    File file = File.createTempFile("jwf", ".hdr");
+    try {
+      Tools.writeFile(file.getAbsolutePath(), out.toByteArray());
+      assertSameRGBE(img, new ImageReader().loadHDRImage(file.getAbsolutePath()));
+    }
+    finally {
+      file.delete();
+    }
+  }
+
+  @Test
+  public void testLoadImageKeepsAlpha() throws Exception {
+    SimpleImage img = new SimpleImage(17, 9);
+    Random rnd = new Random(42L);
+    for (int i = 0; i < img.getImageHeight(); i++) {
+      for (int j = 0; j < img.getImageWidth(); j++) {
+        img.setARGB(j, i, rnd.nextInt(256), rnd.nextInt(256), rnd.nextInt(256), rnd.nextInt(256));
+      }
+    }
+    File file = File.createTempFile("jwf", ".png");
+    try {
+      new ImageWriter().saveAsPNG(img, file.getAbsolutePath());
+      SimpleImage loaded = new ImageReader().loadImage(file.getAbsolutePath());
+      Assert.assertEquals(BufferedImage.TYPE_INT_ARGB, loaded.getBufferedImg().getType());
+      for (int i = 0; i < img.getImageHeight(); i++) {
+        for (int j = 0; j < img.getImageWidth(); j++) {
+          Assert.assertEquals(img.getARGBValue(j, i), loaded.getARGBValue(j, i));
+        }
+      }
+    }
+    finally {
+      file.delete();
+    }
+  }
+
+}